@@ -0,0 +1,218 @@
+package cc.sars.carga;
+
+import cc.sars.model.Role;
+import cc.sars.service.GrupoService;
+import cc.sars.service.SerieService;
+import cc.sars.service.UsuarioService;
+import org.springframework.context.ApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Datos sembrados y peticiones de la prueba de carga. Cada grupo tiene un líder, un QC y 'usuarios' miembros, y
+ * 'series' series de 'capitulos' capítulos con las 8 tareas de la plantilla. Además hay usuarios 'rotantes', sin
+ * grupo, que los clientes dan de alta y de baja en los grupos.
+ * <p>
+ * Las peticiones se eligen por pesos ('mezcla'):
+ * <ul>
+ *     <li>tablero: una página de 50 capítulos de una serie (sin ETag, así que llega a la base de datos);</li>
+ *     <li>reclamar: un miembro se asigna una tarea de los capítulos sembrados y, la siguiente vez, la suelta;</li>
+ *     <li>capitulos: alta en masa de 10 capítulos nuevos con la plantilla;</li>
+ *     <li>miembros: alta de un rotante en un grupo, cambio a QC y baja, por turnos.</li>
+ * </ul>
+ * Las reglas de las tareas rechazan con RuntimeException, que la API devuelve como 500: en 'reclamar', los 5xx son
+ * sobre todo tareas que ya tenía otro cliente.
+ */
+final class Escenario {
+
+    private static final String[] PLANTILLA = {"Traducción", "Corrección", "Limpieza", "Redibujo", "Typeo", "QC", "Edición", "CC"};
+    private static final String PLANTILLA_JSON = Arrays.stream(PLANTILLA)
+            .map(tarea -> "{\"nombre\": \"" + tarea + "\"}")
+            .collect(Collectors.joining(", ", "[", "]"));
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    enum Operacion {
+        TABLERO, RECLAMAR, CAPITULOS, MIEMBROS
+    }
+
+    /** Una petición y el nombre con el que se agregan sus medidas. */
+    record Peticion(String endpoint, HttpRequest http) {
+    }
+
+    private final int grupos;
+    private final int usuarios;
+    private final int series;
+    private final int capitulos;
+    private final int rotantes;
+    private final Operacion[] porPeso;
+
+    Escenario(int grupos, int usuarios, int series, int capitulos, int rotantes, String mezcla) {
+        this.grupos = grupos;
+        this.usuarios = usuarios;
+        this.series = series;
+        this.capitulos = capitulos;
+        this.rotantes = rotantes;
+        this.porPeso = pesos(mezcla);
+    }
+
+    /** "tablero=70,reclamar=20,capitulos=5,miembros=5": cada operación aparece en la tabla tantas veces como su peso. */
+    private static Operacion[] pesos(String mezcla) {
+        Map<Operacion, Integer> pesos = new LinkedHashMap<>();
+        for (String parte : mezcla.split(",")) {
+            String[] claveValor = parte.trim().split("=");
+            pesos.put(Operacion.valueOf(claveValor[0].trim().toUpperCase()), Integer.parseInt(claveValor[1].trim()));
+        }
+        Operacion[] tabla = pesos.entrySet().stream()
+                .flatMap(peso -> IntStream.range(0, peso.getValue()).mapToObj(i -> peso.getKey()))
+                .toArray(Operacion[]::new);
+        if (tabla.length == 0) {
+            throw new IllegalArgumentException("Mezcla sin operaciones: " + mezcla);
+        }
+        return tabla;
+    }
+
+    String descripcion() {
+        Map<Operacion, Long> pesos = Arrays.stream(porPeso).collect(Collectors.groupingBy(o -> o, LinkedHashMap::new, Collectors.counting()));
+        return String.format("%d grupos × (%d usuarios, %d series × %d capítulos × %d tareas), %d rotantes; mezcla %s",
+                grupos, usuarios, series, capitulos, PLANTILLA.length, rotantes, pesos);
+    }
+
+    /** Siembra los datos a través de los servicios, como los crearía la aplicación. */
+    void sembrar(ApplicationContext contexto) {
+        GrupoService grupoService = contexto.getBean(GrupoService.class);
+        UsuarioService usuarioService = contexto.getBean(UsuarioService.class);
+        SerieService serieService = contexto.getBean(SerieService.class);
+        String nombresCapitulos = IntStream.rangeClosed(1, capitulos).mapToObj(Escenario::capitulo).collect(Collectors.joining("\n"));
+        String[] tareas = Arrays.stream(PLANTILLA).map(tarea -> tarea + "###NoAsignado###NADIE").toArray(String[]::new);
+
+        for (int g = 0; g < grupos; g++) {
+            String grupo = grupo(g);
+            grupoService.crearGrupo(grupo);
+            // crearUsuario con grupo lo deja como LÍDER
+            usuarioService.crearUsuario(lider(g), "carga", Role.ROLE_USER, grupo);
+            usuarioService.crearUsuario(qc(g), "carga", Role.ROLE_USER, null);
+            grupoService.agregarUsuarioAGrupo(qc(g), grupo, Role.ROLE_QC);
+            for (int u = 0; u < usuarios; u++) {
+                usuarioService.crearUsuario(miembro(g, u), "carga", Role.ROLE_USER, null);
+                grupoService.agregarUsuarioAGrupo(miembro(g, u), grupo, Role.ROLE_USER);
+            }
+            for (int s = 0; s < series; s++) {
+                serieService.createSerie(serie(s), "Serie de la prueba de carga", grupo);
+                serieService.addCapitulosToSerie(grupo, serie(s), nombresCapitulos, tareas);
+            }
+        }
+        for (int r = 0; r < rotantes; r++) {
+            usuarioService.crearUsuario(rotante(r), "carga", Role.ROLE_USER, null);
+        }
+    }
+
+    /**
+     * Estado de un cliente: su generador (semilla propia, así que repite la misma secuencia), el número de peticiones
+     * hechas, la tarea que tiene reclamada y el paso en que va su ciclo de membresía. Cada cliente actúa como un
+     * miembro fijo de un grupo fijo.
+     */
+    static final class Cliente {
+        private final int id;
+        private final Random azar;
+        private long peticiones;
+        private int pasoMiembros;
+        private String tareaReclamada;
+
+        Cliente(int id, long semilla) {
+            this.id = id;
+            this.azar = new Random(semilla * 31 + id);
+        }
+    }
+
+    Peticion siguiente(String base, Cliente cliente) {
+        Random azar = cliente.azar;
+        int g = cliente.id % grupos;
+        String serie = base + "/api/grupos/" + ruta(grupo(g)) + "/series/" + ruta(serie(azar.nextInt(series)));
+        long n = cliente.peticiones++;
+        return switch (porPeso[azar.nextInt(porPeso.length)]) {
+            case TABLERO -> new Peticion("GET capitulos", get(serie + "/capitulos?limit=50"));
+            case RECLAMAR -> {
+                // Reclama una tarea al azar y en su siguiente turno la suelta; si otro cliente la tiene, se rechaza
+                String usuario = miembro(g, (cliente.id / grupos) % usuarios);
+                String tarea = cliente.tareaReclamada;
+                String nuevoEstado = "NoAsignado";
+                if (tarea == null) {
+                    tarea = serie + "/capitulos/" + ruta(capitulo(azar.nextInt(capitulos) + 1))
+                            + "/tareas/" + ruta(PLANTILLA[azar.nextInt(PLANTILLA.length)]) + "/estado";
+                    nuevoEstado = "Asignado";
+                }
+                cliente.tareaReclamada = nuevoEstado.equals("Asignado") ? tarea : null;
+                String cuerpo = "{\"nuevoEstado\": \"" + nuevoEstado + "\", \"username\": \"" + usuario + "\"}";
+                yield new Peticion("PUT tareas/estado", enviar("PUT", tarea, cuerpo));
+            }
+            case CAPITULOS -> {
+                String nombres = IntStream.rangeClosed(1, 10).mapToObj(i -> "Carga " + cliente.id + "-" + n + "-" + i)
+                        .collect(Collectors.joining("\\n"));
+                String cuerpo = "{\"nombresCapitulos\": \"" + nombres + "\", \"tareasEnMasa\": " + PLANTILLA_JSON + "}";
+                yield new Peticion("POST capitulos/bulk", enviar("POST", serie + "/capitulos/bulk", cuerpo));
+            }
+            case MIEMBROS -> {
+                // Alta → QC → baja del mismo rotante; los clientes que comparten rotante chocan (4xx)
+                String miembro = base + "/api/usuarios/" + rotante(cliente.id % rotantes) + "/grupos/" + ruta(grupo(g));
+                yield switch (cliente.pasoMiembros++ % 3) {
+                    case 0 -> new Peticion("POST usuarios/grupos", enviar("POST", miembro, ""));
+                    case 1 -> new Peticion("PUT usuarios/grupos/rol", enviar("PUT", miembro + "/rol", "{\"rolEnGrupo\": \"ROLE_QC\"}"));
+                    default -> new Peticion("DELETE usuarios/grupos", HttpRequest.newBuilder(URI.create(miembro)).timeout(TIMEOUT).DELETE().build());
+                };
+            }
+        };
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static HttpRequest enviar(String metodo, String uri, String cuerpo) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(metodo, HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+    }
+
+    private static String ruta(String segmento) {
+        return URLEncoder.encode(segmento, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String grupo(int g) {
+        return "Carga" + g;
+    }
+
+    private static String lider(int g) {
+        return "lider" + g;
+    }
+
+    private static String qc(int g) {
+        return "qc" + g;
+    }
+
+    private static String miembro(int g, int u) {
+        return "carga" + g + "-" + u;
+    }
+
+    private static String rotante(int r) {
+        return "rotante" + r;
+    }
+
+    private static String serie(int s) {
+        return "Serie " + s;
+    }
+
+    private static String capitulo(int c) {
+        return "Cap " + c;
+    }
+}
@@ -0,0 +1,127 @@
+package cc.sars.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias (histograma HDR en microsegundos, 3 cifras significativas) y respuestas por endpoint, compartidas por
+ * todos los clientes de la prueba.
+ */
+final class Medidas {
+
+    private static final long MAXIMO_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    static final class PorEndpoint {
+        final Histogram latencias = new ConcurrentHistogram(MAXIMO_MICROS, 3);
+        final LongAdder rechazadas = new LongAdder();
+        final LongAdder errores = new LongAdder();
+        final LongAdder fallos = new LongAdder();
+    }
+
+    private final Map<String, PorEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    /** Una respuesta: 2xx/3xx correcta, 4xx rechazada (conflictos esperables entre clientes) y 5xx error. */
+    void respuesta(String endpoint, int estado, long nanos) {
+        PorEndpoint medidas = de(endpoint);
+        medidas.latencias.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAXIMO_MICROS));
+        if (estado >= 500) {
+            medidas.errores.increment();
+        } else if (estado >= 400) {
+            medidas.rechazadas.increment();
+        }
+    }
+
+    /** Sin respuesta (conexión rechazada, timeout...): no entra en las latencias. */
+    void fallo(String endpoint) {
+        de(endpoint).fallos.increment();
+    }
+
+    /** Totales de todos los endpoints, para comparar ejecuciones (ver PruebaCarga con varias configuraciones). */
+    record Total(long peticiones, double porSegundo, long errores, long fallos, double p50Ms, double p99Ms) {
+    }
+
+    Total total(Duration duracion) {
+        Histogram latencias = new Histogram(MAXIMO_MICROS, 3);
+        long errores = 0;
+        long fallos = 0;
+        for (PorEndpoint medidas : endpoints.values()) {
+            latencias.add(medidas.latencias);
+            errores += medidas.errores.sum();
+            fallos += medidas.fallos.sum();
+        }
+        return new Total(latencias.getTotalCount(), latencias.getTotalCount() / (duracion.toNanos() / 1e9), errores, fallos,
+                latencias.getValueAtPercentile(50) / 1000.0, latencias.getValueAtPercentile(99) / 1000.0);
+    }
+
+    private PorEndpoint de(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, e -> new PorEndpoint());
+    }
+
+    /**
+     * Escribe en 'directorio' el resumen legible (informe.txt), el mismo en CSV (resultados.csv, una fila por endpoint
+     * y una 'TOTAL') y la distribución completa de cada endpoint en formato .hgrm (la que dibuja el HdrHistogram plotter).
+     */
+    List<String> escribir(Path directorio, Duration duracion, List<String> cabecera) throws IOException {
+        Files.createDirectories(directorio);
+        double segundos = duracion.toNanos() / 1e9;
+        List<String> informe = new ArrayList<>(cabecera);
+        informe.add(String.format("%-28s %9s %9s %7s %7s %7s %9s %9s %9s %9s %9s",
+                "endpoint", "peticiones", "pet/s", "4xx", "5xx", "fallos", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        List<String> csv = new ArrayList<>();
+        csv.add("endpoint,peticiones,por_segundo,rechazadas,errores,fallos,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+
+        Histogram total = new Histogram(MAXIMO_MICROS, 3);
+        long rechazadas = 0;
+        long errores = 0;
+        long fallos = 0;
+        for (String endpoint : endpoints.keySet().stream().sorted().toList()) {
+            PorEndpoint medidas = endpoints.get(endpoint);
+            Histogram latencias = medidas.latencias.copy();
+            total.add(latencias);
+            rechazadas += medidas.rechazadas.sum();
+            errores += medidas.errores.sum();
+            fallos += medidas.fallos.sum();
+            fila(informe, csv, endpoint, latencias, segundos, medidas.rechazadas.sum(), medidas.errores.sum(), medidas.fallos.sum());
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(directorio.resolve(fichero(endpoint) + ".hgrm")))) {
+                latencias.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+        fila(informe, csv, "TOTAL", total, segundos, rechazadas, errores, fallos);
+
+        Files.write(directorio.resolve("informe.txt"), informe);
+        Files.write(directorio.resolve("resultados.csv"), csv);
+        return informe;
+    }
+
+    private static void fila(List<String> informe, List<String> csv, String endpoint, Histogram latencias, double segundos,
+                             long rechazadas, long errores, long fallos) {
+        long peticiones = latencias.getTotalCount();
+        double[] ms = {
+                latencias.getValueAtPercentile(50) / 1000.0,
+                latencias.getValueAtPercentile(90) / 1000.0,
+                latencias.getValueAtPercentile(99) / 1000.0,
+                latencias.getValueAtPercentile(99.9) / 1000.0,
+                latencias.getMaxValue() / 1000.0};
+        informe.add(String.format(Locale.ROOT, "%-28s %9d %9.1f %7d %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f",
+                endpoint, peticiones, peticiones / segundos, rechazadas, errores, fallos, ms[0], ms[1], ms[2], ms[3], ms[4]));
+        csv.add(String.format(Locale.ROOT, "%s,%d,%.1f,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f",
+                endpoint, peticiones, peticiones / segundos, rechazadas, errores, fallos, ms[0], ms[1], ms[2], ms[3], ms[4]));
+    }
+
+    private static String fichero(String endpoint) {
+        return endpoint.replaceAll("[^A-Za-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+}
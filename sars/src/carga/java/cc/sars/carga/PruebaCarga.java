@@ -0,0 +1,197 @@
+package cc.sars.carga;
+
+import cc.sars.SarsApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga local y sin red: arranca la aplicación completa en un puerto libre, siembra la base de datos (ver
+ * {@link Escenario}) y la recorre con 'clientes' clientes HTTP concurrentes durante el calentamiento y la medida.
+ * Escribe el rendimiento y los percentiles HDR por endpoint en 'sars.carga.salida' (informe.txt, resultados.csv y un
+ * .hgrm por endpoint), y en jvm.csv el arranque (hasta el contexto listo) y el heap ocupado tras GC al terminar.
+ * <p>
+ * mvn -Pcarga verify [-Dcarga.clientes=200] [-Dcarga.duracion=60s] [-Dcarga.mezcla=tablero=90,reclamar=10]
+ * <p>
+ * Por defecto usa la H2 en memoria de los tests. Los argumentos se pasan tal cual a la aplicación, así que para
+ * PostgreSQL local basta con -Dcarga.app="--spring.datasource.url=jdbc:postgresql://localhost:5432/sars_carga
+ * --spring.datasource.username=... --spring.datasource.password=... --spring.datasource.driver-class-name=org.postgresql.Driver
+ * --spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect" (el esquema se crea y se borra). Lo mismo
+ * para probar otras opciones, como --spring.datasource.hikari.maximum-pool-size=5.
+ * <p>
+ * Para comparar configuraciones, 'clientes' admite una lista y 'hilos' elige el modelo de hilos del servidor
+ * (plataforma, virtuales o los dos): la aplicación se arranca una vez por modelo y se mide con cada número de clientes,
+ * cada combinación en su subdirectorio (p. ej. virtuales-200) y el resumen en comparacion.txt. Los hilos virtuales
+ * necesitan JDK 21 o posterior; con uno anterior no se miden.
+ * mvn -Pcarga verify -Dcarga.hilos=plataforma,virtuales -Dcarga.clientes=50,200,1000
+ * <p>
+ * Los clientes van en bucle cerrado (cada uno espera su respuesta antes de la siguiente petición), así que con el
+ * servidor saturado la latencia medida subestima la que vería un tráfico de llegada constante.
+ */
+public final class PruebaCarga {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private PruebaCarga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> clientes = lista("sars.carga.clientes", "50").stream().map(Integer::valueOf).toList();
+        // Vacío: el modelo de hilos que configure la aplicación
+        List<String> hilos = lista("sars.carga.hilos", "");
+        Duration calentamiento = duracion("sars.carga.calentamiento", "10s");
+        Duration duracion = duracion("sars.carga.duracion", "30s");
+        long semilla = Long.getLong("sars.carga.semilla", 42L);
+        Path salida = Path.of(System.getProperty("sars.carga.salida", "target/carga"));
+        Escenario escenario = new Escenario(
+                Integer.getInteger("sars.carga.grupos", 4),
+                Integer.getInteger("sars.carga.usuarios", 10),
+                Integer.getInteger("sars.carga.series", 3),
+                Integer.getInteger("sars.carga.capitulos", 100),
+                Integer.getInteger("sars.carga.rotantes", 20),
+                System.getProperty("sars.carga.mezcla", "tablero=70,reclamar=20,capitulos=5,miembros=5"));
+        boolean comparar = clientes.size() > 1 || hilos.size() > 1;
+
+        List<String> comparacion = new ArrayList<>();
+        comparacion.add("Prueba de carga con JDK " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors() + " CPU, "
+                + calentamiento.toSeconds() + " s de calentamiento y " + duracion.toSeconds() + " s medidos por combinación");
+        comparacion.add(String.format("%-11s %8s %9s %9s %9s %7s %7s", "hilos", "clientes", "pet/s", "p50 ms", "p99 ms", "5xx", "fallos"));
+        // Hasta el primer contexto listo cuenta también el arranque de la JVM; en los siguientes, solo el del contexto
+        long inicioArranque = 0;
+        for (String modelo : hilos.isEmpty() ? List.of("") : hilos) {
+            String[] argumentos = args;
+            if (!modelo.isEmpty()) {
+                if (!modelo.equals("plataforma") && !modelo.equals("virtuales")) {
+                    throw new IllegalArgumentException("Modelo de hilos desconocido: " + modelo);
+                }
+                if (modelo.equals("virtuales") && Runtime.version().feature() < 21) {
+                    comparacion.add("virtuales: necesitan JDK 21 o posterior, no se miden");
+                    continue;
+                }
+                argumentos = Arrays.copyOf(args, args.length + 1);
+                argumentos[args.length] = "--spring.threads.virtual.enabled=" + modelo.equals("virtuales");
+            }
+            try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(SarsApplication.class)
+                    // Sin exportar métricas por OTLP: la prueba no sale de la máquina
+                    .properties("server.port=0", "logging.level.root=WARN", "management.otlp.metrics.export.enabled=false")
+                    .run(argumentos)) {
+                long arranqueMs = ManagementFactory.getRuntimeMXBean().getUptime() - inicioArranque;
+                String etiqueta = Threading.VIRTUAL.isActive(contexto.getEnvironment()) ? "virtuales" : "plataforma";
+                long inicioSiembra = System.nanoTime();
+                escenario.sembrar(contexto);
+                Duration siembra = Duration.ofNanos(System.nanoTime() - inicioSiembra);
+                int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+
+                for (int clientesMedida : clientes) {
+                    Medidas medidas = cargar("http://localhost:" + puerto, escenario, clientesMedida, calentamiento, duracion, semilla);
+                    MemoryUsage heap = heapTrasGc();
+                    Path directorio = comparar ? salida.resolve(etiqueta + "-" + clientesMedida) : salida;
+
+                    List<String> cabecera = new ArrayList<>();
+                    cabecera.add("Prueba de carga con JDK " + Runtime.version() + ", " + Runtime.getRuntime().availableProcessors() + " CPU, "
+                            + contexto.getEnvironment().getProperty("spring.datasource.url") + ", hilos de " + etiqueta);
+                    cabecera.add(escenario.descripcion() + "; siembra en " + siembra.toMillis() + " ms");
+                    cabecera.add(clientesMedida + " clientes, semilla " + semilla + ", " + calentamiento.toSeconds() + " s de calentamiento y "
+                            + duracion.toSeconds() + " s medidos");
+                    cabecera.add(String.format(Locale.ROOT, "Arranque en %d ms; heap tras GC al final de la medida %.1f MB (máximo %.0f MB)",
+                            arranqueMs, heap.getUsed() / MB, heap.getMax() / MB));
+                    medidas.escribir(directorio, duracion, cabecera).forEach(System.out::println);
+                    Files.write(directorio.resolve("jvm.csv"), List.of("metrica,valor",
+                            "arranque_ms," + arranqueMs,
+                            String.format(Locale.ROOT, "heap_mb,%.1f", heap.getUsed() / MB),
+                            String.format(Locale.ROOT, "heap_max_mb,%.0f", heap.getMax() / MB)));
+
+                    Medidas.Total total = medidas.total(duracion);
+                    comparacion.add(String.format(Locale.ROOT, "%-11s %8d %9.1f %9.2f %9.2f %7d %7d", etiqueta, clientesMedida,
+                            total.porSegundo(), total.p50Ms(), total.p99Ms(), total.errores(), total.fallos()));
+                }
+            }
+            inicioArranque = ManagementFactory.getRuntimeMXBean().getUptime();
+        }
+
+        if (comparar) {
+            Files.createDirectories(salida);
+            Files.write(salida.resolve("comparacion.txt"), comparacion);
+            comparacion.forEach(System.out::println);
+        }
+        System.out.println("Informe en " + salida.toAbsolutePath());
+    }
+
+    private static Medidas cargar(String base, Escenario escenario, int clientes, Duration calentamiento, Duration duracion,
+                                  long semilla) throws InterruptedException {
+        Medidas medidas = new Medidas();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long inicioMedida = System.nanoTime() + calentamiento.toNanos();
+        long fin = inicioMedida + duracion.toNanos();
+
+        ExecutorService hilos = Executors.newFixedThreadPool(clientes);
+        for (int c = 0; c < clientes; c++) {
+            int id = c;
+            hilos.execute(() -> {
+                Escenario.Cliente cliente = new Escenario.Cliente(id, semilla);
+                while (System.nanoTime() < fin) {
+                    Escenario.Peticion peticion = escenario.siguiente(base, cliente);
+                    long inicio = System.nanoTime();
+                    try {
+                        int estado = http.send(peticion.http(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (inicio >= inicioMedida) {
+                            medidas.respuesta(peticion.endpoint(), estado, System.nanoTime() - inicio);
+                        }
+                    } catch (IOException e) {
+                        if (inicio >= inicioMedida) {
+                            medidas.fallo(peticion.endpoint());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        hilos.shutdown();
+        if (!hilos.awaitTermination(calentamiento.plus(duracion).toSeconds() + 120, TimeUnit.SECONDS)) {
+            hilos.shutdownNow();
+            throw new IllegalStateException("Los clientes no han terminado a tiempo");
+        }
+        return medidas;
+    }
+
+    /** Heap ocupado tras dos GC completos: lo que la aplicación retiene en régimen estable, sin basura pendiente. */
+    private static MemoryUsage heapTrasGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+
+    /** Valores separados por comas de una propiedad; vacía si no tiene ninguno. */
+    private static List<String> lista(String propiedad, String porDefecto) {
+        return Arrays.stream(System.getProperty(propiedad, porDefecto).split(","))
+                .map(String::trim)
+                .filter(valor -> !valor.isEmpty())
+                .toList();
+    }
+
+    private static Duration duracion(String propiedad, String porDefecto) {
+        return Duration.parse("PT" + System.getProperty(propiedad, porDefecto).toUpperCase());
+    }
+}
@@ -0,0 +1,60 @@
+package cc.sars.jmh;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Llenado de los agregados con Capitulo.anyadirTarea y Serie.addCapitulo: cada operación crea el capítulo o la serie
+ * y le añade 'elementos' tareas o capítulos nuevos, como al crear capítulos desde la plantilla. Las dos comprueban con
+ * contains() que el elemento no esté ya, así que el coste por elemento crece con el tamaño de la lista.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AgregadosBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int elementos;
+
+    private Tarea[] tareas;
+    private Capitulo[] capitulos;
+
+    @Setup
+    public void preparar() {
+        tareas = new Tarea[elementos];
+        capitulos = new Capitulo[elementos];
+        for (int i = 0; i < elementos; i++) {
+            tareas[i] = new Tarea("Tarea " + i);
+            capitulos[i] = new Capitulo("Capítulo " + i);
+        }
+    }
+
+    @Benchmark
+    public Capitulo anyadirTarea() {
+        Capitulo capitulo = new Capitulo("Capítulo");
+        for (Tarea tarea : tareas) {
+            capitulo.anyadirTarea(tarea);
+        }
+        return capitulo;
+    }
+
+    @Benchmark
+    public Serie addCapitulo() {
+        Serie serie = new Serie("Serie", "desc");
+        for (Capitulo capitulo : capitulos) {
+            serie.addCapitulo(capitulo);
+        }
+        return serie;
+    }
+}
@@ -0,0 +1,134 @@
+package cc.sars.jmh;
+
+import cc.sars.evento.EventoDominio;
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.model.User;
+import cc.sars.repository.TareaRepository;
+import cc.sars.service.ContadoresProgreso;
+import cc.sars.service.OutboxEventos;
+import cc.sars.service.RegistroCambios;
+import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Dobles en memoria de los colaboradores de SerieService para los benchmarks: sin Spring, sin base de datos y sin
+ * Mockito (que registraría cada llamada y se mediría a sí mismo). Solo responden a lo que usan las transiciones.
+ */
+final class Dobles {
+
+    static final String[] PLANTILLA = {"Traducción", "Corrección", "Limpieza", "Redibujo", "Typeo", "QC", "Edición", "CC"};
+
+    private Dobles() {
+    }
+
+    /** Serie de un grupo con 'capitulos' capítulos de la plantilla, todas las tareas sin asignar. */
+    static Serie serie(String grupo, String nombre, int capitulos) {
+        Serie serie = new Serie(nombre, "desc");
+        serie.setGrupo(new Grupo(grupo));
+        for (int i = 1; i <= capitulos; i++) {
+            Capitulo capitulo = new Capitulo("Capítulo " + i);
+            for (String nombreTarea : PLANTILLA) {
+                Tarea tarea = new Tarea(nombreTarea);
+                tarea.setEstadoTarea(EstadosTareas.NoAsignado);
+                tarea.setUsuarioAsignado("NADIE");
+                capitulo.anyadirTarea(tarea);
+            }
+            serie.addCapitulo(capitulo);
+        }
+        return serie;
+    }
+
+    /**
+     * TareaRepository que busca por nombre en 'tareas' (findByNaturalKey y findByCapituloAndNombre) y devuelve lo que
+     * recibe en save. Cualquier otro método falla.
+     */
+    static TareaRepository tareaRepository(Function<String, Tarea> tareas) {
+        return (TareaRepository) Proxy.newProxyInstance(TareaRepository.class.getClassLoader(), new Class<?>[]{TareaRepository.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "findByNaturalKey" -> Optional.ofNullable(tareas.apply((String) args[3]));
+                    case "findByCapituloAndNombre" -> Optional.ofNullable(tareas.apply((String) args[1]));
+                    case "save" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "TareaRepository en memoria";
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    /** Usuarios ya cargados, con sus roles en el único grupo de la prueba. */
+    static final class Usuarios extends UsuarioService {
+
+        private final Map<String, User> usuarios;
+        private final Set<String> lideres;
+        private final Set<String> qcs;
+
+        Usuarios(Map<String, User> usuarios, Set<String> lideres, Set<String> qcs) {
+            super(null, null, null, null, null, null, null, null, null);
+            this.usuarios = usuarios;
+            this.lideres = lideres;
+            this.qcs = qcs;
+        }
+
+        @Override
+        public Optional<User> findByUsername(String username) {
+            return Optional.ofNullable(usuarios.get(username));
+        }
+
+        @Override
+        public boolean esLiderEnGrupo(User user, Grupo grupo) {
+            return lideres.contains(user.getUsername());
+        }
+
+        @Override
+        public boolean esQcEnGrupo(User user, Grupo grupo) {
+            return qcs.contains(user.getUsername());
+        }
+    }
+
+    /** Sin contadores: en la aplicación son dos UPDATE relativos. */
+    static final class SinContadores extends ContadoresProgreso {
+
+        SinContadores() {
+            super(null, null);
+        }
+
+        @Override
+        public void tareaCambiada(Tarea tarea, EstadosTareas estadoAnterior) {
+        }
+    }
+
+    /** Sin outbox: los eventos se construyen, pero no se insertan. */
+    static final class SinOutbox extends OutboxEventos {
+
+        SinOutbox() {
+            super(null, new ValidadoresHttp());
+        }
+
+        @Override
+        public void publicar(EventoDominio evento) {
+        }
+    }
+
+    /** Versión de serie fija, sin avanzar la de la fila de progreso. */
+    static final class SinRegistro extends RegistroCambios {
+
+        SinRegistro() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public void tareaCambiada(Tarea tarea) {
+            tarea.marcarCambio(1L);
+        }
+    }
+}
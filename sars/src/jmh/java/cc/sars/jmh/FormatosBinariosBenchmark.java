@@ -0,0 +1,69 @@
+package cc.sars.jmh;
+
+import cc.sars.config.FormatosBinariosConfig;
+import cc.sars.controller.api.dto.CapituloDTO;
+import cc.sars.controller.api.dto.TareaDTO;
+import cc.sars.model.EstadosTareas;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de un tablero de 'capitulos' capítulos con las tareas de la plantilla, en cada formato de la API, con
+ * los ObjectMapper que construye {@link FormatosBinariosConfig}. Con '-prof gc' se ve también cuánto asigna cada uno.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatosBinariosBenchmark {
+
+    private static final String SERIE = "Serie";
+
+    @Param({"json", "smile", "cbor"})
+    private String formato;
+
+    @Param({"500"})
+    private int capitulos;
+
+    private ObjectMapper mapper;
+    private List<CapituloDTO> tablero;
+
+    @Setup
+    public void preparar() {
+        FormatosBinariosConfig config = new FormatosBinariosConfig();
+        mapper = switch (formato) {
+            case "json" -> new Jackson2ObjectMapperBuilder().build();
+            case "smile" -> config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+            case "cbor" -> config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+            default -> throw new IllegalArgumentException("Formato desconocido: " + formato);
+        };
+        // Estados y usuarios variados, como en un tablero real: todo 'NoAsignado' favorecería a Smile
+        EstadosTareas[] estados = EstadosTareas.values();
+        tablero = new ArrayList<>(capitulos);
+        for (int i = 1; i <= capitulos; i++) {
+            List<TareaDTO> tareas = new ArrayList<>(Dobles.PLANTILLA.length);
+            for (int t = 0; t < Dobles.PLANTILLA.length; t++) {
+                EstadosTareas estado = estados[(i + t) % estados.length];
+                tareas.add(new TareaDTO(Dobles.PLANTILLA[t], estado, estado == EstadosTareas.NoAsignado ? "NADIE" : "usuario" + (t % 3)));
+            }
+            tablero.add(new CapituloDTO("Capítulo " + i, SERIE, tareas));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializar() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(tablero);
+    }
+}
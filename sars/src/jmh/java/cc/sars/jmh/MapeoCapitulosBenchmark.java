@@ -0,0 +1,72 @@
+package cc.sars.jmh;
+
+import cc.sars.controller.api.CapituloRestController;
+import cc.sars.controller.api.dto.CapituloDTO;
+import cc.sars.model.Capitulo;
+import cc.sars.service.Pagina;
+import cc.sars.service.SerieService;
+import cc.sars.service.ValidadoresHttp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Una página del tablero en CapituloRestController.getCapitulosBySerie: comprobación de la ETag (sin 'If-None-Match'),
+ * mapeo de capítulos y tareas a DTO y cabeceras y enlace de paginación. La página sale de un SerieService en memoria, así que no
+ * se mide la consulta ni la serialización a JSON.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MapeoCapitulosBenchmark {
+
+    private static final String GRUPO = "Grupo";
+    private static final String SERIE = "Serie";
+
+    /** Capítulos por página: el límite por defecto y el máximo de {@link Pagina}. */
+    @Param({"50", "200"})
+    private int capitulos;
+
+    private CapituloRestController controller;
+    private ServletWebRequest peticion;
+
+    @Setup
+    public void preparar() {
+        Pagina<Capitulo> pagina = new Pagina<>(Dobles.serie(GRUPO, SERIE, capitulos).getCapitulos(), "siguiente");
+        SerieService serieService = new SerieService(null, null, null, null, null, null, null, null, null, null) {
+            @Override
+            public Pagina<Capitulo> getCapitulosPagina(String nombreGrupo, String nombreSerie, String cursor, Integer limite) {
+                return pagina;
+            }
+        };
+        controller = new CapituloRestController(serieService, new ValidadoresHttp());
+        peticion = new ServletWebRequest(new MockHttpServletRequest("GET", "/api/grupos/Grupo/series/Serie/capitulos"),
+                new MockHttpServletResponse());
+        // El enlace a la página siguiente se construye desde la petición en curso
+        RequestContextHolder.setRequestAttributes(peticion);
+    }
+
+    @TearDown
+    public void terminar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<CapituloDTO>> pagina() {
+        return controller.getCapitulosBySerie(GRUPO, SERIE, capitulos, null, peticion);
+    }
+}
@@ -0,0 +1,84 @@
+package cc.sars.jmh;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Role;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.model.User;
+import cc.sars.service.SerieService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reglas de SerieService.updateTareaEstado por cada camino de rol: líder, QC y usuario. Los repositorios y el resto
+ * de colaboradores son dobles en memoria (ver {@link Dobles}), así que se mide la búsqueda de usuario y roles, las
+ * reglas y la construcción del evento, no la base de datos. Cada llamada devuelve antes la tarea a su estado de partida.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransicionesBenchmark {
+
+    private static final String GRUPO = "Grupo";
+    private static final String SERIE = "Serie";
+    private static final String CAPITULO = "Capítulo 1";
+
+    private SerieService serieService;
+    private Tarea traduccion;
+    private Tarea typeo;
+    private Tarea limpieza;
+
+    @Setup
+    public void preparar() {
+        Serie serie = Dobles.serie(GRUPO, SERIE, 1);
+        Capitulo capitulo = serie.getCapitulos().get(0);
+        Map<String, Tarea> tareas = capitulo.getTareas().stream().collect(Collectors.toMap(Tarea::getNombre, Function.identity()));
+        traduccion = tareas.get("Traducción");
+        typeo = tareas.get("Typeo");
+        limpieza = tareas.get("Limpieza");
+
+        Map<String, User> usuarios = Map.of(
+                "lider", new User("lider", "x", Role.ROLE_USER),
+                "qc", new User("qc", "x", Role.ROLE_USER),
+                "ana", new User("ana", "x", Role.ROLE_USER));
+        serieService = new SerieService(null, null, Dobles.tareaRepository(tareas::get), null, null,
+                new Dobles.Usuarios(usuarios, Set.of("lider"), Set.of("qc")),
+                new Dobles.SinContadores(), new Dobles.SinOutbox(), new Dobles.SinRegistro(), null);
+    }
+
+    /** El líder completa una tarea sin asignar (se la queda él). */
+    @Benchmark
+    public Tarea lider() {
+        traduccion.setEstadoTarea(EstadosTareas.NoAsignado);
+        traduccion.setUsuarioAsignado("NADIE");
+        return serieService.updateTareaEstado(GRUPO, SERIE, CAPITULO, "Traducción", EstadosTareas.Completado, "lider");
+    }
+
+    /** Un QC manda repetir la tarea completada de otro: pasa por la comprobación de la 'CC' del capítulo. */
+    @Benchmark
+    public Tarea qc() {
+        typeo.setEstadoTarea(EstadosTareas.Completado);
+        typeo.setUsuarioAsignado("ana");
+        return serieService.updateTareaEstado(GRUPO, SERIE, CAPITULO, "Typeo", EstadosTareas.Repetir, "qc");
+    }
+
+    /** Un usuario sin rol se asigna una tarea libre. */
+    @Benchmark
+    public Tarea usuario() {
+        limpieza.setEstadoTarea(EstadosTareas.NoAsignado);
+        limpieza.setUsuarioAsignado("NADIE");
+        return serieService.updateTareaEstado(GRUPO, SERIE, CAPITULO, "Limpieza", EstadosTareas.Asignado, "ana");
+    }
+}
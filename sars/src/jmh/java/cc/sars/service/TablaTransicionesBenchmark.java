@@ -0,0 +1,154 @@
+package cc.sars.service;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Role;
+import cc.sars.model.Tarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TablaTransiciones} frente a la cadena de if/else que sustituyó en SerieService (copiada aquí, con los mensajes
+ * devueltos en lugar de lanzados para no medir las excepciones). Cada operación decide y aplica las 96 combinaciones de
+ * rol (líder, QC, usuario), estado actual, estado nuevo y tarea libre o ajena, tras comprobar que coinciden. Está en el paquete del servicio porque
+ * la tabla no es pública; el recorrido completo a través de SerieService está en cc.sars.jmh.TransicionesBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TablaTransicionesBenchmark {
+
+    private static final Role[] ROLES = {Role.ROLE_LIDER, Role.ROLE_QC, Role.ROLE_USER};
+    private static final EstadosTareas[] ESTADOS = EstadosTareas.values();
+    private static final String[] ASIGNADOS = {"NADIE", "otro"};
+    private static final int COMBINACIONES = 96;
+
+    private Tarea tarea;
+
+    /** Antes de medir, comprueba que las dos deciden y aplican lo mismo en todas las combinaciones. */
+    @Setup
+    public void preparar() {
+        tarea = new Tarea("Traducción");
+        Tarea otra = new Tarea("Traducción");
+        for (Role rol : ROLES) {
+            for (EstadosTareas actual : ESTADOS) {
+                for (EstadosTareas nuevo : ESTADOS) {
+                    for (String asignado : ASIGNADOS) {
+                        tarea.setEstadoTarea(actual);
+                        tarea.setUsuarioAsignado(asignado);
+                        otra.setEstadoTarea(actual);
+                        otra.setUsuarioAsignado(asignado);
+                        String porTabla = conTabla(tarea, nuevo, "ana", rol) + " " + tarea.getEstadoTarea();
+                        String porCadena = conCadena(otra, nuevo, "ana", rol == Role.ROLE_LIDER, rol == Role.ROLE_QC) + " " + otra.getEstadoTarea();
+                        if (!porTabla.equals(porCadena)) {
+                            throw new IllegalStateException(rol + " " + actual + " -> " + nuevo + " (" + asignado + "): "
+                                    + porTabla + " / " + porCadena);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINACIONES)
+    public void tabla(Blackhole bh) {
+        for (Role rol : ROLES) {
+            for (EstadosTareas actual : ESTADOS) {
+                for (EstadosTareas nuevo : ESTADOS) {
+                    for (String asignado : ASIGNADOS) {
+                        tarea.setEstadoTarea(actual);
+                        tarea.setUsuarioAsignado(asignado);
+                        bh.consume(conTabla(tarea, nuevo, "ana", rol));
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINACIONES)
+    public void cadena(Blackhole bh) {
+        for (Role rol : ROLES) {
+            for (EstadosTareas actual : ESTADOS) {
+                for (EstadosTareas nuevo : ESTADOS) {
+                    for (String asignado : ASIGNADOS) {
+                        tarea.setEstadoTarea(actual);
+                        tarea.setUsuarioAsignado(asignado);
+                        bh.consume(conCadena(tarea, nuevo, "ana", rol == Role.ROLE_LIDER, rol == Role.ROLE_QC));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Lo mismo que SerieService.aplicarTransicion: el usuario asignado tras el cambio, o el motivo del rechazo. */
+    private static String conTabla(Tarea tarea, EstadosTareas nuevoEstado, String nombreUsuarioActual, Role rol) {
+        TablaTransiciones.Decision decision = TablaTransiciones.decidir(rol, tarea.getEstadoTarea(), nuevoEstado);
+        String usuarioAsignado = tarea.getUsuarioAsignado();
+        if (decision.soloLibreOPropia() && !usuarioAsignado.equals("NADIE") && !usuarioAsignado.equals(nombreUsuarioActual)) {
+            return "asignada a otro";
+        }
+        if (!decision.permitida()) {
+            return decision.rechazo();
+        }
+        switch (decision.asignacion()) {
+            case USUARIO_ACTUAL -> tarea.setUsuarioAsignado(nombreUsuarioActual);
+            case NADIE -> tarea.setUsuarioAsignado("NADIE");
+            case MANTENER -> { }
+        }
+        tarea.setEstadoTarea(nuevoEstado);
+        return tarea.getUsuarioAsignado();
+    }
+
+    /** La cadena de reglas anterior a la tabla, sin el bloqueo por la 'CC' (que sigue fuera de la tabla). */
+    private static String conCadena(Tarea tarea, EstadosTareas nuevoEstado, String nombreUsuarioActual, boolean esLider, boolean esQc) {
+        String usuarioAsignado = tarea.getUsuarioAsignado();
+        EstadosTareas estadoActual = tarea.getEstadoTarea();
+        if (esLider) {
+            if (nuevoEstado == EstadosTareas.Asignado) {
+                tarea.setUsuarioAsignado(nombreUsuarioActual);
+            } else if (nuevoEstado == EstadosTareas.NoAsignado || nuevoEstado == EstadosTareas.Repetir) {
+                tarea.setUsuarioAsignado("NADIE");
+            } else if (nuevoEstado == EstadosTareas.Completado) {
+                tarea.setUsuarioAsignado(nombreUsuarioActual);
+            }
+        } else {
+            if (esQc && nuevoEstado == EstadosTareas.Repetir && estadoActual == EstadosTareas.Completado) {
+                tarea.setUsuarioAsignado("NADIE");
+            } else if (!usuarioAsignado.equals("NADIE") && !usuarioAsignado.equals(nombreUsuarioActual)) {
+                return "asignada a otro";
+            } else if (estadoActual == EstadosTareas.NoAsignado || estadoActual == EstadosTareas.Repetir) {
+                if (nuevoEstado == EstadosTareas.Asignado || nuevoEstado == EstadosTareas.Completado) {
+                    tarea.setUsuarioAsignado(nombreUsuarioActual);
+                } else {
+                    return "Solo puedes asignarte esta tarea.";
+                }
+            } else if (estadoActual == EstadosTareas.Asignado) {
+                if (nuevoEstado == EstadosTareas.NoAsignado) {
+                    tarea.setUsuarioAsignado("NADIE");
+                } else if (nuevoEstado != EstadosTareas.Completado) {
+                    return "Solo puedes marcar como completada o desasignar esta tarea.";
+                }
+            } else if (estadoActual == EstadosTareas.Completado) {
+                if (nuevoEstado == EstadosTareas.Repetir) {
+                    tarea.setUsuarioAsignado("NADIE");
+                } else {
+                    return "Solo puedes marcar como repetir esta tarea.";
+                }
+            } else {
+                return "Transición de estado no permitida para usuarios.";
+            }
+        }
+        tarea.setEstadoTarea(nuevoEstado);
+        return tarea.getUsuarioAsignado();
+    }
+}
@@ -0,0 +1,112 @@
+package cc.sars.config;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limita cuántos hilos usan a la vez conexiones de un pool: un permiso de un semáforo justo por conexión, que se
+ * toma al pedirla y se devuelve al cerrarla.
+ * <p>
+ * Con hilos de plataforma el límite real era el número de hilos de Tomcat; con hilos virtuales no hay límite, y
+ * cientos de peticiones esperarían a la vez dentro del pool. Con el semáforo esperan en orden de llegada, fuera del
+ * pool, y al pasar 'espera' fallan con una SQLTransientConnectionException en lugar de acumularse.
+ */
+class DataSourceConSemaforo extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+    private final Duration espera;
+
+    DataSourceConSemaforo(DataSource destino, int permisos, Duration espera) {
+        super(destino);
+        this.permisos = new Semaphore(permisos, true);
+        this.espera = espera;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        tomarPermiso();
+        try {
+            return conPermiso(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        tomarPermiso();
+        try {
+            return conPermiso(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /** Hilos esperando un permiso. */
+    int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    int getPermisosLibres() {
+        return permisos.availablePermits();
+    }
+
+    private void tomarPermiso() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(espera.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("No hay conexiones libres tras esperar " + espera.toMillis() + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido mientras se esperaba una conexión.", e);
+        }
+    }
+
+    /**
+     * La conexión devuelve su permiso con el primer close(); los siguientes solo se delegan.
+     */
+    private Connection conPermiso(Connection conexion) {
+        AtomicBoolean devuelto = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class},
+                (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "equals":
+                            return proxy == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "getTargetConnection":
+                            return conexion;
+                        case "close":
+                            if (devuelto.compareAndSet(false, true)) {
+                                try {
+                                    conexion.close();
+                                } finally {
+                                    permisos.release();
+                                }
+                                return null;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return metodo.invoke(conexion, argumentos);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,74 @@
+package cc.sars.config;
+
+import cc.sars.service.ValidadoresHttp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Elige el pool de cada conexión: las transacciones de solo lectura van a la réplica (salvo dentro de la
+ * {@link VentanaLecturaPropia} o en peticiones que responden con ETag, ver {@link ValidadoresHttp}); las de escritura
+ * y los accesos sin transacción, a la primaria.
+ * <p>
+ * Debe ir envuelto en un LazyConnectionDataSourceProxy: el gestor de transacciones pide la conexión antes de
+ * marcar la transacción como de solo lectura, y el proxy retrasa la elección hasta la primera sentencia.
+ * Publica 'datasource.routing' con las etiquetas pool (primaria|replica) y motivo.
+ */
+class EnrutadorReplica extends AbstractRoutingDataSource {
+
+    static final String PRIMARIA = "primaria";
+    static final String REPLICA = "replica";
+
+    private final VentanaLecturaPropia ventanaLecturaPropia;
+    private final ValidadoresHttp validadoresHttp;
+    private final Counter escrituras;
+    private final Counter sinTransaccion;
+    private final Counter lecturasPropias;
+    private final Counter lecturasConValidador;
+    private final Counter lecturas;
+
+    EnrutadorReplica(DataSource primaria, DataSource replica, VentanaLecturaPropia ventanaLecturaPropia,
+                     ValidadoresHttp validadoresHttp, MeterRegistry meterRegistry) {
+        this.ventanaLecturaPropia = ventanaLecturaPropia;
+        this.validadoresHttp = validadoresHttp;
+        setTargetDataSources(Map.of(PRIMARIA, primaria, REPLICA, replica));
+        setDefaultTargetDataSource(primaria);
+        this.escrituras = contador(meterRegistry, PRIMARIA, "escritura");
+        this.sinTransaccion = contador(meterRegistry, PRIMARIA, "sin-transaccion");
+        this.lecturasPropias = contador(meterRegistry, PRIMARIA, "lectura-propia");
+        this.lecturasConValidador = contador(meterRegistry, PRIMARIA, "validador");
+        this.lecturas = contador(meterRegistry, REPLICA, "lectura");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            sinTransaccion.increment();
+            return PRIMARIA;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ventanaLecturaPropia.registrarEscrituraAlConfirmar();
+            escrituras.increment();
+            return PRIMARIA;
+        }
+        // La etiqueta ya enviada puede ser más nueva que lo replicado
+        if (validadoresHttp.peticionConValidador()) {
+            lecturasConValidador.increment();
+            return PRIMARIA;
+        }
+        if (ventanaLecturaPropia.haEscritoRecientemente()) {
+            lecturasPropias.increment();
+            return PRIMARIA;
+        }
+        lecturas.increment();
+        return REPLICA;
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String pool, String motivo) {
+        return Counter.builder("datasource.routing").tag("pool", pool).tag("motivo", motivo).register(meterRegistry);
+    }
+}
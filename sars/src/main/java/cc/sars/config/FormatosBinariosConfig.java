@@ -0,0 +1,37 @@
+package cc.sars.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Formatos binarios de la API, para clientes que los pidan en 'Accept' (o los envíen en 'Content-Type'):
+ * Smile ('application/x-jackson-smile') y CBOR ('application/cbor').
+ * <p>
+ * Los tableros repiten miles de veces los mismos nombres de campo y estados ('NoAsignado', 'Completado'...).
+ * Smile escribe cada nombre y cada valor corto repetido una sola vez y después lo referencia; CBOR no, pero lo
+ * entiende casi cualquier lenguaje. Los dos conversores salen del mismo Jackson2ObjectMapperBuilder de Spring Boot
+ * que el de JSON (mismos módulos y opciones) y ocupan el sitio de los que Spring MVC añade por defecto, detrás del
+ * de JSON: sin 'Accept' o con '*&#47;*' la respuesta sigue siendo JSON.
+ */
+@Configuration
+public class FormatosBinariosConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory smile = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smile).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
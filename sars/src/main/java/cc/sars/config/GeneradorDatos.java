@@ -0,0 +1,444 @@
+package cc.sars.config;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Role;
+import cc.sars.service.MembresiasCache;
+import cc.sars.service.UsuariosCache;
+import cc.sars.service.ValidadoresHttp;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Datos sintéticos a escala de producción para pruebas de rendimiento: perfil 'generador'
+ * (--spring.profiles.active=generador). Al arrancar crea 'grupos' grupos, 'usuarios' usuarios repartidos entre ellos,
+ * 'series' series por grupo y 'capitulos' capítulos por serie, con sus tareas y los contadores de progreso ya
+ * calculados. Con la misma semilla genera siempre los mismos datos; si el primer grupo ya existe no hace nada.
+ * <p>
+ * Membresías: cada usuario entra en el grupo (índice % grupos) y, con probabilidad 'otro-grupo' cada vez, en alguno
+ * más. El primero de cada grupo es su LÍDER y del resto una fracción 'qc' son QC. Todos comparten la contraseña
+ * 'contrasenya' (se cifra una sola vez).
+ * <p>
+ * Tareas: 'tareas' es la mezcla "nombre=porcentaje de capítulos que la tienen" y 'estados' los pesos de cada estado;
+ * las asignadas y completadas son de un miembro del grupo al azar.
+ * <p>
+ * No pasa por JPA ni publica eventos: los ids salen de bloques reservados en las secuencias de las entidades y las
+ * filas se escriben con COPY en PostgreSQL y por lotes JDBC en las demás bases de datos, en una sola transacción.
+ * Al terminar vacía las cachés, por si la aplicación sigue atendiendo peticiones.
+ */
+@Component
+@Profile("generador")
+public class GeneradorDatos implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatos.class);
+
+    private static final int TAMANYO_LOTE = 1000;
+    private static final int TAMANYO_BUFFER_COPY = 1 << 16;
+    private static final String SIN_USUARIO = "NADIE";
+    private static final EstadosTareas[] ESTADOS = EstadosTareas.values();
+
+    /** Propiedades 'sars.generador.*'. */
+    public record Parametros(
+            @DefaultValue("10") int grupos,
+            @DefaultValue("1000") int usuarios,
+            @DefaultValue("25") int series,
+            @DefaultValue("500") int capitulos,
+            @DefaultValue("Traducción=100,Corrección=100,Limpieza=100,Redibujo=60,Typeo=100,QC=100,Edición=100,CC=90") String tareas,
+            @DefaultValue("NoAsignado=35,Asignado=15,Completado=45,Repetir=5") String estados,
+            @DefaultValue("0.25") double otroGrupo,
+            @DefaultValue("0.1") double qc,
+            @DefaultValue("generador") String contrasenya,
+            @DefaultValue("gen") String prefijo,
+            @DefaultValue("42") long semilla) {
+    }
+
+    /** Lo que se ha escrito, para el registro y los tests. */
+    public record Resumen(int grupos, int usuarios, int membresias, int series, int capitulos, long tareas, long milisegundos) {
+    }
+
+    @FunctionalInterface
+    private interface Volcado {
+        void fila(Object... valores) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Filas {
+        void escribir(Volcado volcado) throws SQLException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Dialect dialect;
+    private final PasswordEncoder passwordEncoder;
+    private final MembresiasCache membresiasCache;
+    private final UsuariosCache usuariosCache;
+    private final ValidadoresHttp validadoresHttp;
+    private final Parametros parametros;
+
+    @Autowired
+    public GeneradorDatos(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+                          PasswordEncoder passwordEncoder, MembresiasCache membresiasCache, UsuariosCache usuariosCache,
+                          ValidadoresHttp validadoresHttp, Environment environment) {
+        this(jdbcTemplate, transactionManager, entityManagerFactory, passwordEncoder, membresiasCache, usuariosCache, validadoresHttp,
+                Binder.get(environment).bindOrCreate("sars.generador", Parametros.class));
+    }
+
+    GeneradorDatos(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+                   PasswordEncoder passwordEncoder, MembresiasCache membresiasCache, UsuariosCache usuariosCache,
+                   ValidadoresHttp validadoresHttp, Parametros parametros) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.passwordEncoder = passwordEncoder;
+        this.membresiasCache = membresiasCache;
+        this.usuariosCache = usuariosCache;
+        this.validadoresHttp = validadoresHttp;
+        this.parametros = parametros;
+    }
+
+    @Override
+    public void run(String... args) {
+        Integer existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM grupo WHERE nombre = ?", Integer.class, nombreGrupo(0));
+        if (existentes != null && existentes > 0) {
+            logger.info("El grupo '{}' ya existe: no se generan datos.", nombreGrupo(0));
+            return;
+        }
+        Resumen resumen = generar();
+        logger.info("Generados {} grupos, {} usuarios ({} membresías), {} series, {} capítulos y {} tareas en {} ms ({} tareas/s). "
+                        + "Líder del primer grupo: '{}', contraseña '{}'.",
+                resumen.grupos(), resumen.usuarios(), resumen.membresias(), resumen.series(), resumen.capitulos(), resumen.tareas(),
+                resumen.milisegundos(), resumen.tareas() * 1000 / Math.max(1, resumen.milisegundos()),
+                nombreUsuario(0), parametros.contrasenya());
+    }
+
+    /** Planifica en memoria con la semilla y escribe todo en una transacción. */
+    Resumen generar() {
+        long inicio = System.nanoTime();
+        Plan plan = new Plan(parametros);
+        String password = passwordEncoder.encode(parametros.contrasenya());
+
+        int series = plan.seriesPorGrupo * plan.grupos;
+        int capitulos = series * plan.capitulosPorSerie;
+        long primeraSerie = reservarIds("serie_seq", series);
+        long primerCapitulo = reservarIds("capitulo_seq", capitulos);
+        long primeraTarea = reservarIds("tarea_seq", plan.tareas);
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) conexion -> {
+            volcar(conexion, "grupo", "nombre", volcado -> {
+                for (int g = 0; g < plan.grupos; g++) {
+                    volcado.fila(nombreGrupo(g));
+                }
+            });
+            volcar(conexion, "sec_user", "username, password, role", volcado -> {
+                for (int u = 0; u < plan.usuarios; u++) {
+                    volcado.fila(nombreUsuario(u), password, Role.ROLE_USER.name());
+                }
+            });
+            volcar(conexion, "usuario_grupo", "username, grupo_nombre, rol", volcado -> {
+                for (int g = 0; g < plan.grupos; g++) {
+                    for (int m = 0; m < plan.miembros[g].length; m++) {
+                        volcado.fila(nombreUsuario(plan.miembros[g][m]), nombreGrupo(g), plan.roles[g][m].name());
+                    }
+                }
+            });
+            volcar(conexion, "serie", "id, nombre, descripcion, grupo_nombre", volcado -> {
+                for (int s = 0; s < series; s++) {
+                    volcado.fila(primeraSerie + s, "Serie " + (s % plan.seriesPorGrupo + 1), "Serie generada", nombreGrupo(s / plan.seriesPorGrupo));
+                }
+            });
+            // Los contadores de cada serie se acumulan al escribir sus capítulos
+            long[][] progresoSeries = new long[series][7];
+            volcar(conexion, "capitulo", "id, nombre, serie_id, tareas_total, tareas_completadas, tareas_asignadas, "
+                    + "tareas_repetir, tareas_cc, tareas_cc_completadas, cambio", volcado -> {
+                for (int c = 0; c < capitulos; c++) {
+                    int s = c / plan.capitulosPorSerie;
+                    long[] contadores = plan.contadores(c);
+                    volcado.fila(primerCapitulo + c, "Capítulo " + (c % plan.capitulosPorSerie + 1), primeraSerie + s,
+                            contadores[0], contadores[1], contadores[2], contadores[3], contadores[4], contadores[5], 0);
+                    for (int i = 0; i < contadores.length; i++) {
+                        progresoSeries[s][i] += contadores[i];
+                    }
+                    // Listo para CC: tiene CC pendiente y el resto de tareas completadas
+                    if (contadores[4] > contadores[5] && contadores[0] - contadores[4] == contadores[1] - contadores[5]) {
+                        progresoSeries[s][6]++;
+                    }
+                }
+            });
+            volcar(conexion, "serie_progreso", "serie_id, tareas_total, tareas_completadas, tareas_asignadas, tareas_repetir, "
+                    + "tareas_cc, tareas_cc_completadas, capitulos_listos_cc, version_cambios, horizonte_cambios", volcado -> {
+                for (int s = 0; s < series; s++) {
+                    long[] p = progresoSeries[s];
+                    volcado.fila(primeraSerie + s, p[0], p[1], p[2], p[3], p[4], p[5], p[6], 0, 0);
+                }
+            });
+            volcar(conexion, "tarea", "id, capitulo_id, nombre_tarea, usuario, estado_tarea, version, cambio", volcado -> {
+                long id = primeraTarea;
+                for (int c = 0; c < capitulos; c++) {
+                    int g = c / plan.capitulosPorSerie / plan.seriesPorGrupo;
+                    for (int t = 0; t < plan.nombresTareas.length; t++) {
+                        int hueco = c * plan.nombresTareas.length + t;
+                        if (plan.estados[hueco] < 0) {
+                            continue;
+                        }
+                        int asignado = plan.asignados[hueco];
+                        volcado.fila(id++, primerCapitulo + c, plan.nombresTareas[t],
+                                asignado < 0 ? SIN_USUARIO : nombreUsuario(plan.miembros[g][asignado]),
+                                ESTADOS[plan.estados[hueco]].name(), 0, 0);
+                    }
+                }
+            });
+            return null;
+        }));
+
+        Objects.requireNonNull(entityManagerFactory.getCache()).evictAll();
+        membresiasCache.invalidarTodo();
+        usuariosCache.invalidarTodo();
+        validadoresHttp.todoCambiado();
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        return new Resumen(plan.grupos, plan.usuarios, plan.membresias, series, capitulos, plan.tareas, milisegundos);
+    }
+
+    /**
+     * Reserva 'cantidad' ids seguidos en la secuencia y devuelve el primero: empieza un bloque por encima del siguiente
+     * valor (ninguno de los bloques que Hibernate ya tenga reservados llega ahí) y la reinicia detrás del último,
+     * igual que SchemaMigrationInitializer.alinearSecuencia.
+     */
+    private long reservarIds(String secuencia, long cantidad) {
+        long siguiente = Objects.requireNonNullElse(
+                jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(secuencia), Long.class), 0L);
+        long primero = siguiente + SchemaMigrationInitializer.TAMANYO_BLOQUE_SECUENCIA;
+        long reinicio = primero + cantidad + SchemaMigrationInitializer.TAMANYO_BLOQUE_SECUENCIA;
+        jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " RESTART WITH " + reinicio);
+        return primero;
+    }
+
+    /** COPY ... FROM STDIN en CSV con PostgreSQL; INSERT por lotes con las demás. */
+    private static void volcar(Connection conexion, String tabla, String columnas, Filas filas) throws SQLException {
+        if (conexion.isWrapperFor(PGConnection.class)) {
+            CopyIn copia = conexion.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY " + tabla + " (" + columnas + ") FROM STDIN (FORMAT csv)");
+            try {
+                StringBuilder buffer = new StringBuilder(TAMANYO_BUFFER_COPY + 1024);
+                filas.escribir(valores -> {
+                    for (int i = 0; i < valores.length; i++) {
+                        if (i > 0) {
+                            buffer.append(',');
+                        }
+                        if (valores[i] instanceof String texto) {
+                            buffer.append('"').append(texto.replace("\"", "\"\"")).append('"');
+                        } else {
+                            buffer.append(valores[i]);
+                        }
+                    }
+                    buffer.append('\n');
+                    if (buffer.length() >= TAMANYO_BUFFER_COPY) {
+                        enviar(copia, buffer);
+                    }
+                });
+                enviar(copia, buffer);
+                copia.endCopy();
+            } finally {
+                if (copia.isActive()) {
+                    copia.cancelCopy();
+                }
+            }
+            return;
+        }
+        int numeroColumnas = columnas.split(",").length;
+        String marcadores = String.join(", ", Collections.nCopies(numeroColumnas, "?"));
+        try (PreparedStatement insert = conexion.prepareStatement("INSERT INTO " + tabla + " (" + columnas + ") VALUES (" + marcadores + ")")) {
+            int[] pendientes = {0};
+            filas.escribir(valores -> {
+                for (int i = 0; i < valores.length; i++) {
+                    insert.setObject(i + 1, valores[i]);
+                }
+                insert.addBatch();
+                if (++pendientes[0] == TAMANYO_LOTE) {
+                    insert.executeBatch();
+                    pendientes[0] = 0;
+                }
+            });
+            if (pendientes[0] > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static void enviar(CopyIn copia, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copia.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private String nombreGrupo(int g) {
+        return parametros.prefijo() + "-grupo-" + g;
+    }
+
+    private String nombreUsuario(int u) {
+        return parametros.prefijo() + "-" + u;
+    }
+
+    /**
+     * Todo lo que sale del generador aleatorio, en arrays compactos: los miembros de cada grupo con su rol y, por cada
+     * hueco (capítulo, tarea de la mezcla), el ordinal del estado (-1 si el capítulo no tiene esa tarea) y el índice
+     * en el grupo del miembro asignado (-1 si es NADIE).
+     */
+    private static final class Plan {
+        final int grupos;
+        final int usuarios;
+        final int seriesPorGrupo;
+        final int capitulosPorSerie;
+        final String[] nombresTareas;
+        final int[][] miembros;
+        final Role[][] roles;
+        final int membresias;
+        final byte[] estados;
+        final int[] asignados;
+        final long tareas;
+        private final int indiceCc;
+
+        Plan(Parametros parametros) {
+            grupos = parametros.grupos();
+            usuarios = parametros.usuarios();
+            seriesPorGrupo = parametros.series();
+            capitulosPorSerie = parametros.capitulos();
+            if (grupos < 1 || usuarios < grupos || seriesPorGrupo < 0 || capitulosPorSerie < 0) {
+                throw new IllegalArgumentException("Se necesita al menos un grupo y un usuario por grupo (para su líder): "
+                        + grupos + " grupos, " + usuarios + " usuarios.");
+            }
+            Map<String, Integer> mezcla = pesos(parametros.tareas());
+            nombresTareas = mezcla.keySet().toArray(String[]::new);
+            int[] porcentajes = mezcla.values().stream().mapToInt(Integer::intValue).toArray();
+            indiceCc = Arrays.asList(nombresTareas).indexOf("CC");
+            int[] pesosEstados = new int[ESTADOS.length];
+            pesos(parametros.estados()).forEach((estado, peso) -> pesosEstados[EstadosTareas.valueOf(estado).ordinal()] = peso);
+            int pesoTotal = Arrays.stream(pesosEstados).sum();
+            if (pesoTotal <= 0) {
+                throw new IllegalArgumentException("Distribución de estados sin pesos: " + parametros.estados());
+            }
+
+            Random azar = new Random(parametros.semilla());
+            List<List<Integer>> porGrupo = new ArrayList<>();
+            for (int g = 0; g < grupos; g++) {
+                porGrupo.add(new ArrayList<>());
+            }
+            for (int u = 0; u < usuarios; u++) {
+                porGrupo.get(u % grupos).add(u);
+                for (int intentos = 1; intentos < grupos && azar.nextDouble() < parametros.otroGrupo(); intentos++) {
+                    List<Integer> otro = porGrupo.get(azar.nextInt(grupos));
+                    if (!otro.contains(u)) {
+                        otro.add(u);
+                    }
+                }
+            }
+            miembros = new int[grupos][];
+            roles = new Role[grupos][];
+            int total = 0;
+            for (int g = 0; g < grupos; g++) {
+                miembros[g] = porGrupo.get(g).stream().mapToInt(Integer::intValue).toArray();
+                roles[g] = new Role[miembros[g].length];
+                for (int m = 0; m < miembros[g].length; m++) {
+                    roles[g][m] = m == 0 ? Role.ROLE_LIDER : azar.nextDouble() < parametros.qc() ? Role.ROLE_QC : Role.ROLE_USER;
+                }
+                total += miembros[g].length;
+            }
+            membresias = total;
+
+            int huecos = Math.multiplyExact(Math.multiplyExact(grupos * seriesPorGrupo, capitulosPorSerie), nombresTareas.length);
+            estados = new byte[huecos];
+            asignados = new int[huecos];
+            long generadas = 0;
+            for (int hueco = 0; hueco < huecos; hueco++) {
+                int g = hueco / nombresTareas.length / capitulosPorSerie / seriesPorGrupo;
+                estados[hueco] = -1;
+                asignados[hueco] = -1;
+                if (azar.nextInt(100) >= porcentajes[hueco % nombresTareas.length]) {
+                    continue;
+                }
+                EstadosTareas estado = sortear(azar, pesosEstados, pesoTotal);
+                estados[hueco] = (byte) estado.ordinal();
+                if (estado == EstadosTareas.Asignado || estado == EstadosTareas.Completado) {
+                    asignados[hueco] = azar.nextInt(miembros[g].length);
+                }
+                generadas++;
+            }
+            tareas = generadas;
+        }
+
+        /** Contadores del capítulo, en el orden de sus columnas: total, completadas, asignadas, repetir, cc y cc completadas. */
+        long[] contadores(int capitulo) {
+            long[] contadores = new long[6];
+            for (int t = 0; t < nombresTareas.length; t++) {
+                byte estado = estados[capitulo * nombresTareas.length + t];
+                if (estado < 0) {
+                    continue;
+                }
+                boolean completada = estado == EstadosTareas.Completado.ordinal();
+                contadores[0]++;
+                contadores[1] += completada ? 1 : 0;
+                contadores[2] += estado == EstadosTareas.Asignado.ordinal() ? 1 : 0;
+                contadores[3] += estado == EstadosTareas.Repetir.ordinal() ? 1 : 0;
+                if (t == indiceCc) {
+                    contadores[4]++;
+                    contadores[5] += completada ? 1 : 0;
+                }
+            }
+            return contadores;
+        }
+
+        private static EstadosTareas sortear(Random azar, int[] pesos, int pesoTotal) {
+            int valor = azar.nextInt(pesoTotal);
+            for (int i = 0; i < pesos.length; i++) {
+                valor -= pesos[i];
+                if (valor < 0) {
+                    return ESTADOS[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        /** "a=1,b=2" en orden. */
+        private static Map<String, Integer> pesos(String lista) {
+            Map<String, Integer> pesos = new LinkedHashMap<>();
+            for (String parte : lista.split(",")) {
+                String[] claveValor = parte.trim().split("=");
+                if (claveValor.length != 2) {
+                    throw new IllegalArgumentException("Se esperaba 'nombre=peso': " + parte);
+                }
+                pesos.put(claveValor[0].trim(), Integer.parseInt(claveValor[1].trim()));
+            }
+            return pesos;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package cc.sars.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Modo de hilos virtuales, opcional: perfil 'virtuales' (application-virtuales.properties), que activa
+ * 'spring.threads.virtual.enabled'. Con JDK 21 o posterior, Spring Boot atiende cada petición de Tomcat, las tareas
+ * programadas y las peticiones asíncronas de MVC en hilos virtuales; con JDK 17 la propiedad no hace nada.
+ * <p>
+ * Sin el tope de hilos de Tomcat, el de conexiones lo pone {@link DataSourceConSemaforo}: cada pool Hikari
+ * (el único, o primaria y réplica) queda detrás de un semáforo con tantos permisos como conexiones, y una petición
+ * espera como mucho 'sars.bd.espera'. Publica 'datasource.semaforo.esperando' con la etiqueta pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class HilosVirtualesConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(HilosVirtualesConfig.class);
+
+    public HilosVirtualesConfig() {
+        if (Runtime.version().feature() < 21) {
+            log.warn("spring.threads.virtual.enabled necesita JDK 21 o posterior (este es {}): se siguen usando hilos de plataforma.",
+                    Runtime.version().feature());
+        }
+    }
+
+    /**
+     * Estático para que se registre antes de crear los DataSource. Se aplica después de enlazar las propiedades
+     * del pool, así que los permisos son su 'maximum-pool-size' final. La métrica va al registro global de
+     * Micrometer, al que Spring Boot añade el suyo, para no adelantar su creación a la de los DataSource.
+     */
+    @Bean
+    public static BeanPostProcessor semaforoDeConexiones(Environment environment) {
+        Duration espera = Binder.get(environment).bind("sars.bd.espera", Duration.class).orElse(Duration.ofSeconds(30));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource pool)) {
+                    return bean;
+                }
+                DataSourceConSemaforo limitado = new DataSourceConSemaforo(pool, pool.getMaximumPoolSize(), espera);
+                Gauge.builder("datasource.semaforo.esperando", limitado, DataSourceConSemaforo::getEsperando)
+                        .tag("pool", beanName)
+                        .register(Metrics.globalRegistry);
+                log.info("Conexiones del pool '{}' limitadas a {} hilos a la vez (espera máxima {}).", beanName, pool.getMaximumPoolSize(), espera);
+                return limitado;
+            }
+        };
+    }
+}
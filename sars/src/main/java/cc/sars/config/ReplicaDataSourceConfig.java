@@ -0,0 +1,78 @@
+package cc.sars.config;
+
+import cc.sars.service.ValidadoresHttp;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Réplica de lectura, opcional: se activa con 'sars.datasource.replica.jdbc-url'. Sin ella se usa el DataSource
+ * único de Spring Boot.
+ * <p>
+ * Hay dos pools Hikari: 'primaria' (spring.datasource.*) y 'replica' (sars.datasource.replica.*, con el usuario y la
+ * contraseña de la primaria si no se indican otros). Los métodos @Transactional(readOnly = true) leen de la réplica;
+ * el resto, las lecturas de quien haya escrito hace menos de 'sars.datasource.lectura-propia' (5 s por defecto,
+ * 0 lo desactiva) y las de los GET que responden con ETag (ver ValidadoresHttp), van a la primaria. Cada pool publica sus métricas 'hikaricp.connections.*' con la etiqueta pool.
+ */
+@Configuration
+@ConditionalOnProperty("sars.datasource.replica.jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primariaDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(EnrutadorReplica.PRIMARIA);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("sars.datasource.replica")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(EnrutadorReplica.REPLICA);
+        dataSource.setUsername(properties.determineUsername());
+        dataSource.setPassword(properties.determinePassword());
+        dataSource.setReadOnly(true);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primariaDataSource") DataSource primaria,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${sars.datasource.lectura-propia:5s}") Duration lecturaPropia,
+                                 ValidadoresHttp validadoresHttp, MeterRegistry meterRegistry) {
+        EnrutadorReplica enrutador = new EnrutadorReplica(primaria, replica,
+                new VentanaLecturaPropia(lecturaPropia, System::nanoTime), validadoresHttp, meterRegistry);
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+
+    /**
+     * Hibernate devuelve la conexión al terminar cada transacción: con 'open-in-view' la sesión dura toda la
+     * petición y, si la retuviera, una escritura podría reutilizar la conexión de réplica de una lectura anterior.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer liberarConexionTrasTransaccion() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,157 @@
+package cc.sars.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Objects;
+
+/**
+ * Migraciones de datos que 'ddl-auto=update' no sabe hacer por sí solo.
+ * Se ejecuta una vez creados todos los beans, antes de que la aplicación empiece a atender peticiones.
+ */
+@Component
+public class SchemaMigrationInitializer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrationInitializer.class);
+
+    /** Tabla de la antigua colección embebida de tareas de Capitulo. */
+    private static final String TABLA_TAREAS_LEGADA = "capitulo_tareas";
+
+    /** Columna de la antigua @OrderColumn de Serie.capitulos; ahora se ordena por id. */
+    private static final String COLUMNA_INDICE_CAPITULO_LEGADA = "capitulo_indice";
+
+    /** Debe coincidir con el allocationSize de las secuencias de las entidades. */
+    static final int TAMANYO_BLOQUE_SECUENCIA = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Dialect dialect;
+
+    public SchemaMigrationInitializer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (existeTabla(TABLA_TAREAS_LEGADA)) {
+            migrarTareasEmbebidas();
+        }
+        if (existeColumna("capitulo", COLUMNA_INDICE_CAPITULO_LEGADA)) {
+            jdbcTemplate.execute("ALTER TABLE capitulo DROP COLUMN " + COLUMNA_INDICE_CAPITULO_LEGADA);
+            logger.info("Eliminada la columna 'capitulo.{}'.", COLUMNA_INDICE_CAPITULO_LEGADA);
+        }
+        // Serie y Capitulo usaban IDENTITY: sus secuencias nuevas deben empezar por encima de los ids existentes
+        alinearSecuencia("serie", "serie_seq");
+        alinearSecuencia("capitulo", "capitulo_seq");
+        alinearSecuencia("tarea", "tarea_seq");
+        // 'ddl-auto=update' añade la columna de versión vacía; con NULL ningún UPDATE optimista encontraría la fila
+        int sinVersion = jdbcTemplate.update("UPDATE tarea SET version = 0 WHERE version IS NULL");
+        if (sinVersion > 0) {
+            logger.info("Inicializada la versión de {} tareas.", sinVersion);
+        }
+        calcularProgresoDeSeriesSinContadores();
+    }
+
+    /**
+     * Las series anteriores a los contadores de progreso no tienen fila en 'serie_progreso' y sus capítulos tienen
+     * los contadores a 0 (valor por defecto de las columnas nuevas): se recalculan desde las tareas, en una transacción.
+     * Las series creadas después ya tienen su fila, así que en los demás arranques no se hace nada.
+     */
+    private void calcularProgresoDeSeriesSinContadores() {
+        String seriesSinContadores = "SELECT s.id FROM serie s WHERE NOT EXISTS (SELECT 1 FROM serie_progreso p WHERE p.serie_id = s.id)";
+        transactionTemplate.executeWithoutResult(status -> {
+            int capitulos = jdbcTemplate.update(
+                    "UPDATE capitulo SET " +
+                    "tareas_total = (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = capitulo.id), " +
+                    "tareas_completadas = (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = capitulo.id AND t.estado_tarea = 'Completado'), " +
+                    "tareas_asignadas = (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = capitulo.id AND t.estado_tarea = 'Asignado'), " +
+                    "tareas_repetir = (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = capitulo.id AND t.estado_tarea = 'Repetir'), " +
+                    "tareas_cc = (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = capitulo.id AND t.nombre_tarea = 'CC'), " +
+                    "tareas_cc_completadas = (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = capitulo.id AND t.nombre_tarea = 'CC' AND t.estado_tarea = 'Completado') " +
+                    "WHERE serie_id IN (" + seriesSinContadores + ")");
+            int series = jdbcTemplate.update(
+                    "INSERT INTO serie_progreso (serie_id, tareas_total, tareas_completadas, tareas_asignadas, tareas_repetir, " +
+                    "tareas_cc, tareas_cc_completadas, capitulos_listos_cc) " +
+                    "SELECT s.id, COALESCE(SUM(c.tareas_total), 0), COALESCE(SUM(c.tareas_completadas), 0), " +
+                    "COALESCE(SUM(c.tareas_asignadas), 0), COALESCE(SUM(c.tareas_repetir), 0), " +
+                    "COALESCE(SUM(c.tareas_cc), 0), COALESCE(SUM(c.tareas_cc_completadas), 0), " +
+                    "COALESCE(SUM(CASE WHEN c.tareas_cc > c.tareas_cc_completadas " +
+                    "AND c.tareas_total - c.tareas_cc = c.tareas_completadas - c.tareas_cc_completadas THEN 1 ELSE 0 END), 0) " +
+                    "FROM serie s LEFT JOIN capitulo c ON c.serie_id = s.id " +
+                    "WHERE s.id IN (" + seriesSinContadores + ") GROUP BY s.id");
+            if (series > 0) {
+                logger.info("Calculado el progreso de {} series ({} capítulos).", series, capitulos);
+            }
+        });
+    }
+
+    /**
+     * Copia las filas de 'capitulo_tareas' a la tabla 'tarea' (conservando el orden de cada capítulo)
+     * y elimina la tabla antigua, todo en una sola transacción.
+     */
+    private void migrarTareasEmbebidas() {
+        transactionTemplate.executeWithoutResult(status -> {
+            int migradas = jdbcTemplate.update(
+                    "INSERT INTO tarea (id, capitulo_id, nombre_tarea, usuario, estado_tarea) " +
+                    "SELECT ROW_NUMBER() OVER (ORDER BY capitulo_id, tarea_indice), capitulo_id, nombre_tarea, usuario, estado_tarea " +
+                    "FROM " + TABLA_TAREAS_LEGADA);
+            jdbcTemplate.execute("DROP TABLE " + TABLA_TAREAS_LEGADA);
+            logger.info("Migradas {} tareas de '{}' a la tabla 'tarea'.", migradas, TABLA_TAREAS_LEGADA);
+        });
+    }
+
+    /**
+     * Si la secuencia no va por delante del mayor id de la tabla (filas insertadas con IDENTITY o migradas
+     * con ids a mano), se reinicia por encima para que el primer bloque que reserve Hibernate no choque con ellas.
+     */
+    private void alinearSecuencia(String tabla, String secuencia) {
+        long maxId = Objects.requireNonNullElse(
+                jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tabla, Long.class), 0L);
+        long siguiente = Objects.requireNonNullElse(
+                jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(secuencia), Long.class), 0L);
+        if (siguiente <= maxId) {
+            long reinicio = maxId + TAMANYO_BLOQUE_SECUENCIA + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE " + secuencia + " RESTART WITH " + reinicio);
+            logger.info("Secuencia '{}' reiniciada en {} (máximo id en '{}': {}).", secuencia, reinicio, tabla, maxId);
+        }
+    }
+
+    private boolean existeTabla(String nombre) {
+        return consultarMetadatos(nombre, null);
+    }
+
+    private boolean existeColumna(String tabla, String columna) {
+        return consultarMetadatos(tabla, columna);
+    }
+
+    private boolean consultarMetadatos(String tabla, String columna) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // PostgreSQL guarda los nombres en minúsculas y H2 en mayúsculas
+            for (boolean mayusculas : new boolean[]{false, true}) {
+                String nombreTabla = mayusculas ? tabla.toUpperCase() : tabla;
+                try (ResultSet resultado = columna == null
+                        ? metaData.getTables(null, null, nombreTabla, new String[]{"TABLE"})
+                        : metaData.getColumns(null, null, nombreTabla, mayusculas ? columna.toUpperCase() : columna)) {
+                    if (resultado.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+}
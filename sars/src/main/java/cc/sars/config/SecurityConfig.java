@@ -1,8 +1,10 @@
 package cc.sars.config;
 
 import cc.sars.service.JpaUserDetailsService;
+import cc.sars.service.UsuariosCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -14,9 +16,11 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     private final JpaUserDetailsService jpaUserDetailsService;
+    private final UsuariosCache usuariosCache;
 
-    public SecurityConfig(JpaUserDetailsService jpaUserDetailsService) {
+    public SecurityConfig(JpaUserDetailsService jpaUserDetailsService, UsuariosCache usuariosCache) {
         this.jpaUserDetailsService = jpaUserDetailsService;
+        this.usuariosCache = usuariosCache;
     }
 
     @Bean
@@ -24,11 +28,23 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Proveedor del login con la caché de usuarios: un acierto evita la consulta a 'sec_user'.
+     * Si la contraseña no coincide con la cacheada, el propio proveedor vuelve a cargar el usuario de la BD.
+     * No es un @Bean: si lo fuera, Spring lo usaría también para el AuthenticationManager global.
+     */
+    private DaoAuthenticationProvider authenticationProvider() {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(jpaUserDetailsService);
+        provider.setPasswordEncoder(passwordEncoder());
+        provider.setUserCache(usuariosCache);
+        return provider;
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
-            .userDetailsService(jpaUserDetailsService)
+            .authenticationProvider(authenticationProvider())
 
             .authorizeHttpRequests(auth -> auth
                 
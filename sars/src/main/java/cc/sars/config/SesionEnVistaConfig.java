@@ -0,0 +1,37 @@
+package cc.sars.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 'open-in-view' propio (spring.jpa.open-in-view=false desactiva el de Spring Boot) para poder excluir rutas.
+ * <p>
+ * Las conexiones del tablero en vivo ('/serie/{nombre}/eventos') duran minutos: con la sesión de Hibernate
+ * abierta hasta el final de la petición asíncrona, una consulta hecha al abrirla retendría su conexión JDBC
+ * todo ese tiempo y unos pocos clientes agotarían el pool.
+ */
+@Configuration
+public class SesionEnVistaConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    public SesionEnVistaConfig(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Los tests de controladores (@WebMvcTest) no tienen JPA
+        EntityManagerFactory emf = entityManagerFactory.getIfAvailable();
+        if (emf == null) {
+            return;
+        }
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(emf);
+        registry.addWebRequestInterceptor(interceptor).excludePathPatterns("/serie/*/eventos");
+    }
+}
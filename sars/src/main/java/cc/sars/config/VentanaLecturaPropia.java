@@ -0,0 +1,81 @@
+package cc.sars.config;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Lectura de las propias escrituras con réplica: durante un tiempo tras confirmar una transacción de escritura,
+ * las lecturas del mismo usuario siguen yendo a la primaria, para que no vea datos anteriores a su cambio
+ * mientras la réplica se pone al día.
+ * <p>
+ * Se recuerda por usuario autenticado y en memoria de esta instancia; las peticiones sin usuario no se siguen.
+ */
+class VentanaLecturaPropia {
+
+    /** A partir de este número de usuarios se purgan las escrituras ya caducadas al registrar una nueva. */
+    private static final int MAX_USUARIOS_SIN_PURGAR = 10_000;
+
+    private final Map<String, Long> ultimasEscrituras = new ConcurrentHashMap<>();
+    private final long ventanaNanos;
+    private final LongSupplier reloj;
+
+    VentanaLecturaPropia(Duration ventana, LongSupplier reloj) {
+        this.ventanaNanos = ventana.toNanos();
+        this.reloj = reloj;
+    }
+
+    /**
+     * Si la transacción actual se confirma, abre la ventana para el usuario actual.
+     */
+    void registrarEscrituraAlConfirmar() {
+        String usuario = usuarioActual();
+        if (usuario == null || ventanaNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                registrarEscritura(usuario);
+            }
+        });
+    }
+
+    void registrarEscritura(String usuario) {
+        long ahora = reloj.getAsLong();
+        if (ultimasEscrituras.size() > MAX_USUARIOS_SIN_PURGAR) {
+            ultimasEscrituras.values().removeIf(escritura -> ahora - escritura >= ventanaNanos);
+        }
+        ultimasEscrituras.put(usuario, ahora);
+    }
+
+    /**
+     * Si el usuario actual confirmó una escritura hace menos de la ventana.
+     */
+    boolean haEscritoRecientemente() {
+        String usuario = usuarioActual();
+        if (usuario == null) {
+            return false;
+        }
+        Long escritura = ultimasEscrituras.get(usuario);
+        if (escritura == null) {
+            return false;
+        }
+        if (reloj.getAsLong() - escritura < ventanaNanos) {
+            return true;
+        }
+        ultimasEscrituras.remove(usuario, escritura);
+        return false;
+    }
+
+    private static String usuarioActual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+}
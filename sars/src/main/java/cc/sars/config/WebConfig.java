@@ -1,6 +1,5 @@
 package cc.sars.config;
 
-import cc.sars.model.Grupo;
 import cc.sars.model.User;
 import cc.sars.service.UsuarioService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -11,7 +10,6 @@ import jakarta.servlet.http.HttpSession;
 
 import java.util.Collections;
 import java.util.Set;
-import java.util.Optional;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -34,33 +32,25 @@ public class WebConfig {
             return; 
         }
 
+        // El tablero en vivo no pinta ninguna vista: nada que calcular para cada conexión
+        if (request.getRequestURI().endsWith("/eventos")) {
+            return;
+        }
+
         if (user != null) {
-            Optional<User> fetchedUserOptional = usuarioService.findByUsername(user.getUsername());
-            Set<Grupo> userGroups = Collections.emptySet();
-            if (fetchedUserOptional.isPresent()) {
-                userGroups = fetchedUserOptional.get().getGrupos();
-            }
+            // Solo hacen falta los nombres: salen de la caché de membresías sin cargar el usuario
+            Set<String> userGroups = usuarioService.getNombresDeGrupos(user.getUsername());
             model.addAttribute("gruposDelUsuario", userGroups);
 
-            String currentActiveGroupName = (String) session.getAttribute("currentActiveGroup");
-            Grupo currentActiveGroup = null;
-
-            if (currentActiveGroupName != null) {
-                Optional<Grupo> selected = userGroups.stream()
-                        .filter(g -> g.getNombre().equals(currentActiveGroupName))
-                        .findFirst();
-                if (selected.isPresent()) {
-                    currentActiveGroup = selected.get();
-                } else {
-                    session.removeAttribute("currentActiveGroup");
-                }
+            String currentActiveGroup = (String) session.getAttribute("currentActiveGroup");
+            if (currentActiveGroup != null && !userGroups.contains(currentActiveGroup)) {
+                session.removeAttribute("currentActiveGroup");
+                currentActiveGroup = null;
             }
 
             if (currentActiveGroup == null && !userGroups.isEmpty()) {
-                currentActiveGroup = userGroups.stream().findFirst().orElse(null);
-                if (currentActiveGroup != null) {
-                    session.setAttribute("currentActiveGroup", currentActiveGroup.getNombre());
-                }
+                currentActiveGroup = userGroups.iterator().next();
+                session.setAttribute("currentActiveGroup", currentActiveGroup);
             }
             model.addAttribute("currentActiveGroup", currentActiveGroup);
         } else {
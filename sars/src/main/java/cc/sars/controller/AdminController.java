@@ -6,8 +6,13 @@ import cc.sars.model.User;
 import cc.sars.service.GrupoService;
 import cc.sars.service.UsuarioService;
 import cc.sars.service.AdminService;
+import cc.sars.service.CopiaSeguridadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
@@ -15,9 +20,16 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 @Controller
@@ -28,11 +40,14 @@ public class AdminController {
     private final GrupoService grupoService;
     private final UsuarioService usuarioService;
     private final AdminService adminService; // Inyectar AdminService
+    private final CopiaSeguridadService copiaSeguridadService;
 
-    public AdminController(GrupoService grupoService, UsuarioService usuarioService, AdminService adminService) {
+    public AdminController(GrupoService grupoService, UsuarioService usuarioService, AdminService adminService,
+                           CopiaSeguridadService copiaSeguridadService) {
         this.grupoService = grupoService;
         this.usuarioService = usuarioService;
         this.adminService = adminService;
+        this.copiaSeguridadService = copiaSeguridadService;
     }
 
     @GetMapping("/admin")
@@ -43,6 +58,7 @@ public class AdminController {
         model.addAttribute("usuarios", allUsers); // Añadir usuarios al modelo
 
         // Calcular restricciones de eliminación para cada usuario
+        Set<String> gruposConLiderUnico = usuarioService.getGruposConLiderUnico();
         Map<String, String> userDeletionRestrictions = new HashMap<>();
         for (User user : allUsers) {
             String restrictionMessage = "";
@@ -51,8 +67,7 @@ public class AdminController {
             } else { // Para usuarios que no son ADMIN, verificar liderazgo en grupos
                 for (cc.sars.model.UsuarioGrupo ug : user.getUsuarioGrupos()) {
                     if (ug.getRol() == Role.ROLE_LIDER) {
-                        long liderCountInGroup = usuarioService.countLeadersInGroup(ug.getGrupo());
-                        if (liderCountInGroup <= 1) {
+                        if (gruposConLiderUnico.contains(ug.getGrupo().getNombre())) {
                             restrictionMessage = "Es el único LIDER del grupo '" + ug.getGrupo().getNombre() + "'. Elimine el grupo primero.";
                             break; // Solo necesitamos una razón
                         }
@@ -94,13 +109,48 @@ public class AdminController {
     @PostMapping("/admin/reset-database")
     public String resetDatabase(RedirectAttributes redirectAttributes) {
         try {
-            adminService.resetDatabase();
-            redirectAttributes.addFlashAttribute("success_message", "Base de datos reseteada correctamente.");
+            AdminService.ResumenReset resumen = adminService.resetDatabase();
+            redirectAttributes.addFlashAttribute("success_message", String.format(
+                    "Base de datos reseteada correctamente: %d filas borradas en %d ms.", resumen.getTotalFilas(), resumen.milisegundos()));
         } catch (Exception e) {
             logger.error("Error al resetear la base de datos: {}", e.getMessage(), e);
             redirectAttributes.addFlashAttribute("error_message", "Error al resetear la base de datos: " + e.getMessage());
         }
         return "redirect:/admin";
     }
-}
 
+    /**
+     * Descarga la copia de seguridad de un grupo, o de todos si no se indica. Se escribe mientras se lee de la
+     * base de datos, en un hilo aparte de la petición.
+     */
+    @GetMapping("/admin/copia-seguridad")
+    public ResponseEntity<StreamingResponseBody> exportarCopiaSeguridad(@RequestParam(required = false) String grupo) {
+        String nombreGrupo = grupo == null || grupo.isBlank() ? null : grupo;
+        if (nombreGrupo != null) {
+            grupoService.getGrupoPorNombre(nombreGrupo); // Falla antes de empezar a escribir la respuesta
+        }
+        String fichero = "sars-" + (nombreGrupo == null ? "completa" : nombreGrupo) + "-" + LocalDate.now() + ".tsv.gz";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fichero, StandardCharsets.UTF_8).build().toString())
+                .body(salida -> copiaSeguridadService.exportar(nombreGrupo, salida));
+    }
+
+    @PostMapping("/admin/copia-seguridad/restaurar")
+    public String restaurarCopiaSeguridad(@RequestParam("fichero") MultipartFile fichero, RedirectAttributes redirectAttributes) {
+        try (InputStream entrada = fichero.getInputStream()) {
+            CopiaSeguridadService.ResumenRestauracion resumen = copiaSeguridadService.restaurar(entrada);
+            String mensaje = String.format("Copia restaurada: %d grupos, %d series, %d capítulos, %d tareas y %d usuarios nuevos.",
+                    resumen.grupos(), resumen.series(), resumen.capitulos(), resumen.tareas(), resumen.usuarios());
+            if (!resumen.gruposOmitidos().isEmpty()) {
+                mensaje += " Omitidos por existir ya: " + String.join(", ", resumen.gruposOmitidos()) + ".";
+            }
+            redirectAttributes.addFlashAttribute("success_message", mensaje);
+        } catch (Exception e) {
+            logger.error("Error al restaurar la copia de seguridad '{}': {}", fichero.getOriginalFilename(), e.getMessage(), e);
+            redirectAttributes.addFlashAttribute("error_message", "Error al restaurar la copia de seguridad: " + e.getMessage());
+        }
+        return "redirect:/admin";
+    }
+}
@@ -47,13 +47,12 @@ public class GrupoController {
         User usuarioActual = usuarioService.findByUsername(user.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado."));
 
-        boolean esLiderDelGrupo = usuarioActual.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(nombreGrupo) && ug.getRol() == Role.ROLE_LIDER);
+        boolean esLiderDelGrupo = usuarioService.esLiderEnGrupo(usuarioActual.getUsername(), nombreGrupo);
 
         if (!esLiderDelGrupo) {
             throw new RuntimeException("No tienes permiso para gestionar este grupo.");
         }
-        Grupo miGrupo = grupoService.getGrupoPorNombre(nombreGrupo);
+        Grupo miGrupo = grupoService.getGrupoDetalle(nombreGrupo);
 
         // 2. Obtener los usuarios y sus roles en el grupo
         Set<UsuarioGrupo> membresias = miGrupo.getUsuarioGrupos();
@@ -95,11 +94,7 @@ public class GrupoController {
             @RequestParam("nombreUsuario") String nombreUsuarioAAgregar,
             RedirectAttributes redirectAttributes) {
         
-        User usuarioActual = usuarioService.findByUsername(user.getUsername())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado."));
-
-        boolean esLiderDelGrupo = usuarioActual.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(nombreGrupo) && ug.getRol() == Role.ROLE_LIDER);
+        boolean esLiderDelGrupo = usuarioService.esLiderEnGrupo(user.getUsername(), nombreGrupo);
 
         if (!esLiderDelGrupo) {
             redirectAttributes.addFlashAttribute("error_message", "No tienes permiso para modificar este grupo.");
@@ -128,11 +123,7 @@ public class GrupoController {
             @RequestParam("newRole") Role newRole,
             RedirectAttributes redirectAttributes) {
 
-        User usuarioActual = usuarioService.findByUsername(user.getUsername())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado."));
-        
-        boolean esLiderDelGrupo = usuarioActual.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(nombreGrupo) && ug.getRol() == Role.ROLE_LIDER);
+        boolean esLiderDelGrupo = usuarioService.esLiderEnGrupo(user.getUsername(), nombreGrupo);
 
         if (!esLiderDelGrupo) {
             redirectAttributes.addFlashAttribute("error_message", "No tienes permiso para modificar este grupo.");
@@ -145,8 +136,8 @@ public class GrupoController {
         } catch (RuntimeException e) {
             redirectAttributes.addFlashAttribute("error_message", e.getMessage());
         }
-        esLiderDelGrupo = usuarioActual.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(nombreGrupo) && ug.getRol() == Role.ROLE_LIDER);
+        // Si el líder se ha quitado a sí mismo el rol, ya no puede volver a la gestión
+        esLiderDelGrupo = usuarioService.esLiderEnGrupo(user.getUsername(), nombreGrupo);
         
         if (esLiderDelGrupo) 
         	return "redirect:/grupo/" + nombreGrupo + "/gestionar";
@@ -165,11 +156,7 @@ public class GrupoController {
             @RequestParam("username") String usernameAEliminar,
             RedirectAttributes redirectAttributes) {
 
-        User usuarioActual = usuarioService.findByUsername(user.getUsername())
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado."));
-
-        boolean esLiderDeEsteGrupo = usuarioActual.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(nombreGrupo) && ug.getRol() == Role.ROLE_LIDER);
+        boolean esLiderDeEsteGrupo = usuarioService.esLiderEnGrupo(user.getUsername(), nombreGrupo);
 
         if (!esLiderDeEsteGrupo) {
             redirectAttributes.addFlashAttribute("error_message", "No tienes permiso para eliminar usuarios de este grupo.");
@@ -178,6 +165,8 @@ public class GrupoController {
         
         // Evitar que un líder se elimine a sí mismo si es el último
         if (user.getUsername().equals(usernameAEliminar)) {
+             User usuarioActual = usuarioService.findByUsername(user.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado."));
              long liderCount = usuarioActual.getUsuarioGrupos().stream()
                 .filter(ug -> ug.getGrupo().getNombre().equals(nombreGrupo) && ug.getRol() == Role.ROLE_LIDER)
                 .count();
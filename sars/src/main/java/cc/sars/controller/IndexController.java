@@ -12,9 +12,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import cc.sars.model.UsuarioGrupo;
-import cc.sars.model.UsuarioGrupoId;
-import cc.sars.repository.UsuarioGrupoRepository;
 import jakarta.servlet.http.HttpSession;
 import java.util.List;
 import java.util.Set;
@@ -25,12 +22,10 @@ public class IndexController {
 
     private final SerieService serieService;
     private final UsuarioService usuarioService;
-    private final UsuarioGrupoRepository usuarioGrupoRepository;
 
-    public IndexController(SerieService serieService, UsuarioService usuarioService, UsuarioGrupoRepository usuarioGrupoRepository) {
+    public IndexController(SerieService serieService, UsuarioService usuarioService) {
         this.serieService = serieService;
         this.usuarioService = usuarioService;
-        this.usuarioGrupoRepository = usuarioGrupoRepository;
     }
 
     /**
@@ -66,8 +61,7 @@ public class IndexController {
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Error: El grupo activo '" + currentActiveGroupName + "' no se encontró o no pertenece al usuario " + authenticatedUser.getUsername()));
 
-        UsuarioGrupoId usuarioGrupoId = new UsuarioGrupoId(authenticatedUser.getUsername(), miGrupo.getNombre());
-        UsuarioGrupo usuarioGrupoActual = usuarioGrupoRepository.findById(usuarioGrupoId)
+        Role rolEnGrupoActual = usuarioService.getRolEnGrupo(authenticatedUser.getUsername(), miGrupo.getNombre())
                 .orElseThrow(() -> new RuntimeException("Error: No se encontró la membresía del usuario " + authenticatedUser.getUsername() + " en el grupo " + miGrupo.getNombre()));
 
         // Buscamos las series de ESE grupo
@@ -76,7 +70,8 @@ public class IndexController {
         model.addAttribute("usuario", authenticatedUser); // Para que la vista sepa el rol
         model.addAttribute("grupo", miGrupo);
         model.addAttribute("series", seriesDelGrupo);
-        model.addAttribute("rolEnGrupoActual", usuarioGrupoActual.getRol());
+        model.addAttribute("progresoSeries", serieService.getProgresoDeSeries(seriesDelGrupo));
+        model.addAttribute("rolEnGrupoActual", rolEnGrupoActual);
 
         return "app/index"; // Devuelve la plantilla app/index.html (la de "gestionar series")
     }
@@ -1,15 +1,17 @@
 package cc.sars.controller;
 
 import cc.sars.model.EstadosTareas;
+import cc.sars.model.Role;
 import cc.sars.model.Serie;
 import cc.sars.model.User;
-import cc.sars.model.UsuarioGrupo;
-import cc.sars.model.UsuarioGrupoId;
-import cc.sars.repository.UsuarioGrupoRepository;
 import cc.sars.service.SerieService;
+import cc.sars.service.TableroEnVivo;
+import cc.sars.service.TransicionTareaService;
 import cc.sars.service.UsuarioService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,6 +20,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -29,13 +32,16 @@ public class SerieController {
 
     private static final Logger logger = LoggerFactory.getLogger(SerieController.class);
     private final SerieService serieService;
-    private final UsuarioGrupoRepository usuarioGrupoRepository;
     private final UsuarioService usuarioService;
+    private final TransicionTareaService transicionTareaService;
+    private final TableroEnVivo tableroEnVivo;
 
-    public SerieController(SerieService serieService, UsuarioGrupoRepository usuarioGrupoRepository, UsuarioService usuarioService) {
+    public SerieController(SerieService serieService, UsuarioService usuarioService, TransicionTareaService transicionTareaService,
+                           TableroEnVivo tableroEnVivo) {
         this.serieService = serieService;
-        this.usuarioGrupoRepository = usuarioGrupoRepository;
         this.usuarioService = usuarioService;
+        this.transicionTareaService = transicionTareaService;
+        this.tableroEnVivo = tableroEnVivo;
     }
 
     @PostMapping("/serie/crear")
@@ -71,8 +77,7 @@ public class SerieController {
         Serie serie = serieService.getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
                 .orElseThrow(() -> new NoSuchElementException("Serie no encontrada: " + nombreSerie));
         
-        UsuarioGrupoId usuarioGrupoId = new UsuarioGrupoId(usuarioActual.getUsername(), serie.getGrupo().getNombre());
-        UsuarioGrupo usuarioGrupoActual = usuarioGrupoRepository.findById(usuarioGrupoId)
+        Role rolEnGrupoActual = usuarioService.getRolEnGrupo(usuarioActual.getUsername(), serie.getGrupo().getNombre())
                 .orElseThrow(() -> new RuntimeException("Error: No se encontró la membresía del usuario " + usuarioActual.getUsername() + " en el grupo " + serie.getGrupo().getNombre()));
         
         // Prepara una lista solo con los nombres de usuario para evitar problemas de serialización
@@ -84,10 +89,24 @@ public class SerieController {
         model.addAttribute("todosLosEstados", serieService.getTodosLosEstados());
         model.addAttribute("usuarioActual", usuarioActual);
         model.addAttribute("usuariosDelGrupo", nombresUsuarios); // Pasa la lista de nombres
-        model.addAttribute("rolEnGrupoActual", usuarioGrupoActual.getRol());
+        model.addAttribute("rolEnGrupoActual", rolEnGrupoActual);
         return "app/serie-detalle";
     }
 
+    /**
+     * Cambios en vivo del tablero de la serie (Server-Sent Events), para que serie-detalle actualice las tarjetas
+     * sin recargar. Solo comprueba la membresía (caché): no carga la serie ni el tablero.
+     */
+    @GetMapping(path = "/serie/{nombreSerie}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirTablero(@PathVariable String nombreSerie, @AuthenticationPrincipal User usuarioActual,
+                                       HttpSession session) {
+        String nombreGrupo = (String) session.getAttribute("currentActiveGroup");
+        if (nombreGrupo == null || !usuarioService.perteneceAGrupo(usuarioActual.getUsername(), nombreGrupo)) {
+            throw new AccessDeniedException("El usuario " + usuarioActual.getUsername() + " no pertenece al grupo activo.");
+        }
+        return tableroEnVivo.suscribir(nombreGrupo, nombreSerie);
+    }
+
     @PostMapping("/serie/{nombreSerie}/capitulo/crear")
     public String createCapitulo(@PathVariable String nombreSerie,
                                  @RequestParam String nombresCapitulos,
@@ -131,7 +150,7 @@ public class SerieController {
         String nombreGrupo = (String) session.getAttribute("currentActiveGroup");
         try {
             // Pasar el usuario al servicio
-            serieService.updateTareaEstado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, estado, usuarioActual.getUsername());
+            transicionTareaService.cambiarEstado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, estado, usuarioActual.getUsername(), null);
         } catch (Exception e) {
             logger.error("Error al actualizar estado de tarea '{}' a '{}': {}", nombreTarea, estado, e.getMessage(), e);
         }
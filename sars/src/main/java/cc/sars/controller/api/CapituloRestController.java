@@ -6,14 +6,16 @@ import cc.sars.controller.api.dto.CapituloBulkCreateDTO;
 import cc.sars.controller.api.dto.TareaDTO;
 import cc.sars.exception.SerieNotFoundException;
 import cc.sars.model.Capitulo;
-import cc.sars.model.Serie;
+import cc.sars.service.Pagina;
 import cc.sars.service.SerieService;
+import cc.sars.service.ValidadoresHttp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,19 +28,29 @@ public class CapituloRestController {
     private static final Logger log = LoggerFactory.getLogger(CapituloRestController.class);
 
     private final SerieService serieService;
+    private final ValidadoresHttp validadoresHttp;
 
-    public CapituloRestController(SerieService serieService) {
+    public CapituloRestController(SerieService serieService, ValidadoresHttp validadoresHttp) {
         this.serieService = serieService;
+        this.validadoresHttp = validadoresHttp;
     }
 
+    /**
+     * Lista los capítulos de la serie por páginas ('limit' y 'cursor'); ver {@link Paginacion}.
+     * Con la ETag de la serie en 'If-None-Match' responde 304 sin consultar nada; ver {@link ValidadoresHttp}.
+     */
     @GetMapping
-    public List<CapituloDTO> getCapitulosBySerie(@PathVariable String nombreGrupo, @PathVariable String nombreSerie) {
+    public ResponseEntity<List<CapituloDTO>> getCapitulosBySerie(@PathVariable String nombreGrupo, @PathVariable String nombreSerie,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.serie(nombreGrupo, nombreSerie))) {
+            return null;
+        }
         log.info("Solicitud para obtener capítulos de la serie: {} en el grupo: {}", nombreSerie, nombreGrupo);
-        Serie serie = serieService.getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
-                .orElseThrow(() -> new SerieNotFoundException("Serie no encontrada con el nombre: " + nombreSerie));
+        Pagina<Capitulo> pagina = serieService.getCapitulosPagina(nombreGrupo, nombreSerie, cursor, limit);
 
-        List<Capitulo> capitulos = serie.getCapitulos();
-        List<CapituloDTO> capitulosDTO = capitulos.stream()
+        List<CapituloDTO> capitulosDTO = pagina.elementos().stream()
                 .map(capitulo -> new CapituloDTO(
                         capitulo.getNombre(),
                         nombreSerie,
@@ -48,18 +60,17 @@ public class CapituloRestController {
                 ))
                 .collect(Collectors.toList());
         log.info("Se encontraron {} capítulos para la serie {}", capitulosDTO.size(), nombreSerie);
-        return capitulosDTO;
+        return Paginacion.respuesta(capitulosDTO, pagina.siguienteCursor());
     }
 
     @GetMapping("/{nombreCapitulo}")
-    public CapituloDTO getCapituloByNombre(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo) {
+    public CapituloDTO getCapituloByNombre(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo,
+                                           WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.serie(nombreGrupo, nombreSerie))) {
+            return null;
+        }
         log.info("Solicitud para obtener el capítulo '{}' de la serie '{}' en el grupo '{}'", nombreCapitulo, nombreSerie, nombreGrupo);
-        Serie serie = serieService.getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
-                .orElseThrow(() -> new SerieNotFoundException("Serie no encontrada con el nombre: " + nombreSerie));
-
-        Capitulo capitulo = serie.getCapitulos().stream()
-                .filter(c -> c.getNombre().equals(nombreCapitulo))
-                .findFirst()
+        Capitulo capitulo = serieService.getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
                 .orElseThrow(() -> new SerieNotFoundException("Capítulo no encontrado con el nombre: " + nombreCapitulo + " en la serie: " + nombreSerie));
 
         return new CapituloDTO(
@@ -75,12 +86,7 @@ public class CapituloRestController {
     @ResponseStatus(HttpStatus.CREATED)
     public CapituloDTO createCapitulo(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @RequestBody CapituloCreateDTO capituloCreateDTO) {
         log.info("Solicitud para crear el capítulo '{}' para la serie '{}' en el grupo '{}'", capituloCreateDTO.getNombreCapitulo(), nombreSerie, nombreGrupo);
-        Serie serieActualizada = serieService.addCapituloToSerie(nombreGrupo, nombreSerie, capituloCreateDTO.getNombreCapitulo());
-
-        Capitulo nuevoCapitulo = serieActualizada.getCapitulos().stream()
-                .filter(c -> c.getNombre().equals(capituloCreateDTO.getNombreCapitulo()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No se pudo encontrar el capítulo recién creado")); // Should not happen
+        Capitulo nuevoCapitulo = serieService.addCapituloToSerie(nombreGrupo, nombreSerie, capituloCreateDTO.getNombreCapitulo());
 
         return new CapituloDTO(
                 nuevoCapitulo.getNombre(),
@@ -104,11 +110,9 @@ public class CapituloRestController {
                         tareaDTO.getUsuarioAsignado() != null ? tareaDTO.getUsuarioAsignado() : "NADIE")) // Default if null
                 .toArray(String[]::new);
 
-        Serie serieActualizada = serieService.addCapitulosToSerie(nombreGrupo, nombreSerie, bulkCreateDTO.getNombresCapitulos(), tareasEnMasaArray);
+        List<Capitulo> creados = serieService.addCapitulosToSerie(nombreGrupo, nombreSerie, bulkCreateDTO.getNombresCapitulos(), tareasEnMasaArray);
 
-        // Return the newly created chapters as DTOs
-        return serieActualizada.getCapitulos().stream()
-                .filter(capitulo -> Arrays.asList(bulkCreateDTO.getNombresCapitulos().split("\r?\n")).contains(capitulo.getNombre())) // Filter for newly added chapters
+        return creados.stream()
                 .map(capitulo -> new CapituloDTO(
                         capitulo.getNombre(),
                         nombreSerie,
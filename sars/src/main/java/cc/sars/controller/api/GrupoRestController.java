@@ -8,12 +8,15 @@ import cc.sars.controller.api.dto.UserRoleUpdateDTO;
 import cc.sars.model.Grupo;
 import cc.sars.model.Serie;
 import cc.sars.service.GrupoService;
+import cc.sars.service.Pagina;
 import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -27,10 +30,12 @@ public class GrupoRestController {
 
     private final GrupoService grupoService;
     private final UsuarioService usuarioService;
+    private final ValidadoresHttp validadoresHttp;
 
-    public GrupoRestController(GrupoService grupoService, UsuarioService usuarioService) {
+    public GrupoRestController(GrupoService grupoService, UsuarioService usuarioService, ValidadoresHttp validadoresHttp) {
         this.grupoService = grupoService;
         this.usuarioService = usuarioService;
+        this.validadoresHttp = validadoresHttp;
     }
 
     private GrupoDetailDTO convertToDetailDto(Grupo grupo) {
@@ -50,26 +55,36 @@ public class GrupoRestController {
     }
 
     /**
-     * Obtiene todos los grupos existentes.
+     * Obtiene los grupos existentes por páginas ('limit' y 'cursor'); ver {@link Paginacion}.
+     * Con la ETag de la lista en 'If-None-Match' responde 304 sin consultar nada; ver {@link ValidadoresHttp}.
      */
     @GetMapping
-    public ResponseEntity<List<GrupoDTO>> obtenerTodosLosGrupos() {
-        log.info("Solicitud para obtener todos los grupos");
-        List<GrupoDTO> grupos = grupoService.getAllGrupos().stream()
+    public ResponseEntity<List<GrupoDTO>> obtenerTodosLosGrupos(@RequestParam(required = false) Integer limit,
+                                                                @RequestParam(required = false) String cursor,
+                                                                WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.grupos())) {
+            return null;
+        }
+        log.info("Solicitud para obtener los grupos");
+        Pagina<Grupo> pagina = grupoService.getGruposPagina(cursor, limit);
+        List<GrupoDTO> grupos = pagina.elementos().stream()
                 .map(this::convertToSimpleDto)
                 .collect(Collectors.toList());
         log.info("Se encontraron {} grupos", grupos.size());
-        return new ResponseEntity<>(grupos, HttpStatus.OK);
+        return Paginacion.respuesta(grupos, pagina.siguienteCursor());
     }
 
     /**
      * Obtiene un grupo específico por su nombre.
      */
     @GetMapping("/{nombre}")
-    public ResponseEntity<GrupoDetailDTO> obtenerGrupoPorNombre(@PathVariable String nombre) {
+    public ResponseEntity<GrupoDetailDTO> obtenerGrupoPorNombre(@PathVariable String nombre, WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.grupo(nombre))) {
+            return null;
+        }
         log.info("Solicitud para obtener grupo por nombre: {}", nombre);
         try {
-            Grupo grupo = grupoService.getGrupoPorNombre(nombre);
+            Grupo grupo = grupoService.getGrupoDetalle(nombre);
             return new ResponseEntity<>(convertToDetailDto(grupo), HttpStatus.OK);
         } catch (RuntimeException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Grupo no encontrado", e);
@@ -0,0 +1,34 @@
+package cc.sars.controller.api;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Respuestas de los listados paginados por cursor. El cuerpo sigue siendo un array JSON;
+ * el cursor de la página siguiente va en la cabecera 'X-Next-Cursor' y en un enlace 'Link: rel="next"'.
+ * En la última página no se envía ninguna de las dos.
+ */
+final class Paginacion {
+
+    static final String CABECERA_CURSOR = "X-Next-Cursor";
+
+    private Paginacion() {
+    }
+
+    static <T> ResponseEntity<List<T>> respuesta(List<T> cuerpo, String siguienteCursor) {
+        if (siguienteCursor == null) {
+            return ResponseEntity.ok(cuerpo);
+        }
+        String siguiente = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", siguienteCursor)
+                .build()
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(CABECERA_CURSOR, siguienteCursor)
+                .header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"")
+                .body(cuerpo);
+    }
+}
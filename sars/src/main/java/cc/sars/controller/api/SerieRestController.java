@@ -1,17 +1,37 @@
 package cc.sars.controller.api;
 
+import cc.sars.controller.api.dto.BorradoDTO;
+import cc.sars.controller.api.dto.CambiosDTO;
+import cc.sars.controller.api.dto.CapituloDTO;
+import cc.sars.controller.api.dto.OperacionDTO;
+import cc.sars.controller.api.dto.OperacionesDTO;
+import cc.sars.controller.api.dto.ProgresoDTO;
+import cc.sars.controller.api.dto.ResultadoOperacionDTO;
 import cc.sars.controller.api.dto.SerieCreateDTO;
 import cc.sars.controller.api.dto.SerieDTO;
 import cc.sars.controller.api.dto.SerieUpdateDTO;
+import cc.sars.controller.api.dto.TareaDTO;
 import cc.sars.exception.SerieAlreadyExistsException;
+import cc.sars.model.ProgresoSerie;
 import cc.sars.model.Serie;
+import cc.sars.service.CambiosTablero;
+import cc.sars.service.OperacionTarea;
+import cc.sars.service.Pagina;
+import cc.sars.service.ResultadoOperacion;
 import cc.sars.service.SerieService;
+import cc.sars.service.TransicionTareaService;
+import cc.sars.service.ValidadoresHttp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,31 +40,80 @@ public class SerieRestController {
 
     private static final Logger log = LoggerFactory.getLogger(SerieRestController.class);
 
+    /** Operaciones como máximo por lote. */
+    static final int MAX_OPERACIONES = 500;
+
     private final SerieService serieService;
+    private final TransicionTareaService transicionTareaService;
+    private final ValidadoresHttp validadoresHttp;
 
-    public SerieRestController(SerieService serieService) {
+    public SerieRestController(SerieService serieService, TransicionTareaService transicionTareaService, ValidadoresHttp validadoresHttp) {
         this.serieService = serieService;
+        this.transicionTareaService = transicionTareaService;
+        this.validadoresHttp = validadoresHttp;
     }
 
+    /**
+     * Lista las series del grupo por páginas ('limit' y 'cursor'); ver {@link Paginacion}.
+     * Cada serie lleva su progreso (contadores de tareas y capítulos listos para C.C.).
+     * Con la ETag del grupo en 'If-None-Match' responde 304 sin consultar nada; ver {@link ValidadoresHttp}.
+     */
     @GetMapping
-    public List<SerieDTO> getSeriesByGrupo(@PathVariable String nombreGrupo) {
-        log.info("Solicitud para obtener todas las series del grupo {}", nombreGrupo);
-        List<Serie> series = serieService.getSeriesPorGrupo(nombreGrupo);
-        List<SerieDTO> seriesDTO = series.stream()
-                .map(serie -> new SerieDTO(serie.getNombre(), serie.getDescripcion()))
+    public ResponseEntity<List<SerieDTO>> getSeriesByGrupo(@PathVariable String nombreGrupo,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String cursor,
+                                                           WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.grupo(nombreGrupo))) {
+            return null;
+        }
+        log.info("Solicitud para obtener las series del grupo {}", nombreGrupo);
+        Pagina<Serie> pagina = serieService.getSeriesPagina(nombreGrupo, cursor, limit);
+        // Los contadores de toda la página llegan en una consulta más, sin recorrer tareas
+        Map<Integer, ProgresoSerie> progresos = serieService.getProgresoDeSeries(pagina.elementos());
+        List<SerieDTO> seriesDTO = pagina.elementos().stream()
+                .map(serie -> {
+                    ProgresoSerie progreso = progresos.get(serie.getId());
+                    return new SerieDTO(serie.getNombre(), serie.getDescripcion(), progreso == null ? null : new ProgresoDTO(progreso));
+                })
                 .collect(Collectors.toList());
         log.info("Se encontraron {} series para el grupo {}", seriesDTO.size(), nombreGrupo);
-        return seriesDTO;
+        return Paginacion.respuesta(seriesDTO, pagina.siguienteCursor());
     }
 
     @GetMapping("/{nombreSerie}")
-    public SerieDTO getSerieByNombre(@PathVariable String nombreGrupo, @PathVariable String nombreSerie) {
+    public SerieDTO getSerieByNombre(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.serie(nombreGrupo, nombreSerie))) {
+            return null;
+        }
         log.info("Solicitud para obtener serie por nombre: {} en el grupo {}", nombreSerie, nombreGrupo);
         Serie serie = serieService.getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
                 .orElseThrow(() -> new cc.sars.exception.SerieNotFoundException("Serie no encontrada con el nombre: " + nombreSerie + " en el grupo: " + nombreGrupo));
         return new SerieDTO(serie.getNombre(), serie.getDescripcion());
     }
 
+    /**
+     * Sincronización por cambios: solo lo creado, cambiado o borrado en el tablero desde la versión 'desde'.
+     * Sin 'desde', o si es anterior al horizonte de compactación, devuelve el tablero completo ('completo': true).
+     */
+    @GetMapping("/{nombreSerie}/cambios")
+    public CambiosDTO getCambios(@PathVariable String nombreGrupo, @PathVariable String nombreSerie,
+                                 @RequestParam(required = false) Long desde, WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.serie(nombreGrupo, nombreSerie))) {
+            return null;
+        }
+        log.debug("Solicitud de cambios de la serie {} en el grupo {} desde la versión {}", nombreSerie, nombreGrupo, desde);
+        CambiosTablero cambios = serieService.getCambiosDesde(nombreGrupo, nombreSerie, desde);
+        List<CapituloDTO> capitulos = cambios.capitulos().entrySet().stream()
+                .map(capitulo -> new CapituloDTO(capitulo.getKey(), nombreSerie, capitulo.getValue().stream()
+                        .map(tarea -> new TareaDTO(tarea.getNombre(), tarea.getEstadoTarea(), tarea.getUsuarioAsignado()))
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+        List<BorradoDTO> borrados = cambios.borrados().stream()
+                .map(lapida -> new BorradoDTO(lapida.getCapitulo(), lapida.getTarea()))
+                .collect(Collectors.toList());
+        return new CambiosDTO(cambios.version(), cambios.completo(), capitulos, borrados);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public SerieDTO createSerie(@PathVariable String nombreGrupo, @RequestBody SerieCreateDTO serieCreateDTO) {
@@ -61,6 +130,55 @@ public class SerieRestController {
         return new SerieDTO(serieActualizada.getNombre(), serieActualizada.getDescripcion());
     }
 
+    /**
+     * Aplica en una transacción un lote de cambios de estado y asignaciones sobre tareas de la serie, con las mismas
+     * reglas que los PUT de cada tarea, y devuelve el resultado de cada operación en el mismo orden.
+     * Si el lote es todo o nada y alguna operación se rechaza, no se aplica ninguna y responde 409 con los resultados.
+     */
+    @PostMapping("/{nombreSerie}/operaciones")
+    public ResponseEntity<List<ResultadoOperacionDTO>> aplicarOperaciones(@PathVariable String nombreGrupo, @PathVariable String nombreSerie,
+                                                                          @RequestBody OperacionesDTO operacionesDTO) {
+        List<OperacionTarea> operaciones = validarOperaciones(operacionesDTO);
+        log.info("Solicitud de '{}' para aplicar {} operaciones en la serie {} del grupo {} (todo o nada: {})",
+                operacionesDTO.getUsername(), operaciones.size(), nombreSerie, nombreGrupo, operacionesDTO.isTodoONada());
+
+        List<ResultadoOperacion> resultados = transicionTareaService.aplicarOperaciones(nombreGrupo, nombreSerie,
+                operacionesDTO.getUsername(), operaciones, operacionesDTO.isTodoONada());
+
+        // Tras el commit las tareas aplicadas ya tienen su nueva versión
+        List<ResultadoOperacionDTO> cuerpo = resultados.stream()
+                .map(resultado -> resultado.tarea() == null
+                        ? new ResultadoOperacionDTO(resultado.estado(), null, null, resultado.error())
+                        : new ResultadoOperacionDTO(resultado.estado(),
+                                new TareaDTO(resultado.tarea().getNombre(), resultado.tarea().getEstadoTarea(), resultado.tarea().getUsuarioAsignado()),
+                                resultado.tarea().getVersion(), null))
+                .collect(Collectors.toList());
+        boolean deshecho = operacionesDTO.isTodoONada() && !resultados.stream().allMatch(ResultadoOperacion::isAplicada);
+        return ResponseEntity.status(deshecho ? HttpStatus.CONFLICT : HttpStatus.OK).body(cuerpo);
+    }
+
+    private static List<OperacionTarea> validarOperaciones(OperacionesDTO operacionesDTO) {
+        if (operacionesDTO.getUsername() == null || operacionesDTO.getUsername().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Falta el usuario que aplica las operaciones.");
+        }
+        List<OperacionDTO> operaciones = operacionesDTO.getOperaciones();
+        if (operaciones == null || operaciones.isEmpty() || operaciones.size() > MAX_OPERACIONES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El lote debe tener entre 1 y " + MAX_OPERACIONES + " operaciones.");
+        }
+        List<OperacionTarea> validadas = new ArrayList<>(operaciones.size());
+        for (int i = 0; i < operaciones.size(); i++) {
+            OperacionDTO operacion = operaciones.get(i);
+            boolean completa = operacion != null && operacion.getTipo() != null && operacion.getCapitulo() != null && operacion.getTarea() != null
+                    && (operacion.getTipo() == OperacionTarea.Tipo.ESTADO ? operacion.getNuevoEstado() != null : operacion.getAsignado() != null);
+            if (!completa) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La operación " + i + " está incompleta.");
+            }
+            validadas.add(new OperacionTarea(operacion.getTipo(), operacion.getCapitulo(), operacion.getTarea(),
+                    operacion.getNuevoEstado(), operacion.getAsignado(), operacion.getVersion()));
+        }
+        return validadas;
+    }
+
     @DeleteMapping("/{nombreSerie}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteSerie(@PathVariable String nombreGrupo, @PathVariable String nombreSerie) {
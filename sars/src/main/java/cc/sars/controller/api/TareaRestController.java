@@ -6,17 +6,21 @@ import cc.sars.controller.api.dto.TareaDTO;
 import cc.sars.controller.api.dto.TareaEstadoUpdateDTO;
 import cc.sars.controller.api.dto.TareaUpdateDTO;
 import cc.sars.exception.SerieNotFoundException;
+import cc.sars.exception.VersionNoCoincideException;
 import cc.sars.model.Capitulo;
-import cc.sars.model.Serie;
 import cc.sars.model.Tarea;
 import cc.sars.model.User;
 import cc.sars.service.SerieService;
+import cc.sars.service.TransicionTareaService;
 import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -29,22 +33,27 @@ public class TareaRestController {
     private static final Logger log = LoggerFactory.getLogger(TareaRestController.class);
 
     private final SerieService serieService;
-    public TareaRestController(SerieService serieService, UsuarioService usuarioService) {
+    private final TransicionTareaService transicionTareaService;
+    private final ValidadoresHttp validadoresHttp;
+
+    public TareaRestController(SerieService serieService, UsuarioService usuarioService, TransicionTareaService transicionTareaService,
+                               ValidadoresHttp validadoresHttp) {
         this.serieService = serieService;
+        this.transicionTareaService = transicionTareaService;
+        this.validadoresHttp = validadoresHttp;
     }
 
     private Capitulo findCapituloOrThrow(String nombreGrupo, String nombreSerie, String nombreCapitulo) {
-        Serie serie = serieService.getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
-                .orElseThrow(() -> new SerieNotFoundException("Serie no encontrada con el nombre: " + nombreSerie + " en el grupo: " + nombreGrupo));
-
-        return serie.getCapitulos().stream()
-                .filter(c -> c.getNombre().equals(nombreCapitulo))
-                .findFirst()
+        return serieService.getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
                 .orElseThrow(() -> new SerieNotFoundException("Capítulo no encontrado con el nombre: " + nombreCapitulo + " en la serie: " + nombreSerie));
     }
 
     @GetMapping
-    public List<TareaDTO> getTareasByCapitulo(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo) {
+    public List<TareaDTO> getTareasByCapitulo(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo,
+                                              WebRequest peticion) {
+        if (peticion.checkNotModified(validadoresHttp.serie(nombreGrupo, nombreSerie))) {
+            return null;
+        }
         log.info("Solicitud para obtener las tareas del capítulo '{}' en la serie '{}' del grupo '{}'", nombreCapitulo, nombreSerie, nombreGrupo);
         Capitulo capitulo = findCapituloOrThrow(nombreGrupo, nombreSerie, nombreCapitulo);
 
@@ -57,41 +66,36 @@ public class TareaRestController {
     @ResponseStatus(HttpStatus.CREATED)
     public TareaDTO addTareaToCapitulo(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @RequestBody TareaCreateDTO tareaCreateDTO) {
         log.info("Solicitud para añadir la tarea '{}' al capítulo '{}'", tareaCreateDTO.getNombre(), nombreCapitulo);
-        // First, ensure the chapter exists in the hierarchy
-        findCapituloOrThrow(nombreGrupo, nombreSerie, nombreCapitulo);
-
-        Capitulo capituloActualizado = serieService.addTareaToCapitulo(nombreGrupo, nombreSerie, nombreCapitulo, tareaCreateDTO.getNombre());
-        Tarea nuevaTarea = capituloActualizado.getTareas().stream()
-                .filter(t -> t.getNombre().equals(tareaCreateDTO.getNombre()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No se pudo encontrar la tarea recién creada")); // No debería ocurrir
+        Tarea nuevaTarea = serieService.addTareaToCapitulo(nombreGrupo, nombreSerie, nombreCapitulo, tareaCreateDTO.getNombre());
         return new TareaDTO(nuevaTarea.getNombre(), nuevaTarea.getEstadoTarea(), nuevaTarea.getUsuarioAsignado());
     }
 
     @PutMapping("/{nombreTarea}")
     public TareaDTO updateTarea(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @PathVariable String nombreTarea, @RequestBody TareaUpdateDTO tareaUpdateDTO) {
         log.info("Solicitud para actualizar la tarea '{}' en el capítulo '{}'", nombreTarea, nombreCapitulo);
-        // First, ensure the chapter exists in the hierarchy
-        findCapituloOrThrow(nombreGrupo, nombreSerie, nombreCapitulo);
-
         Tarea tareaActualizada = serieService.updateTarea(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, tareaUpdateDTO.getEstado(), tareaUpdateDTO.getUsuarioAsignado());
         return new TareaDTO(tareaActualizada.getNombre(), tareaActualizada.getEstadoTarea(), tareaActualizada.getUsuarioAsignado());
     }
 
+    /**
+     * Cambia el estado de una tarea. Con 'If-Match' (el ETag de un GET anterior) solo se aplica si la tarea
+     * no ha cambiado desde entonces (412 si ha cambiado); sin él se aplica sobre el estado actual.
+     * Devuelve el ETag de la nueva versión.
+     */
     @PutMapping("/{nombreTarea}/estado")
-    public TareaDTO updateTareaEstado(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @PathVariable String nombreTarea, @RequestBody TareaEstadoUpdateDTO estadoUpdateDTO) {
+    public ResponseEntity<TareaDTO> updateTareaEstado(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @PathVariable String nombreTarea,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                      @RequestBody TareaEstadoUpdateDTO estadoUpdateDTO) {
         String username = estadoUpdateDTO.getUsername();
         
         log.info("Solicitud de '{}' para cambiar estado de la tarea '{}' en el capítulo '{}' a '{}'", username, nombreTarea, nombreCapitulo, estadoUpdateDTO.getNuevoEstado());
         
-        Capitulo capituloActualizado = serieService.updateTareaEstado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, estadoUpdateDTO.getNuevoEstado(), username);
-        
-        Tarea tareaActualizada = capituloActualizado.getTareas().stream()
-                .filter(t -> t.getNombre().equals(nombreTarea))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No se pudo encontrar la tarea recién actualizada"));
+        Tarea tareaActualizada = transicionTareaService.cambiarEstado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea,
+                estadoUpdateDTO.getNuevoEstado(), username, versionDeIfMatch(ifMatch));
 
-        return new TareaDTO(tareaActualizada.getNombre(), tareaActualizada.getEstadoTarea(), tareaActualizada.getUsuarioAsignado());
+        return ResponseEntity.ok()
+                .eTag(etag(tareaActualizada))
+                .body(new TareaDTO(tareaActualizada.getNombre(), tareaActualizada.getEstadoTarea(), tareaActualizada.getUsuarioAsignado()));
     }
 
     @PutMapping("/{nombreTarea}/asignado")
@@ -107,23 +111,41 @@ public class TareaRestController {
     }
 
     @GetMapping("/{nombreTarea}")
-    public TareaDTO getTareaByNombre(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @PathVariable String nombreTarea) {
+    public ResponseEntity<TareaDTO> getTareaByNombre(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @PathVariable String nombreTarea) {
         log.info("Solicitud para obtener la tarea '{}' del capítulo '{}' en la serie '{}' del grupo '{}'", nombreTarea, nombreCapitulo, nombreSerie, nombreGrupo);
-        // First, ensure the chapter exists in the hierarchy
-        findCapituloOrThrow(nombreGrupo, nombreSerie, nombreCapitulo);
-
         Tarea tarea = serieService.getTareaByNombre(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea)
                 .orElseThrow(() -> new SerieNotFoundException("Tarea no encontrada con el nombre: " + nombreTarea + " en el capítulo: " + nombreCapitulo));
-        return new TareaDTO(tarea.getNombre(), tarea.getEstadoTarea(), tarea.getUsuarioAsignado());
+        return ResponseEntity.ok()
+                .eTag(etag(tarea))
+                .body(new TareaDTO(tarea.getNombre(), tarea.getEstadoTarea(), tarea.getUsuarioAsignado()));
+    }
+
+    private static String etag(Tarea tarea) {
+        return "\"" + (tarea.getVersion() == null ? 0 : tarea.getVersion()) + "\"";
+    }
+
+    /**
+     * Versión contenida en 'If-Match' ("3", W/"3"); null si no hay cabecera o es '*'.
+     */
+    private static Long versionDeIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        try {
+            return Long.parseLong(valor.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new VersionNoCoincideException("If-Match no corresponde a ninguna versión de la tarea: " + ifMatch);
+        }
     }
 
     @DeleteMapping("/{nombreTarea}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteTarea(@PathVariable String nombreGrupo, @PathVariable String nombreSerie, @PathVariable String nombreCapitulo, @PathVariable String nombreTarea) {
         log.info("Solicitud para eliminar la tarea '{}' del capítulo '{}'", nombreTarea, nombreCapitulo);
-        // First, ensure the chapter exists in the hierarchy
-        findCapituloOrThrow(nombreGrupo, nombreSerie, nombreCapitulo);
-        
         serieService.deleteTarea(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea);
     }
 }
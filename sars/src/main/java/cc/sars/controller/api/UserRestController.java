@@ -8,6 +8,7 @@ import cc.sars.model.Grupo;
 import cc.sars.model.Serie;
 import cc.sars.model.User;
 import cc.sars.service.GrupoService;
+import cc.sars.service.Pagina;
 import cc.sars.service.UsuarioService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,12 +35,18 @@ public class UserRestController {
         this.grupoService = grupoService;
     }
 
+    /**
+     * Lista los usuarios por páginas ('limit' y 'cursor'); ver {@link Paginacion}.
+     */
     @GetMapping
-    public List<UserDTO> getAllUsers() {
-        log.info("Solicitud para obtener todos los usuarios");
-        return usuarioService.getTodosLosUsuarios().stream()
+    public ResponseEntity<List<UserDTO>> getAllUsers(@RequestParam(required = false) Integer limit,
+                                                     @RequestParam(required = false) String cursor) {
+        log.info("Solicitud para obtener los usuarios");
+        Pagina<User> pagina = usuarioService.getUsuariosPagina(cursor, limit);
+        List<UserDTO> usuarios = pagina.elementos().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        return Paginacion.respuesta(usuarios, pagina.siguienteCursor());
     }
 
     @GetMapping("/{username}")
@@ -0,0 +1,26 @@
+package cc.sars.controller.api.dto;
+
+/**
+ * Capítulo (tarea null) o tarea borrados, en una respuesta de cambios.
+ */
+public class BorradoDTO {
+
+    private String capitulo;
+    private String tarea;
+
+    public BorradoDTO() {
+    }
+
+    public BorradoDTO(String capitulo, String tarea) {
+        this.capitulo = capitulo;
+        this.tarea = tarea;
+    }
+
+    public String getCapitulo() {
+        return capitulo;
+    }
+
+    public String getTarea() {
+        return tarea;
+    }
+}
@@ -0,0 +1,42 @@
+package cc.sars.controller.api.dto;
+
+import java.util.List;
+
+/**
+ * Cambios del tablero de una serie desde la versión pedida. Se aplican primero 'borrados' y después 'capitulos'
+ * (cada uno con sus tareas nuevas o cambiadas); 'version' es la que hay que enviar en la siguiente petición.
+ * Con 'completo' a true los capítulos son el tablero entero y sustituyen la copia del cliente.
+ */
+public class CambiosDTO {
+
+    private long version;
+    private boolean completo;
+    private List<CapituloDTO> capitulos;
+    private List<BorradoDTO> borrados;
+
+    public CambiosDTO() {
+    }
+
+    public CambiosDTO(long version, boolean completo, List<CapituloDTO> capitulos, List<BorradoDTO> borrados) {
+        this.version = version;
+        this.completo = completo;
+        this.capitulos = capitulos;
+        this.borrados = borrados;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    public List<CapituloDTO> getCapitulos() {
+        return capitulos;
+    }
+
+    public List<BorradoDTO> getBorrados() {
+        return borrados;
+    }
+}
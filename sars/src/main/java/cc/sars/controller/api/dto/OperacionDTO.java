@@ -0,0 +1,66 @@
+package cc.sars.controller.api.dto;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.service.OperacionTarea;
+
+/**
+ * Una operación de un lote: 'ESTADO' con 'nuevoEstado' o 'ASIGNACION' con 'asignado'.
+ * 'version' hace lo mismo que 'If-Match' en el cambio de estado suelto.
+ */
+public class OperacionDTO {
+
+    private OperacionTarea.Tipo tipo;
+    private String capitulo;
+    private String tarea;
+    private EstadosTareas nuevoEstado;
+    private String asignado;
+    private Long version;
+
+    public OperacionTarea.Tipo getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(OperacionTarea.Tipo tipo) {
+        this.tipo = tipo;
+    }
+
+    public String getCapitulo() {
+        return capitulo;
+    }
+
+    public void setCapitulo(String capitulo) {
+        this.capitulo = capitulo;
+    }
+
+    public String getTarea() {
+        return tarea;
+    }
+
+    public void setTarea(String tarea) {
+        this.tarea = tarea;
+    }
+
+    public EstadosTareas getNuevoEstado() {
+        return nuevoEstado;
+    }
+
+    public void setNuevoEstado(EstadosTareas nuevoEstado) {
+        this.nuevoEstado = nuevoEstado;
+    }
+
+    public String getAsignado() {
+        return asignado;
+    }
+
+    public void setAsignado(String asignado) {
+        this.asignado = asignado;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
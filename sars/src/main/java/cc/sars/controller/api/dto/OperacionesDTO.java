@@ -0,0 +1,38 @@
+package cc.sars.controller.api.dto;
+
+import java.util.List;
+
+/**
+ * Lote de operaciones de un usuario sobre tareas de una serie. Por defecto es todo o nada; con 'todoONada' a false
+ * se aplican las operaciones válidas aunque otras se rechacen.
+ */
+public class OperacionesDTO {
+
+    private String username;
+    private boolean todoONada = true;
+    private List<OperacionDTO> operaciones;
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public boolean isTodoONada() {
+        return todoONada;
+    }
+
+    public void setTodoONada(boolean todoONada) {
+        this.todoONada = todoONada;
+    }
+
+    public List<OperacionDTO> getOperaciones() {
+        return operaciones;
+    }
+
+    public void setOperaciones(List<OperacionDTO> operaciones) {
+        this.operaciones = operaciones;
+    }
+}
@@ -0,0 +1,60 @@
+package cc.sars.controller.api.dto;
+
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+
+/**
+ * Progreso de una serie: recuento de sus tareas por estado y capítulos listos para C.C.
+ */
+public class ProgresoDTO {
+
+    private int totalTareas;
+    private int completadas;
+    private int asignadas;
+    private int repetir;
+    private int porcentaje;
+    private int capitulosListosCc;
+    private boolean ccPendiente;
+
+    public ProgresoDTO() {
+    }
+
+    public ProgresoDTO(ProgresoSerie progresoSerie) {
+        ProgresoTareas progreso = progresoSerie.getProgreso();
+        this.totalTareas = progreso.getTotal();
+        this.completadas = progreso.getCompletadas();
+        this.asignadas = progreso.getAsignadas();
+        this.repetir = progreso.getRepetir();
+        this.porcentaje = progreso.getPorcentaje();
+        this.capitulosListosCc = progresoSerie.getCapitulosListosCc();
+        this.ccPendiente = progresoSerie.isCcPendiente();
+    }
+
+    public int getTotalTareas() {
+        return totalTareas;
+    }
+
+    public int getCompletadas() {
+        return completadas;
+    }
+
+    public int getAsignadas() {
+        return asignadas;
+    }
+
+    public int getRepetir() {
+        return repetir;
+    }
+
+    public int getPorcentaje() {
+        return porcentaje;
+    }
+
+    public int getCapitulosListosCc() {
+        return capitulosListosCc;
+    }
+
+    public boolean isCcPendiente() {
+        return ccPendiente;
+    }
+}
@@ -0,0 +1,43 @@
+package cc.sars.controller.api.dto;
+
+import cc.sars.service.ResultadoOperacion;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Resultado de una operación del lote, en el mismo orden. Si se aplicó lleva la tarea y su nueva versión
+ * (la que se puede enviar en 'version' o 'If-Match'); si se rechazó, el motivo.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoOperacionDTO {
+
+    private ResultadoOperacion.Estado estado;
+    private TareaDTO tarea;
+    private Long version;
+    private String error;
+
+    public ResultadoOperacionDTO() {
+    }
+
+    public ResultadoOperacionDTO(ResultadoOperacion.Estado estado, TareaDTO tarea, Long version, String error) {
+        this.estado = estado;
+        this.tarea = tarea;
+        this.version = version;
+        this.error = error;
+    }
+
+    public ResultadoOperacion.Estado getEstado() {
+        return estado;
+    }
+
+    public TareaDTO getTarea() {
+        return tarea;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -4,6 +4,7 @@ public class SerieDTO {
 
     private String nombre;
     private String descripcion;
+    private ProgresoDTO progreso;
 
     public SerieDTO() {
     }
@@ -13,6 +14,11 @@ public class SerieDTO {
         this.descripcion = descripcion;
     }
 
+    public SerieDTO(String nombre, String descripcion, ProgresoDTO progreso) {
+        this(nombre, descripcion);
+        this.progreso = progreso;
+    }
+
     public String getNombre() {
         return nombre;
     }
@@ -28,4 +34,12 @@ public class SerieDTO {
     public void setDescripcion(String descripcion) {
         this.descripcion = descripcion;
     }
+
+    public ProgresoDTO getProgreso() {
+        return progreso;
+    }
+
+    public void setProgreso(ProgresoDTO progreso) {
+        this.progreso = progreso;
+    }
 }
@@ -1,8 +1,11 @@
 package cc.sars.controller.api.handler;
 
 import cc.sars.controller.api.dto.ErrorResponse;
+import cc.sars.exception.ConflictoConcurrenteException;
+import cc.sars.exception.CursorInvalidoException;
 import cc.sars.exception.ResourceAlreadyExistsException;
 import cc.sars.exception.SerieNotFoundException;
+import cc.sars.exception.VersionNoCoincideException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,4 +25,22 @@ public class RestExceptionHandler {
         ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
         return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
     }
+
+    @ExceptionHandler(CursorInvalidoException.class)
+    public ResponseEntity<ErrorResponse> handleCursorInvalidoException(CursorInvalidoException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(VersionNoCoincideException.class)
+    public ResponseEntity<ErrorResponse> handleVersionNoCoincideException(VersionNoCoincideException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(ConflictoConcurrenteException.class)
+    public ResponseEntity<ErrorResponse> handleConflictoConcurrenteException(ConflictoConcurrenteException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
 }
@@ -0,0 +1,9 @@
+package cc.sars.evento;
+
+import java.util.List;
+
+/**
+ * Se ha creado un capítulo con las tareas indicadas.
+ */
+public record CapituloCreado(String grupo, String serie, String capitulo, List<String> tareas) implements EventoDominio {
+}
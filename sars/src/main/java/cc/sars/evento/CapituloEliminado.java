@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha eliminado un capítulo con sus tareas.
+ */
+public record CapituloEliminado(String grupo, String serie, String capitulo) implements EventoDominio {
+}
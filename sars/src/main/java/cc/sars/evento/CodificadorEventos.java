@@ -0,0 +1,48 @@
+package cc.sars.evento;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Convierte eventos en el tipo y el JSON que se guardan en el outbox, y al revés.
+ * El tipo es el nombre simple del record: renombrar uno deja sin entregar los que estén pendientes.
+ */
+public final class CodificadorEventos {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final Map<String, Class<?>> TIPOS = Arrays.stream(EventoDominio.class.getPermittedSubclasses())
+            .collect(Collectors.toUnmodifiableMap(Class::getSimpleName, Function.identity()));
+
+    private CodificadorEventos() {
+    }
+
+    public static String tipo(EventoDominio evento) {
+        return evento.getClass().getSimpleName();
+    }
+
+    public static String carga(EventoDominio evento) {
+        try {
+            return JSON.writeValueAsString(evento);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + evento, e);
+        }
+    }
+
+    public static EventoDominio decodificar(String tipo, String carga) {
+        Class<?> clase = TIPOS.get(tipo);
+        if (clase == null) {
+            throw new IllegalArgumentException("Tipo de evento desconocido: " + tipo);
+        }
+        try {
+            return (EventoDominio) JSON.readValue(carga, clase);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Evento '" + tipo + "' mal formado: " + carga, e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package cc.sars.evento;
+
+/**
+ * Cambio en los datos de un grupo. Los servicios lo publican en el outbox dentro de la misma transacción que el
+ * cambio (ver cc.sars.service.OutboxEventos) y el relay lo entrega después a los @EventListener de la aplicación.
+ * <p>
+ * La entrega es al menos una vez y en orden de publicación: un oyente puede recibir el mismo evento más de una vez.
+ */
+public sealed interface EventoDominio permits GrupoCreado, GrupoEliminado, MiembroAnyadido, MiembroRolCambiado,
+        MiembroEliminado, SerieCreada, SerieEliminada, CapituloCreado, CapituloEliminado, TareaCreada, TareaEliminada,
+        TareaEstadoCambiado, TareaAsignada, TareasLiberadas {
+
+    String grupo();
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha creado un grupo.
+ */
+public record GrupoCreado(String grupo) implements EventoDominio {
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha eliminado un grupo con todo su contenido.
+ */
+public record GrupoEliminado(String grupo) implements EventoDominio {
+}
@@ -0,0 +1,9 @@
+package cc.sars.evento;
+
+import cc.sars.model.Role;
+
+/**
+ * Un usuario ha entrado en un grupo con el rol indicado.
+ */
+public record MiembroAnyadido(String grupo, String usuario, Role rol) implements EventoDominio {
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Un usuario ha dejado de pertenecer a un grupo.
+ */
+public record MiembroEliminado(String grupo, String usuario) implements EventoDominio {
+}
@@ -0,0 +1,9 @@
+package cc.sars.evento;
+
+import cc.sars.model.Role;
+
+/**
+ * Ha cambiado el rol de un usuario en un grupo.
+ */
+public record MiembroRolCambiado(String grupo, String usuario, Role rol) implements EventoDominio {
+}
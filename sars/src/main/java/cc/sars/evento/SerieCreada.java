@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha creado una serie.
+ */
+public record SerieCreada(String grupo, String serie) implements EventoDominio {
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha eliminado una serie con sus capítulos.
+ */
+public record SerieEliminada(String grupo, String serie) implements EventoDominio {
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Un líder ha asignado una tarea a un usuario sin cambiar su estado.
+ */
+public record TareaAsignada(String grupo, String serie, String capitulo, String tarea, String usuario) implements EventoDominio {
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha añadido una tarea a un capítulo.
+ */
+public record TareaCreada(String grupo, String serie, String capitulo, String tarea) implements EventoDominio {
+}
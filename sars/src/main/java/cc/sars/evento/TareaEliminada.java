@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se ha eliminado una tarea de un capítulo.
+ */
+public record TareaEliminada(String grupo, String serie, String capitulo, String tarea) implements EventoDominio {
+}
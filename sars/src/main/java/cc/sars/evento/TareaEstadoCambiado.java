@@ -0,0 +1,9 @@
+package cc.sars.evento;
+
+import cc.sars.model.EstadosTareas;
+
+/**
+ * Ha cambiado el estado de una tarea; 'usuario' es el asignado tras el cambio.
+ */
+public record TareaEstadoCambiado(String grupo, String serie, String capitulo, String tarea, EstadosTareas estadoAnterior, EstadosTareas estado, String usuario) implements EventoDominio {
+}
@@ -0,0 +1,7 @@
+package cc.sars.evento;
+
+/**
+ * Se han liberado en bloque las tareas asignadas a un usuario en un grupo (al eliminar el usuario).
+ */
+public record TareasLiberadas(String grupo, String usuario) implements EventoDominio {
+}
@@ -0,0 +1,14 @@
+package cc.sars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Una escritura ha seguido chocando con otras concurrentes después de agotar los reintentos.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConflictoConcurrenteException extends RuntimeException {
+    public ConflictoConcurrenteException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package cc.sars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La versión que envía el cliente (If-Match) ya no es la actual del recurso.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class VersionNoCoincideException extends RuntimeException {
+    public VersionNoCoincideException(String message) {
+        super(message);
+    }
+}
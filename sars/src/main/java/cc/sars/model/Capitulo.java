@@ -11,18 +11,25 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.ElementCollection;
-import jakarta.persistence.CollectionTable;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.OrderColumn;
-import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.OrderBy;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Column;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 @Entity
 @Table(name = "capitulo")
 public class Capitulo {
 
+    // Secuencia con bloques de 50 ids: permite agrupar los INSERT en lotes JDBC (IDENTITY lo impide)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "capitulo_seq")
+    @SequenceGenerator(name = "capitulo_seq", sequenceName = "capitulo_seq", allocationSize = 50)
     private Integer id;
 
     @JsonProperty("nombreCapitulo")
@@ -32,14 +39,21 @@ public class Capitulo {
     @JoinColumn(name = "serie_id")
     private Serie serie;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(
-        name = "capitulo_tareas",
-        joinColumns = @JoinColumn(name = "capitulo_id")
-    )
-    @OrderColumn(name = "tarea_indice")
-    private List<Tarea> tareas = new ArrayList<>(); // Ahora es una List
+    // Las tareas se ordenan por id (orden de creación): borrar una no obliga a renumerar las demás.
+    // SUBSELECT: al tocar las tareas de un capítulo se cargan las de todos los capítulos de la misma consulta.
+    @OneToMany(mappedBy = "capitulo", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @Fetch(FetchMode.SUBSELECT)
+    private List<Tarea> tareas = new ArrayList<>();
 
+    // Contadores de sus tareas, mantenidos por ContadoresProgreso en la misma transacción que cada cambio
+    @Embedded
+    private ProgresoTareas progreso = new ProgresoTareas();
+
+    // Versión de cambios de la serie en la que se creó (ver RegistroCambios)
+    @Column(name = "cambio", nullable = false)
+    @ColumnDefault("0")
+    private long cambio;
 
     public Capitulo() {
     }
@@ -51,6 +65,7 @@ public class Capitulo {
     public void anyadirTarea(Tarea t) {
         if (!this.tareas.contains(t)) {
             this.tareas.add(t);
+            t.setCapitulo(this);
         }
     }
 
@@ -58,6 +73,29 @@ public class Capitulo {
         this.tareas.remove(t);
     }
 
+    /**
+     * Calcula los contadores a partir de las tareas en memoria. Solo para capítulos nuevos, antes de insertarlos.
+     */
+    public void inicializarProgreso() {
+        ProgresoTareas suma = new ProgresoTareas();
+        for (Tarea tarea : tareas) {
+            suma = suma.sumar(ProgresoTareas.de(tarea));
+        }
+        this.progreso = suma;
+    }
+
+    public void marcarCambio(long version) {
+        this.cambio = version;
+    }
+
+    public long getCambio() {
+        return cambio;
+    }
+
+    public ProgresoTareas getProgreso() {
+        return progreso;
+    }
+
     public List<Tarea> getTareas() {
         return tareas;
     }
@@ -0,0 +1,106 @@
+package cc.sars.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+/**
+ * Evento de dominio pendiente de entregar (patrón outbox). Se inserta en la transacción del cambio que lo
+ * origina y el relay lo borra al entregarlo, así que la tabla solo contiene lo pendiente y lo aparcado: los
+ * eventos que no se pueden decodificar o que han fallado 'sars.outbox.max-intentos' veces quedan con 'aparcado'
+ * y su último error, para revisarlos a mano, y el relay deja de entregarlos.
+ */
+@Entity
+@Table(name = "evento_outbox")
+public class EventoOutbox {
+
+    private static final int LONGITUD_ERROR = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "evento_outbox_seq")
+    @SequenceGenerator(name = "evento_outbox_seq", sequenceName = "evento_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 60)
+    private String tipo;
+
+    @Column(name = "grupo_nombre", nullable = false)
+    private String grupo;
+
+    @Column(nullable = false, length = 4000)
+    private String carga;
+
+    @Column(nullable = false)
+    private Instant creado;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int intentos;
+
+    @Column(name = "ultimo_error", length = LONGITUD_ERROR)
+    private String ultimoError;
+
+    private Instant aparcado;
+
+    protected EventoOutbox() {
+    }
+
+    public EventoOutbox(String tipo, String grupo, String carga, Instant creado) {
+        this.tipo = tipo;
+        this.grupo = grupo;
+        this.carga = carga;
+        this.creado = creado;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getGrupo() {
+        return grupo;
+    }
+
+    public String getCarga() {
+        return carga;
+    }
+
+    public Instant getCreado() {
+        return creado;
+    }
+
+    public int getIntentos() {
+        return intentos;
+    }
+
+    public String getUltimoError() {
+        return ultimoError;
+    }
+
+    public Instant getAparcado() {
+        return aparcado;
+    }
+
+    /**
+     * Anota una entrega fallida y lo aparca si ya lleva 'maxIntentos'.
+     * @return Si ha quedado aparcado.
+     */
+    public boolean registrarFallo(String error, int maxIntentos, Instant ahora) {
+        intentos++;
+        ultimoError = error == null || error.length() <= LONGITUD_ERROR ? error : error.substring(0, LONGITUD_ERROR);
+        if (intentos >= maxIntentos) {
+            aparcado = ahora;
+        }
+        return aparcado != null;
+    }
+}
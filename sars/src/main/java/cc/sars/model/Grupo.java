@@ -1,14 +1,25 @@
 package cc.sars.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
+/**
+ * Plan de carga "Grupo.detalle": el grupo con sus miembros y el usuario de cada membresía.
+ * Las series se cargan después con una sola consulta (no se unen aquí para no multiplicar filas).
+ */
 @Entity
+@NamedEntityGraph(name = "Grupo.detalle",
+        attributeNodes = @NamedAttributeNode(value = "usuarioGrupos", subgraph = "miembro"),
+        subgraphs = @NamedSubgraph(name = "miembro", attributeNodes = @NamedAttributeNode("usuario")))
 @Table(name = "grupo")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Grupo {
 
     @Id
@@ -19,6 +30,7 @@ public class Grupo {
     private List<Serie> series = new ArrayList<>();
 
     @OneToMany(mappedBy = "grupo", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<UsuarioGrupo> usuarioGrupos = new HashSet<>();
 
     // --- Constructores ---
@@ -58,9 +70,9 @@ public class Grupo {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Grupo grupo = (Grupo) o;
-        return Objects.equals(nombre, grupo.nombre);
+        // instanceof y getter: el otro objeto puede ser un proxy LAZY de Hibernate
+        if (!(o instanceof Grupo grupo)) return false;
+        return Objects.equals(nombre, grupo.getNombre());
     }
 
     @Override
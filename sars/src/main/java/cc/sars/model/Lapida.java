@@ -0,0 +1,78 @@
+package cc.sars.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Rastro de un capítulo (tarea null) o una tarea borrados, para que la sincronización por cambios pueda
+ * decir a los clientes qué ha desaparecido desde su versión. Se compactan pasado un tiempo
+ * (ver CompactacionCambios) y se borran con la serie por la clave foránea.
+ */
+@Entity
+@Table(name = "lapida", indexes = @Index(name = "idx_lapida_serie_version", columnList = "serie_id, version"))
+public class Lapida {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lapida_seq")
+    @SequenceGenerator(name = "lapida_seq", sequenceName = "lapida_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "serie_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Serie serie;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false)
+    private String capitulo;
+
+    private String tarea;
+
+    @Column(nullable = false)
+    private Instant borrado;
+
+    protected Lapida() {
+    }
+
+    public Lapida(Serie serie, long version, String capitulo, String tarea, Instant borrado) {
+        this.serie = serie;
+        this.version = version;
+        this.capitulo = capitulo;
+        this.tarea = tarea;
+        this.borrado = borrado;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getCapitulo() {
+        return capitulo;
+    }
+
+    /**
+     * Null si lo borrado es el capítulo entero.
+     */
+    public String getTarea() {
+        return tarea;
+    }
+
+    public Instant getBorrado() {
+        return borrado;
+    }
+}
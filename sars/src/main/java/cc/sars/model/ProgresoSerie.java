@@ -0,0 +1,86 @@
+package cc.sars.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Contadores de progreso de una serie: la suma de los de sus capítulos y cuántos están listos para C.C.
+ * <p>
+ * Va en su propia tabla y no en 'serie' porque Serie está en la caché de segundo nivel: un UPDATE masivo
+ * sobre ella vaciaría su región en cada cambio de estado de una tarea.
+ * La fila se borra con la serie por la clave foránea (ON DELETE CASCADE), sin que Serie la conozca.
+ */
+@Entity
+@Table(name = "serie_progreso")
+public class ProgresoSerie {
+
+    @Id
+    private Integer serieId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "serie_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Serie serie;
+
+    @Embedded
+    private ProgresoTareas progreso = new ProgresoTareas();
+
+    @Column(name = "capitulos_listos_cc", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int capitulosListosCc;
+
+    // Sincronización por cambios (ver RegistroCambios): versión actual de la serie y por debajo de cuál
+    // ya no quedan lápidas, así que un cliente más atrasado necesita el tablero completo
+    @Column(name = "version_cambios", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long versionCambios;
+
+    @Column(name = "horizonte_cambios", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private long horizonteCambios;
+
+    protected ProgresoSerie() {
+    }
+
+    public ProgresoSerie(Serie serie) {
+        this.serie = serie;
+    }
+
+    public Integer getSerieId() {
+        return serieId;
+    }
+
+    public ProgresoTareas getProgreso() {
+        return progreso;
+    }
+
+    public int getCapitulosListosCc() {
+        return capitulosListosCc;
+    }
+
+    public long getVersionCambios() {
+        return versionCambios;
+    }
+
+    public long getHorizonteCambios() {
+        return horizonteCambios;
+    }
+
+    /**
+     * Si algún capítulo de la serie espera el control de calidad.
+     */
+    public boolean isCcPendiente() {
+        return capitulosListosCc > 0;
+    }
+}
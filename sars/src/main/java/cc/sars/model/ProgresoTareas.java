@@ -0,0 +1,149 @@
+package cc.sars.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.util.Objects;
+
+/**
+ * Contadores de tareas por estado de un capítulo o de una serie entera.
+ * <p>
+ * Las columnas no son actualizables desde la entidad: solo cambian con UPDATE relativos
+ * ('SET x = x + :delta', ver ContadoresProgreso), así que dos transiciones concurrentes no se pisan.
+ * El valor por defecto 0 permite a 'ddl-auto=update' añadirlas a tablas con filas; SchemaMigrationInitializer las recalcula.
+ */
+@Embeddable
+public class ProgresoTareas {
+
+    @Column(name = "tareas_total", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int total;
+
+    @Column(name = "tareas_completadas", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int completadas;
+
+    @Column(name = "tareas_asignadas", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int asignadas;
+
+    @Column(name = "tareas_repetir", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int repetir;
+
+    // Tareas 'CC' (como mucho una por capítulo) y cuántas de ellas están completadas
+    @Column(name = "tareas_cc", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int totalCc;
+
+    @Column(name = "tareas_cc_completadas", nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int completadasCc;
+
+    public ProgresoTareas() {
+    }
+
+    public ProgresoTareas(int total, int completadas, int asignadas, int repetir, int totalCc, int completadasCc) {
+        this.total = total;
+        this.completadas = completadas;
+        this.asignadas = asignadas;
+        this.repetir = repetir;
+        this.totalCc = totalCc;
+        this.completadasCc = completadasCc;
+    }
+
+    /**
+     * Lo que aporta a los contadores una tarea con ese nombre y estado.
+     */
+    public static ProgresoTareas de(String nombreTarea, EstadosTareas estado) {
+        int completada = estado == EstadosTareas.Completado ? 1 : 0;
+        int cc = "CC".equals(nombreTarea) ? 1 : 0;
+        return new ProgresoTareas(1, completada,
+                estado == EstadosTareas.Asignado ? 1 : 0,
+                estado == EstadosTareas.Repetir ? 1 : 0,
+                cc, cc * completada);
+    }
+
+    public static ProgresoTareas de(Tarea tarea) {
+        return de(tarea.getNombre(), tarea.getEstadoTarea());
+    }
+
+    public ProgresoTareas sumar(ProgresoTareas otro) {
+        return new ProgresoTareas(total + otro.total, completadas + otro.completadas, asignadas + otro.asignadas,
+                repetir + otro.repetir, totalCc + otro.totalCc, completadasCc + otro.completadasCc);
+    }
+
+    public ProgresoTareas restar(ProgresoTareas otro) {
+        return sumar(otro.negar());
+    }
+
+    public ProgresoTareas negar() {
+        return new ProgresoTareas(-total, -completadas, -asignadas, -repetir, -totalCc, -completadasCc);
+    }
+
+    public boolean isVacio() {
+        return total == 0 && completadas == 0 && asignadas == 0 && repetir == 0 && totalCc == 0 && completadasCc == 0;
+    }
+
+    /**
+     * Un capítulo está listo para C.C. cuando tiene tarea 'CC' sin completar y todas las demás están completadas.
+     */
+    public boolean isCcListo() {
+        return totalCc > completadasCc && total - totalCc == completadas - completadasCc;
+    }
+
+    /**
+     * Si aplicar este incremento puede cambiar {@link #isCcListo()}: solo lo hacen las altas, bajas y completados.
+     */
+    public boolean afectaACc() {
+        return total != 0 || completadas != 0 || totalCc != 0 || completadasCc != 0;
+    }
+
+    public int getPorcentaje() {
+        return total == 0 ? 0 : completadas * 100 / total;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCompletadas() {
+        return completadas;
+    }
+
+    public int getAsignadas() {
+        return asignadas;
+    }
+
+    public int getRepetir() {
+        return repetir;
+    }
+
+    public int getTotalCc() {
+        return totalCc;
+    }
+
+    public int getCompletadasCc() {
+        return completadasCc;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProgresoTareas otro)) return false;
+        return total == otro.total && completadas == otro.completadas && asignadas == otro.asignadas
+                && repetir == otro.repetir && totalCc == otro.totalCc && completadasCc == otro.completadasCc;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(total, completadas, asignadas, repetir, totalCc, completadasCc);
+    }
+
+    @Override
+    public String toString() {
+        return "ProgresoTareas{total=" + total + ", completadas=" + completadas + ", asignadas=" + asignadas
+                + ", repetir=" + repetir + ", cc=" + totalCc + ", ccCompletadas=" + completadasCc + "}";
+    }
+}
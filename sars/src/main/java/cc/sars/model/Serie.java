@@ -7,28 +7,46 @@ import java.util.Objects;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+/**
+ * Plan de carga "Serie.tablero": la serie con su grupo y sus capítulos.
+ * Las tareas de todos esos capítulos llegan en una única consulta adicional (ver Capitulo.tareas).
+ * <p>
+ * (grupo, nombre) es su clave natural: SerieRepository.findByGrupo_NombreAndNombre la resuelve desde la caché.
+ */
 @Entity
+@NamedEntityGraph(name = "Serie.tablero",
+        attributeNodes = {@NamedAttributeNode("grupo"), @NamedAttributeNode("capitulos")})
 @Table(name = "serie", uniqueConstraints = @UniqueConstraint(columnNames = {"grupo_nombre", "nombre"}))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 public class Serie {
 
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "serie_seq")
+    @SequenceGenerator(name = "serie_seq", sequenceName = "serie_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @JsonProperty("nombreSerie")
     private String nombre;
 
     private String descripcion;
     
+    @NaturalId
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "grupo_nombre") // Apunta a Grupo.nombre
     @JsonIgnore 
     private Grupo grupo;
     
     @JsonProperty("capitulos")
+    // Orden de creación: insertar capítulos no obliga a cargar la lista ni a actualizar un índice por fila
     @OneToMany(mappedBy = "serie", cascade = CascadeType.ALL, orphanRemoval = true)
-    @OrderColumn(name = "capitulo_indice")
+    @OrderBy("id")
     private List<Capitulo> capitulos = new ArrayList<>();
     
     // --- Constructor vacío ---
@@ -1,16 +1,48 @@
 package cc.sars.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
-import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.Objects;
 
-@Embeddable 
+/**
+ * Tarea de un capítulo. Es una entidad propia (antes era un @ElementCollection de Capitulo)
+ * para que un cambio de estado sea un UPDATE de una sola fila.
+ * Su clave natural es (capítulo, nombre). Lleva versión para control de concurrencia optimista:
+ * cada UPDATE es un compare-and-set 'WHERE id = ? AND version = ?'.
+ */
+@Entity
+@Table(name = "tarea",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tarea_capitulo_nombre", columnNames = {"capitulo_id", "nombre_tarea"}),
+        indexes = @Index(name = "idx_tarea_usuario", columnList = "usuario"))
 public class Tarea {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tarea_seq")
+    @SequenceGenerator(name = "tarea_seq", sequenceName = "tarea_seq", allocationSize = 50)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "capitulo_id", nullable = false)
+    @JsonIgnore
+    private Capitulo capitulo;
+
     @Column(name = "nombre_tarea", nullable = false)
-    private String nTarea;
+    private String nombre;
 
     @Column(name = "usuario")
     private String usuario = "NADIE";
@@ -19,12 +51,21 @@ public class Tarea {
     @Column(name = "estadoTarea")
     private EstadosTareas estado = EstadosTareas.NoAsignado;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    // Versión de cambios de la serie en su último cambio (ver RegistroCambios); no interviene en el bloqueo optimista
+    @Column(name = "cambio", nullable = false)
+    @ColumnDefault("0")
+    private long cambio;
+
     // Constructor vacío
     public Tarea() {
     }
 
     public Tarea(String nTarea) {
-        this.nTarea = nTarea;
+        this.nombre = nTarea;
     }
 
     public String setUsuarioAsignado(String u) {
@@ -37,9 +78,20 @@ public class Tarea {
         return this.estado;
     }
 
+    public void marcarCambio(long version) {
+        this.cambio = version;
+    }
+
+    public void setCapitulo(Capitulo capitulo) {
+        this.capitulo = capitulo;
+    }
+
     // --- Getters ---
+    public Integer getId() {
+        return id;
+    }
     public String getNombre() {
-        return nTarea;
+        return nombre;
     }
     public String getUsuarioAsignado() {
         return this.usuario;
@@ -47,17 +99,27 @@ public class Tarea {
     public EstadosTareas getEstadoTarea() {
         return this.estado;
     }
+    public Long getVersion() {
+        return version;
+    }
+    public long getCambio() {
+        return cambio;
+    }
+    @JsonIgnore
+    public Capitulo getCapitulo() {
+        return capitulo;
+    }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Tarea tarea = (Tarea) o;
-        return Objects.equals(nTarea, tarea.nTarea);
+        return Objects.equals(nombre, tarea.nombre);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(nTarea);
+        return Objects.hash(nombre);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package cc.sars.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,8 +15,16 @@ import java.util.Set;
 import cc.sars.model.Grupo;
 import java.util.stream.Collectors;
 
+/**
+ * Plan de carga "User.membresias": el usuario con sus membresías y el grupo de cada una.
+ * Lo usan el listado de usuarios y la comprobación de pertenencia/rol en un grupo.
+ */
 @Entity
+@NamedEntityGraph(name = "User.membresias",
+        attributeNodes = @NamedAttributeNode(value = "usuarioGrupos", subgraph = "membresia"),
+        subgraphs = @NamedSubgraph(name = "membresia", attributeNodes = @NamedAttributeNode("grupo")))
 @Table(name = "sec_user") // Usamos 'sec_user' para evitar conflictos con 'user' en algunas BD
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class User implements UserDetails {
 
     @Id
@@ -29,6 +39,7 @@ public class User implements UserDetails {
     private Role role; 
 
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<UsuarioGrupo> usuarioGrupos = new HashSet<>();
 
     // --- Constructores ---
@@ -89,9 +100,9 @@ public class User implements UserDetails {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        User user = (User) o;
-        return Objects.equals(username, user.username);
+        // instanceof y getter: el otro objeto puede ser un proxy LAZY de Hibernate
+        if (!(o instanceof User user)) return false;
+        return Objects.equals(username, user.getUsername());
     }
 
     @Override
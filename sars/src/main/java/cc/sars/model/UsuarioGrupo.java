@@ -1,20 +1,25 @@
 package cc.sars.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.io.Serializable;
 
 @Entity
 @Table(name = "usuario_grupo")
 @IdClass(UsuarioGrupoId.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class UsuarioGrupo implements Serializable {
 
+    // LAZY: cada caso de uso decide con su plan de carga (entity graph) si necesita el usuario o el grupo
     @Id
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "username")
     private User usuario;
 
     @Id
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "grupo_nombre")
     private Grupo grupo;
 
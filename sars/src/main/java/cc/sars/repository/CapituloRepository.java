@@ -1,11 +1,17 @@
 package cc.sars.repository;
 
 import cc.sars.model.Capitulo;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.Serie;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -14,4 +20,59 @@ public interface CapituloRepository extends JpaRepository<Capitulo, Integer> {
 
     @Query("SELECT c FROM Capitulo c JOIN c.serie s JOIN s.grupo g WHERE g.nombre = :nombreGrupo AND s.nombre = :nombreSerie AND c.nombre = :nombreCapitulo")
     Optional<Capitulo> findByNaturalKey(@Param("nombreGrupo") String nombreGrupo, @Param("nombreSerie") String nombreSerie, @Param("nombreCapitulo") String nombreCapitulo);
-}
\ No newline at end of file
+
+    /**
+     * Devuelve cuáles de los nombres indicados ya existen como capítulos de la serie, con una sola consulta.
+     */
+    @Query("SELECT c.nombre FROM Capitulo c WHERE c.serie = :serie AND c.nombre IN :nombres")
+    Set<String> findNombresExistentes(@Param("serie") Serie serie, @Param("nombres") Collection<String> nombres);
+
+    /**
+     * Ids de una página de capítulos de una serie, a partir del siguiente a 'despuesDe' (paginación por clave).
+     * Se pagina sobre los ids: la subconsulta de FetchMode.SUBSELECT repetiría la consulta sin el límite.
+     */
+    @Query("SELECT c.id FROM Capitulo c JOIN c.serie s WHERE s.grupo.nombre = :nombreGrupo AND s.nombre = :nombreSerie AND c.id > :despuesDe ORDER BY c.id")
+    List<Integer> findIdsPaginaDeSerie(@Param("nombreGrupo") String nombreGrupo, @Param("nombreSerie") String nombreSerie, @Param("despuesDe") Integer despuesDe, Limit limit);
+
+    /**
+     * Capítulos indicados con sus tareas, en una sola consulta.
+     */
+    @Query("SELECT c FROM Capitulo c LEFT JOIN FETCH c.tareas WHERE c.id IN :ids ORDER BY c.id")
+    List<Capitulo> findConTareasByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Capítulos de la serie creados después de la versión 'desde', en orden de id.
+     */
+    @Query("SELECT c FROM Capitulo c WHERE c.serie = :serie AND c.cambio > :desde ORDER BY c.id")
+    List<Capitulo> findCreadosDesde(@Param("serie") Serie serie, @Param("desde") long desde);
+
+    /**
+     * Contadores actuales de un capítulo, leídos de la base de datos y no de la entidad en memoria.
+     */
+    @Query("SELECT c.progreso FROM Capitulo c WHERE c.id = :id")
+    ProgresoTareas findProgreso(@Param("id") Integer id);
+
+    /**
+     * Suma un incremento a los contadores de un capítulo con un UPDATE relativo (sin leer la fila antes).
+     */
+    @Modifying
+    @Query("UPDATE Capitulo c SET " +
+            "c.progreso.total = c.progreso.total + :#{#d.total}, " +
+            "c.progreso.completadas = c.progreso.completadas + :#{#d.completadas}, " +
+            "c.progreso.asignadas = c.progreso.asignadas + :#{#d.asignadas}, " +
+            "c.progreso.repetir = c.progreso.repetir + :#{#d.repetir}, " +
+            "c.progreso.totalCc = c.progreso.totalCc + :#{#d.totalCc}, " +
+            "c.progreso.completadasCc = c.progreso.completadasCc + :#{#d.completadasCc} " +
+            "WHERE c.id = :id")
+    int sumarProgreso(@Param("id") Integer id, @Param("d") ProgresoTareas delta);
+
+    /**
+     * Resta de cada capítulo las tareas 'Asignado' de un usuario, antes de liberarlas en bloque.
+     * Liberar una tarea asignada no cambia completadas ni el estado de C.C.
+     */
+    @Modifying
+    @Query("UPDATE Capitulo c SET c.progreso.asignadas = c.progreso.asignadas - " +
+            "(SELECT COUNT(t) FROM Tarea t WHERE t.capitulo = c AND t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado) " +
+            "WHERE c.id IN (SELECT t.capitulo.id FROM Tarea t WHERE t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado)")
+    int descontarAsignadasDeUsuario(@Param("username") String username);
+}
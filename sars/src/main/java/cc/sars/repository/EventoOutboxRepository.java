@@ -0,0 +1,43 @@
+package cc.sars.repository;
+
+import cc.sars.model.EventoOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    /**
+     * Los eventos pendientes (no aparcados) más antiguos, bloqueados hasta el final de la transacción. Con
+     * lock.timeout -2 Hibernate añade SKIP LOCKED donde la base de datos lo admite: varias instancias reparten
+     * los lotes en vez de esperarse.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EventoOutbox e WHERE e.aparcado IS NULL ORDER BY e.id")
+    List<EventoOutbox> findPendientes(Limit limit);
+
+    /**
+     * Un evento pendiente concreto, bloqueado como en findPendientes (vacío si otra instancia lo tiene o ya no está).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EventoOutbox e WHERE e.id = :id AND e.aparcado IS NULL")
+    Optional<EventoOutbox> findPendiente(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.id IN :ids")
+    int borrar(@Param("ids") Collection<Long> ids);
+}
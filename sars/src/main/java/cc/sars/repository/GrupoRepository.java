@@ -1,9 +1,12 @@
 package cc.sars.repository;
 
 import cc.sars.model.Grupo;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,6 +14,20 @@ public interface GrupoRepository extends JpaRepository<Grupo, String> {
 
     /**
      * Busca un Grupo por su 'nombre' (que es nuestro ID).
+     * Va por id y no por consulta para que una lectura repetida salga de la caché de segundo nivel.
      */
-    Optional<Grupo> findByNombre(String nombre);
-}
\ No newline at end of file
+    default Optional<Grupo> findByNombre(String nombre) {
+        return findById(nombre);
+    }
+
+    /**
+     * Busca un grupo con sus miembros ya cargados (plan "Grupo.detalle").
+     */
+    @EntityGraph("Grupo.detalle")
+    Optional<Grupo> findDetalleByNombre(String nombre);
+
+    /**
+     * Página de grupos ordenados por nombre, a partir del siguiente a 'nombre' (paginación por clave).
+     */
+    List<Grupo> findByNombreGreaterThanOrderByNombreAsc(String nombre, Limit limit);
+}
@@ -0,0 +1,31 @@
+package cc.sars.repository;
+
+import cc.sars.model.Lapida;
+import cc.sars.model.Serie;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface LapidaRepository extends JpaRepository<Lapida, Long> {
+
+    List<Lapida> findBySerieAndVersionGreaterThanOrderById(Serie serie, long version);
+
+    /**
+     * Series con lápidas anteriores a 'limite', en orden de id (el mismo en que se bloquean sus filas de versión).
+     */
+    @Query("SELECT DISTINCT l.serie.id FROM Lapida l WHERE l.borrado < :limite ORDER BY l.serie.id")
+    List<Integer> findSeriesConLapidasAnteriores(@Param("limite") Instant limite);
+
+    @Query("SELECT MAX(l.version) FROM Lapida l WHERE l.serie.id = :serieId AND l.borrado < :limite")
+    Long findMaxVersionAnterior(@Param("serieId") Integer serieId, @Param("limite") Instant limite);
+
+    @Modifying
+    @Query("DELETE FROM Lapida l WHERE l.serie.id = :serieId AND l.version <= :version")
+    int borrarHasta(@Param("serieId") Integer serieId, @Param("version") long version);
+}
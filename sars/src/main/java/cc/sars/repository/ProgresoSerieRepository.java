@@ -0,0 +1,52 @@
+package cc.sars.repository;
+
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProgresoSerieRepository extends JpaRepository<ProgresoSerie, Integer> {
+
+    /**
+     * Suma un incremento a los contadores de una serie con un UPDATE relativo (sin leer la fila antes).
+     */
+    @Modifying
+    @Query("UPDATE ProgresoSerie p SET " +
+            "p.progreso.total = p.progreso.total + :#{#d.total}, " +
+            "p.progreso.completadas = p.progreso.completadas + :#{#d.completadas}, " +
+            "p.progreso.asignadas = p.progreso.asignadas + :#{#d.asignadas}, " +
+            "p.progreso.repetir = p.progreso.repetir + :#{#d.repetir}, " +
+            "p.progreso.totalCc = p.progreso.totalCc + :#{#d.totalCc}, " +
+            "p.progreso.completadasCc = p.progreso.completadasCc + :#{#d.completadasCc}, " +
+            "p.capitulosListosCc = p.capitulosListosCc + :listosCc " +
+            "WHERE p.serieId = :serieId")
+    int sumarProgreso(@Param("serieId") Integer serieId, @Param("d") ProgresoTareas delta, @Param("listosCc") int listosCc);
+
+    /**
+     * Avanza la versión de cambios de la serie. La fila queda bloqueada hasta el commit, así que las versiones
+     * de una serie se confirman en orden.
+     */
+    @Modifying
+    @Query("UPDATE ProgresoSerie p SET p.versionCambios = p.versionCambios + 1 WHERE p.serieId = :serieId")
+    int incrementarVersion(@Param("serieId") Integer serieId);
+
+    @Query("SELECT p.versionCambios FROM ProgresoSerie p WHERE p.serieId = :serieId")
+    long findVersion(@Param("serieId") Integer serieId);
+
+    @Modifying
+    @Query("UPDATE ProgresoSerie p SET p.horizonteCambios = :horizonte WHERE p.serieId = :serieId AND p.horizonteCambios < :horizonte")
+    int subirHorizonte(@Param("serieId") Integer serieId, @Param("horizonte") long horizonte);
+
+    /**
+     * Resta de cada serie las tareas 'Asignado' de un usuario, antes de liberarlas en bloque.
+     */
+    @Modifying
+    @Query("UPDATE ProgresoSerie p SET p.progreso.asignadas = p.progreso.asignadas - " +
+            "(SELECT COUNT(t) FROM Tarea t WHERE t.capitulo.serie.id = p.serieId AND t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado) " +
+            "WHERE p.serieId IN (SELECT t.capitulo.serie.id FROM Tarea t WHERE t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado)")
+    int descontarAsignadasDeUsuario(@Param("username") String username);
+}
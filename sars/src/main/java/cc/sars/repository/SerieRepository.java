@@ -1,19 +1,25 @@
 package cc.sars.repository;
 
 import cc.sars.model.Serie;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface SerieRepository extends JpaRepository<Serie, Integer> {
+public interface SerieRepository extends JpaRepository<Serie, Integer>, SerieRepositoryCustom {
 
     /**
-     * Busca una Serie por el nombre del grupo y el nombre de la serie.
-     * @param grupoNombre El nombre del grupo.
-     * @param nombre El nombre de la serie.
-     * @return Un Optional que contiene la Serie si se encuentra.
+     * Busca una serie con su grupo y sus capítulos para pintar el tablero (plan "Serie.tablero").
      */
-    Optional<Serie> findByGrupo_NombreAndNombre(String grupoNombre, String nombre);
-}
\ No newline at end of file
+    @EntityGraph("Serie.tablero")
+    Optional<Serie> findTableroByGrupo_NombreAndNombre(String grupoNombre, String nombre);
+
+    /**
+     * Página de series de un grupo ordenadas por id, a partir de la siguiente a 'id' (paginación por clave).
+     */
+    List<Serie> findByGrupo_NombreAndIdGreaterThanOrderByIdAsc(String grupoNombre, Integer id, Limit limit);
+}
@@ -0,0 +1,19 @@
+package cc.sars.repository;
+
+import cc.sars.model.Serie;
+
+import java.util.Optional;
+
+/**
+ * Consultas de Serie que no se pueden derivar del nombre del método (ver {@link SerieRepositoryImpl}).
+ */
+public interface SerieRepositoryCustom {
+
+    /**
+     * Busca una Serie por el nombre del grupo y el nombre de la serie.
+     * @param grupoNombre El nombre del grupo.
+     * @param nombre El nombre de la serie.
+     * @return Un Optional que contiene la Serie si se encuentra.
+     */
+    Optional<Serie> findByGrupo_NombreAndNombre(String grupoNombre, String nombre);
+}
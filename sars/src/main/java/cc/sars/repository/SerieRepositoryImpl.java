@@ -0,0 +1,31 @@
+package cc.sars.repository;
+
+import cc.sars.model.Grupo;
+import cc.sars.model.Serie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Búsqueda por clave natural (grupo, nombre): Hibernate resuelve el id con la caché de claves naturales
+ * y la serie con la de entidades, así que una lectura repetida no llega a la base de datos.
+ */
+class SerieRepositoryImpl implements SerieRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Serie> findByGrupo_NombreAndNombre(String grupoNombre, String nombre) {
+        // La referencia solo aporta el id del grupo; no se carga
+        return entityManager.unwrap(Session.class)
+                .byNaturalId(Serie.class)
+                .using("grupo", entityManager.getReference(Grupo.class, grupoNombre))
+                .using("nombre", nombre)
+                .loadOptional();
+    }
+}
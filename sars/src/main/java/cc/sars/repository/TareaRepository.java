@@ -0,0 +1,67 @@
+package cc.sars.repository;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TareaRepository extends JpaRepository<Tarea, Integer> {
+
+    /**
+     * Busca una tarea por su clave natural completa (grupo, serie, capítulo, nombre) con una sola consulta.
+     * Trae también su capítulo, que casi siempre se necesita para validar la transición.
+     */
+    @Query("SELECT t FROM Tarea t JOIN FETCH t.capitulo c JOIN c.serie s WHERE s.grupo.nombre = :nombreGrupo AND s.nombre = :nombreSerie AND c.nombre = :nombreCapitulo AND t.nombre = :nombreTarea")
+    Optional<Tarea> findByNaturalKey(@Param("nombreGrupo") String nombreGrupo, @Param("nombreSerie") String nombreSerie, @Param("nombreCapitulo") String nombreCapitulo, @Param("nombreTarea") String nombreTarea);
+
+    /**
+     * Busca una tarea de un capítulo ya cargado. Usa el índice único (capitulo_id, nombre_tarea).
+     */
+    Optional<Tarea> findByCapituloAndNombre(Capitulo capitulo, String nombre);
+
+    /**
+     * Todas las tareas de los capítulos indicados de una serie, con su capítulo, en una sola consulta.
+     */
+    @Query("SELECT t FROM Tarea t JOIN FETCH t.capitulo c WHERE c.serie = :serie AND c.nombre IN :capitulos")
+    List<Tarea> findDeCapitulos(@Param("serie") Serie serie, @Param("capitulos") Collection<String> capitulos);
+
+    /**
+     * Grupos en los que el usuario tiene tareas 'Asignado'.
+     */
+    @Query("SELECT DISTINCT t.capitulo.serie.grupo.nombre FROM Tarea t WHERE t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado")
+    List<String> findGruposConTareasAsignadas(@Param("username") String username);
+
+    /**
+     * Ids de las series en las que el usuario tiene tareas 'Asignado', ordenados.
+     */
+    @Query("SELECT DISTINCT t.capitulo.serie.id FROM Tarea t WHERE t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado ORDER BY t.capitulo.serie.id")
+    List<Integer> findSeriesConTareasAsignadas(@Param("username") String username);
+
+    /**
+     * Tareas de la serie cambiadas después de la versión 'desde', con su capítulo, en orden de capítulo y tarea.
+     */
+    @Query("SELECT t FROM Tarea t JOIN FETCH t.capitulo c WHERE c.serie = :serie AND t.cambio > :desde ORDER BY c.id, t.id")
+    List<Tarea> findCambiadasDesde(@Param("serie") Serie serie, @Param("desde") long desde);
+
+    /**
+     * Libera todas las tareas 'Asignado' de un usuario con un único UPDATE.
+     * Usa el índice por usuario, así que no carga ningún capítulo ni tarea en memoria.
+     * Aumenta la versión de cada fila para que las escrituras concurrentes sobre ellas fallen.
+     * Cada tarea liberada toma la versión de cambios de su serie, que RegistroCambios ya ha avanzado.
+     * @return El número de tareas liberadas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Tarea t SET t.usuario = 'NADIE', t.estado = cc.sars.model.EstadosTareas.NoAsignado, t.version = t.version + 1, " +
+            "t.cambio = COALESCE((SELECT p.versionCambios FROM Capitulo c, ProgresoSerie p WHERE c.id = t.capitulo.id AND p.serieId = c.serie.id), t.cambio) " +
+            "WHERE t.usuario = :username AND t.estado = cc.sars.model.EstadosTareas.Asignado")
+    int desasignarTareasDeUsuario(@Param("username") String username);
+}
@@ -4,9 +4,12 @@ import cc.sars.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 
 @Repository
@@ -15,13 +18,37 @@ public interface UserRepository extends JpaRepository<User, String> {
     /**
      * Spring Security necesita este método para buscar un usuario
      * por su 'username' (que es nuestro ID).
+     * Va por id para que una lectura repetida salga de la caché de segundo nivel.
      */
-    Optional<User> findByUsername(String username);
+    default Optional<User> findByUsername(String username) {
+        return findById(username);
+    }
 
     /**
-     * Busca un usuario por su nombre de usuario y carga eagermente sus grupos asociados.
-     * ME ESTOY VOLVIENDO LOCO POR FAVOR FUNCIONA
+     * Busca un usuario con sus membresías y grupos en una sola consulta (plan "User.membresias").
+     * Es la base de las comprobaciones de pertenencia y rol en un grupo.
      */
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.usuarioGrupos WHERE u.username = :username")
+    @EntityGraph("User.membresias")
+    @Query("SELECT u FROM User u WHERE u.username = :username")
     Optional<User> findByUsernameWithGrupos(String username);
+
+    /**
+     * Listado de usuarios con sus membresías y grupos en una sola consulta (plan "User.membresias").
+     */
+    @Override
+    @EntityGraph("User.membresias")
+    List<User> findAll();
+
+    /**
+     * Página de nombres de usuario ordenados, a partir del siguiente a 'despuesDe' (paginación por clave).
+     * Se pagina sobre la clave sola: un límite junto a un JOIN FETCH de colección se aplicaría en memoria.
+     */
+    @Query("SELECT u.username FROM User u WHERE u.username > :despuesDe ORDER BY u.username")
+    List<String> findUsernamesDespuesDe(String despuesDe, Limit limit);
+
+    /**
+     * Usuarios indicados con sus membresías y grupos en una sola consulta (plan "User.membresias").
+     */
+    @EntityGraph("User.membresias")
+    List<User> findByUsernameInOrderByUsernameAsc(Collection<String> usernames);
 }
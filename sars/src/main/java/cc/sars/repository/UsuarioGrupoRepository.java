@@ -5,7 +5,29 @@ import cc.sars.model.Role;
 import cc.sars.model.UsuarioGrupo;
 import cc.sars.model.UsuarioGrupoId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Set;
 
 public interface UsuarioGrupoRepository extends JpaRepository<UsuarioGrupo, UsuarioGrupoId> {
     long countByGrupoAndRol(Grupo grupo, Role rol);
-}
\ No newline at end of file
+
+    /**
+     * Nombres de los grupos que tienen un único LIDER, con una sola consulta agregada.
+     */
+    @Query("SELECT ug.grupo.nombre FROM UsuarioGrupo ug WHERE ug.rol = cc.sars.model.Role.ROLE_LIDER GROUP BY ug.grupo.nombre HAVING COUNT(ug) = 1")
+    Set<String> findGruposConLiderUnico();
+
+    /**
+     * Grupos y roles de un usuario, leídos solo de la tabla de membresías (sin cargar usuario ni grupos).
+     */
+    @Query("SELECT ug.grupo.nombre AS grupo, ug.rol AS rol FROM UsuarioGrupo ug WHERE ug.usuario.username = :username")
+    List<RolEnGrupo> findRolesByUsername(@Param("username") String username);
+
+    interface RolEnGrupo {
+        String getGrupo();
+        Role getRol();
+    }
+}
@@ -1,40 +1,95 @@
 package cc.sars.service;
 
-import cc.sars.model.User;
-import cc.sars.repository.CapituloRepository;
-import cc.sars.repository.GrupoRepository;
-import cc.sars.repository.SerieRepository;
 import cc.sars.config.AdminUserInitializer;
-import cc.sars.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class AdminService {
 
-    private final UserRepository userRepository;
-    private final GrupoRepository grupoRepository;
-    private final SerieRepository serieRepository;
-    private final CapituloRepository capituloRepository;
+    private static final Logger logger = LoggerFactory.getLogger(AdminService.class);
+
+    /** Tablas que vacía {@link #resetDatabase()}, en un orden que respeta las claves ajenas. */
+    static final List<String> TABLAS = List.of(
+            "evento_outbox", "tarea", "capitulo", "lapida", "serie_progreso", "serie", "usuario_grupo", "grupo", "sec_user");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final Cache cacheSegundoNivel;
     private final AdminUserInitializer adminUserInitializer;
+    private final MembresiasCache membresiasCache;
+    private final UsuariosCache usuariosCache;
+    private final ValidadoresHttp validadoresHttp;
 
-    public AdminService(UserRepository userRepository, GrupoRepository grupoRepository,
-                        SerieRepository serieRepository, CapituloRepository capituloRepository,
-                        AdminUserInitializer adminUserInitializer) {
-        this.userRepository = userRepository;
-        this.grupoRepository = grupoRepository;
-        this.serieRepository = serieRepository;
-        this.capituloRepository = capituloRepository;
+    public AdminService(JdbcTemplate jdbcTemplate, EntityManager entityManager, EntityManagerFactory entityManagerFactory,
+                        AdminUserInitializer adminUserInitializer, MembresiasCache membresiasCache,
+                        UsuariosCache usuariosCache, ValidadoresHttp validadoresHttp) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.cacheSegundoNivel = entityManagerFactory.unwrap(SessionFactory.class).getCache();
         this.adminUserInitializer = adminUserInitializer;
+        this.membresiasCache = membresiasCache;
+        this.usuariosCache = usuariosCache;
+        this.validadoresHttp = validadoresHttp;
+    }
+
+    /**
+     * Filas borradas por tabla y duración de un {@link #resetDatabase()}.
+     */
+    public record ResumenReset(Map<String, Integer> filasBorradas, long milisegundos) {
+
+        public int getTotalFilas() {
+            return filasBorradas.values().stream().mapToInt(Integer::intValue).sum();
+        }
     }
 
+    /**
+     * Vacía todas las tablas con un DELETE por tabla, sin cargar entidades, y vuelve a crear el usuario admin.
+     * Se usa DELETE y no TRUNCATE porque es transaccional en todas las bases de datos soportadas: si algo falla,
+     * no se borra nada.
+     */
     @Transactional
-    public void resetDatabase() {
-        capituloRepository.deleteAll();
-        serieRepository.deleteAll();
-        grupoRepository.deleteAll();
-        userRepository.deleteAll();
+    public ResumenReset resetDatabase() {
+        long inicio = System.nanoTime();
+        // Lo que hubiera pendiente o cargado en el contexto de persistencia deja de existir
+        entityManager.flush();
+        entityManager.clear();
 
+        Map<String, Integer> filasBorradas = new LinkedHashMap<>();
+        for (String tabla : TABLAS) {
+            filasBorradas.put(tabla, jdbcTemplate.update("DELETE FROM " + tabla));
+        }
+
+        // Antes de crear el admin: su búsqueda no debe encontrar el usuario borrado en la caché.
+        // evictAll() de JPA no vaciaría la caché de ids naturales de Serie
+        cacheSegundoNivel.evictAllRegions();
+        membresiasCache.invalidarTodo();
+        usuariosCache.invalidarTodo();
+        validadoresHttp.todoCambiado();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cacheSegundoNivel.evictAllRegions();
+            }
+        });
         adminUserInitializer.initializeAdminUser();
+
+        ResumenReset resumen = new ResumenReset(Collections.unmodifiableMap(filasBorradas), (System.nanoTime() - inicio) / 1_000_000);
+        logger.info("Base de datos reseteada en {} ms; filas borradas: {}", resumen.milisegundos(), resumen.filasBorradas());
+        return resumen;
     }
 }
@@ -0,0 +1,17 @@
+package cc.sars.service;
+
+import cc.sars.model.Lapida;
+import cc.sars.model.Tarea;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lo que ha cambiado en el tablero de una serie desde una versión: capítulos (por nombre, en orden de creación)
+ * con sus tareas creadas o cambiadas, y lápidas de lo borrado. El cliente aplica primero los borrados y
+ * después los capítulos, y guarda 'version' para la siguiente petición.
+ * Si 'completo' es true, el cliente estaba fuera del horizonte de compactación (o no indicó versión): los
+ * capítulos son el tablero entero y debe sustituir su copia.
+ */
+public record CambiosTablero(long version, boolean completo, Map<String, List<Tarea>> capitulos, List<Lapida> borrados) {
+}
@@ -0,0 +1,69 @@
+package cc.sars.service;
+
+import cc.sars.repository.LapidaRepository;
+import cc.sars.repository.ProgresoSerieRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Borra cada 'sars.cambios.compactacion' las lápidas con más de 'sars.cambios.retencion' y sube el horizonte de
+ * su serie hasta la última versión borrada: un cliente con una versión anterior recibirá el tablero completo.
+ * Cada serie se compacta en su propia transacción, para no retener a la vez las filas de varias.
+ */
+@Component
+public class CompactacionCambios {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactacionCambios.class);
+
+    private final LapidaRepository lapidaRepository;
+    private final ProgresoSerieRepository progresoSerieRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retencion;
+
+    public CompactacionCambios(LapidaRepository lapidaRepository, ProgresoSerieRepository progresoSerieRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${sars.cambios.retencion:7d}") Duration retencion) {
+        this.lapidaRepository = lapidaRepository;
+        this.progresoSerieRepository = progresoSerieRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retencion = retencion;
+    }
+
+    @Scheduled(fixedDelayString = "${sars.cambios.compactacion:1h}")
+    public void compactar() {
+        try {
+            compactar(Instant.now().minus(retencion));
+        } catch (RuntimeException e) {
+            logger.error("Error al compactar las lápidas; se reintentará: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Lápidas borradas.
+     */
+    int compactar(Instant limite) {
+        int borradas = 0;
+        for (Integer serieId : lapidaRepository.findSeriesConLapidasAnteriores(limite)) {
+            borradas += transactionTemplate.execute(status -> {
+                Long horizonte = lapidaRepository.findMaxVersionAnterior(serieId, limite);
+                if (horizonte == null) {
+                    return 0;
+                }
+                progresoSerieRepository.subirHorizonte(serieId, horizonte);
+                return lapidaRepository.borrarHasta(serieId, horizonte);
+            });
+        }
+        if (borradas > 0) {
+            logger.info("Compactadas {} lápidas anteriores a {}.", borradas, limite);
+        }
+        return borradas;
+    }
+}
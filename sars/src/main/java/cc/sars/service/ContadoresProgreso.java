@@ -0,0 +1,147 @@
+package cc.sars.service;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.repository.CapituloRepository;
+import cc.sars.repository.ProgresoSerieRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene los contadores de progreso de capítulos y series (ver {@link ProgresoTareas}) dentro de la transacción
+ * de cada cambio de SerieService, para que las vistas de progreso no tengan que recorrer las tareas.
+ * <p>
+ * Cada cambio se aplica como incremento con UPDATE relativos: primero el capítulo y luego su serie, cuya fila ya ha
+ * bloqueado {@link RegistroCambios} al avanzar su versión. El bloqueo de fila del capítulo se mantiene hasta el commit, así que al releer sus contadores se sabe si
+ * el cambio lo ha puesto o quitado de "listo para C.C." sin que otra transacción lo altere entre medias.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class ContadoresProgreso {
+
+    private final CapituloRepository capituloRepository;
+    private final ProgresoSerieRepository progresoSerieRepository;
+
+    public ContadoresProgreso(CapituloRepository capituloRepository, ProgresoSerieRepository progresoSerieRepository) {
+        this.capituloRepository = capituloRepository;
+        this.progresoSerieRepository = progresoSerieRepository;
+    }
+
+    /**
+     * Crea los contadores (a cero) de una serie recién persistida.
+     */
+    public void serieCreada(Serie serie) {
+        progresoSerieRepository.save(new ProgresoSerie(serie));
+    }
+
+    /**
+     * Calcula los contadores de capítulos nuevos (aún sin insertar) y los suma a su serie.
+     */
+    public void capitulosCreados(Serie serie, List<Capitulo> capitulos) {
+        ProgresoTareas suma = new ProgresoTareas();
+        int listos = 0;
+        for (Capitulo capitulo : capitulos) {
+            capitulo.inicializarProgreso();
+            suma = suma.sumar(capitulo.getProgreso());
+            listos += capitulo.getProgreso().isCcListo() ? 1 : 0;
+        }
+        if (!suma.isVacio() || listos != 0) {
+            progresoSerieRepository.sumarProgreso(serie.getId(), suma, listos);
+        }
+    }
+
+    /**
+     * Descuenta de su serie un capítulo que se va a borrar.
+     */
+    public void capituloEliminado(Capitulo capitulo) {
+        ProgresoTareas actual = capituloRepository.findProgreso(capitulo.getId());
+        progresoSerieRepository.sumarProgreso(capitulo.getSerie().getId(), actual.negar(), actual.isCcListo() ? -1 : 0);
+    }
+
+    public void tareaCreada(Tarea tarea) {
+        aplicar(tarea.getCapitulo(), ProgresoTareas.de(tarea));
+    }
+
+    public void tareaEliminada(Tarea tarea) {
+        aplicar(tarea.getCapitulo(), ProgresoTareas.de(tarea).negar());
+    }
+
+    /**
+     * Refleja el paso de una tarea de 'estadoAnterior' a su estado actual.
+     */
+    public void tareaCambiada(Tarea tarea, EstadosTareas estadoAnterior) {
+        if (estadoAnterior != tarea.getEstadoTarea()) {
+            aplicar(tarea.getCapitulo(), ProgresoTareas.de(tarea).restar(ProgresoTareas.de(tarea.getNombre(), estadoAnterior)));
+        }
+    }
+
+    /**
+     * Varios cambios de estado de tareas de una misma serie (tarea -> estado antes del primero de sus cambios):
+     * un UPDATE por capítulo afectado, en orden de id, y uno para la serie con la suma.
+     */
+    public void tareasCambiadas(Serie serie, Map<Tarea, EstadosTareas> estadosAnteriores) {
+        Map<Integer, ProgresoTareas> porCapitulo = new TreeMap<>();
+        estadosAnteriores.forEach((tarea, anterior) -> porCapitulo.merge(tarea.getCapitulo().getId(),
+                ProgresoTareas.de(tarea).restar(ProgresoTareas.de(tarea.getNombre(), anterior)), ProgresoTareas::sumar));
+        ProgresoTareas suma = new ProgresoTareas();
+        int listos = 0;
+        for (Map.Entry<Integer, ProgresoTareas> capitulo : porCapitulo.entrySet()) {
+            ProgresoTareas delta = capitulo.getValue();
+            if (delta.isVacio()) {
+                continue;
+            }
+            capituloRepository.sumarProgreso(capitulo.getKey(), delta);
+            if (delta.afectaACc()) {
+                ProgresoTareas despues = capituloRepository.findProgreso(capitulo.getKey());
+                listos += Boolean.compare(despues.isCcListo(), despues.restar(delta).isCcListo());
+            }
+            suma = suma.sumar(delta);
+        }
+        if (!suma.isVacio() || listos != 0) {
+            progresoSerieRepository.sumarProgreso(serie.getId(), suma, listos);
+        }
+    }
+
+    /**
+     * Descuenta las tareas 'Asignado' de un usuario que se van a liberar en bloque. Debe llamarse antes del UPDATE masivo.
+     */
+    public void asignadasLiberadas(String username) {
+        capituloRepository.descontarAsignadasDeUsuario(username);
+        progresoSerieRepository.descontarAsignadasDeUsuario(username);
+    }
+
+    /**
+     * Contadores de las series indicadas, con una sola consulta, por id de serie.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, ProgresoSerie> getProgresoDeSeries(Collection<Serie> series) {
+        List<Integer> ids = series.stream().map(Serie::getId).toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return progresoSerieRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ProgresoSerie::getSerieId, Function.identity()));
+    }
+
+    private void aplicar(Capitulo capitulo, ProgresoTareas delta) {
+        capituloRepository.sumarProgreso(capitulo.getId(), delta);
+        int listos = 0;
+        if (delta.afectaACc()) {
+            ProgresoTareas despues = capituloRepository.findProgreso(capitulo.getId());
+            listos = Boolean.compare(despues.isCcListo(), despues.restar(delta).isCcListo());
+        }
+        progresoSerieRepository.sumarProgreso(capitulo.getSerie().getId(), delta, listos);
+    }
+}
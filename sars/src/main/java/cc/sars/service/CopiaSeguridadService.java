@@ -0,0 +1,494 @@
+package cc.sars.service;
+
+import cc.sars.exception.CopiaSeguridadInvalidaException;
+import cc.sars.exception.SerieNotFoundException;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copia de seguridad de grupos completos en un formato de texto por líneas, comprimido con gzip.
+ * <p>
+ * Cada línea es un registro con los campos separados por tabuladores; el primero indica el tipo:
+ * <pre>
+ * SARS  1                          cabecera y versión del formato
+ * U     username  password  role   usuario (con el hash de la contraseña)
+ * G     nombre                     grupo: lo que sigue hasta el próximo G es suyo
+ * M     username  rol              miembro del grupo actual
+ * S     nombre    descripcion      serie del grupo actual
+ * C     nombre                     capítulo de la serie actual
+ * T     nombre    estado  usuario  tarea del capítulo actual
+ * </pre>
+ * Los campos escapan '\', tabulador y saltos de línea como COPY de PostgreSQL; '\N' es null.
+ * <p>
+ * Exportar y restaurar recorren los datos en un solo sentido, así que la memoria usada no depende del tamaño de
+ * la copia: la exportación lee con un cursor de solo avance y la restauración inserta por lotes JDBC en
+ * transacciones acotadas. Las tablas se escriben directamente; al terminar se vacían las cachés afectadas.
+ */
+@Service
+public class CopiaSeguridadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CopiaSeguridadService.class);
+
+    static final String CABECERA = "SARS\t1";
+
+    /** Filas que se piden a la base de datos en cada viaje del cursor. */
+    private static final int FILAS_POR_LECTURA = 1_000;
+
+    /** Filas pendientes a partir de las cuales se insertan en una transacción propia. */
+    static final int FILAS_POR_TRANSACCION = 5_000;
+
+    /** Debe coincidir con el allocationSize de las secuencias de las entidades. */
+    private static final int TAMANYO_BLOQUE_SECUENCIA = 50;
+
+    private static final String NULO = "\\N";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache cacheSegundoNivel;
+    private final Dialect dialect;
+    private final MembresiasCache membresiasCache;
+    private final ValidadoresHttp validadoresHttp;
+
+    public CopiaSeguridadService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                 EntityManagerFactory entityManagerFactory, MembresiasCache membresiasCache,
+                                 ValidadoresHttp validadoresHttp) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FILAS_POR_LECTURA);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.cacheSegundoNivel = sessionFactory.getCache();
+        this.dialect = sessionFactory.getJdbcServices().getDialect();
+        this.membresiasCache = membresiasCache;
+        this.validadoresHttp = validadoresHttp;
+    }
+
+    public record ResumenRestauracion(int usuarios, int grupos, List<String> gruposOmitidos, int series, int capitulos, int tareas) {
+    }
+
+    /**
+     * Escribe la copia de un grupo, o de todos si es null, con los usuarios que aparecen en ella.
+     * La transacción mantiene abierto el cursor: PostgreSQL solo respeta el fetch size sin autocommit.
+     */
+    @Transactional(readOnly = true)
+    public void exportar(String nombreGrupo, OutputStream salida) throws IOException {
+        List<String> grupos = nombreGrupo == null
+                ? jdbcTemplate.queryForList("SELECT nombre FROM grupo ORDER BY nombre", String.class)
+                : jdbcTemplate.queryForList("SELECT nombre FROM grupo WHERE nombre = ?", String.class, nombreGrupo);
+        if (nombreGrupo != null && grupos.isEmpty()) {
+            throw new SerieNotFoundException("Grupo no encontrado: " + nombreGrupo);
+        }
+
+        GZIPOutputStream gzip = new GZIPOutputStream(salida, 64 * 1024);
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            escritor.write(CABECERA);
+            escritor.write('\n');
+            RowCallbackHandler usuarios = rs -> linea(escritor, "U", rs.getString(1), rs.getString(2), rs.getString(3));
+            if (nombreGrupo == null) {
+                jdbcTemplate.query("SELECT username, password, role FROM sec_user ORDER BY username", usuarios);
+            } else {
+                jdbcTemplate.query("SELECT u.username, u.password, u.role FROM sec_user u "
+                        + "JOIN usuario_grupo ug ON ug.username = u.username WHERE ug.grupo_nombre = ? ORDER BY u.username",
+                        usuarios, nombreGrupo);
+            }
+            for (String grupo : grupos) {
+                exportarGrupo(grupo, escritor);
+            }
+            escritor.flush();
+            gzip.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportarGrupo(String grupo, Writer escritor) {
+        linea(escritor, "G", grupo);
+        jdbcTemplate.query("SELECT username, rol FROM usuario_grupo WHERE grupo_nombre = ? ORDER BY username",
+                (RowCallbackHandler) rs -> linea(escritor, "M", rs.getString(1), rs.getString(2)), grupo);
+
+        // Un solo recorrido ordenado: cada fila trae su serie y su capítulo, que se escriben al cambiar
+        Integer[] actuales = new Integer[2];
+        jdbcTemplate.query("SELECT s.id, s.nombre, s.descripcion, c.id, c.nombre, t.nombre_tarea, t.estado_tarea, t.usuario "
+                + "FROM serie s LEFT JOIN capitulo c ON c.serie_id = s.id LEFT JOIN tarea t ON t.capitulo_id = c.id "
+                + "WHERE s.grupo_nombre = ? ORDER BY s.id, c.id, t.id", (RowCallbackHandler) rs -> {
+            Integer serie = rs.getInt(1);
+            if (!serie.equals(actuales[0])) {
+                actuales[0] = serie;
+                actuales[1] = null;
+                linea(escritor, "S", rs.getString(2), rs.getString(3));
+            }
+            Integer capitulo = rs.getObject(4, Integer.class);
+            if (capitulo == null) {
+                return;
+            }
+            if (!capitulo.equals(actuales[1])) {
+                actuales[1] = capitulo;
+                linea(escritor, "C", rs.getString(5));
+            }
+            String tarea = rs.getString(6);
+            if (tarea != null) {
+                linea(escritor, "T", tarea, rs.getString(7), rs.getString(8));
+            }
+        }, grupo);
+    }
+
+    /**
+     * Importa una copia, comprimida o no. Los usuarios que ya existen se conservan tal cual y los grupos que ya
+     * existen se omiten con todo su contenido. Cada lote se confirma por separado: si la copia está dañada,
+     * lo anterior al error queda importado.
+     */
+    public ResumenRestauracion restaurar(InputStream entrada) throws IOException {
+        long inicio = System.nanoTime();
+        Restauracion restauracion = new Restauracion();
+        BufferedReader lector = new BufferedReader(new InputStreamReader(descomprimir(entrada), StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            if (!CABECERA.equals(lector.readLine())) {
+                throw new CopiaSeguridadInvalidaException("No es una copia de seguridad de SARS compatible.");
+            }
+            String linea;
+            int numero = 1;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (!linea.isEmpty()) {
+                    restauracion.procesar(numero, campos(linea));
+                }
+            }
+            restauracion.terminar();
+        } finally {
+            // Lo ya confirmado no pasó por Hibernate. evictAll() de JPA no vacía la caché de ids naturales de Serie
+            cacheSegundoNivel.evictAllRegions();
+            membresiasCache.invalidarTodo();
+            validadoresHttp.todoCambiado();
+        }
+        ResumenRestauracion resumen = restauracion.resumen();
+        logger.info("Copia restaurada en {} ms: {}", (System.nanoTime() - inicio) / 1_000_000, resumen);
+        return resumen;
+    }
+
+    /**
+     * Estado de una restauración: el grupo, la serie y el capítulo actuales, y las filas pendientes de insertar.
+     */
+    private final class Restauracion {
+
+        private final List<Object[]> usuarios = new ArrayList<>();
+        private final List<Object[]> grupos = new ArrayList<>();
+        private final List<Object[]> membresias = new ArrayList<>();
+        private final List<Object[]> series = new ArrayList<>();
+        private final List<Object[]> capitulos = new ArrayList<>();
+        private final List<Object[]> tareas = new ArrayList<>();
+        private final List<Object[]> progresos = new ArrayList<>();
+
+        private final BloqueIds idsSerie = new BloqueIds("serie_seq");
+        private final BloqueIds idsCapitulo = new BloqueIds("capitulo_seq");
+        private final BloqueIds idsTarea = new BloqueIds("tarea_seq");
+
+        private String grupo;
+        private boolean omitiendoGrupo;
+        private Integer serie;
+        private ProgresoTareas progresoSerie;
+        private int capitulosListosCc;
+        private Integer capitulo;
+        private String nombreCapitulo;
+        private ProgresoTareas progresoCapitulo;
+
+        private int usuariosRestaurados;
+        private final List<String> gruposOmitidos = new ArrayList<>();
+        private int gruposRestaurados;
+        private int seriesRestauradas;
+        private int capitulosRestaurados;
+        private int tareasRestauradas;
+
+        void procesar(int numero, List<String> campos) {
+            try {
+                switch (campos.get(0)) {
+                    case "U" -> usuario(campos);
+                    case "G" -> grupo(campos);
+                    case "M" -> miembro(campos);
+                    case "S" -> serie(campos);
+                    case "C" -> capitulo(campos);
+                    case "T" -> tarea(campos);
+                    default -> throw new IllegalArgumentException("tipo de registro desconocido '" + campos.get(0) + "'");
+                }
+            } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+                throw new CopiaSeguridadInvalidaException("Línea " + numero + " de la copia de seguridad: " + e.getMessage());
+            }
+        }
+
+        private void usuario(List<String> campos) {
+            String username = exigido(campos, 1);
+            Role.valueOf(exigido(campos, 3));
+            Integer existe = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sec_user WHERE username = ?", Integer.class, username);
+            if (existe == 0) {
+                usuarios.add(new Object[]{username, exigido(campos, 2), campos.get(3)});
+                usuariosRestaurados++;
+            }
+        }
+
+        private void grupo(List<String> campos) {
+            cerrarSerie();
+            volcarSiHaceFalta();
+            grupo = exigido(campos, 1);
+            Integer existe = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM grupo WHERE nombre = ?", Integer.class, grupo);
+            omitiendoGrupo = existe > 0;
+            if (omitiendoGrupo) {
+                gruposOmitidos.add(grupo);
+            } else {
+                grupos.add(new Object[]{grupo});
+                gruposRestaurados++;
+            }
+        }
+
+        private void miembro(List<String> campos) {
+            exigirGrupo();
+            Role.valueOf(exigido(campos, 2));
+            if (!omitiendoGrupo) {
+                membresias.add(new Object[]{exigido(campos, 1), grupo, campos.get(2)});
+            }
+        }
+
+        private void serie(List<String> campos) {
+            exigirGrupo();
+            cerrarSerie();
+            if (omitiendoGrupo) {
+                return;
+            }
+            serie = idsSerie.siguiente();
+            series.add(new Object[]{serie, exigido(campos, 1), campos.size() > 2 ? campos.get(2) : null, grupo});
+            progresoSerie = new ProgresoTareas();
+            capitulosListosCc = 0;
+            seriesRestauradas++;
+        }
+
+        private void capitulo(List<String> campos) {
+            exigirGrupo();
+            cerrarCapitulo();
+            if (omitiendoGrupo) {
+                return;
+            }
+            if (serie == null) {
+                throw new IllegalStateException("capítulo fuera de una serie");
+            }
+            capitulo = idsCapitulo.siguiente();
+            nombreCapitulo = exigido(campos, 1);
+            progresoCapitulo = new ProgresoTareas();
+            capitulosRestaurados++;
+        }
+
+        private void tarea(List<String> campos) {
+            exigirGrupo();
+            if (omitiendoGrupo) {
+                return;
+            }
+            if (capitulo == null) {
+                throw new IllegalStateException("tarea fuera de un capítulo");
+            }
+            String nombre = exigido(campos, 1);
+            EstadosTareas estado = EstadosTareas.valueOf(exigido(campos, 2));
+            tareas.add(new Object[]{idsTarea.siguiente(), capitulo, nombre, campos.size() > 3 ? campos.get(3) : null, estado.name()});
+            progresoCapitulo = progresoCapitulo.sumar(ProgresoTareas.de(nombre, estado));
+            tareasRestauradas++;
+        }
+
+        /** Los contadores del capítulo se conocen al llegar a su última tarea. */
+        private void cerrarCapitulo() {
+            if (capitulo == null) {
+                return;
+            }
+            capitulos.add(new Object[]{capitulo, serie, nombreCapitulo,
+                    progresoCapitulo.getTotal(), progresoCapitulo.getCompletadas(), progresoCapitulo.getAsignadas(),
+                    progresoCapitulo.getRepetir(), progresoCapitulo.getTotalCc(), progresoCapitulo.getCompletadasCc()});
+            progresoSerie = progresoSerie.sumar(progresoCapitulo);
+            capitulosListosCc += progresoCapitulo.isCcListo() ? 1 : 0;
+            capitulo = null;
+            volcarSiHaceFalta();
+        }
+
+        private void cerrarSerie() {
+            cerrarCapitulo();
+            if (serie == null) {
+                return;
+            }
+            progresos.add(new Object[]{serie,
+                    progresoSerie.getTotal(), progresoSerie.getCompletadas(), progresoSerie.getAsignadas(),
+                    progresoSerie.getRepetir(), progresoSerie.getTotalCc(), progresoSerie.getCompletadasCc(), capitulosListosCc});
+            serie = null;
+        }
+
+        void terminar() {
+            cerrarSerie();
+            volcar();
+        }
+
+        private void exigirGrupo() {
+            if (grupo == null) {
+                throw new IllegalStateException("registro fuera de un grupo");
+            }
+        }
+
+        private void volcarSiHaceFalta() {
+            int pendientes = usuarios.size() + grupos.size() + membresias.size() + series.size()
+                    + capitulos.size() + tareas.size() + progresos.size();
+            if (pendientes >= FILAS_POR_TRANSACCION) {
+                volcar();
+            }
+        }
+
+        /** Inserta lo pendiente en una transacción, en el orden que exigen las claves ajenas. */
+        private void volcar() {
+            transactionTemplate.executeWithoutResult(status -> {
+                insertar("INSERT INTO sec_user (username, password, role) VALUES (?, ?, ?)", usuarios);
+                insertar("INSERT INTO grupo (nombre) VALUES (?)", grupos);
+                insertar("INSERT INTO usuario_grupo (username, grupo_nombre, rol) VALUES (?, ?, ?)", membresias);
+                insertar("INSERT INTO serie (id, nombre, descripcion, grupo_nombre) VALUES (?, ?, ?, ?)", series);
+                insertar("INSERT INTO capitulo (id, serie_id, nombre, tareas_total, tareas_completadas, tareas_asignadas, "
+                        + "tareas_repetir, tareas_cc, tareas_cc_completadas) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", capitulos);
+                insertar("INSERT INTO tarea (id, capitulo_id, nombre_tarea, usuario, estado_tarea, version) "
+                        + "VALUES (?, ?, ?, ?, ?, 0)", tareas);
+                insertar("INSERT INTO serie_progreso (serie_id, tareas_total, tareas_completadas, tareas_asignadas, "
+                        + "tareas_repetir, tareas_cc, tareas_cc_completadas, capitulos_listos_cc) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", progresos);
+            });
+        }
+
+        private void insertar(String sql, List<Object[]> filas) {
+            if (!filas.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, filas);
+                filas.clear();
+            }
+        }
+
+        ResumenRestauracion resumen() {
+            return new ResumenRestauracion(usuariosRestaurados, gruposRestaurados, List.copyOf(gruposOmitidos),
+                    seriesRestauradas, capitulosRestaurados, tareasRestauradas);
+        }
+    }
+
+    /**
+     * Reserva ids de una secuencia de Hibernate en bloques, igual que su optimizador 'pooled': el valor v
+     * reserva el intervalo (v - allocationSize, v], así que no se pisan con los que asigne Hibernate.
+     */
+    private final class BloqueIds {
+
+        private final String secuencia;
+        private long siguiente = 1;
+        private long ultimo = 0;
+
+        BloqueIds(String secuencia) {
+            this.secuencia = secuencia;
+        }
+
+        int siguiente() {
+            if (siguiente > ultimo) {
+                ultimo = Objects.requireNonNull(jdbcTemplate.queryForObject(
+                        dialect.getSequenceSupport().getSequenceNextValString(secuencia), Long.class));
+                siguiente = Math.max(1, ultimo - TAMANYO_BLOQUE_SECUENCIA + 1);
+            }
+            return Math.toIntExact(siguiente++);
+        }
+    }
+
+    private static InputStream descomprimir(InputStream entrada) throws IOException {
+        BufferedInputStream buffer = new BufferedInputStream(entrada, 64 * 1024);
+        buffer.mark(2);
+        int primero = buffer.read();
+        int segundo = buffer.read();
+        buffer.reset();
+        boolean gzip = primero == (GZIPInputStream.GZIP_MAGIC & 0xff) && segundo == (GZIPInputStream.GZIP_MAGIC >> 8);
+        return gzip ? new GZIPInputStream(buffer, 64 * 1024) : buffer;
+    }
+
+    private static String exigido(List<String> campos, int posicion) {
+        String valor = campos.get(posicion);
+        if (valor == null || valor.isEmpty()) {
+            throw new IllegalArgumentException("falta el campo " + posicion);
+        }
+        return valor;
+    }
+
+    private static void linea(Writer escritor, String tipo, String... campos) {
+        try {
+            escritor.write(tipo);
+            for (String campo : campos) {
+                escritor.write('\t');
+                escribirCampo(escritor, campo);
+            }
+            escritor.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void escribirCampo(Writer escritor, String campo) throws IOException {
+        if (campo == null) {
+            escritor.write(NULO);
+            return;
+        }
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            switch (c) {
+                case '\\' -> escritor.write("\\\\");
+                case '\t' -> escritor.write("\\t");
+                case '\n' -> escritor.write("\\n");
+                case '\r' -> escritor.write("\\r");
+                default -> escritor.write(c);
+            }
+        }
+    }
+
+    static List<String> campos(String linea) {
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder campo = new StringBuilder();
+        boolean nulo = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (c == '\t') {
+                campos.add(nulo && campo.isEmpty() ? null : campo.toString());
+                campo.setLength(0);
+                nulo = false;
+            } else if (c == '\\' && i + 1 < linea.length()) {
+                char siguiente = linea.charAt(++i);
+                switch (siguiente) {
+                    case 't' -> campo.append('\t');
+                    case 'n' -> campo.append('\n');
+                    case 'r' -> campo.append('\r');
+                    case 'N' -> nulo = true;
+                    default -> campo.append(siguiente);
+                }
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(nulo && campo.isEmpty() ? null : campo.toString());
+        return campos;
+    }
+}
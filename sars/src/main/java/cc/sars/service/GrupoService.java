@@ -16,6 +16,10 @@ import cc.sars.model.UsuarioGrupoId;
 import java.util.List;
 
 import cc.sars.exception.GrupoAlreadyExistsException;
+import cc.sars.evento.GrupoCreado;
+import cc.sars.evento.GrupoEliminado;
+import cc.sars.evento.MiembroAnyadido;
+import cc.sars.evento.MiembroEliminado;
 
 
 @Service
@@ -25,11 +29,15 @@ public class GrupoService {
     private final GrupoRepository grupoRepository;
     private final UserRepository userRepository;
     private final UsuarioGrupoRepository usuarioGrupoRepository;
+    private final MembresiasCache membresiasCache;
+    private final OutboxEventos outboxEventos;
 
-    public GrupoService(GrupoRepository grupoRepository, UserRepository userRepository, UsuarioGrupoRepository usuarioGrupoRepository) {
+    public GrupoService(GrupoRepository grupoRepository, UserRepository userRepository, UsuarioGrupoRepository usuarioGrupoRepository, MembresiasCache membresiasCache, OutboxEventos outboxEventos) {
         this.grupoRepository = grupoRepository;
         this.userRepository = userRepository;
         this.usuarioGrupoRepository = usuarioGrupoRepository;
+        this.membresiasCache = membresiasCache;
+        this.outboxEventos = outboxEventos;
     }
 
     /**
@@ -41,6 +49,15 @@ public class GrupoService {
                 .orElseThrow(() -> new RuntimeException("No se encontró el grupo: " + nombreGrupo));
     }
 
+    /**
+     * Busca un grupo con sus miembros ya cargados, para las vistas de detalle y gestión del grupo.
+     */
+    @Transactional(readOnly = true)
+    public Grupo getGrupoDetalle(String nombreGrupo) {
+        return grupoRepository.findDetalleByNombre(nombreGrupo)
+                .orElseThrow(() -> new RuntimeException("No se encontró el grupo: " + nombreGrupo));
+    }
+
     /**
      * Crea un nuevo grupo.
      */
@@ -49,6 +66,7 @@ public class GrupoService {
             throw new GrupoAlreadyExistsException("Error: El grupo con el nombre '" + nombreGrupo + "' ya existe.");
         }
         Grupo nuevoGrupo = new Grupo(nombreGrupo);
+        outboxEventos.publicar(new GrupoCreado(nombreGrupo));
         return grupoRepository.save(nuevoGrupo);
     }
 
@@ -82,6 +100,8 @@ public class GrupoService {
         usuarioGrupo.setRol(rol);
 
         usuarioGrupoRepository.save(usuarioGrupo);
+        membresiasCache.invalidarUsuario(nombreUsuario);
+        outboxEventos.publicar(new MiembroAnyadido(nombreGrupo, nombreUsuario, rol));
     }
 
     @Transactional(readOnly = true)
@@ -89,6 +109,16 @@ public class GrupoService {
         return grupoRepository.findAll();
     }
 
+    /**
+     * Página de grupos ordenados por nombre, a partir del cursor indicado.
+     */
+    @Transactional(readOnly = true)
+    public Pagina<Grupo> getGruposPagina(String cursor, Integer limite) {
+        int tamanyo = Pagina.limite(limite);
+        List<Grupo> filas = grupoRepository.findByNombreGreaterThanOrderByNombreAsc(Pagina.claveTexto(cursor), Pagina.consulta(tamanyo));
+        return Pagina.de(filas, tamanyo, Grupo::getNombre);
+    }
+
     /**
      * Elimina un usuario de un grupo.
      */
@@ -103,11 +133,15 @@ public class GrupoService {
                 .orElseThrow(() -> new RuntimeException("El usuario " + username + " no pertenece al grupo " + nombreGrupo));
 
         usuarioGrupoRepository.deleteById(usuarioGrupoId);
+        membresiasCache.invalidarUsuario(username);
+        outboxEventos.publicar(new MiembroEliminado(nombreGrupo, username));
     }
 
     public void deleteGrupo(String nombreGrupo) {
         Grupo grupo = getGrupoPorNombre(nombreGrupo);
         grupoRepository.delete(grupo);
+        membresiasCache.invalidarGrupo(nombreGrupo);
+        outboxEventos.publicar(new GrupoEliminado(nombreGrupo));
     }
 
     /**
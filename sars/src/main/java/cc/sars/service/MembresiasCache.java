@@ -0,0 +1,177 @@
+package cc.sars.service;
+
+import cc.sars.model.Role;
+import cc.sars.repository.UsuarioGrupoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché acotada (LRU) de las membresías de cada usuario: grupo → máscara de roles (un bit por {@link Role}).
+ * Evita cargar el usuario con sus membresías en cada comprobación de permisos.
+ * <p>
+ * Las operaciones que cambian membresías llaman a {@link #invalidarUsuario}, {@link #invalidarGrupo} o
+ * {@link #invalidarTodo}: la entrada se descarta en el momento y otra vez al terminar la transacción, para que
+ * ninguna lectura hecha mientras tanto deje en caché datos sin confirmar o ya superados.
+ * Publica 'cache.gets' (result=hit|miss), 'cache.evictions' y 'cache.size' con cache=membresias.
+ * <p>
+ * Se consulta en casi todas las peticiones y el orden LRU hace que hasta las lecturas escriban en el mapa: el acceso
+ * va con un ReentrantLock y no con 'synchronized', que con hilos virtuales (JDK 21) bloquea también el hilo portador
+ * mientras se espera el monitor.
+ */
+@Component
+public class MembresiasCache {
+
+    private static final String NOMBRE = "membresias";
+
+    private final UsuarioGrupoRepository usuarioGrupoRepository;
+    private final LinkedHashMap<String, Map<String, Integer>> entradas;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    /** Cambia con cada invalidación; una carga solo se guarda si no ha cambiado mientras se leía. */
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter desalojos;
+
+    public MembresiasCache(UsuarioGrupoRepository usuarioGrupoRepository, MeterRegistry meterRegistry,
+                           @Value("${sars.cache.membresias.max-usuarios:10000}") int maxUsuarios) {
+        this.usuarioGrupoRepository = usuarioGrupoRepository;
+        this.entradas = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Integer>> eldest) {
+                if (size() > maxUsuarios) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.aciertos = Counter.builder("cache.gets").tag("cache", NOMBRE).tag("result", "hit").register(meterRegistry);
+        this.fallos = Counter.builder("cache.gets").tag("cache", NOMBRE).tag("result", "miss").register(meterRegistry);
+        this.desalojos = Counter.builder("cache.evictions").tag("cache", NOMBRE).register(meterRegistry);
+        Gauge.builder("cache.size", this, MembresiasCache::tamanyo).tag("cache", NOMBRE).register(meterRegistry);
+    }
+
+    /**
+     * Máscara de roles del usuario en el grupo; 0 si no pertenece a él.
+     */
+    public int roles(String username, String nombreGrupo) {
+        return membresias(username).getOrDefault(nombreGrupo, 0);
+    }
+
+    public boolean tieneRol(String username, String nombreGrupo, Role rol) {
+        return (roles(username, nombreGrupo) & bit(rol)) != 0;
+    }
+
+    public boolean pertenece(String username, String nombreGrupo) {
+        return roles(username, nombreGrupo) != 0;
+    }
+
+    /**
+     * Nombres de los grupos del usuario, ordenados.
+     */
+    public Set<String> grupos(String username) {
+        return membresias(username).keySet();
+    }
+
+    public void invalidarUsuario(String username) {
+        invalidar(() -> entradas.remove(username));
+    }
+
+    /**
+     * Descarta a todos los usuarios que tenían membresía en el grupo (p. ej. al borrarlo).
+     */
+    public void invalidarGrupo(String nombreGrupo) {
+        invalidar(() -> entradas.values().removeIf(grupos -> grupos.containsKey(nombreGrupo)));
+    }
+
+    public void invalidarTodo() {
+        invalidar(entradas::clear);
+    }
+
+    private int tamanyo() {
+        cerrojo.lock();
+        try {
+            return entradas.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    static int bit(Role rol) {
+        return 1 << rol.ordinal();
+    }
+
+    private Map<String, Integer> membresias(String username) {
+        Map<String, Integer> cacheadas;
+        cerrojo.lock();
+        try {
+            cacheadas = entradas.get(username);
+        } finally {
+            cerrojo.unlock();
+        }
+        if (cacheadas != null) {
+            aciertos.increment();
+            return cacheadas;
+        }
+        fallos.increment();
+        long generacionAlLeer = generacion.get();
+        Map<String, Integer> cargadas = new TreeMap<>();
+        for (UsuarioGrupoRepository.RolEnGrupo membresia : usuarioGrupoRepository.findRolesByUsername(username)) {
+            cargadas.merge(membresia.getGrupo(), bit(membresia.getRol()), (a, b) -> a | b);
+        }
+        Map<String, Integer> inmutables = Collections.unmodifiableMap(cargadas);
+        // Una transacción que ha cambiado membresías ve sus propios cambios sin confirmar: no se cachean
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            cerrojo.lock();
+            try {
+                if (generacion.get() == generacionAlLeer) {
+                    entradas.put(username, inmutables);
+                }
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+        return inmutables;
+    }
+
+    private void invalidar(Runnable accion) {
+        invalidarAhora(accion);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (!TransactionSynchronizationManager.hasResource(this)) {
+                TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MembresiasCache.this);
+                    invalidarAhora(accion);
+                }
+            });
+        }
+    }
+
+    private void invalidarAhora(Runnable accion) {
+        cerrojo.lock();
+        try {
+            generacion.incrementAndGet();
+            accion.run();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+}
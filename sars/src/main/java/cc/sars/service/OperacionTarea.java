@@ -0,0 +1,23 @@
+package cc.sars.service;
+
+import cc.sars.model.EstadosTareas;
+
+/**
+ * Una operación de un lote sobre una tarea de la serie (ver {@link SerieService#aplicarOperaciones}): un cambio de
+ * estado ('nuevoEstado') o una asignación ('asignado'). Con 'version' solo se aplica si la tarea sigue en esa versión.
+ */
+public record OperacionTarea(Tipo tipo, String capitulo, String tarea, EstadosTareas nuevoEstado, String asignado, Long version) {
+
+    public enum Tipo {
+        ESTADO,
+        ASIGNACION
+    }
+
+    public static OperacionTarea estado(String capitulo, String tarea, EstadosTareas nuevoEstado) {
+        return new OperacionTarea(Tipo.ESTADO, capitulo, tarea, nuevoEstado, null, null);
+    }
+
+    public static OperacionTarea asignacion(String capitulo, String tarea, String asignado) {
+        return new OperacionTarea(Tipo.ASIGNACION, capitulo, tarea, null, asignado, null);
+    }
+}
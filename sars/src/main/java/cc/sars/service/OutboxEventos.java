@@ -0,0 +1,48 @@
+package cc.sars.service;
+
+import cc.sars.evento.CodificadorEventos;
+import cc.sars.evento.EventoDominio;
+import cc.sars.model.EventoOutbox;
+import cc.sars.repository.EventoOutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Guarda los eventos de dominio en la tabla outbox dentro de la transacción del cambio que los origina: o se
+ * confirman los dos o ninguno. {@link RelayOutbox} los entrega después a los oyentes.
+ * Como todas las escrituras pasan por aquí, también avanza (al terminar la transacción) las ETags de {@link ValidadoresHttp}.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxEventos {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ValidadoresHttp validadoresHttp;
+
+    public OutboxEventos(EventoOutboxRepository eventoOutboxRepository, ValidadoresHttp validadoresHttp) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.validadoresHttp = validadoresHttp;
+    }
+
+    public void publicar(EventoDominio evento) {
+        eventoOutboxRepository.save(fila(evento, Instant.now()));
+        validadoresHttp.alPublicar(evento);
+    }
+
+    /**
+     * Varios eventos de una misma operación; con la secuencia en bloques se insertan en lotes JDBC.
+     */
+    public void publicarTodos(Collection<? extends EventoDominio> eventos) {
+        Instant ahora = Instant.now();
+        eventoOutboxRepository.saveAll(eventos.stream().map(evento -> fila(evento, ahora)).toList());
+        eventos.forEach(validadoresHttp::alPublicar);
+    }
+
+    private static EventoOutbox fila(EventoDominio evento, Instant creado) {
+        return new EventoOutbox(CodificadorEventos.tipo(evento), evento.grupo(), CodificadorEventos.carga(evento), creado);
+    }
+}
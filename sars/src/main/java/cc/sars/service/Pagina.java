@@ -0,0 +1,83 @@
+package cc.sars.service;
+
+import cc.sars.exception.CursorInvalidoException;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Una página de un listado paginado por clave (keyset): los elementos, en el orden estable del listado,
+ * y el cursor opaco para pedir la siguiente página ({@code null} si no hay más).
+ * Cada página se lee con un 'WHERE clave > :cursor ORDER BY clave' limitado, así que su coste
+ * no depende de cuántas filas haya antes ni después.
+ */
+public record Pagina<T>(List<T> elementos, String siguienteCursor) {
+
+    public static final int LIMITE_POR_DEFECTO = 50;
+    public static final int LIMITE_MAXIMO = 200;
+
+    /**
+     * Ajusta el límite pedido al rango [1, LIMITE_MAXIMO]; sin límite se usa LIMITE_POR_DEFECTO.
+     */
+    public static int limite(Integer pedido) {
+        if (pedido == null) {
+            return LIMITE_POR_DEFECTO;
+        }
+        return Math.max(1, Math.min(pedido, LIMITE_MAXIMO));
+    }
+
+    /**
+     * Límite para la consulta: se pide una fila de más para saber si hay página siguiente sin contar.
+     */
+    static Limit consulta(int limite) {
+        return Limit.of(limite + 1);
+    }
+
+    /**
+     * Construye la página a partir de las filas leídas con {@link #consulta(int)}.
+     * @param clave La clave de ordenación de cada elemento, que se codifica en el cursor.
+     */
+    static <T> Pagina<T> de(List<T> filas, int limite, Function<T, ?> clave) {
+        if (filas.size() <= limite) {
+            return new Pagina<>(filas, null);
+        }
+        List<T> elementos = filas.subList(0, limite);
+        return new Pagina<>(elementos, codificar(String.valueOf(clave.apply(elementos.get(limite - 1)))));
+    }
+
+    /**
+     * Clave de texto contenida en el cursor; sin cursor se empieza por el principio ("").
+     */
+    static String claveTexto(String cursor) {
+        return cursor == null || cursor.isEmpty() ? "" : decodificar(cursor);
+    }
+
+    /**
+     * Clave numérica contenida en el cursor; sin cursor se empieza por el principio (0).
+     */
+    static int claveEntera(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(decodificar(cursor));
+        } catch (NumberFormatException e) {
+            throw new CursorInvalidoException("Cursor de paginación no válido");
+        }
+    }
+
+    private static String codificar(String clave) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(clave.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodificar(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new CursorInvalidoException("Cursor de paginación no válido");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package cc.sars.service;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.Lapida;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.repository.CapituloRepository;
+import cc.sars.repository.LapidaRepository;
+import cc.sars.repository.ProgresoSerieRepository;
+import cc.sars.repository.TareaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Versión de cambios de cada serie, para la sincronización por cambios ("qué ha cambiado desde la versión N").
+ * <p>
+ * Cada transacción que modifica el tablero de una serie avanza su versión una vez (en 'serie_progreso') y la
+ * graba en lo que crea o cambia; lo que borra deja una {@link Lapida}. El UPDATE de la versión bloquea la fila de
+ * la serie hasta el commit, así que las versiones se confirman en orden: quien ve la versión N ve todo lo anterior.
+ * Debe ser lo primero que bloquee cada transacción (antes que capítulos o tareas) para que el orden de bloqueo
+ * sea siempre serie → capítulo → tarea; SerieService lo llama antes de modificar nada.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class RegistroCambios {
+
+    private final ProgresoSerieRepository progresoSerieRepository;
+    private final CapituloRepository capituloRepository;
+    private final TareaRepository tareaRepository;
+    private final LapidaRepository lapidaRepository;
+
+    public RegistroCambios(ProgresoSerieRepository progresoSerieRepository, CapituloRepository capituloRepository,
+                           TareaRepository tareaRepository, LapidaRepository lapidaRepository) {
+        this.progresoSerieRepository = progresoSerieRepository;
+        this.capituloRepository = capituloRepository;
+        this.tareaRepository = tareaRepository;
+        this.lapidaRepository = lapidaRepository;
+    }
+
+    /**
+     * Versión de la serie para los cambios de la transacción en curso: la primera llamada la avanza y las
+     * siguientes devuelven la misma.
+     */
+    public long version(Serie serie) {
+        return version(serie.getId());
+    }
+
+    public void capitulosCreados(Serie serie, Collection<Capitulo> capitulos) {
+        long version = version(serie);
+        for (Capitulo capitulo : capitulos) {
+            capitulo.marcarCambio(version);
+            capitulo.getTareas().forEach(tarea -> tarea.marcarCambio(version));
+        }
+    }
+
+    /**
+     * Para una tarea nueva o que va a cambiar: se llama antes de modificarla, para que el cambio y su versión
+     * salgan en el mismo UPDATE.
+     */
+    public void tareaCambiada(Tarea tarea) {
+        tarea.marcarCambio(version(tarea.getCapitulo().getSerie()));
+    }
+
+    public void capituloEliminado(Capitulo capitulo) {
+        Serie serie = capitulo.getSerie();
+        lapidaRepository.save(new Lapida(serie, version(serie), capitulo.getNombre(), null, Instant.now()));
+    }
+
+    public void tareaEliminada(Tarea tarea) {
+        Serie serie = tarea.getCapitulo().getSerie();
+        lapidaRepository.save(new Lapida(serie, version(serie), tarea.getCapitulo().getNombre(), tarea.getNombre(), Instant.now()));
+    }
+
+    /**
+     * Avanza, en orden de id, la versión de las series en las que se van a liberar tareas del usuario.
+     * El UPDATE masivo de TareaRepository toma después esa versión para cada tarea.
+     */
+    public void asignadasLiberadas(String username) {
+        tareaRepository.findSeriesConTareasAsignadas(username).forEach(this::version);
+    }
+
+    /**
+     * Cambios del tablero de la serie posteriores a 'desde'. Sin versión, con una anterior al horizonte de
+     * compactación o con una posterior a la actual (p. ej. tras un reseteo) devuelve el tablero completo.
+     */
+    @Transactional(readOnly = true)
+    public CambiosTablero cambiosDesde(Serie serie, Long desde) {
+        ProgresoSerie progreso = progresoSerieRepository.findById(serie.getId())
+                .orElseThrow(() -> new IllegalStateException("La serie " + serie.getNombre() + " no tiene fila de progreso"));
+        long actual = progreso.getVersionCambios();
+        boolean completo = desde == null || desde < progreso.getHorizonteCambios() || desde > actual;
+        if (!completo && desde == actual) {
+            // Sin cambios: la consulta más frecuente no lee ni capítulos ni tareas
+            return new CambiosTablero(actual, false, Map.of(), List.of());
+        }
+        long minimo = completo ? -1 : desde;
+
+        // Versión devuelta: una transacción confirmada tras leer 'actual' puede aparecer ya en las consultas siguientes
+        long version = actual;
+        Map<Integer, String> nombres = new TreeMap<>();
+        Map<Integer, List<Tarea>> tareasPorCapitulo = new HashMap<>();
+        for (Capitulo capitulo : capituloRepository.findCreadosDesde(serie, minimo)) {
+            nombres.put(capitulo.getId(), capitulo.getNombre());
+            version = Math.max(version, capitulo.getCambio());
+        }
+        for (Tarea tarea : tareaRepository.findCambiadasDesde(serie, minimo)) {
+            Capitulo capitulo = tarea.getCapitulo();
+            nombres.put(capitulo.getId(), capitulo.getNombre());
+            tareasPorCapitulo.computeIfAbsent(capitulo.getId(), id -> new ArrayList<>()).add(tarea);
+            version = Math.max(version, tarea.getCambio());
+        }
+        List<Lapida> borrados = completo ? List.of() : lapidaRepository.findBySerieAndVersionGreaterThanOrderById(serie, desde);
+        for (Lapida lapida : borrados) {
+            version = Math.max(version, lapida.getVersion());
+        }
+
+        Map<String, List<Tarea>> capitulos = new LinkedHashMap<>();
+        nombres.forEach((id, nombre) -> capitulos.put(nombre, tareasPorCapitulo.getOrDefault(id, List.of())));
+        return new CambiosTablero(version, completo, capitulos, borrados);
+    }
+
+    private long version(Integer serieId) {
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> versiones = (Map<Integer, Long>) TransactionSynchronizationManager.getResource(this);
+        if (versiones == null) {
+            versiones = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, versiones);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RegistroCambios.this);
+                }
+            });
+        }
+        // Sin fila de progreso (serie aún sin migrar) no hay versión que avanzar, igual que no hay contadores
+        return versiones.computeIfAbsent(serieId, id ->
+                progresoSerieRepository.incrementarVersion(id) == 0 ? 0L : progresoSerieRepository.findVersion(id));
+    }
+}
@@ -0,0 +1,179 @@
+package cc.sars.service;
+
+import cc.sars.evento.CodificadorEventos;
+import cc.sars.evento.EventoDominio;
+import cc.sars.model.EventoOutbox;
+import cc.sars.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vacía el outbox: cada 'sars.outbox.intervalo' entrega los eventos pendientes, en lotes de 'sars.outbox.lote'
+ * y en orden de publicación, a los @EventListener de la aplicación, y los borra.
+ * <p>
+ * Cada lote se entrega y se borra en una misma transacción, en la que participan también los oyentes síncronos.
+ * Si uno falla, el lote entero se deshace y se vuelve a entregar evento a evento, cada uno en su transacción: el
+ * que falla suma un intento y la pasada se para ahí, para no adelantar a los posteriores (al menos una vez y en
+ * orden). Al llegar a 'sars.outbox.max-intentos' se aparca y los demás siguen. Los eventos que no se pueden
+ * decodificar (p. ej. de un record renombrado) se aparcan a la primera, sin parar el lote.
+ * Publica 'outbox.entregados', 'outbox.errores', 'outbox.aparcados', 'outbox.lote' (duración de cada lote) y
+ * 'outbox.retraso' (de la publicación a la entrega).
+ */
+@Component
+public class RelayOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayOutbox.class);
+
+    /** Lo que ha pasado con un lote: 'procesados' incluye los aparcados. */
+    private record Resultado(int procesados, int entregados, int aparcados) {
+    }
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ApplicationEventPublisher publicador;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanyoLote;
+    private final int maxIntentos;
+    private final Counter entregados;
+    private final Counter errores;
+    private final Counter aparcados;
+    private final Timer duracionLote;
+    private final Timer retraso;
+
+    public RelayOutbox(EventoOutboxRepository eventoOutboxRepository, ApplicationEventPublisher publicador,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                       @Value("${sars.outbox.lote:500}") int tamanyoLote,
+                       @Value("${sars.outbox.max-intentos:5}") int maxIntentos) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.publicador = publicador;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanyoLote = tamanyoLote;
+        this.maxIntentos = maxIntentos;
+        this.entregados = Counter.builder("outbox.entregados").register(meterRegistry);
+        this.errores = Counter.builder("outbox.errores").register(meterRegistry);
+        this.aparcados = Counter.builder("outbox.aparcados").register(meterRegistry);
+        this.duracionLote = Timer.builder("outbox.lote").register(meterRegistry);
+        this.retraso = Timer.builder("outbox.retraso").register(meterRegistry);
+    }
+
+    /**
+     * Entrega lotes hasta vaciar el outbox o hasta un evento que falla y aún no se aparca.
+     */
+    @Scheduled(fixedDelayString = "${sars.outbox.intervalo:500ms}")
+    public void drenar() {
+        try {
+            while (true) {
+                int procesados;
+                try {
+                    procesados = entregarLote();
+                } catch (RuntimeException e) {
+                    errores.increment();
+                    logger.warn("Error al entregar un lote del outbox; se entrega evento a evento: {}", e.getMessage());
+                    if (!entregarUnoAUno()) {
+                        return;
+                    }
+                    continue;
+                }
+                if (procesados < tamanyoLote) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            errores.increment();
+            logger.error("Error al entregar eventos del outbox; se reintentará: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Eventos procesados (entregados o aparcados).
+     */
+    int entregarLote() {
+        Resultado resultado = duracionLote.record(() -> transactionTemplate.execute(status -> {
+            List<EventoOutbox> lote = eventoOutboxRepository.findPendientes(Limit.of(tamanyoLote));
+            Instant ahora = Instant.now();
+            List<Long> entregadas = new ArrayList<>(lote.size());
+            for (EventoOutbox fila : lote) {
+                if (publicar(fila, ahora)) {
+                    entregadas.add(fila.getId());
+                }
+            }
+            if (!entregadas.isEmpty()) {
+                eventoOutboxRepository.borrar(entregadas);
+            }
+            return new Resultado(lote.size(), entregadas.size(), lote.size() - entregadas.size());
+        }));
+        contar(resultado);
+        return resultado.procesados();
+    }
+
+    /**
+     * Tras fallar un lote: entrega uno a uno los eventos pendientes de un lote para saber cuál falla. El que falla
+     * suma un intento y, si no queda aparcado, la pasada termina en él.
+     * @return Si se ha recorrido el lote entero.
+     */
+    boolean entregarUnoAUno() {
+        for (EventoOutbox pendiente : transactionTemplate.execute(status -> eventoOutboxRepository.findPendientes(Limit.of(tamanyoLote)))) {
+            Long id = pendiente.getId();
+            try {
+                contar(transactionTemplate.execute(status -> eventoOutboxRepository.findPendiente(id)
+                        .map(fila -> {
+                            if (!publicar(fila, Instant.now())) {
+                                return new Resultado(1, 0, 1);
+                            }
+                            eventoOutboxRepository.borrar(List.of(id));
+                            return new Resultado(1, 1, 0);
+                        })
+                        .orElse(new Resultado(0, 0, 0))));
+            } catch (RuntimeException e) {
+                errores.increment();
+                boolean aparcado = Boolean.TRUE.equals(transactionTemplate.execute(status -> eventoOutboxRepository.findPendiente(id)
+                        .map(fila -> fila.registrarFallo(e.toString(), maxIntentos, Instant.now()))
+                        .orElse(true)));
+                if (!aparcado) {
+                    logger.warn("Error al entregar el evento {} del outbox; se reintentará: {}", id, e.getMessage());
+                    return false;
+                }
+                aparcados.increment();
+                logger.error("Evento {} del outbox aparcado tras {} intentos: {}", id, maxIntentos, e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Publica el evento de la fila o, si no se puede decodificar, la aparca: reintentarlo no lo arreglaría.
+     * @return Si se ha publicado.
+     */
+    private boolean publicar(EventoOutbox fila, Instant ahora) {
+        EventoDominio evento;
+        try {
+            evento = CodificadorEventos.decodificar(fila.getTipo(), fila.getCarga());
+        } catch (IllegalArgumentException e) {
+            fila.registrarFallo(e.getMessage(), 1, ahora);
+            logger.error("Evento {} del outbox aparcado: {}", fila.getId(), e.getMessage());
+            return false;
+        }
+        publicador.publishEvent(evento);
+        retraso.record(Duration.between(fila.getCreado(), ahora));
+        return true;
+    }
+
+    private void contar(Resultado resultado) {
+        entregados.increment(resultado.entregados());
+        aparcados.increment(resultado.aparcados());
+    }
+}
@@ -0,0 +1,51 @@
+package cc.sars.service;
+
+import cc.sars.model.Tarea;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una operación de un lote, en el mismo orden que las operaciones. 'tarea' es la tarea afectada, con su
+ * estado al terminar el lote (solo si APLICADA), y 'error' el motivo del rechazo (solo si RECHAZADA).
+ */
+public record ResultadoOperacion(Estado estado, Tarea tarea, String error) {
+
+    public enum Estado {
+        /** Aplicada y confirmada con el resto del lote. */
+        APLICADA,
+        /** No cumple las reglas; no ha cambiado nada. */
+        RECHAZADA,
+        /** Era válida, pero el lote (todo o nada) se ha deshecho por otra rechazada. */
+        ANULADA,
+        /** Posterior a la rechazada en un lote todo o nada: no se ha llegado a comprobar. */
+        NO_INTENTADA
+    }
+
+    static ResultadoOperacion aplicada(Tarea tarea) {
+        return new ResultadoOperacion(Estado.APLICADA, tarea, null);
+    }
+
+    static ResultadoOperacion rechazada(String error) {
+        return new ResultadoOperacion(Estado.RECHAZADA, null, error);
+    }
+
+    /**
+     * Resultados de un lote todo o nada detenido en su última operación: las aplicadas pasan a ANULADA y las
+     * que faltan hasta 'total' se añaden como NO_INTENTADA.
+     */
+    static List<ResultadoOperacion> anular(List<ResultadoOperacion> resultados, int total) {
+        List<ResultadoOperacion> anulados = new ArrayList<>(total);
+        for (ResultadoOperacion resultado : resultados) {
+            anulados.add(resultado.estado() == Estado.APLICADA ? new ResultadoOperacion(Estado.ANULADA, null, null) : resultado);
+        }
+        while (anulados.size() < total) {
+            anulados.add(new ResultadoOperacion(Estado.NO_INTENTADA, null, null));
+        }
+        return anulados;
+    }
+
+    public boolean isAplicada() {
+        return estado == Estado.APLICADA;
+    }
+}
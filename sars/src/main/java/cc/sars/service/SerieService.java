@@ -2,25 +2,49 @@ package cc.sars.service;
 
 import cc.sars.exception.SerieAlreadyExistsException;
 import cc.sars.exception.SerieNotFoundException;
+import cc.sars.exception.VersionNoCoincideException;
+import cc.sars.evento.CapituloCreado;
+import cc.sars.evento.CapituloEliminado;
+import cc.sars.evento.EventoDominio;
+import cc.sars.evento.SerieCreada;
+import cc.sars.evento.SerieEliminada;
+import cc.sars.evento.TareaAsignada;
+import cc.sars.evento.TareaCreada;
+import cc.sars.evento.TareaEliminada;
+import cc.sars.evento.TareaEstadoCambiado;
+import cc.sars.evento.TareasLiberadas;
 import cc.sars.model.Capitulo;
 import cc.sars.model.EstadosTareas;
 import cc.sars.model.Grupo;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.Role;
 import cc.sars.model.Serie;
 import cc.sars.model.Tarea;
 import cc.sars.model.User;
 import cc.sars.repository.CapituloRepository;
 import cc.sars.repository.GrupoRepository;
 import cc.sars.repository.SerieRepository;
+import cc.sars.repository.TareaRepository;
 import cc.sars.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import cc.sars.exception.CcTaskCompletedException;
 import cc.sars.exception.AssignmentForbiddenException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.context.annotation.Lazy;
 
 @Service
@@ -31,16 +55,26 @@ public class SerieService {
 
     private final SerieRepository serieRepository;
     private final CapituloRepository capituloRepository;
+    private final TareaRepository tareaRepository;
     private final GrupoRepository grupoRepository;
     private final UserRepository userRepository;
     private final @Lazy UsuarioService usuarioService;
+    private final ContadoresProgreso contadoresProgreso;
+    private final OutboxEventos outboxEventos;
+    private final RegistroCambios registroCambios;
+    private final ValidadoresHttp validadoresHttp;
 
-    public SerieService(SerieRepository serieRepository, CapituloRepository capituloRepository, GrupoRepository grupoRepository, UserRepository userRepository, @Lazy UsuarioService usuarioService) {
+    public SerieService(SerieRepository serieRepository, CapituloRepository capituloRepository, TareaRepository tareaRepository, GrupoRepository grupoRepository, UserRepository userRepository, @Lazy UsuarioService usuarioService, ContadoresProgreso contadoresProgreso, OutboxEventos outboxEventos, RegistroCambios registroCambios, ValidadoresHttp validadoresHttp) {
         this.serieRepository = serieRepository;
         this.capituloRepository = capituloRepository;
+        this.tareaRepository = tareaRepository;
         this.grupoRepository = grupoRepository;
         this.userRepository = userRepository;
         this.usuarioService = usuarioService;
+        this.contadoresProgreso = contadoresProgreso;
+        this.outboxEventos = outboxEventos;
+        this.registroCambios = registroCambios;
+        this.validadoresHttp = validadoresHttp;
     }
 
     // --- MÉTODOS PARA SERIES ---
@@ -55,6 +89,30 @@ public class SerieService {
         return grupo.getSeries();
     }
 
+    /**
+     * Página de series de un grupo, ordenadas por id, a partir del cursor indicado.
+     * Solo si la página sale vacía se comprueba que el grupo exista.
+     */
+    @Transactional(readOnly = true)
+    public Pagina<Serie> getSeriesPagina(String nombreGrupo, String cursor, Integer limite) {
+        int tamanyo = Pagina.limite(limite);
+        List<Serie> filas = serieRepository.findByGrupo_NombreAndIdGreaterThanOrderByIdAsc(
+                nombreGrupo, Pagina.claveEntera(cursor), Pagina.consulta(tamanyo));
+        if (filas.isEmpty() && !grupoRepository.existsById(nombreGrupo)) {
+            throw new SerieNotFoundException("Grupo no encontrado");
+        }
+        return Pagina.de(filas, tamanyo, Serie::getId);
+    }
+
+    /**
+     * Progreso de las series indicadas (contadores ya agregados), por id de serie.
+     * Cuesta una consulta por llamada, sin importar cuántas tareas tengan las series.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, ProgresoSerie> getProgresoDeSeries(List<Serie> series) {
+        return contadoresProgreso.getProgresoDeSeries(series);
+    }
+
     /**
      * Obtiene todas las series.
      *
@@ -77,44 +135,39 @@ public class SerieService {
         Serie nuevaSerie = new Serie(nombre, descripcion);
         
         grupo.agregarSerie(nuevaSerie); 
+        // Se persiste la serie directamente para que tenga id antes de crear sus contadores
+        serieRepository.save(nuevaSerie);
         grupoRepository.save(grupo);
+        contadoresProgreso.serieCreada(nuevaSerie);
+        outboxEventos.publicar(new SerieCreada(nombreGrupo, nombre));
         return nuevaSerie;
     }
 
     /**
      * Busca una serie específica por su nombre (ID) dentro de un grupo.
+     * Usa el plan de carga del tablero: grupo y capítulos en una consulta y las tareas en otra.
      */
     @Transactional(readOnly = true)
     public Optional<Serie> getSerieByNombreAndGrupo(String nombreGrupo, String nombreSerie) {
-        Grupo grupo = grupoRepository.findByNombre(nombreGrupo)
-                .orElseThrow(() -> new SerieNotFoundException("Grupo no encontrado: " + nombreGrupo));
-        return grupo.getSeries().stream()
-                .filter(serie -> serie.getNombre().equals(nombreSerie))
-                .findFirst();
+        return serieRepository.findTableroByGrupo_NombreAndNombre(nombreGrupo, nombreSerie);
     }
 
     public void deleteSerie(String nombreGrupo, String nombreSerie) {
-        Grupo grupo = grupoRepository.findByNombre(nombreGrupo)
-                .orElseThrow(() -> new SerieNotFoundException("Grupo no encontrado: " + nombreGrupo));
-        Serie serie = grupo.getSeries().stream()
-                .filter(s -> s.getNombre().equals(nombreSerie))
-                .findFirst()
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre(nombreGrupo, nombreSerie)
                 .orElseThrow(() -> new SerieNotFoundException("No se encontró la serie: " + nombreSerie + " en el grupo: " + nombreGrupo));
-        
-        grupo.getSeries().remove(serie);
+
+        // Sus contadores se borran con ella (ON DELETE CASCADE)
         serieRepository.delete(serie);
-        grupoRepository.save(grupo);
+        outboxEventos.publicar(new SerieEliminada(nombreGrupo, nombreSerie));
     }
 
     public Serie updateSerieInGrupo(String nombreGrupo, String nombreSerie, String descripcion) {
-        Grupo grupo = grupoRepository.findByNombre(nombreGrupo)
-                .orElseThrow(() -> new SerieNotFoundException("Grupo no encontrado: " + nombreGrupo));
-        Serie serie = grupo.getSeries().stream()
-                .filter(s -> s.getNombre().equals(nombreSerie))
-                .findFirst()
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre(nombreGrupo, nombreSerie)
                 .orElseThrow(() -> new SerieNotFoundException("No se encontró la serie: " + nombreSerie + " en el grupo: " + nombreGrupo));
         
         serie.setDescripcion(descripcion);
+        // No publica evento: la descripción no está en el tablero
+        validadoresHttp.serieCambiada(nombreGrupo, nombreSerie);
         return serieRepository.save(serie);
     }
 
@@ -128,12 +181,33 @@ public class SerieService {
         return capituloRepository.findByNaturalKey(grupo, serie, nombre);
     }
 
+    /**
+     * Página de capítulos de una serie con sus tareas, ordenados por id, a partir del cursor indicado.
+     * Primero se pagina sobre los ids y después se cargan solo esos capítulos con sus tareas.
+     * Solo si la página sale vacía se comprueba que la serie exista.
+     */
+    @Transactional(readOnly = true)
+    public Pagina<Capitulo> getCapitulosPagina(String nombreGrupo, String nombreSerie, String cursor, Integer limite) {
+        int tamanyo = Pagina.limite(limite);
+        List<Integer> ids = capituloRepository.findIdsPaginaDeSerie(
+                nombreGrupo, nombreSerie, Pagina.claveEntera(cursor), Pagina.consulta(tamanyo));
+        if (ids.isEmpty()) {
+            if (serieRepository.findByGrupo_NombreAndNombre(nombreGrupo, nombreSerie).isEmpty()) {
+                throw new SerieNotFoundException("Serie no encontrada con el nombre: " + nombreSerie);
+            }
+            return new Pagina<>(List.of(), null);
+        }
+        Pagina<Integer> pagina = Pagina.de(ids, tamanyo, id -> id);
+        return new Pagina<>(capituloRepository.findConTareasByIdIn(pagina.elementos()), pagina.siguienteCursor());
+    }
+
 
     /**
      * Crea un nuevo capítulo y lo añade a una serie existente, validando el grupo.
+     * @return El capítulo creado, con la tarea 'CC' por defecto.
      */
-    public Serie addCapituloToSerie(String nombreGrupo, String nombreSerie, String nombreCapitulo) {
-        Serie serie = getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
+    public Capitulo addCapituloToSerie(String nombreGrupo, String nombreSerie, String nombreCapitulo) {
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre(nombreGrupo, nombreSerie)
                 .orElseThrow(() -> new SerieNotFoundException("No se encontró la serie: " + nombreSerie + " en el grupo: " + nombreGrupo));
 
         if (capituloRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo).isPresent()) {
@@ -145,74 +219,105 @@ public class SerieService {
         // Añadir la tarea 'CC' por defecto
         Tarea tareaCC = new Tarea("CC");
         nuevoCapitulo.anyadirTarea(tareaCC);
-        
-        // Llamada al método 'addCapitulo' de la entidad Serie
-        serie.addCapitulo(nuevoCapitulo);
 
-        return serieRepository.save(serie);
+        // Solo se enlaza desde el capítulo: no hace falta cargar la lista de capítulos de la serie
+        nuevoCapitulo.setSerie(serie);
+        registroCambios.capitulosCreados(serie, List.of(nuevoCapitulo));
+        contadoresProgreso.capitulosCreados(serie, List.of(nuevoCapitulo));
+        outboxEventos.publicar(new CapituloCreado(nombreGrupo, nombreSerie, nombreCapitulo, List.of(tareaCC.getNombre())));
+
+        return capituloRepository.save(nuevoCapitulo);
     }
 
     /**
      * Crea múltiples capítulos y los añade a una serie existente, validando el grupo.
+     * Los nombres ya existentes (o repetidos en la entrada) se omiten. Los duplicados se detectan con
+     * una sola consulta y los capítulos y sus tareas se insertan en lotes JDBC.
+     * @return Los capítulos creados, en el orden de la entrada.
      */
-    public Serie addCapitulosToSerie(String nombreGrupo, String nombreSerie, String nombresCapitulos, String[] tareasEnMasa) {
-        Serie serie = getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
+    public List<Capitulo> addCapitulosToSerie(String nombreGrupo, String nombreSerie, String nombresCapitulos, String[] tareasEnMasa) {
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre(nombreGrupo, nombreSerie)
                 .orElseThrow(() -> new SerieNotFoundException("No se encontró la serie: " + nombreSerie + " en el grupo: " + nombreGrupo));
 
-        // Dividir la cadena de nombres de capítulos por saltos de línea y procesar cada uno
-        Arrays.stream(nombresCapitulos.split("\r?\n"))
-              .map(String::trim)
-              .filter(nombre -> !nombre.isEmpty())
-              .forEach(nombreCapitulo -> {
-                  if (capituloRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo).isPresent()) {
-                      logger.warn("El capítulo con el nombre '{}' ya existe y será omitido.", nombreCapitulo);
-                      return; // Saltar este capítulo y continuar con el siguiente
-                  }
-
-                  Capitulo nuevoCapitulo = new Capitulo(nombreCapitulo);
-
-                  // Añadir las tareas en masa si existen
-                  if (tareasEnMasa != null) {
-                      Arrays.stream(tareasEnMasa)
-                            .map(String::trim)
-                            .filter(tareaData -> !tareaData.isEmpty())
-                            .forEach(tareaData -> {
-                                String[] parts = tareaData.split("###");
-                                if (parts.length == 3) {
-                                    String nombreTarea = parts[0];
-                                    EstadosTareas estadoTarea = EstadosTareas.valueOf(parts[1]);
-                                    String usuarioAsignado = parts[2];
-
-                                    Tarea nuevaTarea = new Tarea(nombreTarea);
-                                    nuevaTarea.setEstadoTarea(estadoTarea);
-                                    nuevaTarea.setUsuarioAsignado(usuarioAsignado);
-                                    nuevoCapitulo.anyadirTarea(nuevaTarea);
-                                } else {
-                                    logger.warn("Formato de tarea en masa incorrecto: {}", tareaData);
-                                }
-                            });
-                  }
-                  serie.addCapitulo(nuevoCapitulo);
-              });
+        // Dividir la cadena de nombres de capítulos por saltos de línea, sin vacíos ni repetidos
+        Set<String> nombres = Arrays.stream(nombresCapitulos.split("\r?\n"))
+                .map(String::trim)
+                .filter(nombre -> !nombre.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (nombres.isEmpty()) {
+            return List.of();
+        }
 
-        return serieRepository.save(serie);
+        Set<String> existentes = capituloRepository.findNombresExistentes(serie, nombres);
+        if (!existentes.isEmpty()) {
+            logger.warn("Los capítulos {} ya existen y serán omitidos.", existentes);
+        }
+
+        List<Tarea> plantilla = parsearTareasEnMasa(tareasEnMasa);
+        List<Capitulo> nuevos = new ArrayList<>();
+        for (String nombreCapitulo : nombres) {
+            if (existentes.contains(nombreCapitulo)) {
+                continue;
+            }
+            Capitulo nuevoCapitulo = new Capitulo(nombreCapitulo);
+            for (Tarea tarea : plantilla) {
+                Tarea nuevaTarea = new Tarea(tarea.getNombre());
+                nuevaTarea.setEstadoTarea(tarea.getEstadoTarea());
+                nuevaTarea.setUsuarioAsignado(tarea.getUsuarioAsignado());
+                nuevoCapitulo.anyadirTarea(nuevaTarea);
+            }
+            // Solo se enlaza desde el capítulo: no hace falta cargar la lista de capítulos de la serie
+            nuevoCapitulo.setSerie(serie);
+            nuevos.add(nuevoCapitulo);
+        }
+
+        registroCambios.capitulosCreados(serie, nuevos);
+        contadoresProgreso.capitulosCreados(serie, nuevos);
+        List<String> nombresTareas = plantilla.stream().map(Tarea::getNombre).toList();
+        outboxEventos.publicarTodos(nuevos.stream()
+                .map(capitulo -> new CapituloCreado(nombreGrupo, nombreSerie, capitulo.getNombre(), nombresTareas))
+                .toList());
+        return capituloRepository.saveAll(nuevos);
+    }
+
+    /**
+     * Convierte las tareas en masa ("nombre###estado###usuario") en tareas modelo. Las mal formadas se ignoran.
+     */
+    private List<Tarea> parsearTareasEnMasa(String[] tareasEnMasa) {
+        List<Tarea> plantilla = new ArrayList<>();
+        if (tareasEnMasa == null) {
+            return plantilla;
+        }
+        for (String tareaData : tareasEnMasa) {
+            String datos = tareaData.trim();
+            if (datos.isEmpty()) {
+                continue;
+            }
+            String[] parts = datos.split("###");
+            if (parts.length == 3) {
+                Tarea tarea = new Tarea(parts[0]);
+                tarea.setEstadoTarea(EstadosTareas.valueOf(parts[1]));
+                tarea.setUsuarioAsignado(parts[2]);
+                plantilla.add(tarea);
+            } else {
+                logger.warn("Formato de tarea en masa incorrecto: {}", tareaData);
+            }
+        }
+        return plantilla;
     }
 
     /**
      * Elimina un capítulo de una serie, validando el grupo.
      */
     public void deleteCapitulo(String nombreGrupo, String nombreSerie, String nombreCapitulo) {
-        Serie serie = getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
-                .orElseThrow(() -> new SerieNotFoundException("No se encontró la serie: " + nombreSerie + " en el grupo: " + nombreGrupo));
-
-        Capitulo capitulo = serie.getCapitulos().stream()
-                .filter(c -> c.getNombre().equals(nombreCapitulo))
-                .findFirst()
+        // Se busca solo el capítulo: la lista de capítulos de la serie no llega a cargarse
+        Capitulo capitulo = capituloRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo)
                 .orElseThrow(() -> new RuntimeException("No se encontró el capítulo: " + nombreCapitulo));
 
-        serie.removeCapitulo(capitulo);
+        registroCambios.capituloEliminado(capitulo);
+        contadoresProgreso.capituloEliminado(capitulo);
         capituloRepository.delete(capitulo);
-        serieRepository.save(serie);
+        outboxEventos.publicar(new CapituloEliminado(nombreGrupo, nombreSerie, nombreCapitulo));
     }
 
 
@@ -220,21 +325,23 @@ public class SerieService {
      * Desasigna a un usuario de todas las tareas que tiene asignadas.
      */
     public void desasignarUsuarioDeTareas(String username) {
-        List<Capitulo> allCapitulos = capituloRepository.findAll();
-
-        for (Capitulo capitulo : allCapitulos) {
-            boolean capituloModificado = false;
-            for (Tarea tarea : capitulo.getTareas()) {
-                if (username.equals(tarea.getUsuarioAsignado()) && tarea.getEstadoTarea() == EstadosTareas.Asignado) {
-                    tarea.setUsuarioAsignado("NADIE");
-                    tarea.setEstadoTarea(EstadosTareas.NoAsignado);
-                    capituloModificado = true;
-                }
-            }
-            if (capituloModificado) {
-                capituloRepository.save(capitulo);
-            }
-        }
+        registroCambios.asignadasLiberadas(username);
+        contadoresProgreso.asignadasLiberadas(username);
+        outboxEventos.publicarTodos(tareaRepository.findGruposConTareasAsignadas(username).stream()
+                .map(grupo -> new TareasLiberadas(grupo, username))
+                .toList());
+        int liberadas = tareaRepository.desasignarTareasDeUsuario(username);
+        logger.info("Se han liberado {} tareas asignadas a '{}'.", liberadas, username);
+    }
+
+    /**
+     * Cambios del tablero de la serie desde la versión 'desde' (null para el tablero completo); ver {@link RegistroCambios}.
+     */
+    @Transactional(readOnly = true)
+    public CambiosTablero getCambiosDesde(String nombreGrupo, String nombreSerie, Long desde) {
+        Serie serie = getSerieByNombreAndGrupo(nombreGrupo, nombreSerie)
+                .orElseThrow(() -> new SerieNotFoundException("No se encontró la serie: " + nombreSerie + " en el grupo: " + nombreGrupo));
+        return registroCambios.cambiosDesde(serie, desde);
     }
 
     // --- MÉTODOS PARA TAREAS ---
@@ -244,195 +351,259 @@ public class SerieService {
      */
     @Transactional(readOnly = true)
     public Optional<Tarea> getTareaByNombre(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea) {
-        Capitulo capitulo = getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
-                .orElseThrow(() -> new SerieNotFoundException("No se encontró el capítulo: " + nombreCapitulo));
-
-        return capitulo.getTareas().stream()
-                .filter(tarea -> tarea.getNombre().equals(nombreTarea))
-                .findFirst();
+        return tareaRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea);
     }
 
     /**
      * Crea una nueva tarea y la añade a un capítulo existente.
+     * Si el capítulo ya tiene una tarea con ese nombre, devuelve la existente.
      */
-    public Capitulo addTareaToCapitulo(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea) {
+    public Tarea addTareaToCapitulo(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea) {
         Capitulo capitulo = getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
-                .orElseThrow(() -> new RuntimeException("No se encontró el capítulo: " + nombreCapitulo));
-
-        Tarea nuevaTarea = new Tarea(nombreTarea);
+                .orElseThrow(() -> new SerieNotFoundException("No se encontró el capítulo: " + nombreCapitulo));
 
-        // --- CORRECCIÓN ---
-        // Llamada al método 'anyadirTarea' de la entidad Capitulo
-        capitulo.anyadirTarea(nuevaTarea);
+        Optional<Tarea> existente = tareaRepository.findByCapituloAndNombre(capitulo, nombreTarea);
+        if (existente.isPresent()) {
+            return existente.get();
+        }
 
-        return capituloRepository.save(capitulo);
+        // Se enlaza solo desde la tarea: no hace falta cargar la colección de tareas del capítulo
+        Tarea nuevaTarea = new Tarea(nombreTarea);
+        nuevaTarea.setCapitulo(capitulo);
+        registroCambios.tareaCambiada(nuevaTarea);
+        contadoresProgreso.tareaCreada(nuevaTarea);
+        outboxEventos.publicar(new TareaCreada(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea));
+        return tareaRepository.save(nuevaTarea);
     }
 
     /**
      * Elimina una tarea de un capítulo.
      */
     public void deleteTarea(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea) {
-        Capitulo capitulo = getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
-                .orElseThrow(() -> new SerieNotFoundException("No se encontró el capítulo: " + nombreCapitulo));
-
-        Tarea tareaAEliminar = capitulo.getTareas().stream()
-                .filter(tarea -> tarea.getNombre().equals(nombreTarea))
-                .findFirst()
+        Tarea tareaAEliminar = tareaRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea)
                 .orElseThrow(() -> new SerieNotFoundException("No se encontró la tarea: " + nombreTarea + " en el capítulo: " + nombreCapitulo));
 
-        capitulo.quitarTarea(tareaAEliminar);
-        capituloRepository.save(capitulo);
+        registroCambios.tareaEliminada(tareaAEliminar);
+        contadoresProgreso.tareaEliminada(tareaAEliminar);
+        tareaRepository.delete(tareaAEliminar);
+        outboxEventos.publicar(new TareaEliminada(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea));
     }
 
 
     public Tarea updateTarea(String nombreGrupo, String nombreSerie,  String nombreCapitulo, String nombreTarea, EstadosTareas nuevoEstado, String nuevoUsuarioAsignado) {
-        Capitulo capitulo = getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
-                .orElseThrow(() -> new SerieNotFoundException("No se encontró el capítulo: " + nombreCapitulo));
-
-        Tarea tareaAActualizar = capitulo.getTareas().stream()
-                .filter(tarea -> tarea.getNombre().equals(nombreTarea))
-                .findFirst()
-                .orElseThrow(() -> new SerieNotFoundException("No se encontró la tarea: " + nombreTarea));
+        Tarea tareaAActualizar = tareaRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea)
+                .orElseThrow(() -> new SerieNotFoundException("No se encontró la tarea: " + nombreTarea + " en el capítulo: " + nombreCapitulo));
 
+        registroCambios.tareaCambiada(tareaAActualizar);
+        EstadosTareas estadoAnterior = tareaAActualizar.getEstadoTarea();
         tareaAActualizar.setEstadoTarea(nuevoEstado);
         tareaAActualizar.setUsuarioAsignado(nuevoUsuarioAsignado);
-        capituloRepository.save(capitulo);
-        return tareaAActualizar;
+        contadoresProgreso.tareaCambiada(tareaAActualizar, estadoAnterior);
+        outboxEventos.publicar(new TareaEstadoCambiado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea,
+                estadoAnterior, nuevoEstado, tareaAActualizar.getUsuarioAsignado()));
+        return tareaRepository.save(tareaAActualizar);
     }
 
     /**
      * Actualiza el estado de una tarea.
      * Gestiona la asignación (al usuario actual) y el bloqueo de la tarea.
      */
-        public Capitulo updateTareaEstado(String nombreGrupo, String nombreSerie,  String nombreCapitulo, String nombreTarea, EstadosTareas nuevoEstado, String nombreUsuarioActual) {
-            Capitulo capitulo = getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
-                    .orElseThrow(() -> new RuntimeException("No se encontró el capítulo: " + nombreCapitulo));
-            
-            // Obtener el grupo asociado a la tarea
-            Serie serie = capitulo.getSerie();
-            Grupo grupo = serie.getGrupo();
-
-            Tarea tareaAActualizar = capitulo.getTareas().stream()
-                    .filter(tarea -> tarea.getNombre().equals(nombreTarea))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("No se encontró la tarea: " + nombreTarea));
-    
-            String usuarioAsignado = tareaAActualizar.getUsuarioAsignado();
-            EstadosTareas estadoActual = tareaAActualizar.getEstadoTarea(); // Obtener estado actual
-    
-            User usuarioActual = usuarioService.findByUsername(nombreUsuarioActual)
-                    .orElseThrow(() -> new RuntimeException("Usuario actual no encontrado: " + nombreUsuarioActual));
-    
-            // Lógica para LÍDER: Puede cambiar el estado como quiera
-            if (usuarioService.esLiderEnGrupo(usuarioActual, grupo)) {
-                if (nuevoEstado == EstadosTareas.Asignado) {
-                    tareaAActualizar.setUsuarioAsignado(nombreUsuarioActual);
-                } else if (nuevoEstado == EstadosTareas.NoAsignado || nuevoEstado == EstadosTareas.Repetir) {
-                    tareaAActualizar.setUsuarioAsignado("NADIE");
-                } else if (nuevoEstado == EstadosTareas.Completado) {
-                    // Cuando un líder completa una tarea, debe ser asignada al líder que la completó.
-                    tareaAActualizar.setUsuarioAsignado(nombreUsuarioActual);
-                }
-            }
-            // Lógica para USUARIO y USUARIO_CC: Restricciones
-            else {
-                // Comprobar si la tarea CC de este capítulo está completada
-                Optional<Tarea> ccTaskOptional = capitulo.getTareas().stream()
-                        .filter(t -> t.getNombre().equals("CC"))
-                        .findFirst();
-
-
-                if (ccTaskOptional.isPresent() && ccTaskOptional.get().getEstadoTarea() == EstadosTareas.Completado) {
-                    // Si la tarea CC está completada, solo el LIDER puede cambiar el estado de la tarea.
-                    // Como estamos en el bloque 'else' (no LIDER), lanzar excepción.
-                    throw new CcTaskCompletedException("No puedes cambiar el estado de las tareas en este capítulo porque la tarea 'CC' está completada.");
-                }
-                
-                // Condición especial para ROLE_QC: puede marcar como "Repetir" una tarea "Completado" de otro.
-                if (usuarioService.esQcEnGrupo(usuarioActual, grupo) &&
-                    nuevoEstado == EstadosTareas.Repetir &&
-                    estadoActual == EstadosTareas.Completado) {
-                    
-                    tareaAActualizar.setUsuarioAsignado("NADIE"); // Se libera al repetir
-                }
-                // Condición principal para ambos: Solo puede cambiar si la tarea está asignada a NADIE o a sí mismo
-                else if (!usuarioAsignado.equals("NADIE") && !usuarioAsignado.equals(nombreUsuarioActual)) {
-                    throw new RuntimeException("No puedes cambiar el estado de una tarea asignada a " + usuarioAsignado + ".");
-                }
-    
-                // Transiciones permitidas para usuarios
-                else if (estadoActual == EstadosTareas.NoAsignado || estadoActual == EstadosTareas.Repetir) {
-                    if (nuevoEstado == EstadosTareas.Asignado) {
-                        tareaAActualizar.setUsuarioAsignado(nombreUsuarioActual); // Se auto-asigna
-                    } else if (nuevoEstado == EstadosTareas.Completado) { // Permitir la finalización directa de tareas no asignadas/repetidas
-                        tareaAActualizar.setUsuarioAsignado(nombreUsuarioActual); // Asignar al usuario actual
-                    } 
-                    else {
-                        throw new RuntimeException("Solo puedes asignarte esta tarea.");
-                    }
-                } else if (estadoActual == EstadosTareas.Asignado) {
-                    if (nuevoEstado == EstadosTareas.Completado) {
-                        // El usuario asignado sigue siendo el mismo al completar
-                    } else if (nuevoEstado == EstadosTareas.NoAsignado) { // Permitir desasignar
-                        tareaAActualizar.setUsuarioAsignado("NADIE"); // Se libera al desasignar
-                    } else {
-                        throw new RuntimeException("Solo puedes marcar como completada o desasignar esta tarea.");
-                    }
-                } else if (estadoActual == EstadosTareas.Completado) {
-                    if (nuevoEstado == EstadosTareas.Repetir) {
-                        tareaAActualizar.setUsuarioAsignado("NADIE"); // Se libera al repetir
-                    } else {
-                        throw new RuntimeException("Solo puedes marcar como repetir esta tarea.");
-                    }
-                } else {
-                    throw new RuntimeException("Transición de estado no permitida para usuarios.");
-                }
-            }
-    
-            tareaAActualizar.setEstadoTarea(nuevoEstado);
-            return capituloRepository.save(capitulo);
+    public Tarea updateTareaEstado(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea, EstadosTareas nuevoEstado, String nombreUsuarioActual) {
+        return updateTareaEstado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, nuevoEstado, nombreUsuarioActual, null);
+    }
+
+    /**
+     * Actualiza el estado de una tarea solo si sigue en la versión que vio el cliente ('versionEsperada', o cualquiera si es null).
+     * Las reglas se comprueban sobre el estado leído; si otra transacción cambia la tarea antes del commit,
+     * el UPDATE versionado no encuentra la fila y se lanza una ConcurrencyFailureException (ver TransicionTareaService).
+     */
+    public Tarea updateTareaEstado(String nombreGrupo, String nombreSerie,  String nombreCapitulo, String nombreTarea, EstadosTareas nuevoEstado, String nombreUsuarioActual, Long versionEsperada) {
+        Tarea tareaAActualizar = tareaRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea)
+                .orElseThrow(() -> new RuntimeException("No se encontró la tarea: " + nombreTarea + " en el capítulo: " + nombreCapitulo));
+        comprobarVersion(tareaAActualizar, versionEsperada);
+        registroCambios.tareaCambiada(tareaAActualizar);
+
+        // Obtener el grupo asociado a la tarea
+        Capitulo capitulo = tareaAActualizar.getCapitulo();
+        Grupo grupo = capitulo.getSerie().getGrupo();
+        EstadosTareas estadoActual = tareaAActualizar.getEstadoTarea(); // Obtener estado actual
+
+        User usuarioActual = usuarioService.findByUsername(nombreUsuarioActual)
+                .orElseThrow(() -> new RuntimeException("Usuario actual no encontrado: " + nombreUsuarioActual));
+
+        // La 'CC' del capítulo y el rol de QC solo se piden si el usuario no es líder
+        Role rol = Role.ROLE_LIDER;
+        if (!usuarioService.esLiderEnGrupo(usuarioActual, grupo)) {
+            comprobarCcAbierta(tareaAActualizar, tareaAActualizar.getNombre().equals("CC") ? null
+                    : tareaRepository.findByCapituloAndNombre(capitulo, "CC").orElse(null));
+            rol = usuarioService.esQcEnGrupo(usuarioActual, grupo) ? Role.ROLE_QC : Role.ROLE_USER;
         }
-    
+        aplicarTransicion(tareaAActualizar, nuevoEstado, nombreUsuarioActual, rol);
+        contadoresProgreso.tareaCambiada(tareaAActualizar, estadoActual);
+        outboxEventos.publicar(new TareaEstadoCambiado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea,
+                estadoActual, nuevoEstado, tareaAActualizar.getUsuarioAsignado()));
+        return tareaRepository.save(tareaAActualizar);
+    }
+
+    private static void comprobarVersion(Tarea tarea, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(tarea.getVersion())) {
+            throw new VersionNoCoincideException("La tarea '" + tarea.getNombre() + "' ha cambiado: versión actual " + tarea.getVersion() + ", esperada " + versionEsperada + ".");
+        }
+    }
+
+    /**
+     * Sin rol de líder no se cambia ninguna tarea de un capítulo con la 'CC' completada. 'ccDelCapitulo' es la tarea
+     * 'CC' del capítulo (null si no tiene o si la tarea es la propia 'CC').
+     */
+    private static void comprobarCcAbierta(Tarea tarea, Tarea ccDelCapitulo) {
+        Tarea cc = tarea.getNombre().equals("CC") ? tarea : ccDelCapitulo;
+        if (cc != null && cc.getEstadoTarea() == EstadosTareas.Completado) {
+            throw new CcTaskCompletedException("No puedes cambiar el estado de las tareas en este capítulo porque la tarea 'CC' está completada.");
+        }
+    }
+
+    /**
+     * Reglas de cambio de estado (ver {@link TablaTransiciones}), comunes a los cambios sueltos y a los lotes de
+     * operaciones. Solo modifican la tarea si la transición está permitida: si lanzan excepción, la tarea queda como estaba.
+     */
+    private static void aplicarTransicion(Tarea tareaAActualizar, EstadosTareas nuevoEstado, String nombreUsuarioActual, Role rol) {
+        TablaTransiciones.Decision decision = TablaTransiciones.decidir(rol, tareaAActualizar.getEstadoTarea(), nuevoEstado);
+        String usuarioAsignado = tareaAActualizar.getUsuarioAsignado();
+        if (decision.soloLibreOPropia() && !usuarioAsignado.equals("NADIE") && !usuarioAsignado.equals(nombreUsuarioActual)) {
+            throw new RuntimeException("No puedes cambiar el estado de una tarea asignada a " + usuarioAsignado + ".");
+        }
+        if (!decision.permitida()) {
+            throw new RuntimeException(decision.rechazo());
+        }
+
+        switch (decision.asignacion()) {
+            case USUARIO_ACTUAL -> tareaAActualizar.setUsuarioAsignado(nombreUsuarioActual);
+            case NADIE -> tareaAActualizar.setUsuarioAsignado("NADIE");
+            case MANTENER -> { }
+        }
+        tareaAActualizar.setEstadoTarea(nuevoEstado);
+    }
+
     /**
      * Asigna un usuario a una tarea específica. Solo un LÍDER puede realizar esta acción.
      */
     public void asignarUsuarioATarea(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea, String nuevoUsuarioAsignadoUsername, String liderUsername) {
-        // 1. Encontrar el capítulo, la serie y el grupo
-        Capitulo capitulo = getCapituloByNombre(nombreGrupo, nombreSerie, nombreCapitulo)
-                .orElseThrow(() -> new RuntimeException("No se encontró el capítulo: " + nombreCapitulo));
+        // 1. Encontrar la tarea (con su capítulo), la serie y el grupo
+        Tarea tareaAActualizar = tareaRepository.findByNaturalKey(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea)
+                .orElseThrow(() -> new RuntimeException("No se encontró la tarea: " + nombreTarea + " en el capítulo: " + nombreCapitulo));
         
-        Serie serie = capitulo.getSerie(); 
+        Serie serie = tareaAActualizar.getCapitulo().getSerie(); 
         Grupo grupo = serie.getGrupo();
         
         // 2. Obtener el usuario líder que realiza la acción
         User lider = userRepository.findByUsername(liderUsername)
                 .orElseThrow(() -> new RuntimeException("Usuario líder no encontrado: " + liderUsername));
 
+        // 3-5. Autorización y usuario a asignar
+        User nuevoUsuario = comprobarAsignacion(grupo, usuarioService.esLiderEnGrupo(lider, grupo),
+                nuevoUsuarioAsignadoUsername, userRepository::findByUsername);
+
+        // 6. Actualizar el usuario asignado (UPDATE de una sola fila)
+        registroCambios.tareaCambiada(tareaAActualizar);
+        tareaAActualizar.setUsuarioAsignado(nuevoUsuario.getUsername());
+        tareaRepository.save(tareaAActualizar);
+        outboxEventos.publicar(new TareaAsignada(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, nuevoUsuario.getUsername()));
+    }
+
+    /**
+     * Reglas de asignación: solo un LÍDER del grupo asigna, y solo a usuarios existentes que pertenecen al grupo.
+     */
+    private User comprobarAsignacion(Grupo grupo, boolean esLider, String nuevoUsuarioAsignadoUsername,
+                                     Function<String, Optional<User>> buscarUsuario) {
         // 3. Autorización: Verificar que el usuario 'lider' es LÍDER en este grupo
-        if (!usuarioService.esLiderEnGrupo(lider, grupo)) {
+        if (!esLider) {
             throw new AssignmentForbiddenException("Solo un LÍDER del grupo '" + grupo.getNombre() + "' puede asignar usuarios a las tareas.");
         }
 
-        // 4. Encontrar la tarea
-        Tarea tareaAActualizar = capitulo.getTareas().stream()
-                .filter(tarea -> tarea.getNombre().equals(nombreTarea))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No se encontró la tarea: " + nombreTarea));
-
-        // 5. Verificar que el nuevo usuario asignado existe
-        User nuevoUsuario = userRepository.findByUsername(nuevoUsuarioAsignadoUsername)
+        // 4. Verificar que el nuevo usuario asignado existe
+        User nuevoUsuario = buscarUsuario.apply(nuevoUsuarioAsignadoUsername)
                 .orElseThrow(() -> new SerieNotFoundException("No se encontró el usuario a asignar: " + nuevoUsuarioAsignadoUsername));
 
-        // 6. Verificar que el nuevo usuario asignado pertenece al grupo de la tarea
+        // 5. Verificar que el nuevo usuario asignado pertenece al grupo de la tarea
         if (!usuarioService.perteneceAGrupo(nuevoUsuario, grupo)) {
             throw new RuntimeException("El usuario a asignar '" + nuevoUsuarioAsignadoUsername + "' no pertenece al grupo '" + grupo.getNombre() + "'.");
         }
+        return nuevoUsuario;
+    }
 
-        // 7. Actualizar el usuario asignado
-        tareaAActualizar.setUsuarioAsignado(nuevoUsuario.getUsername());
+    /**
+     * Aplica un lote de cambios de estado y asignaciones sobre tareas de una serie en una sola transacción, con las
+     * mismas reglas que {@link #updateTareaEstado} y {@link #asignarUsuarioATarea}.
+     * <p>
+     * La serie, el usuario y sus roles se resuelven una vez, y todas las tareas afectadas (con las 'CC' de sus
+     * capítulos) llegan en una consulta. Cada operación ve el resultado de las anteriores. Los contadores se
+     * actualizan una vez por capítulo con la suma de los cambios, los eventos se insertan en lote y las tareas se
+     * escriben en un único flush al terminar.
+     * <p>
+     * Una operación rechazada por las reglas no modifica nada. Con 'todoONada' la primera rechazada detiene el lote y
+     * la transacción se deshace entera (las anteriores quedan ANULADA y las siguientes NO_INTENTADA); sin él se
+     * aplican todas las demás.
+     */
+    public List<ResultadoOperacion> aplicarOperaciones(String nombreGrupo, String nombreSerie, String nombreUsuarioActual,
+                                                       List<OperacionTarea> operaciones, boolean todoONada) {
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre(nombreGrupo, nombreSerie)
+                .orElseThrow(() -> new SerieNotFoundException("Serie no encontrada con el nombre: " + nombreSerie + " en el grupo: " + nombreGrupo));
+        Grupo grupo = serie.getGrupo();
+        User usuarioActual = usuarioService.findByUsername(nombreUsuarioActual)
+                .orElseThrow(() -> new RuntimeException("Usuario actual no encontrado: " + nombreUsuarioActual));
+        boolean esLider = usuarioService.esLiderEnGrupo(usuarioActual, grupo);
+        Role rol = esLider ? Role.ROLE_LIDER
+                : usuarioService.esQcEnGrupo(usuarioActual, grupo) ? Role.ROLE_QC : Role.ROLE_USER;
+
+        // capítulo -> tarea -> Tarea, de todos los capítulos que aparecen en el lote
+        Set<String> nombresCapitulos = operaciones.stream().map(OperacionTarea::capitulo).collect(Collectors.toSet());
+        Map<String, Map<String, Tarea>> tareas = new HashMap<>();
+        for (Tarea tarea : tareaRepository.findDeCapitulos(serie, nombresCapitulos)) {
+            tareas.computeIfAbsent(tarea.getCapitulo().getNombre(), c -> new HashMap<>()).put(tarea.getNombre(), tarea);
+        }
+        Map<String, Optional<User>> usuarios = new HashMap<>();
+
+        List<ResultadoOperacion> resultados = new ArrayList<>();
+        // Tarea.equals solo compara el nombre: cada tarea se identifica por instancia
+        Map<Tarea, EstadosTareas> estadosAnteriores = new IdentityHashMap<>();
+        List<EventoDominio> eventos = new ArrayList<>();
+        for (OperacionTarea operacion : operaciones) {
+            Map<String, Tarea> delCapitulo = tareas.getOrDefault(operacion.capitulo(), Map.of());
+            try {
+                Tarea tarea = Optional.ofNullable(delCapitulo.get(operacion.tarea()))
+                        .orElseThrow(() -> new SerieNotFoundException("No se encontró la tarea: " + operacion.tarea() + " en el capítulo: " + operacion.capitulo()));
+                comprobarVersion(tarea, operacion.version());
+                if (operacion.tipo() == OperacionTarea.Tipo.ESTADO) {
+                    EstadosTareas estadoActual = tarea.getEstadoTarea();
+                    if (rol != Role.ROLE_LIDER) {
+                        comprobarCcAbierta(tarea, delCapitulo.get("CC"));
+                    }
+                    aplicarTransicion(tarea, operacion.nuevoEstado(), nombreUsuarioActual, rol);
+                    estadosAnteriores.putIfAbsent(tarea, estadoActual);
+                    eventos.add(new TareaEstadoCambiado(nombreGrupo, nombreSerie, operacion.capitulo(), operacion.tarea(),
+                            estadoActual, operacion.nuevoEstado(), tarea.getUsuarioAsignado()));
+                } else {
+                    User nuevoUsuario = comprobarAsignacion(grupo, esLider, operacion.asignado(),
+                            username -> usuarios.computeIfAbsent(username, userRepository::findByUsername));
+                    tarea.setUsuarioAsignado(nuevoUsuario.getUsername());
+                    eventos.add(new TareaAsignada(nombreGrupo, nombreSerie, operacion.capitulo(), operacion.tarea(), nuevoUsuario.getUsername()));
+                }
+                registroCambios.tareaCambiada(tarea);
+                resultados.add(ResultadoOperacion.aplicada(tarea));
+            } catch (DataAccessException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                resultados.add(ResultadoOperacion.rechazada(e.getMessage()));
+                if (todoONada) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return ResultadoOperacion.anular(resultados, operaciones.size());
+                }
+            }
+        }
 
-        // 8. Guardar el capítulo (las tareas se guardan en cascada)
-        capituloRepository.save(capitulo);
+        contadoresProgreso.tareasCambiadas(serie, estadosAnteriores);
+        outboxEventos.publicarTodos(eventos);
+        return resultados;
     }
 
     /**
@@ -0,0 +1,111 @@
+package cc.sars.service;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Role;
+
+/**
+ * Reglas de cambio de estado de las tareas, precalculadas para cada (rol, estado actual, estado nuevo) en una tabla
+ * indexada por ordinales: decidir una transición no consulta nada ni crea objetos.
+ * <p>
+ * El LÍDER puede cualquier transición. QC y USUARIO (y ADMIN, que en un grupo no tiene reglas propias) solo pueden
+ * cambiar tareas libres o suyas, salvo el QC al mandar repetir una tarea completada. El bloqueo por la 'CC' completada
+ * depende de otra tarea del capítulo y se comprueba antes, en SerieService.
+ */
+final class TablaTransiciones {
+
+    /** Qué pasa con el usuario asignado si la transición se permite. */
+    enum Asignacion {
+        MANTENER,
+        USUARIO_ACTUAL,
+        NADIE
+    }
+
+    /**
+     * Resultado de una celda: 'rechazo' es el mensaje si no se permite (null si se permite) y 'soloLibreOPropia'
+     * indica que antes se comprueba que la tarea esté asignada a NADIE o al propio usuario.
+     */
+    record Decision(boolean soloLibreOPropia, String rechazo, Asignacion asignacion) {
+
+        boolean permitida() {
+            return rechazo == null;
+        }
+    }
+
+    private static final EstadosTareas[] ESTADOS = EstadosTareas.values();
+    /** Índice de un estado null (tareas o peticiones sin estado), detrás de los del enum. */
+    private static final int SIN_ESTADO = ESTADOS.length;
+    private static final Decision[][][] TABLA = new Decision[Role.values().length][SIN_ESTADO + 1][SIN_ESTADO + 1];
+
+    static {
+        for (Role rol : Role.values()) {
+            for (int actual = 0; actual <= SIN_ESTADO; actual++) {
+                for (int nuevo = 0; nuevo <= SIN_ESTADO; nuevo++) {
+                    TABLA[rol.ordinal()][actual][nuevo] = calcular(rol, estado(actual), estado(nuevo));
+                }
+            }
+        }
+    }
+
+    private TablaTransiciones() {
+    }
+
+    static Decision decidir(Role rol, EstadosTareas actual, EstadosTareas nuevo) {
+        return TABLA[rol.ordinal()][indice(actual)][indice(nuevo)];
+    }
+
+    private static int indice(EstadosTareas estado) {
+        return estado == null ? SIN_ESTADO : estado.ordinal();
+    }
+
+    private static EstadosTareas estado(int indice) {
+        return indice == SIN_ESTADO ? null : ESTADOS[indice];
+    }
+
+    private static Decision permitir(boolean soloLibreOPropia, Asignacion asignacion) {
+        return new Decision(soloLibreOPropia, null, asignacion);
+    }
+
+    private static Decision rechazar(String motivo) {
+        return new Decision(true, motivo, Asignacion.MANTENER);
+    }
+
+    /** Las reglas en sí; solo se evalúan al construir la tabla. */
+    private static Decision calcular(Role rol, EstadosTareas actual, EstadosTareas nuevo) {
+        // LÍDER: cambia el estado como quiera
+        if (rol == Role.ROLE_LIDER) {
+            if (nuevo == EstadosTareas.Asignado || nuevo == EstadosTareas.Completado) {
+                // Al completarla, la tarea queda asignada al líder que la completó
+                return permitir(false, Asignacion.USUARIO_ACTUAL);
+            }
+            if (nuevo == EstadosTareas.NoAsignado || nuevo == EstadosTareas.Repetir) {
+                return permitir(false, Asignacion.NADIE);
+            }
+            return permitir(false, Asignacion.MANTENER);
+        }
+        // QC: puede marcar como "Repetir" una tarea "Completado" de otro
+        if (rol == Role.ROLE_QC && actual == EstadosTareas.Completado && nuevo == EstadosTareas.Repetir) {
+            return permitir(false, Asignacion.NADIE);
+        }
+        // USUARIO (y QC en el resto de casos)
+        if (actual == EstadosTareas.NoAsignado || actual == EstadosTareas.Repetir) {
+            // Se auto-asigna, también al completar directamente
+            return nuevo == EstadosTareas.Asignado || nuevo == EstadosTareas.Completado
+                    ? permitir(true, Asignacion.USUARIO_ACTUAL)
+                    : rechazar("Solo puedes asignarte esta tarea.");
+        }
+        if (actual == EstadosTareas.Asignado) {
+            if (nuevo == EstadosTareas.Completado) {
+                return permitir(true, Asignacion.MANTENER);
+            }
+            return nuevo == EstadosTareas.NoAsignado
+                    ? permitir(true, Asignacion.NADIE)
+                    : rechazar("Solo puedes marcar como completada o desasignar esta tarea.");
+        }
+        if (actual == EstadosTareas.Completado) {
+            return nuevo == EstadosTareas.Repetir
+                    ? permitir(true, Asignacion.NADIE)
+                    : rechazar("Solo puedes marcar como repetir esta tarea.");
+        }
+        return rechazar("Transición de estado no permitida para usuarios.");
+    }
+}
@@ -0,0 +1,265 @@
+package cc.sars.service;
+
+import cc.sars.evento.CapituloCreado;
+import cc.sars.evento.CapituloEliminado;
+import cc.sars.evento.EventoDominio;
+import cc.sars.evento.SerieEliminada;
+import cc.sars.evento.TareaAsignada;
+import cc.sars.evento.TareaCreada;
+import cc.sars.evento.TareaEliminada;
+import cc.sars.evento.TareaEstadoCambiado;
+import cc.sars.evento.TareasLiberadas;
+import cc.sars.model.EstadosTareas;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tablero en vivo de cada serie: reenvía por Server-Sent Events los cambios de tareas que llegan del outbox
+ * a todos los que tienen abierta la página de la serie, para que actualicen solo las tarjetas afectadas.
+ * <p>
+ * Las conexiones son {@link SseEmitter} asíncronos: mientras no hay nada que enviar no ocupan ningún hilo.
+ * Cada conexión tiene una cola acotada ('sars.tablero.cola') que vacían unos pocos hilos compartidos
+ * ('sars.tablero.hilos'); el oyente solo encola y nunca espera a un cliente. Si la cola de una conexión se
+ * llena, el cliente no está leyendo: se cierra la conexión (el navegador se reconecta y recarga el tablero).
+ * Cada 'sars.tablero.latido' se envía un comentario para que los proxies no cierren las conexiones ociosas.
+ * Publica 'tablero.conexiones', 'tablero.mensajes' y 'tablero.desalojos'.
+ */
+@Component
+public class TableroEnVivo {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableroEnVivo.class);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> LATIDO = SseEmitter.event().comment("").build();
+
+    /** Han aparecido o desaparecido capítulos o tareas: la página ofrece recargar, así que basta uno pendiente. */
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> ESTRUCTURA = SseEmitter.event().name("estructura").data("{}").build();
+
+    private record ClaveTablero(String grupo, String serie) {
+    }
+
+    /** Mensaje 'tarea': la página actualiza la tarjeta en su sitio. Sin estado si solo cambia el usuario. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record CambioTarea(String capitulo, String tarea, EstadosTareas estadoAnterior, EstadosTareas estado, String usuario) {
+    }
+
+    private final Map<ClaveTablero, Set<Conexion>> tableros = new ConcurrentHashMap<>();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private final ExecutorService emisores;
+    private final int tamanyoCola;
+    private final long timeout;
+    private final Counter mensajes;
+    private final Counter desalojos;
+
+    public TableroEnVivo(MeterRegistry meterRegistry,
+                         @Value("${sars.tablero.cola:256}") int tamanyoCola,
+                         @Value("${sars.tablero.hilos:2}") int hilos,
+                         @Value("${sars.tablero.timeout:30m}") Duration timeout) {
+        this.tamanyoCola = tamanyoCola;
+        this.timeout = timeout.toMillis();
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.emisores = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "tablero-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.mensajes = Counter.builder("tablero.mensajes").register(meterRegistry);
+        this.desalojos = Counter.builder("tablero.desalojos").register(meterRegistry);
+        Gauge.builder("tablero.conexiones", conexiones, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Abre una conexión al tablero de la serie. Quien llama ya ha comprobado que el usuario pertenece al grupo.
+     */
+    public SseEmitter suscribir(String nombreGrupo, String nombreSerie) {
+        return suscribir(nombreGrupo, nombreSerie, new SseEmitter(timeout));
+    }
+
+    SseEmitter suscribir(String nombreGrupo, String nombreSerie, SseEmitter emitter) {
+        ClaveTablero clave = new ClaveTablero(nombreGrupo, nombreSerie);
+        Conexion conexion = new Conexion(clave, emitter);
+        tableros.computeIfAbsent(clave, k -> ConcurrentHashMap.newKeySet()).add(conexion);
+        conexiones.incrementAndGet();
+        emitter.onCompletion(conexion::quitar);
+        emitter.onTimeout(conexion::quitar);
+        emitter.onError(error -> conexion.quitar());
+        return emitter;
+    }
+
+    /**
+     * Se ejecuta cuando el lote del outbox que contiene el evento se ha confirmado: si se deshace y se vuelve
+     * a entregar, los clientes no reciben el cambio dos veces.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiar(EventoDominio evento) {
+        if (evento instanceof TareaEstadoCambiado e) {
+            difundir(e.grupo(), e.serie(),
+                    new CambioTarea(e.capitulo(), e.tarea(), e.estadoAnterior(), e.estado(), e.usuario()));
+        } else if (evento instanceof TareaAsignada e) {
+            difundir(e.grupo(), e.serie(), new CambioTarea(e.capitulo(), e.tarea(), null, null, e.usuario()));
+        } else if (evento instanceof TareaCreada e) {
+            avisarEstructura(e.grupo(), e.serie());
+        } else if (evento instanceof TareaEliminada e) {
+            avisarEstructura(e.grupo(), e.serie());
+        } else if (evento instanceof CapituloCreado e) {
+            avisarEstructura(e.grupo(), e.serie());
+        } else if (evento instanceof CapituloEliminado e) {
+            avisarEstructura(e.grupo(), e.serie());
+        } else if (evento instanceof SerieEliminada e) {
+            avisarEstructura(e.grupo(), e.serie());
+        } else if (evento instanceof TareasLiberadas e) {
+            // Afecta a tareas de cualquier serie del grupo
+            tableros.keySet().stream()
+                    .filter(clave -> clave.grupo().equals(e.grupo()))
+                    .forEach(clave -> avisarEstructura(clave.grupo(), clave.serie()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sars.tablero.latido:20s}")
+    public void latir() {
+        tableros.values().forEach(conexionesTablero -> conexionesTablero.forEach(conexion -> conexion.encolar(LATIDO)));
+    }
+
+    int conexiones() {
+        return conexiones.get();
+    }
+
+    @PreDestroy
+    void cerrar() {
+        emisores.shutdownNow();
+        tableros.values().forEach(conexionesTablero -> conexionesTablero.forEach(conexion -> conexion.emitter.complete()));
+    }
+
+    /**
+     * Un alta de cien capítulos no llena la cola de nadie: mientras haya un aviso sin enviar no se encola otro.
+     */
+    private void avisarEstructura(String nombreGrupo, String nombreSerie) {
+        Set<Conexion> conexionesTablero = tableros.get(new ClaveTablero(nombreGrupo, nombreSerie));
+        if (conexionesTablero != null) {
+            conexionesTablero.forEach(conexion -> {
+                if (conexion.avisoPendiente.compareAndSet(false, true)) {
+                    conexion.encolar(ESTRUCTURA);
+                }
+            });
+        }
+    }
+
+    private void difundir(String nombreGrupo, String nombreSerie, CambioTarea cambio) {
+        Set<Conexion> conexionesTablero = tableros.get(new ClaveTablero(nombreGrupo, nombreSerie));
+        if (conexionesTablero == null || conexionesTablero.isEmpty()) {
+            return;
+        }
+        // Se serializa una vez para todas las conexiones
+        Set<ResponseBodyEmitter.DataWithMediaType> mensaje;
+        try {
+            mensaje = SseEmitter.event().name("tarea")
+                    .data(JSON.writeValueAsString(cambio), MediaType.APPLICATION_JSON).build();
+        } catch (JsonProcessingException e) {
+            logger.error("No se pudo serializar el cambio {} de la serie '{}': {}", cambio, nombreSerie, e.getMessage(), e);
+            return;
+        }
+        conexionesTablero.forEach(conexion -> conexion.encolar(mensaje));
+    }
+
+    private final class Conexion {
+
+        private final ClaveTablero clave;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> cola;
+        /** Hay un hilo vaciando la cola (o a punto de hacerlo): como mucho uno por conexión. */
+        private final AtomicBoolean programada = new AtomicBoolean();
+        private final AtomicBoolean quitada = new AtomicBoolean();
+        private final AtomicBoolean avisoPendiente = new AtomicBoolean();
+
+        Conexion(ClaveTablero clave, SseEmitter emitter) {
+            this.clave = clave;
+            this.emitter = emitter;
+            this.cola = new ArrayBlockingQueue<>(tamanyoCola);
+        }
+
+        void encolar(Set<ResponseBodyEmitter.DataWithMediaType> mensaje) {
+            if (!cola.offer(mensaje)) {
+                desalojos.increment();
+                logger.debug("Cliente lento en el tablero {}: se cierra la conexión", clave);
+                quitar();
+                emitter.complete();
+                return;
+            }
+            programar();
+        }
+
+        private void programar() {
+            if (programada.compareAndSet(false, true)) {
+                try {
+                    emisores.execute(this::vaciar);
+                } catch (RuntimeException e) {
+                    // Apagando la aplicación
+                    programada.set(false);
+                }
+            }
+        }
+
+        private void vaciar() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> mensaje;
+                while (!quitada.get() && (mensaje = cola.poll()) != null) {
+                    if (mensaje == ESTRUCTURA) {
+                        avisoPendiente.set(false);
+                    }
+                    emitter.send(mensaje);
+                    if (mensaje != LATIDO) {
+                        mensajes.increment();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Conexión cerrada por el cliente o ya completada
+                quitar();
+                emitter.completeWithError(e);
+            } finally {
+                programada.set(false);
+            }
+            // Lo encolado justo después del último poll no debe quedarse esperando al siguiente mensaje
+            if (!cola.isEmpty() && !quitada.get()) {
+                programar();
+            }
+        }
+
+        void quitar() {
+            if (quitada.compareAndSet(false, true)) {
+                cola.clear();
+                conexiones.decrementAndGet();
+                tableros.computeIfPresent(clave, (k, conexionesTablero) -> {
+                    conexionesTablero.remove(this);
+                    return conexionesTablero.isEmpty() ? null : conexionesTablero;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cc.sars.service;
+
+import cc.sars.exception.ConflictoConcurrenteException;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Tarea;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Cambios de estado de tareas con reintentos acotados ante escrituras concurrentes.
+ * Cada intento es una transacción completa de {@link SerieService#updateTareaEstado}: vuelve a leer la tarea
+ * y a aplicar las reglas, así que si otro usuario la ha reclamado antes, el reintento falla con el error de negocio
+ * en lugar de sobrescribirla. No es transaccional a propósito: reintentar dentro de una transacción fallida no sirve.
+ */
+@Service
+public class TransicionTareaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransicionTareaService.class);
+
+    /** Intentos totales antes de rendirse con un 409. */
+    static final int MAX_INTENTOS = 5;
+
+    /** Espera máxima (ms) antes del primer reintento; crece linealmente con cada intento. */
+    private static final int ESPERA_BASE_MS = 5;
+
+    private final SerieService serieService;
+
+    public TransicionTareaService(SerieService serieService) {
+        this.serieService = serieService;
+    }
+
+    public Tarea cambiarEstado(String nombreGrupo, String nombreSerie, String nombreCapitulo, String nombreTarea,
+                               EstadosTareas nuevoEstado, String nombreUsuarioActual, Long versionEsperada) {
+        return conReintentos("la tarea '" + nombreTarea + "'",
+                "La tarea '" + nombreTarea + "' está siendo modificada por otros usuarios. Inténtalo de nuevo.", () ->
+                serieService.updateTareaEstado(nombreGrupo, nombreSerie, nombreCapitulo, nombreTarea, nuevoEstado, nombreUsuarioActual, versionEsperada));
+    }
+
+    /**
+     * Lote de operaciones de {@link SerieService#aplicarOperaciones}. Un conflicto al escribir cualquiera de sus
+     * tareas deshace el lote entero, que se reintenta desde el principio con las tareas releídas.
+     */
+    public List<ResultadoOperacion> aplicarOperaciones(String nombreGrupo, String nombreSerie, String nombreUsuarioActual,
+                                                       List<OperacionTarea> operaciones, boolean todoONada) {
+        return conReintentos("el lote de la serie '" + nombreSerie + "'",
+                "Las tareas de la serie '" + nombreSerie + "' están siendo modificadas por otros usuarios. Inténtalo de nuevo.", () ->
+                serieService.aplicarOperaciones(nombreGrupo, nombreSerie, nombreUsuarioActual, operaciones, todoONada));
+    }
+
+    private <T> T conReintentos(String objeto, String mensajeConflicto, Supplier<T> intento) {
+        for (int numero = 1; ; numero++) {
+            try {
+                return intento.get();
+            } catch (ConcurrencyFailureException e) {
+                if (numero >= MAX_INTENTOS) {
+                    throw new ConflictoConcurrenteException(mensajeConflicto);
+                }
+                logger.debug("Conflicto de concurrencia en {} (intento {}), reintentando.", objeto, numero);
+                esperar(numero);
+            }
+        }
+    }
+
+    /**
+     * Espera aleatoria para que los reintentos de varios usuarios no vuelvan a coincidir.
+     */
+    private void esperar(int intento) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, ESPERA_BASE_MS * intento + 1L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictoConcurrenteException("Interrumpido mientras se reintentaba el cambio de estado.");
+        }
+    }
+}
@@ -8,15 +8,20 @@ import cc.sars.repository.UserRepository;
 import cc.sars.exception.ResourceAlreadyExistsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import cc.sars.repository.UsuarioGrupoRepository;
 import cc.sars.model.UsuarioGrupo;
 import cc.sars.model.UsuarioGrupoId;
 import java.util.HashSet; // Importar HashSet
 import org.springframework.context.annotation.Lazy;
+import cc.sars.evento.GrupoCreado;
+import cc.sars.evento.MiembroAnyadido;
+import cc.sars.evento.MiembroRolCambiado;
 
 @Service
 @Transactional
@@ -28,14 +33,20 @@ public class UsuarioService {
     private final GrupoService grupoService;
     private final @Lazy SerieService serieService;
     private final UsuarioGrupoRepository usuarioGrupoRepository;
+    private final MembresiasCache membresiasCache;
+    private final UsuariosCache usuariosCache;
+    private final OutboxEventos outboxEventos;
 
-    public UsuarioService(UserRepository userRepository, GrupoRepository grupoRepository, PasswordEncoder passwordEncoder, GrupoService grupoService, SerieService serieService, UsuarioGrupoRepository usuarioGrupoRepository) {
+    public UsuarioService(UserRepository userRepository, GrupoRepository grupoRepository, PasswordEncoder passwordEncoder, GrupoService grupoService, SerieService serieService, UsuarioGrupoRepository usuarioGrupoRepository, MembresiasCache membresiasCache, UsuariosCache usuariosCache, OutboxEventos outboxEventos) {
         this.userRepository = userRepository;
         this.grupoRepository = grupoRepository;
         this.passwordEncoder = passwordEncoder;
         this.grupoService = grupoService;
         this.serieService = serieService;
         this.usuarioGrupoRepository = usuarioGrupoRepository;
+        this.membresiasCache = membresiasCache;
+        this.usuariosCache = usuariosCache;
+        this.outboxEventos = outboxEventos;
     }
 
     /**
@@ -70,6 +81,9 @@ public class UsuarioService {
             usuarioGrupo.setGrupo(nuevoGrupo);
             usuarioGrupo.setRol(Role.ROLE_LIDER);
             usuarioGrupoRepository.save(usuarioGrupo);
+            membresiasCache.invalidarUsuario(nombreUsuario);
+            outboxEventos.publicar(new GrupoCreado(nombreGrupo));
+            outboxEventos.publicar(new MiembroAnyadido(nombreGrupo, nombreUsuario, Role.ROLE_LIDER));
         } else {
             nuevoUsuario = new User(
                     nombreUsuario,
@@ -89,6 +103,21 @@ public class UsuarioService {
         return userRepository.findAll();
     }
 
+    /**
+     * Página de usuarios ordenados por nombre, a partir del cursor indicado, con sus membresías.
+     * Primero se pagina sobre los nombres y después se cargan solo esos usuarios con su plan de carga.
+     */
+    @Transactional(readOnly = true)
+    public Pagina<User> getUsuariosPagina(String cursor, Integer limite) {
+        int tamanyo = Pagina.limite(limite);
+        List<String> nombres = userRepository.findUsernamesDespuesDe(Pagina.claveTexto(cursor), Pagina.consulta(tamanyo));
+        Pagina<String> pagina = Pagina.de(nombres, tamanyo, nombre -> nombre);
+        List<User> usuarios = pagina.elementos().isEmpty()
+                ? List.of()
+                : userRepository.findByUsernameInOrderByUsernameAsc(pagina.elementos());
+        return new Pagina<>(usuarios, pagina.siguienteCursor());
+    }
+
     /**
      * Busca un usuario por su nombre de usuario.
      */
@@ -123,6 +152,9 @@ public class UsuarioService {
 
         usuarioGrupo.setRol(newRole);
         usuarioGrupoRepository.save(usuarioGrupo);
+        membresiasCache.invalidarUsuario(username);
+        usuariosCache.removeUserFromCache(username);
+        outboxEventos.publicar(new MiembroRolCambiado(groupName, username, newRole));
     }
 
     public User createAdminUser(String nombreUsuario, String contrasenya) {
@@ -166,6 +198,8 @@ public class UsuarioService {
         serieService.desasignarUsuarioDeTareas(username);
 
         userRepository.deleteById(username);
+        membresiasCache.invalidarUsuario(username);
+        usuariosCache.removeUserFromCache(username);
     }
 
     /**
@@ -192,6 +226,8 @@ public class UsuarioService {
             usuarioGrupo.setGrupo(grupo);
             usuarioGrupo.setRol(Role.ROLE_LIDER);
             usuarioGrupoRepository.save(usuarioGrupo);
+            membresiasCache.invalidarUsuario(username);
+            outboxEventos.publicar(new MiembroAnyadido(nombreGrupo, username, Role.ROLE_LIDER));
         }
         
         return nuevoUsuario;
@@ -200,38 +236,65 @@ public class UsuarioService {
     /**
      * Verifica si un usuario es LÍDER en un grupo específico.
      */
-    @Transactional(readOnly = true)
     public boolean esLiderEnGrupo(User user, Grupo grupo) {
-        if (user == null || grupo == null) {
-            return false;
-        }
-        return user.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(grupo.getNombre()) && ug.getRol() == Role.ROLE_LIDER);
+        return user != null && grupo != null && esLiderEnGrupo(user.getUsername(), grupo.getNombre());
     }
 
     /**
      * Verifica si un usuario pertenece a un grupo específico.
      */
-    @Transactional(readOnly = true)
     public boolean perteneceAGrupo(User user, Grupo grupo) {
-        if (user == null || grupo == null) {
-            return false;
-        }
-        return user.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(grupo.getNombre()));
+        return user != null && grupo != null && perteneceAGrupo(user.getUsername(), grupo.getNombre());
     }
 
     /**
      * Verifica si un usuario tiene el rol QC en un grupo específico.
      */
-    @Transactional(readOnly = true)
     public boolean esQcEnGrupo(User user, Grupo grupo) {
-        if (user == null || grupo == null) {
-            return false;
-        }
-        final String nombreGrupoTarget = grupo.getNombre();
-        return user.getUsuarioGrupos().stream()
-                .anyMatch(ug -> ug.getGrupo().getNombre().equals(nombreGrupoTarget) && ug.getRol() == Role.ROLE_QC);
+        return user != null && grupo != null && esQcEnGrupo(user.getUsername(), grupo.getNombre());
+    }
+
+    // Las comprobaciones por nombre se resuelven con MembresiasCache; SUPPORTS evita abrir
+    // una transacción (y pedir una conexión) cuando la respuesta ya está en caché.
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean esLiderEnGrupo(String username, String nombreGrupo) {
+        return membresiasCache.tieneRol(username, nombreGrupo, Role.ROLE_LIDER);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean perteneceAGrupo(String username, String nombreGrupo) {
+        return membresiasCache.pertenece(username, nombreGrupo);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean esQcEnGrupo(String username, String nombreGrupo) {
+        return membresiasCache.tieneRol(username, nombreGrupo, Role.ROLE_QC);
+    }
+
+    /**
+     * Rol del usuario en el grupo, si pertenece a él.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<Role> getRolEnGrupo(String username, String nombreGrupo) {
+        int roles = membresiasCache.roles(username, nombreGrupo);
+        return roles == 0 ? Optional.empty() : Optional.of(Role.values()[Integer.numberOfTrailingZeros(roles)]);
+    }
+
+    /**
+     * Nombres (ordenados) de los grupos a los que pertenece el usuario.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Set<String> getNombresDeGrupos(String username) {
+        return membresiasCache.grupos(username);
+    }
+
+    /**
+     * Devuelve los nombres de los grupos con un único LIDER (una sola consulta para todos los grupos).
+     */
+    @Transactional(readOnly = true)
+    public Set<String> getGruposConLiderUnico() {
+        return usuarioGrupoRepository.findGruposConLiderUnico();
     }
 
     /**
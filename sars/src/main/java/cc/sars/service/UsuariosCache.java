@@ -0,0 +1,171 @@
+package cc.sars.service;
+
+import cc.sars.model.Role;
+import cc.sars.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché de usuarios para el login ({@link UserCache} del DaoAuthenticationProvider): evita leer 'sec_user'
+ * en cada autenticación. Acotada por tamaño (LRU) y por tiempo de vida.
+ * <p>
+ * Guarda solo usuario, hash de la contraseña y rol; cada acierto devuelve un {@link User} nuevo, así que el
+ * principal de una sesión nunca se comparte con otra ni arrastra membresías de otra carga.
+ * Las bajas, los cambios de rol y el reinicio de la base de datos la invalidan al momento y otra vez al terminar
+ * la transacción. Como en {@link MembresiasCache}, cada invalidación cambia una generación: el proveedor consulta
+ * la caché, lee 'sec_user' y guarda lo leído en el mismo hilo, y solo se guarda si ninguna invalidación ha pasado
+ * desde la consulta, así que un login que leyó el usuario antes de su baja no lo vuelve a dejar en caché.
+ * Publica 'cache.gets' (result=hit|miss), 'cache.evictions' y 'cache.size' con cache=usuarios.
+ * El mapa va protegido con un ReentrantLock, como en {@link MembresiasCache}.
+ */
+@Component
+public class UsuariosCache implements UserCache {
+
+    private static final String NOMBRE = "usuarios";
+
+    private record Entrada(String password, Role role, long caducaEn) {
+    }
+
+    /** Generación al consultar la caché por un usuario, pendiente de su putUserInCache en el mismo hilo. */
+    private record Consulta(String username, long generacion) {
+    }
+
+    private final LinkedHashMap<String, Entrada> entradas;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final long ttlNanos;
+    private final LongSupplier reloj;
+
+    /** Cambia con cada invalidación; una carga solo se guarda si no ha cambiado desde que se consultó la caché. */
+    private final AtomicLong generacion = new AtomicLong();
+    private final ThreadLocal<Consulta> consultas = new ThreadLocal<>();
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter desalojos;
+
+    @Autowired
+    public UsuariosCache(MeterRegistry meterRegistry,
+                         @Value("${sars.cache.usuarios.max-usuarios:1000}") int maxUsuarios,
+                         @Value("${sars.cache.usuarios.ttl:5m}") Duration ttl) {
+        this(meterRegistry, maxUsuarios, ttl, System::nanoTime);
+    }
+
+    UsuariosCache(MeterRegistry meterRegistry, int maxUsuarios, Duration ttl, LongSupplier reloj) {
+        this.ttlNanos = ttl.toNanos();
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                if (size() > maxUsuarios) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.aciertos = Counter.builder("cache.gets").tag("cache", NOMBRE).tag("result", "hit").register(meterRegistry);
+        this.fallos = Counter.builder("cache.gets").tag("cache", NOMBRE).tag("result", "miss").register(meterRegistry);
+        this.desalojos = Counter.builder("cache.evictions").tag("cache", NOMBRE).register(meterRegistry);
+        Gauge.builder("cache.size", this, UsuariosCache::tamanyo).tag("cache", NOMBRE).register(meterRegistry);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Entrada entrada;
+        cerrojo.lock();
+        try {
+            // También en un acierto: si la contraseña no coincide, el proveedor recarga el usuario y lo vuelve a guardar
+            consultas.set(new Consulta(username, generacion.get()));
+            entrada = entradas.get(username);
+            if (entrada != null && reloj.getAsLong() - entrada.caducaEn() >= 0) {
+                entradas.remove(username);
+                desalojos.increment();
+                entrada = null;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        if (entrada == null) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        return new User(username, entrada.password(), entrada.role());
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        // Solo se cachean usuarios de la aplicación; cualquier otro se vuelve a cargar siempre
+        Consulta consulta = consultas.get();
+        consultas.remove();
+        if (user instanceof User usuario && consulta != null && consulta.username().equals(usuario.getUsername())) {
+            Entrada entrada = new Entrada(usuario.getPassword(), usuario.getRole(), reloj.getAsLong() + ttlNanos);
+            conCerrojo(() -> {
+                if (generacion.get() == consulta.generacion()) {
+                    entradas.put(usuario.getUsername(), entrada);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        invalidar(() -> entradas.remove(username));
+    }
+
+    public void invalidarTodo() {
+        invalidar(entradas::clear);
+    }
+
+    private void invalidar(Runnable accion) {
+        invalidarAhora(accion);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidarAhora(accion);
+                }
+            });
+        }
+    }
+
+    private void invalidarAhora(Runnable accion) {
+        conCerrojo(() -> {
+            generacion.incrementAndGet();
+            accion.run();
+        });
+    }
+
+    private int tamanyo() {
+        cerrojo.lock();
+        try {
+            return entradas.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private void conCerrojo(Runnable accion) {
+        cerrojo.lock();
+        try {
+            accion.run();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+}
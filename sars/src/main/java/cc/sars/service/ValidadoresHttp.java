@@ -0,0 +1,202 @@
+package cc.sars.service;
+
+import cc.sars.evento.CapituloCreado;
+import cc.sars.evento.CapituloEliminado;
+import cc.sars.evento.EventoDominio;
+import cc.sars.evento.GrupoCreado;
+import cc.sars.evento.GrupoEliminado;
+import cc.sars.evento.MiembroAnyadido;
+import cc.sars.evento.MiembroEliminado;
+import cc.sars.evento.MiembroRolCambiado;
+import cc.sars.evento.SerieCreada;
+import cc.sars.evento.SerieEliminada;
+import cc.sars.evento.TareaAsignada;
+import cc.sars.evento.TareaCreada;
+import cc.sars.evento.TareaEliminada;
+import cc.sars.evento.TareaEstadoCambiado;
+import cc.sars.evento.TareasLiberadas;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ETags de los GET de la API, sin consultar la base de datos: un número por grupo y por serie que avanza con cada
+ * escritura, en vez de un hash de la respuesta. Con 'If-None-Match' vigente los controladores responden 304 sin
+ * cargar nada.
+ * <p>
+ * La etiqueta de una serie cubre su tablero (capítulos y tareas); la de un grupo, sus miembros y la lista de sus
+ * series con su progreso, así que cambia también con cada cambio de cualquiera de sus series.
+ * Los números avanzan al terminar la transacción del cambio: quien lee la etiqueta nueva ya lee los datos
+ * confirmados, y quien lee la antigua junto con datos nuevos solo provoca un 200 de más en la siguiente petición.
+ * Con réplica de lectura eso solo vale leyendo de la primaria: la réplica puede ir por detrás de la etiqueta, y el
+ * cliente guardaría datos antiguos bajo la nueva y recibiría 304 con ellos hasta el siguiente cambio. Por eso cada
+ * etiqueta pedida marca la petición (ver {@link #peticionConValidador()}) y EnrutadorReplica manda sus lecturas a
+ * la primaria.
+ * Lo que nadie ha cambiado desde el arranque tiene la etiqueta base; el prefijo aleatorio de cada arranque hace
+ * que ninguna etiqueta emitida antes de reiniciar siga valiendo.
+ */
+@Component
+public class ValidadoresHttp {
+
+    /** Números de un grupo: el del propio grupo, el de sus series y el suelo de todas ellas (al borrarlo o liberar tareas). */
+    private static final class VersionesGrupo {
+        private final AtomicLong grupo = new AtomicLong();
+        private final AtomicLong todasLasSeries = new AtomicLong();
+        private final Map<String, Long> series = new ConcurrentHashMap<>();
+
+        /** Dos transacciones pueden terminar en otro orden que el de sus números: nunca se retrocede. */
+        void avanzarGrupo(long version) {
+            grupo.accumulateAndGet(version, Math::max);
+        }
+
+        void avanzarTodas(long version) {
+            todasLasSeries.accumulateAndGet(version, Math::max);
+            avanzarGrupo(version);
+        }
+    }
+
+    /** Atributo de la petición en curso que marca que su respuesta lleva una etiqueta. */
+    private static final String ATRIBUTO_CON_VALIDADOR = ValidadoresHttp.class.getName() + ".conValidador";
+
+    private final String arranque = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong reloj = new AtomicLong();
+    private final Map<String, VersionesGrupo> grupos = new ConcurrentHashMap<>();
+    private final AtomicLong base = new AtomicLong();
+    private final AtomicLong listaGrupos = new AtomicLong();
+
+    /**
+     * ETag de la lista de grupos.
+     */
+    public String grupos() {
+        marcarPeticion();
+        return etiqueta(Math.max(listaGrupos.get(), base.get()));
+    }
+
+    /**
+     * ETag de un grupo: miembros y series.
+     */
+    public String grupo(String nombreGrupo) {
+        marcarPeticion();
+        VersionesGrupo versiones = grupos.get(nombreGrupo);
+        long base = this.base.get();
+        return etiqueta(versiones == null ? base : Math.max(versiones.grupo.get(), base));
+    }
+
+    /**
+     * ETag del tablero de una serie.
+     */
+    public String serie(String nombreGrupo, String nombreSerie) {
+        marcarPeticion();
+        VersionesGrupo versiones = grupos.get(nombreGrupo);
+        long base = this.base.get();
+        if (versiones == null) {
+            return etiqueta(base);
+        }
+        long serie = versiones.series.getOrDefault(nombreSerie, 0L);
+        return etiqueta(Math.max(Math.max(serie, versiones.todasLasSeries.get()), base));
+    }
+
+    /**
+     * Si la petición HTTP en curso ha pedido alguna etiqueta: sus datos deben ser al menos tan recientes como ella.
+     */
+    public boolean peticionConValidador() {
+        RequestAttributes peticion = RequestContextHolder.getRequestAttributes();
+        return peticion != null && peticion.getAttribute(ATRIBUTO_CON_VALIDADOR, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    private static void marcarPeticion() {
+        RequestAttributes peticion = RequestContextHolder.getRequestAttributes();
+        if (peticion != null) {
+            peticion.setAttribute(ATRIBUTO_CON_VALIDADOR, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Lo llama OutboxEventos con cada evento publicado: todas las escrituras de grupos, series, capítulos y tareas
+     * publican el suyo.
+     */
+    public void alPublicar(EventoDominio evento) {
+        if (evento instanceof SerieCreada e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof SerieEliminada e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof CapituloCreado e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof CapituloEliminado e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof TareaCreada e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof TareaEliminada e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof TareaEstadoCambiado e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof TareaAsignada e) {
+            serieCambiada(e.grupo(), e.serie());
+        } else if (evento instanceof MiembroAnyadido || evento instanceof MiembroEliminado || evento instanceof MiembroRolCambiado) {
+            alTerminar(() -> versiones(evento.grupo()).avanzarGrupo(reloj.incrementAndGet()));
+        } else if (evento instanceof TareasLiberadas) {
+            // Puede tocar cualquier serie del grupo
+            alTerminar(() -> versiones(evento.grupo()).avanzarTodas(reloj.incrementAndGet()));
+        } else if (evento instanceof GrupoCreado || evento instanceof GrupoEliminado) {
+            alTerminar(() -> {
+                long version = reloj.incrementAndGet();
+                VersionesGrupo versiones = versiones(evento.grupo());
+                versiones.avanzarTodas(version);
+                // Las series del grupo anterior quedan cubiertas por el suelo nuevo
+                versiones.series.values().removeIf(serie -> serie <= version);
+                listaGrupos.accumulateAndGet(version, Math::max);
+            });
+        }
+    }
+
+    /**
+     * Cambios que no publican evento (p. ej. la descripción de la serie).
+     */
+    public void serieCambiada(String nombreGrupo, String nombreSerie) {
+        alTerminar(() -> {
+            VersionesGrupo versiones = versiones(nombreGrupo);
+            long version = reloj.incrementAndGet();
+            versiones.series.merge(nombreSerie, version, Math::max);
+            versiones.avanzarGrupo(version);
+        });
+    }
+
+    /**
+     * Tras escribir por JDBC sin eventos (reinicio de la base de datos, restauración de copias).
+     */
+    public void todoCambiado() {
+        alTerminar(() -> {
+            long version = reloj.incrementAndGet();
+            base.accumulateAndGet(version, Math::max);
+            grupos.clear();
+        });
+    }
+
+    private VersionesGrupo versiones(String nombreGrupo) {
+        return grupos.computeIfAbsent(nombreGrupo, nombre -> new VersionesGrupo());
+    }
+
+    private String etiqueta(long version) {
+        return "\"" + arranque + "." + Long.toString(version, 36) + "\"";
+    }
+
+    private static void alTerminar(Runnable avance) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    avance.run();
+                }
+            });
+        } else {
+            avance.run();
+        }
+    }
+}
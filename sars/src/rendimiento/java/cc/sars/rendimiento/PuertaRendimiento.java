@@ -0,0 +1,203 @@
+package cc.sars.rendimiento;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Puerta de regresiones de rendimiento (mvn -Prendimiento verify): compara las medidas de la ejecución, los
+ * microbenchmarks JMH (JSON), la prueba de carga (resultados.csv) y la JVM (jvm.csv), con la línea base del
+ * repositorio y termina con error si alguna empeora más que su tolerancia relativa.
+ * <p>
+ * La línea base es un CSV 'tipo,nombre,valor'; solo se comprueban las medidas que aparecen en ella (se pueden borrar
+ * líneas ruidosas) y falla si una de ellas ya no se mide. Con 'sars.rendimiento.actualizar=true' se reescribe con las
+ * medidas actuales en lugar de comparar: las cifras dependen de la máquina, así que hay que generarla en la misma en la
+ * que se va a comprobar.
+ */
+public final class PuertaRendimiento {
+
+    /** Peticiones mínimas de un endpoint de la prueba de carga para medirlo: con menos, su p99 es casi el máximo. */
+    private static final long MINIMO_PETICIONES = 200;
+
+    /** Qué se mide, si es mejor que suba o que baje y cuánto cambio absoluto se ignora aunque supere la tolerancia. */
+    enum Tipo {
+        RENDIMIENTO(true, 0, "ops/s"),
+        P99(false, 1, "ms"),
+        ASIGNACION(false, 16, "B/op"),
+        ARRANQUE(false, 0, "ms"),
+        HEAP(false, 0, "MB");
+
+        final boolean mayorEsMejor;
+        final double holgura;
+        final String unidad;
+
+        Tipo(boolean mayorEsMejor, double holgura, String unidad) {
+            this.mayorEsMejor = mayorEsMejor;
+            this.holgura = holgura;
+            this.unidad = unidad;
+        }
+
+        String clave() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    record Medida(Tipo tipo, String nombre) implements Comparable<Medida> {
+
+        @Override
+        public int compareTo(Medida otra) {
+            int porTipo = tipo.compareTo(otra.tipo);
+            return porTipo != 0 ? porTipo : nombre.compareTo(otra.nombre);
+        }
+    }
+
+    private PuertaRendimiento() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path lineaBase = Path.of(System.getProperty("sars.rendimiento.linea-base", "src/rendimiento/linea-base.csv"));
+        Path jmh = Path.of(System.getProperty("sars.rendimiento.jmh", "target/jmh-rendimiento.json"));
+        Path carga = Path.of(System.getProperty("sars.rendimiento.carga", "target/rendimiento"));
+
+        Map<Medida, Double> actuales = new TreeMap<>();
+        leerJmh(jmh, actuales);
+        leerCarga(carga, actuales);
+
+        if (Boolean.getBoolean("sars.rendimiento.actualizar")) {
+            escribirLineaBase(lineaBase, actuales);
+            System.out.println("Línea base reescrita con " + actuales.size() + " medidas en " + lineaBase.toAbsolutePath());
+            return;
+        }
+
+        if (!Files.exists(lineaBase)) {
+            System.out.println("No hay línea base en " + lineaBase.toAbsolutePath() + ": genérala con -Drendimiento.actualizar=true");
+            System.exit(1);
+        }
+        Map<Tipo, Double> tolerancias = new TreeMap<>();
+        for (Tipo tipo : Tipo.values()) {
+            tolerancias.put(tipo, Double.parseDouble(System.getProperty("sars.rendimiento.tolerancia." + tipo.clave())));
+        }
+        List<String> informe = new ArrayList<>();
+        informe.add("Tolerancias: " + tolerancias.entrySet().stream()
+                .map(t -> t.getKey().clave() + " " + Math.round(t.getValue() * 100) + " %")
+                .collect(Collectors.joining(", ")));
+        informe.add(String.format("%-11s %-58s %12s %12s %8s  %s", "tipo", "medida", "base", "actual", "cambio", ""));
+        int regresiones = 0;
+        Map<Medida, Double> base = leerLineaBase(lineaBase);
+        for (Map.Entry<Medida, Double> entrada : base.entrySet()) {
+            Medida medida = entrada.getKey();
+            double valorBase = entrada.getValue();
+            Double actual = actuales.get(medida);
+            if (actual == null) {
+                regresiones++;
+                informe.add(String.format(Locale.ROOT, "%-11s %-58s %12.1f %12s %8s  REGRESIÓN (ya no se mide)",
+                        medida.tipo().clave(), medida.nombre() + " (" + medida.tipo().unidad + ")", valorBase, "-", "-"));
+                continue;
+            }
+            boolean regresion = empeora(medida.tipo(), valorBase, actual, tolerancias.get(medida.tipo()));
+            if (regresion) {
+                regresiones++;
+            }
+            informe.add(String.format(Locale.ROOT, "%-11s %-58s %12.1f %12.1f %+7.1f%%  %s",
+                    medida.tipo().clave(), medida.nombre() + " (" + medida.tipo().unidad + ")", valorBase, actual,
+                    valorBase == 0 ? 0 : (actual - valorBase) * 100 / valorBase, regresion ? "REGRESIÓN" : ""));
+        }
+        actuales.keySet().stream().filter(medida -> !base.containsKey(medida)).forEach(medida ->
+                informe.add(String.format(Locale.ROOT, "%-11s %-58s %12s %12.1f %8s  sin línea base",
+                        medida.tipo().clave(), medida.nombre() + " (" + medida.tipo().unidad + ")", "-", actuales.get(medida), "-")));
+        informe.add(regresiones == 0
+                ? "Sin regresiones frente a " + lineaBase
+                : regresiones + " regresiones frente a " + lineaBase);
+
+        Files.createDirectories(carga);
+        Files.write(carga.resolve("comparacion.txt"), informe);
+        informe.forEach(System.out::println);
+        if (regresiones > 0) {
+            System.exit(1);
+        }
+    }
+
+    /** Empeora si se aleja de la base en la mala dirección más que la tolerancia relativa y que la holgura absoluta. */
+    static boolean empeora(Tipo tipo, double base, double actual, double tolerancia) {
+        double diferencia = tipo.mayorEsMejor ? base - actual : actual - base;
+        return diferencia > base * tolerancia && diferencia > tipo.holgura;
+    }
+
+    /** Rendimiento y asignación por operación (del perfilador gc) de cada benchmark, con sus parámetros. */
+    private static void leerJmh(Path fichero, Map<Medida, Double> medidas) throws IOException {
+        for (JsonNode resultado : new ObjectMapper().readTree(fichero.toFile())) {
+            String[] partes = resultado.get("benchmark").asText().split("\\.");
+            StringBuilder nombre = new StringBuilder("jmh " + partes[partes.length - 2] + "." + partes[partes.length - 1]);
+            JsonNode parametros = resultado.get("params");
+            if (parametros != null) {
+                nombre.append(parametros.properties().stream()
+                        .map(p -> p.getKey() + "=" + p.getValue().asText())
+                        .collect(Collectors.joining(",", "[", "]")));
+            }
+            medidas.put(new Medida(Tipo.RENDIMIENTO, nombre.toString()), resultado.get("primaryMetric").get("score").asDouble());
+            JsonNode asignacion = resultado.path("secondaryMetrics").path("gc.alloc.rate.norm");
+            if (!asignacion.isMissingNode()) {
+                medidas.put(new Medida(Tipo.ASIGNACION, nombre.toString()), asignacion.get("score").asDouble());
+            }
+        }
+    }
+
+    /** Peticiones por segundo y p99 de resultados.csv (de los endpoints con peticiones suficientes), arranque y heap de jvm.csv. */
+    private static void leerCarga(Path directorio, Map<Medida, Double> medidas) throws IOException {
+        List<String> resultados = Files.readAllLines(directorio.resolve("resultados.csv"));
+        List<String> columnas = List.of(resultados.get(0).split(","));
+        for (String linea : resultados.subList(1, resultados.size())) {
+            String[] valores = linea.split(",");
+            if (Long.parseLong(valores[columnas.indexOf("peticiones")]) < MINIMO_PETICIONES) {
+                continue;
+            }
+            String nombre = "carga " + valores[0];
+            medidas.put(new Medida(Tipo.RENDIMIENTO, nombre), Double.parseDouble(valores[columnas.indexOf("por_segundo")]));
+            medidas.put(new Medida(Tipo.P99, nombre), Double.parseDouble(valores[columnas.indexOf("p99_ms")]));
+        }
+        for (String linea : Files.readAllLines(directorio.resolve("jvm.csv"))) {
+            String[] metricaValor = linea.split(",");
+            switch (metricaValor[0]) {
+                case "arranque_ms" -> medidas.put(new Medida(Tipo.ARRANQUE, "jvm arranque"), Double.parseDouble(metricaValor[1]));
+                case "heap_mb" -> medidas.put(new Medida(Tipo.HEAP, "jvm heap tras GC"), Double.parseDouble(metricaValor[1]));
+                default -> { }
+            }
+        }
+    }
+
+    private static Map<Medida, Double> leerLineaBase(Path fichero) throws IOException {
+        Map<Medida, Double> base = new TreeMap<>();
+        for (String linea : Files.readAllLines(fichero)) {
+            if (linea.isBlank() || linea.startsWith("#")) {
+                continue;
+            }
+            // El nombre puede llevar comas (parámetros de JMH): el valor es lo que va tras la última
+            int primera = linea.indexOf(',');
+            int ultima = linea.lastIndexOf(',');
+            base.put(new Medida(Tipo.valueOf(linea.substring(0, primera).trim().toUpperCase(Locale.ROOT)), linea.substring(primera + 1, ultima)),
+                    Double.parseDouble(linea.substring(ultima + 1).trim()));
+        }
+        return base;
+    }
+
+    private static void escribirLineaBase(Path fichero, Map<Medida, Double> medidas) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        lineas.add("# Línea base de mvn -Prendimiento verify, generada el " + LocalDate.now() + " con JDK " + Runtime.version()
+                + " y " + Runtime.getRuntime().availableProcessors() + " CPU (mvn -Prendimiento verify -Drendimiento.actualizar=true).");
+        lineas.add("# Unidades: rendimiento en ops/s (JMH) o peticiones/s (carga), p99 y arranque en ms, asignacion en B/op y heap en MB.");
+        lineas.add("# tipo,nombre,valor");
+        medidas.forEach((medida, valor) -> lineas.add(String.format(Locale.ROOT, "%s,%s,%.1f", medida.tipo().clave(), medida.nombre(), valor)));
+        Files.createDirectories(fichero.toAbsolutePath().getParent());
+        Files.write(fichero, lineas);
+    }
+}
@@ -1,13 +1,37 @@
 package cc.sars;
 
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sin prefijo y sin crear regiones que falten: comprueba que ehcache.xml cubre todas las de producción
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.cache.region_prefix=",
+		"spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=fail",
+		"spring.jpa.properties.hibernate.generate_statistics=true"})
 class SarsApplicationTests {
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	// Las publica Spring Boot, una sola vez por EntityManagerFactory
+	@Test
+	void metricasDeHibernatePorRegionSinDuplicar() {
+		assertThat(meterRegistry.find("hibernate.second.level.cache.requests").meters())
+				.isNotEmpty()
+				.extracting(meter -> meter.getId().getTag("entityManagerFactory"))
+				.containsOnly("entityManagerFactory");
+		assertThat(meterRegistry.find("hibernate.second.level.cache.requests").tag("region", "cc.sars.model.Grupo").meters())
+				.extracting(Meter::getId)
+				.hasSize(2);
+	}
+
 }
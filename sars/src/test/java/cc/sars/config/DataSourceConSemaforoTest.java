@@ -0,0 +1,74 @@
+package cc.sars.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataSourceConSemaforoTest {
+
+    private final ApplicationContextRunner contexto = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+            .withUserConfiguration(HilosVirtualesConfig.class)
+            .withPropertyValues("spring.datasource.url=jdbc:h2:mem:semaforotest", "spring.datasource.hikari.maximum-pool-size=3");
+
+    @Test
+    void sinPermisosLibres_esperaYFallaSinLlegarAlPool() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocacion -> mock(Connection.class));
+        DataSourceConSemaforo limitado = new DataSourceConSemaforo(pool, 2, Duration.ofMillis(50));
+
+        Connection primera = limitado.getConnection();
+        limitado.getConnection();
+        assertThatThrownBy(limitado::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        verify(pool, times(2)).getConnection();
+
+        // Un segundo close() no devuelve otro permiso
+        primera.close();
+        primera.close();
+        assertThat(limitado.getPermisosLibres()).isEqualTo(1);
+        verify(((ConnectionProxy) primera).getTargetConnection(), times(2)).close();
+        assertThat(limitado.getConnection()).isNotNull();
+        assertThat(limitado.getPermisosLibres()).isZero();
+    }
+
+    @Test
+    void siElPoolFalla_elPermisoSeDevuelve() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLException("caída"));
+        DataSourceConSemaforo limitado = new DataSourceConSemaforo(pool, 1, Duration.ofMillis(50));
+
+        assertThatThrownBy(limitado::getConnection).hasMessage("caída");
+        assertThat(limitado.getPermisosLibres()).isEqualTo(1);
+    }
+
+    @Test
+    void conHilosVirtuales_elPoolQuedaDetrasDelSemaforo() {
+        contexto.withPropertyValues("spring.threads.virtual.enabled=true").run(ctx -> {
+            DataSource dataSource = ctx.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(DataSourceConSemaforo.class);
+            assertThat(((DataSourceConSemaforo) dataSource).getPermisosLibres()).isEqualTo(3);
+            // Spring Boot sigue encontrando el pool para sus métricas y su salud
+            assertThat(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(3);
+            try (Connection conexion = dataSource.getConnection()) {
+                assertThat(conexion.isValid(1)).isTrue();
+            }
+        });
+        contexto.run(ctx -> assertThat(ctx.getBean(DataSource.class)).isInstanceOf(HikariDataSource.class));
+    }
+}
@@ -0,0 +1,142 @@
+package cc.sars.config;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.repository.SerieRepository;
+import cc.sars.repository.TareaRepository;
+import cc.sars.service.MembresiasCache;
+import cc.sars.service.UsuariosCache;
+import cc.sars.service.ValidadoresHttp;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * El generador reinicia secuencias (DDL) y escribe en su propia transacción, así que se ejecuta fuera de la del test
+ * y se limpia a mano.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class GeneradorDatosTest {
+
+    private static final String TAREAS = "Traducción=100,Typeo=50,CC=80";
+    private static final String ESTADOS = "NoAsignado=30,Asignado=20,Completado=40,Repetir=10";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SerieRepository serieRepository;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    private final MembresiasCache membresiasCache = mock(MembresiasCache.class);
+    private final ValidadoresHttp validadoresHttp = mock(ValidadoresHttp.class);
+
+    @AfterEach
+    void limpiar() {
+        for (String tabla : List.of("tarea", "serie_progreso", "capitulo", "serie", "usuario_grupo", "sec_user", "grupo")) {
+            jdbcTemplate.execute("DELETE FROM " + tabla);
+        }
+    }
+
+    private GeneradorDatos generador(String prefijo) {
+        return new GeneradorDatos(jdbcTemplate, transactionManager, entityManagerFactory, NoOpPasswordEncoder.getInstance(),
+                membresiasCache, mock(UsuariosCache.class), validadoresHttp,
+                new GeneradorDatos.Parametros(3, 12, 2, 20, TAREAS, ESTADOS, 0.25, 0.2, "clave", prefijo, 7L));
+    }
+
+    @Test
+    void generaLasFilasConContadoresCoherentesYSecuenciasPorEncima() {
+        GeneradorDatos.Resumen resumen = generador("a").generar();
+
+        assertThat(resumen.series()).isEqualTo(6);
+        assertThat(resumen.capitulos()).isEqualTo(120);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tarea", Long.class)).isEqualTo(resumen.tareas());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sec_user", Integer.class)).isEqualTo(12);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario_grupo", Integer.class)).isEqualTo(resumen.membresias());
+        // Un líder por grupo, y las tareas solo se asignan a miembros del grupo de su serie
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario_grupo WHERE rol = 'ROLE_LIDER'", Integer.class)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tarea t JOIN capitulo c ON c.id = t.capitulo_id JOIN serie s ON s.id = c.serie_id "
+                        + "WHERE t.usuario <> 'NADIE' AND NOT EXISTS "
+                        + "(SELECT 1 FROM usuario_grupo ug WHERE ug.username = t.usuario AND ug.grupo_nombre = s.grupo_nombre)",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tarea WHERE (usuario = 'NADIE') <> (estado_tarea IN ('NoAsignado', 'Repetir'))", Integer.class)).isZero();
+
+        // Los contadores escritos coinciden con los que se recalcularían desde las tareas
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM capitulo c WHERE c.tareas_total <> (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = c.id) "
+                        + "OR c.tareas_completadas <> (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = c.id AND t.estado_tarea = 'Completado') "
+                        + "OR c.tareas_asignadas <> (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = c.id AND t.estado_tarea = 'Asignado') "
+                        + "OR c.tareas_repetir <> (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = c.id AND t.estado_tarea = 'Repetir') "
+                        + "OR c.tareas_cc <> (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = c.id AND t.nombre_tarea = 'CC') "
+                        + "OR c.tareas_cc_completadas <> (SELECT COUNT(*) FROM tarea t WHERE t.capitulo_id = c.id AND t.nombre_tarea = 'CC' "
+                        + "AND t.estado_tarea = 'Completado')", Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM serie_progreso p WHERE p.tareas_total <> (SELECT SUM(c.tareas_total) FROM capitulo c WHERE c.serie_id = p.serie_id) "
+                        + "OR p.capitulos_listos_cc <> (SELECT COUNT(*) FROM capitulo c WHERE c.serie_id = p.serie_id "
+                        + "AND c.tareas_cc > c.tareas_cc_completadas AND c.tareas_total - c.tareas_cc = c.tareas_completadas - c.tareas_cc_completadas)",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM serie_progreso", Integer.class)).isEqualTo(6);
+        verify(membresiasCache).invalidarTodo();
+        verify(validadoresHttp).todoCambiado();
+
+        // Hibernate sigue reservando ids por encima de los generados
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre("a-grupo-0", "Serie 1").orElseThrow();
+        Integer maxTarea = jdbcTemplate.queryForObject("SELECT MAX(id) FROM tarea", Integer.class);
+        Integer capitulo = jdbcTemplate.queryForObject("SELECT MIN(id) FROM capitulo WHERE serie_id = ?", Integer.class, serie.getId());
+        Tarea nueva = new TransactionTemplate(transactionManager).execute(status -> {
+            Tarea tarea = new Tarea("Extra");
+            tarea.setCapitulo(entityManagerFactory.createEntityManager().getReference(Capitulo.class, capitulo));
+            return tareaRepository.save(tarea);
+        });
+        assertThat(nueva.getId()).isGreaterThan(maxTarea);
+    }
+
+    @Test
+    void conLaMismaSemillaGeneraLosMismosDatos() {
+        generador("a").generar();
+        generador("b").generar();
+
+        assertThat(tareasDe("b")).isEqualTo(tareasDe("a")).isNotEmpty();
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT SUBSTRING(username, 3) || ' ' || SUBSTRING(grupo_nombre, 3) || ' ' || rol FROM usuario_grupo WHERE username LIKE 'b-%' ORDER BY 1",
+                String.class))
+                .isEqualTo(jdbcTemplate.queryForList(
+                        "SELECT SUBSTRING(username, 3) || ' ' || SUBSTRING(grupo_nombre, 3) || ' ' || rol FROM usuario_grupo WHERE username LIKE 'a-%' ORDER BY 1",
+                        String.class));
+    }
+
+    /** Las tareas de los grupos con ese prefijo, sin el prefijo, en orden. */
+    private List<String> tareasDe(String prefijo) {
+        return jdbcTemplate.queryForList(
+                "SELECT SUBSTRING(s.grupo_nombre, 3) || '/' || s.nombre || '/' || c.nombre || '/' || t.nombre_tarea || '/' || t.estado_tarea "
+                        + "|| '/' || CASE WHEN t.usuario = 'NADIE' THEN t.usuario ELSE SUBSTRING(t.usuario, 3) END "
+                        + "FROM tarea t JOIN capitulo c ON c.id = t.capitulo_id JOIN serie s ON s.id = c.serie_id "
+                        + "WHERE s.grupo_nombre LIKE ? ORDER BY t.id", String.class, prefijo + "-%");
+    }
+}
@@ -0,0 +1,210 @@
+package cc.sars.config;
+
+import cc.sars.controller.api.CapituloRestController;
+import cc.sars.controller.api.dto.CapituloDTO;
+import cc.sars.exception.SerieNotFoundException;
+import cc.sars.model.Capitulo;
+import cc.sars.model.Grupo;
+import cc.sars.model.Serie;
+import cc.sars.repository.GrupoRepository;
+import cc.sars.service.ContadoresProgreso;
+import cc.sars.service.OutboxEventos;
+import cc.sars.service.RegistroCambios;
+import cc.sars.service.SerieService;
+import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Primaria y réplica son dos bases H2 distintas. No hay replicación: {@link #replicar()} copia la primaria
+ * a la réplica cuando el test lo pide, así que lo que no se ha replicado solo puede leerse de la primaria.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primaria-replicatest;DB_CLOSE_DELAY=-1",
+        "sars.datasource.replica.jdbc-url=jdbc:h2:mem:replica-replicatest;DB_CLOSE_DELAY=-1",
+        "sars.datasource.lectura-propia=2s"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReplicaDataSourceConfig.class, SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, SimpleMeterRegistry.class})
+public class ReplicaDataSourceConfigTest {
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ValidadoresHttp validadoresHttp;
+
+    @Autowired
+    @Qualifier("primariaDataSource")
+    private HikariDataSource primaria;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replica;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void sincronizarReplica() {
+        replicar();
+    }
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void lasLecturasVanALaReplica() {
+        grupoRepository.save(new Grupo("GrupoReplica"));
+        serieService.createSerie("SerieReplica", "desc", "GrupoReplica");
+
+        // La réplica aún no tiene el grupo
+        assertThatThrownBy(() -> serieService.getSeriesPagina("GrupoReplica", null, null))
+                .isInstanceOf(SerieNotFoundException.class);
+
+        replicar();
+        assertThat(serieService.getSeriesPagina("GrupoReplica", null, null).elementos())
+                .extracting(Serie::getNombre).containsExactly("SerieReplica");
+
+        assertThat(meterRegistry.get("datasource.routing").tag("pool", "replica").counter().count()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.get("datasource.routing").tag("pool", "primaria").tag("motivo", "escritura").counter().count()).isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections").tag("pool", "replica").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections").tag("pool", "primaria").gauge().value()).isPositive();
+    }
+
+    @Test
+    void quienEscribeLeeDeLaPrimariaDuranteLaVentana() throws InterruptedException {
+        grupoRepository.save(new Grupo("GrupoVentana"));
+        replicar();
+
+        autenticar("ana");
+        serieService.createSerie("SerieDeAna", "desc", "GrupoVentana");
+        assertThat(nombresDeSeries()).containsExactly("SerieDeAna");
+
+        // Otro usuario lee de la réplica, que aún no tiene la serie
+        autenticar("luis");
+        assertThat(nombresDeSeries()).isEmpty();
+
+        // Pasada la ventana, también 'ana' lee de la réplica
+        Thread.sleep(2100);
+        autenticar("ana");
+        assertThat(nombresDeSeries()).isEmpty();
+
+        assertThat(meterRegistry.get("datasource.routing").tag("motivo", "lectura-propia").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * La réplica va por detrás de la etiqueta: quien recibe la nueva debe recibir también los datos nuevos, o
+     * seguiría recibiendo 304 con los antiguos hasta el siguiente cambio de la serie.
+     */
+    @Test
+    void conReplicaRetrasada_laEtiquetaNuevaNuncaAcompanyaADatosAntiguos() {
+        grupoRepository.save(new Grupo("GrupoEtag"));
+        serieService.createSerie("SerieEtag", "desc", "GrupoEtag");
+        serieService.addCapitulosToSerie("GrupoEtag", "SerieEtag", "Cap 1", new String[]{"CC###NoAsignado###NADIE"});
+        replicar();
+        CapituloRestController controller = new CapituloRestController(serieService, validadoresHttp);
+
+        autenticar("luis");
+        ResponseEntity<List<CapituloDTO>> primera = capitulos(controller, null);
+        assertThat(primera.getBody()).extracting(CapituloDTO::getNombreCapitulo).containsExactly("Cap 1");
+        String etiqueta = primera.getHeaders().getETag();
+
+        // Escribe otro usuario y la réplica no se entera
+        autenticar("ana");
+        serieService.addCapitulosToSerie("GrupoEtag", "SerieEtag", "Cap 2", new String[]{"CC###NoAsignado###NADIE"});
+        autenticar("luis");
+
+        ResponseEntity<List<CapituloDTO>> segunda = capitulos(controller, etiqueta);
+        assertThat(segunda).isNotNull();
+        assertThat(segunda.getBody()).extracting(CapituloDTO::getNombreCapitulo).containsExactly("Cap 1", "Cap 2");
+        String nueva = segunda.getHeaders().getETag();
+        assertThat(nueva).isNotEqualTo(etiqueta);
+        // Con la etiqueta nueva, 304: lo que tiene el cliente ya es lo confirmado
+        assertThat(capitulos(controller, nueva)).isNull();
+
+        assertThat(meterRegistry.get("datasource.routing").tag("motivo", "validador").counter().count()).isPositive();
+        // Fuera de una petición con ETag, luis sigue leyendo de la réplica
+        assertThat(serieService.getCapitulosPagina("GrupoEtag", "SerieEtag", null, null).elementos())
+                .extracting(Capitulo::getNombre).containsExactly("Cap 1");
+    }
+
+    /** GET de los capítulos como en una petición HTTP; null si responde 304. */
+    private ResponseEntity<List<CapituloDTO>> capitulos(CapituloRestController controller, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/grupos/GrupoEtag/series/SerieEtag/capitulos");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletWebRequest peticion = new ServletWebRequest(request, response);
+        RequestContextHolder.setRequestAttributes(peticion);
+        try {
+            ResponseEntity<List<CapituloDTO>> respuesta = controller.getCapitulosBySerie("GrupoEtag", "SerieEtag", null, null, peticion);
+            if (respuesta == null) {
+                assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+                return null;
+            }
+            return ResponseEntity.status(respuesta.getStatusCode())
+                    .eTag(response.getHeader(HttpHeaders.ETAG))
+                    .body(respuesta.getBody());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private List<String> nombresDeSeries() {
+        return serieService.getSeriesPagina("GrupoVentana", null, null).elementos().stream().map(Serie::getNombre).toList();
+    }
+
+    private static void autenticar(String usuario) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(usuario, null, List.of()));
+    }
+
+    /**
+     * Sustituye el contenido de la réplica por una copia de la primaria (esquema y datos).
+     */
+    private void replicar() {
+        List<String> script = new JdbcTemplate(primaria).queryForList("SCRIPT", String.class);
+        // Conexión directa: el pool de réplica es de solo lectura
+        JdbcTemplate destino = new JdbcTemplate(new DriverManagerDataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+        destino.execute("DROP ALL OBJECTS");
+        script.stream().filter(sentencia -> !sentencia.startsWith("--")).forEach(destino::execute);
+    }
+}
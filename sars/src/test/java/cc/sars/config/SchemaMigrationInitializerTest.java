@@ -0,0 +1,104 @@
+package cc.sars.config;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.repository.CapituloRepository;
+import cc.sars.repository.GrupoRepository;
+import cc.sars.repository.SerieRepository;
+import cc.sars.repository.TareaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * La migración hace DDL (DROP TABLE), así que se ejecuta fuera de la transacción del test y se limpia a mano.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SchemaMigrationInitializerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private SerieRepository serieRepository;
+
+    @Autowired
+    private CapituloRepository capituloRepository;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS capitulo_tareas");
+        tareaRepository.deleteAll();
+        capituloRepository.deleteAll();
+        grupoRepository.deleteAll();
+    }
+
+    @Test
+    void migraLasTareasEmbebidasConservandoElOrdenYBorraLaTablaAntigua() {
+        Grupo grupo = new Grupo("GrupoMigracion");
+        grupo.agregarSerie(new Serie("SerieMigracion", "desc"));
+        grupoRepository.save(grupo);
+        Serie serie = serieRepository.findByGrupo_NombreAndNombre("GrupoMigracion", "SerieMigracion").orElseThrow();
+        Capitulo capitulo = new Capitulo("Cap 1");
+        capitulo.setSerie(serie);
+        capitulo = capituloRepository.save(capitulo);
+
+        jdbcTemplate.execute("CREATE TABLE capitulo_tareas (capitulo_id INTEGER NOT NULL, tarea_indice INTEGER NOT NULL, " +
+                "nombre_tarea VARCHAR(255) NOT NULL, usuario VARCHAR(255), estado_tarea VARCHAR(255), PRIMARY KEY (capitulo_id, tarea_indice))");
+        jdbcTemplate.update("INSERT INTO capitulo_tareas VALUES (?, 1, 'Edición', 'NADIE', 'NoAsignado')", capitulo.getId());
+        jdbcTemplate.update("INSERT INTO capitulo_tareas VALUES (?, 0, 'Traducción', 'ana', 'Asignado')", capitulo.getId());
+
+        new SchemaMigrationInitializer(jdbcTemplate, transactionManager, entityManagerFactory).afterSingletonsInstantiated();
+
+        List<Tarea> tareas = tareaRepository.findAll(Sort.by("id"));
+        assertThat(tareas)
+                .extracting(Tarea::getNombre, Tarea::getEstadoTarea, Tarea::getUsuarioAsignado)
+                .containsExactly(
+                        tuple("Traducción", EstadosTareas.Asignado, "ana"),
+                        tuple("Edición", EstadosTareas.NoAsignado, "NADIE"));
+        // Las filas migradas reciben versión inicial para el control optimista
+        assertThat(tareas).extracting(Tarea::getVersion).containsOnly(0L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = 'CAPITULO_TAREAS'", Integer.class)).isZero();
+
+        // Las series anteriores a los contadores de progreso los reciben calculados desde sus tareas
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT tareas_total, tareas_asignadas, capitulos_listos_cc FROM serie_progreso WHERE serie_id = ?", serie.getId()))
+                .singleElement()
+                .satisfies(fila -> assertThat(fila.values()).containsExactly(2, 1, 0));
+        assertThat(jdbcTemplate.queryForObject("SELECT tareas_total FROM capitulo WHERE id = ?", Integer.class, capitulo.getId())).isEqualTo(2);
+
+        // La secuencia queda por encima de los ids migrados
+        Tarea nueva = new Tarea("CC");
+        nueva.setCapitulo(capitulo);
+        assertThat(tareaRepository.save(nueva).getId()).isGreaterThan(tareas.get(1).getId());
+    }
+}
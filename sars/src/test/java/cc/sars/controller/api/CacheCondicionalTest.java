@@ -0,0 +1,127 @@
+package cc.sars.controller.api;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.service.AdminService;
+import cc.sars.service.GrupoService;
+import cc.sars.service.SerieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETags de la API contra la aplicación completa: un 304 no lee nada de la base de datos (según las estadísticas
+ * de Hibernate) y cualquier escritura en la serie invalida su etiqueta y la de su grupo, no la de otras series.
+ * El relay y la compactación se alargan para que sus consultas programadas no se mezclen con las medidas.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "sars.outbox.intervalo=1h",
+        "sars.cambios.compactacion=1h"})
+@AutoConfigureMockMvc
+public class CacheCondicionalTest {
+
+    private static final String GRUPO = "GrupoEtag";
+    private static final String CAPITULOS = "/api/grupos/{g}/series/{s}/capitulos";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GrupoService grupoService;
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void poblar() {
+        grupoService.crearGrupo(GRUPO);
+        for (String serie : new String[]{"Serie", "Otra"}) {
+            serieService.createSerie(serie, "desc", GRUPO);
+            serieService.addCapitulosToSerie(GRUPO, serie, "Cap 1\nCap 2", new String[]{"CC###NoAsignado###NADIE"});
+        }
+    }
+
+    @AfterEach
+    void limpiar() {
+        adminService.resetDatabase();
+    }
+
+    @Test
+    void conLaEtiquetaVigente_304SinTocarLaBaseDeDatos() throws Exception {
+        String etiquetaCapitulos = etiqueta(CAPITULOS, GRUPO, "Serie");
+        String etiquetaGrupo = etiqueta("/api/grupos/{g}", GRUPO);
+        String etiquetaSeries = etiqueta("/api/grupos/{g}/series", GRUPO);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get(CAPITULOS, GRUPO, "Serie").header(HttpHeaders.IF_NONE_MATCH, etiquetaCapitulos))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etiquetaCapitulos))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/grupos/{g}", GRUPO).header(HttpHeaders.IF_NONE_MATCH, etiquetaGrupo))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/grupos/{g}/series", GRUPO).header(HttpHeaders.IF_NONE_MATCH, etiquetaSeries))
+                .andExpect(status().isNotModified());
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+    }
+
+    @Test
+    void unaEscrituraInvalidaSuSerieYSuGrupoPeroNoLasDemas() throws Exception {
+        String etiquetaSerie = etiqueta(CAPITULOS, GRUPO, "Serie");
+        String etiquetaOtra = etiqueta(CAPITULOS, GRUPO, "Otra");
+        String etiquetaSeries = etiqueta("/api/grupos/{g}/series", GRUPO);
+        String etiquetaGrupos = etiqueta("/api/grupos");
+
+        serieService.updateTarea(GRUPO, "Serie", "Cap 2", "CC", EstadosTareas.Asignado, "ana");
+
+        String nueva = mockMvc.perform(get(CAPITULOS, GRUPO, "Serie").header(HttpHeaders.IF_NONE_MATCH, etiquetaSerie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].tareas[0].usuarioAsignado").value("ana"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(nueva).isNotEqualTo(etiquetaSerie);
+        // El progreso de la lista de series ha cambiado; el resto de series y la lista de grupos no
+        mockMvc.perform(get("/api/grupos/{g}/series", GRUPO).header(HttpHeaders.IF_NONE_MATCH, etiquetaSeries))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(CAPITULOS, GRUPO, "Otra").header(HttpHeaders.IF_NONE_MATCH, etiquetaOtra))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/grupos").header(HttpHeaders.IF_NONE_MATCH, etiquetaGrupos))
+                .andExpect(status().isNotModified());
+
+        serieService.updateSerieInGrupo(GRUPO, "Serie", "otra descripción");
+        mockMvc.perform(get(CAPITULOS, GRUPO, "Serie").header(HttpHeaders.IF_NONE_MATCH, nueva))
+                .andExpect(status().isOk());
+    }
+
+    private String etiqueta(String ruta, Object... variables) throws Exception {
+        String etiqueta = mockMvc.perform(get(ruta, variables))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etiqueta).startsWith("\"");
+        return etiqueta;
+    }
+}
@@ -7,7 +7,9 @@ import cc.sars.model.Capitulo;
 import cc.sars.model.Serie;
 import cc.sars.model.Tarea;
 import cc.sars.model.EstadosTareas;
+import cc.sars.service.Pagina;
 import cc.sars.service.SerieService;
+import cc.sars.service.ValidadoresHttp;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +17,7 @@ import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfi
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -32,6 +35,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(controllers = CapituloRestController.class,
         excludeAutoConfiguration = SecurityAutoConfiguration.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ValidadoresHttp.class)
 public class CapituloRestControllerTest {
 
     @Autowired
@@ -67,10 +71,8 @@ public class CapituloRestControllerTest {
         Capitulo capitulo2 = new Capitulo("Capitulo2");
         capitulo2.setSerie(serie);
 
-        serie.addCapitulo(capitulo1);
-        serie.addCapitulo(capitulo2);
-
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, nombreSerie)).thenReturn(Optional.of(serie));
+        when(serieService.getCapitulosPagina(TEST_GROUP, nombreSerie, null, null))
+                .thenReturn(new Pagina<>(List.of(capitulo1, capitulo2), null));
 
         // When & Then
         mockMvc.perform(get("/api/grupos/{nombreGrupo}/series/{nombreSerie}/capitulos", TEST_GROUP, nombreSerie))
@@ -101,7 +103,7 @@ public class CapituloRestControllerTest {
         capitulo.setSerie(serie);
         serie.addCapitulo(capitulo);
 
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, nombreSerie)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, nombreSerie, nombreCapitulo)).thenReturn(Optional.of(capitulo));
 
         // When & Then
         mockMvc.perform(get("/api/grupos/{nombreGrupo}/series/{nombreSerie}/capitulos/{nombreCapitulo}", TEST_GROUP, nombreSerie, nombreCapitulo))
@@ -118,9 +120,9 @@ public class CapituloRestControllerTest {
         String nombreSerie = "SerieTest";
         String nombreCapitulo = "NonExistentCapitulo";
         Serie serie = new Serie(nombreSerie, "Description Test");
-        serie.addCapitulo(new Capitulo("ExistingCapitulo")); // Añadir uno existente para asegurar que el filtro funciona
+        serie.addCapitulo(new Capitulo("ExistingCapitulo"));
 
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, nombreSerie)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, nombreSerie, nombreCapitulo)).thenReturn(Optional.empty());
 
         // When & Then
         mockMvc.perform(get("/api/grupos/{nombreGrupo}/series/{nombreSerie}/capitulos/{nombreCapitulo}", TEST_GROUP, nombreSerie, nombreCapitulo))
@@ -139,9 +141,8 @@ public class CapituloRestControllerTest {
         Capitulo newCapitulo = new Capitulo(nombreCapitulo);
         newCapitulo.setSerie(serie);
         newCapitulo.anyadirTarea(new Tarea("CC")); // Add the default task to the mock
-        serie.addCapitulo(newCapitulo); // Add to the series that will be returned by the service
 
-        when(serieService.addCapituloToSerie(TEST_GROUP, nombreSerie, nombreCapitulo)).thenReturn(serie);
+        when(serieService.addCapituloToSerie(TEST_GROUP, nombreSerie, nombreCapitulo)).thenReturn(newCapitulo);
 
         // When & Then
         mockMvc.perform(post("/api/grupos/{nombreGrupo}/series/{nombreSerie}/capitulos", TEST_GROUP, nombreSerie)
@@ -184,7 +185,7 @@ public class CapituloRestControllerTest {
                         tareaDTO.getUsuarioAsignado() != null ? tareaDTO.getUsuarioAsignado() : "NADIE"))
                 .toArray(String[]::new);
 
-        when(serieService.addCapitulosToSerie(eq(TEST_GROUP), eq(nombreSerie), eq(nombresCapitulos), any(String[].class))).thenReturn(serie);
+        when(serieService.addCapitulosToSerie(eq(TEST_GROUP), eq(nombreSerie), eq(nombresCapitulos), any(String[].class))).thenReturn(List.of(capituloBulk1, capituloBulk2));
 
         // When & Then
         mockMvc.perform(post("/api/grupos/{nombreGrupo}/series/{nombreSerie}/capitulos/bulk", TEST_GROUP, nombreSerie)
@@ -0,0 +1,138 @@
+package cc.sars.controller.api;
+
+import cc.sars.config.FormatosBinariosConfig;
+import cc.sars.controller.api.dto.CapituloDTO;
+import cc.sars.controller.api.dto.TareaDTO;
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.service.Pagina;
+import cc.sars.service.SerieService;
+import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = CapituloRestController.class,
+        excludeAutoConfiguration = SecurityAutoConfiguration.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import({FormatosBinariosConfig.class, ValidadoresHttp.class})
+public class FormatosBinariosTest {
+
+    private static final String GRUPO = "Grupo";
+    private static final String SERIE = "Serie";
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final String[] PLANTILLA = {"Traducción", "Corrección", "Limpieza", "Redibujo", "Typeo", "QC", "Edición", "CC"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @MockBean
+    private SerieService serieService;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @Test
+    void sinAcceptOConComodin_laRespuestaSigueSiendoJson() throws Exception {
+        when(serieService.getCapitulosPagina(GRUPO, SERIE, null, null)).thenReturn(new Pagina<>(capitulos(2), null));
+
+        mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos", GRUPO, SERIE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos", GRUPO, SERIE).header(HttpHeaders.ACCEPT, "*/*"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void conAccept_seNegocianSmileYCbor() throws Exception {
+        when(serieService.getCapitulosPagina(GRUPO, SERIE, null, null)).thenReturn(new Pagina<>(capitulos(2), null));
+        JsonNode json = objectMapper.readTree(mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos", GRUPO, SERIE))
+                .andReturn().getResponse().getContentAsByteArray());
+
+        byte[] smile = mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos", GRUPO, SERIE).accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos", GRUPO, SERIE).accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Mismo documento en los tres formatos
+        assertThat(smileConverter.getObjectMapper().readTree(smile)).isEqualTo(json);
+        assertThat(cborConverter.getObjectMapper().readTree(cbor)).isEqualTo(json);
+    }
+
+    /**
+     * Tamaño de un tablero de 500 capítulos con 8 tareas cada uno, con los mismos ObjectMapper que usan los conversores.
+     * La CPU de cada formato se mide en FormatosBinariosBenchmark (mvn -Pjmh verify).
+     */
+    @Test
+    void tableroDe500Capitulos_tamanyoPorFormato() throws Exception {
+        List<CapituloDTO> tablero = capitulos(500).stream()
+                .map(capitulo -> new CapituloDTO(capitulo.getNombre(), SERIE, capitulo.getTareas().stream()
+                        .map(tarea -> new TareaDTO(tarea.getNombre(), tarea.getEstadoTarea(), tarea.getUsuarioAsignado()))
+                        .toList()))
+                .toList();
+
+        int json = objectMapper.writeValueAsBytes(tablero).length;
+        int smile = smileConverter.getObjectMapper().writeValueAsBytes(tablero).length;
+        int cbor = cborConverter.getObjectMapper().writeValueAsBytes(tablero).length;
+
+        // Smile referencia los nombres de campo y los estados repetidos; CBOR solo se ahorra comillas y separadores
+        assertThat(smile).isLessThan(json / 2);
+        assertThat(cbor).isLessThan(json);
+    }
+
+    private static List<Capitulo> capitulos(int cuantos) {
+        Serie serie = new Serie(SERIE, "desc");
+        List<Capitulo> capitulos = new ArrayList<>();
+        IntStream.rangeClosed(1, cuantos).forEach(i -> {
+            Capitulo capitulo = new Capitulo("Capítulo " + i);
+            for (int t = 0; t < PLANTILLA.length; t++) {
+                Tarea tarea = new Tarea(PLANTILLA[t]);
+                EstadosTareas estado = EstadosTareas.values()[(i + t) % EstadosTareas.values().length];
+                tarea.setEstadoTarea(estado);
+                tarea.setUsuarioAsignado(estado == EstadosTareas.NoAsignado ? "NADIE" : "usuario" + (t % 3));
+                capitulo.anyadirTarea(tarea);
+            }
+            capitulo.setSerie(serie);
+            capitulos.add(capitulo);
+        });
+        return capitulos;
+    }
+}
@@ -5,7 +5,9 @@ import cc.sars.controller.api.dto.UserRoleUpdateDTO;
 import cc.sars.model.Grupo;
 import cc.sars.model.Role;
 import cc.sars.service.GrupoService;
+import cc.sars.service.Pagina;
 import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfi
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,6 +34,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(controllers = GrupoRestController.class,
         excludeAutoConfiguration = SecurityAutoConfiguration.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ValidadoresHttp.class)
 public class GrupoRestControllerTest {
 
     @Autowired
@@ -56,7 +60,7 @@ public class GrupoRestControllerTest {
 
     @Test
     void obtenerTodosLosGrupos_deberiaRetornarListaDeGrupos() throws Exception {
-        when(grupoService.getAllGrupos()).thenReturn(Arrays.asList(grupo1, grupo2));
+        when(grupoService.getGruposPagina(null, null)).thenReturn(new Pagina<>(Arrays.asList(grupo1, grupo2), null));
 
         mockMvc.perform(get("/api/grupos")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -67,7 +71,7 @@ public class GrupoRestControllerTest {
 
     @Test
     void obtenerGrupoPorNombre_deberiaRetornarGrupoExistente() throws Exception {
-        when(grupoService.getGrupoPorNombre("GrupoA")).thenReturn(grupo1);
+        when(grupoService.getGrupoDetalle("GrupoA")).thenReturn(grupo1);
 
         mockMvc.perform(get("/api/grupos/GrupoA")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -77,7 +81,7 @@ public class GrupoRestControllerTest {
 
     @Test
     void obtenerGrupoPorNombre_deberiaRetornarNotFoundParaGrupoInexistente() throws Exception {
-        when(grupoService.getGrupoPorNombre(anyString())).thenThrow(new RuntimeException("Grupo no encontrado"));
+        when(grupoService.getGrupoDetalle(anyString())).thenThrow(new RuntimeException("Grupo no encontrado"));
 
         mockMvc.perform(get("/api/grupos/GrupoC")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -1,24 +1,40 @@
 package cc.sars.controller.api;
 
+import cc.sars.exception.CursorInvalidoException;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Tarea;
 import cc.sars.model.Serie;
+import cc.sars.service.Pagina;
+import cc.sars.service.OperacionTarea;
+import cc.sars.service.ResultadoOperacion;
 import cc.sars.service.SerieService;
+import cc.sars.service.TransicionTareaService;
 import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import cc.sars.controller.api.dto.SerieCreateDTO;
 import cc.sars.controller.api.dto.SerieUpdateDTO;
@@ -34,6 +50,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(controllers = SerieRestController.class,
         excludeAutoConfiguration = SecurityAutoConfiguration.class)
 @AutoConfigureMockMvc(addFilters = false) // Deshabilita los filtros de seguridad para este test
+@Import(ValidadoresHttp.class)
 public class SerieRestControllerTest {
 
     @Autowired
@@ -48,6 +65,9 @@ public class SerieRestControllerTest {
     @MockBean
     private UsuarioService usuarioService;
 
+    @MockBean
+    private TransicionTareaService transicionTareaService;
+
     private static final String TEST_GROUP = "TestGroup";
 
 
@@ -59,7 +79,7 @@ public class SerieRestControllerTest {
         Serie serie2 = new Serie("Serie B", "Description B");
         List<Serie> allSeries = Arrays.asList(serie1, serie2);
 
-        when(serieService.getSeriesPorGrupo(TEST_GROUP)).thenReturn(allSeries);
+        when(serieService.getSeriesPagina(TEST_GROUP, null, null)).thenReturn(new Pagina<>(allSeries, null));
 
         // When & Then
         mockMvc.perform(get("/api/grupos/{nombreGrupo}/series", TEST_GROUP))
@@ -68,7 +88,56 @@ public class SerieRestControllerTest {
                 .andExpect(jsonPath("$[0].nombre", is("Serie A")))
                 .andExpect(jsonPath("$[0].descripcion", is("Description A")))
                 .andExpect(jsonPath("$[1].nombre", is("Serie B")))
-                .andExpect(jsonPath("$[1].descripcion", is("Description B")));
+                .andExpect(jsonPath("$[1].descripcion", is("Description B")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void getSeriesByGrupo_shouldIncludeProgress() throws Exception {
+        // Given
+        Serie serie = mock(Serie.class);
+        when(serie.getId()).thenReturn(7);
+        when(serie.getNombre()).thenReturn("Serie A");
+        ProgresoSerie progreso = mock(ProgresoSerie.class);
+        when(progreso.getProgreso()).thenReturn(new ProgresoTareas(4, 3, 1, 0, 1, 0));
+        when(progreso.getCapitulosListosCc()).thenReturn(1);
+        when(progreso.isCcPendiente()).thenReturn(true);
+        when(serieService.getSeriesPagina(TEST_GROUP, null, null)).thenReturn(new Pagina<>(List.of(serie), null));
+        when(serieService.getProgresoDeSeries(List.of(serie))).thenReturn(Map.of(7, progreso));
+
+        // When & Then
+        mockMvc.perform(get("/api/grupos/{nombreGrupo}/series", TEST_GROUP))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].progreso.totalTareas", is(4)))
+                .andExpect(jsonPath("$[0].progreso.completadas", is(3)))
+                .andExpect(jsonPath("$[0].progreso.porcentaje", is(75)))
+                .andExpect(jsonPath("$[0].progreso.capitulosListosCc", is(1)))
+                .andExpect(jsonPath("$[0].progreso.ccPendiente", is(true)));
+    }
+
+    @Test
+    void getSeriesByGrupo_shouldReturnNextCursorWhenMorePages() throws Exception {
+        // Given
+        when(serieService.getSeriesPagina(TEST_GROUP, "MTA", 1))
+                .thenReturn(new Pagina<>(List.of(new Serie("Serie B", "Description B")), "MTE"));
+
+        // When & Then
+        mockMvc.perform(get("/api/grupos/{nombreGrupo}/series?limit=1&cursor=MTA", TEST_GROUP))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string("X-Next-Cursor", "MTE"))
+                .andExpect(header().string("Link", containsString("cursor=MTE")))
+                .andExpect(header().string("Link", containsString("limit=1")));
+    }
+
+    @Test
+    void getSeriesByGrupo_shouldReturnBadRequestForInvalidCursor() throws Exception {
+        // Given
+        when(serieService.getSeriesPagina(TEST_GROUP, "%%%", null)).thenThrow(new CursorInvalidoException("Cursor de paginación no válido"));
+
+        // When & Then
+        mockMvc.perform(get("/api/grupos/{nombreGrupo}/series", TEST_GROUP).param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -139,4 +208,47 @@ public class SerieRestControllerTest {
 
         verify(serieService).deleteSerie(TEST_GROUP, "Serie A");
     }
+
+    @Test
+    void aplicarOperaciones_devuelveElResultadoDeCadaOperacion() throws Exception {
+        Tarea tarea = new Tarea("CC");
+        tarea.setEstadoTarea(EstadosTareas.Asignado);
+        tarea.setUsuarioAsignado("ana");
+        List<ResultadoOperacion> resultados = List.of(
+                new ResultadoOperacion(ResultadoOperacion.Estado.APLICADA, tarea, null),
+                new ResultadoOperacion(ResultadoOperacion.Estado.RECHAZADA, null, "Solo puedes asignarte esta tarea."));
+        List<OperacionTarea> operaciones = List.of(
+                OperacionTarea.estado("Cap 1", "CC", EstadosTareas.Asignado),
+                OperacionTarea.estado("Cap 2", "CC", EstadosTareas.Repetir));
+        when(transicionTareaService.aplicarOperaciones(TEST_GROUP, "Serie A", "ana", operaciones, false)).thenReturn(resultados);
+        when(transicionTareaService.aplicarOperaciones(TEST_GROUP, "Serie A", "ana", operaciones, true)).thenReturn(List.of(
+                new ResultadoOperacion(ResultadoOperacion.Estado.ANULADA, null, null), resultados.get(1)));
+        String lote = """
+                {"username": "ana", "todoONada": %s, "operaciones": [
+                  {"tipo": "ESTADO", "capitulo": "Cap 1", "tarea": "CC", "nuevoEstado": "Asignado"},
+                  {"tipo": "ESTADO", "capitulo": "Cap 2", "tarea": "CC", "nuevoEstado": "Repetir"}]}""";
+
+        mockMvc.perform(post("/api/grupos/{nombreGrupo}/series/{nombreSerie}/operaciones", TEST_GROUP, "Serie A")
+                        .contentType(MediaType.APPLICATION_JSON).content(lote.formatted("false")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].estado", is("APLICADA")))
+                .andExpect(jsonPath("$[0].tarea.usuarioAsignado", is("ana")))
+                .andExpect(jsonPath("$[1].estado", is("RECHAZADA")))
+                .andExpect(jsonPath("$[1].error", is("Solo puedes asignarte esta tarea.")));
+        // Todo o nada con una rechazada: no se ha aplicado ninguna
+        mockMvc.perform(post("/api/grupos/{nombreGrupo}/series/{nombreSerie}/operaciones", TEST_GROUP, "Serie A")
+                        .contentType(MediaType.APPLICATION_JSON).content(lote.formatted("true")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$[0].estado", is("ANULADA")));
+    }
+
+    @Test
+    void aplicarOperaciones_conUnaOperacionIncompleta_devuelve400() throws Exception {
+        mockMvc.perform(post("/api/grupos/{nombreGrupo}/series/{nombreSerie}/operaciones", TEST_GROUP, "Serie A")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"ana\", \"operaciones\": [{\"tipo\": \"ASIGNACION\", \"capitulo\": \"Cap 1\", \"tarea\": \"CC\"}]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(transicionTareaService);
+    }
 }
@@ -1,12 +1,16 @@
 package cc.sars.controller.api;
 
 import cc.sars.config.SecurityConfig;
+import cc.sars.controller.api.dto.TareaEstadoUpdateDTO;
+import cc.sars.exception.VersionNoCoincideException;
 import cc.sars.model.Capitulo;
 import cc.sars.model.EstadosTareas;
 import cc.sars.model.Serie;
 import cc.sars.model.Tarea;
 import cc.sars.service.SerieService;
+import cc.sars.service.TransicionTareaService;
 import cc.sars.service.UsuarioService;
+import cc.sars.service.ValidadoresHttp;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +20,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Optional;
@@ -31,6 +37,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -38,6 +45,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         excludeAutoConfiguration = SecurityAutoConfiguration.class,
         excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = SecurityConfig.class))
 @AutoConfigureMockMvc(addFilters = false)
+@Import(ValidadoresHttp.class)
 public class TareaRestControllerTest {
 
     @Autowired
@@ -50,6 +58,8 @@ public class TareaRestControllerTest {
     private SerieService serieService;
     @MockBean
     private UsuarioService usuarioService;
+    @MockBean
+    private TransicionTareaService transicionTareaService;
 
     private static final String TEST_GROUP = "TestGroup";
     private static final String TEST_SERIE = "SerieA";
@@ -75,7 +85,7 @@ public class TareaRestControllerTest {
         capitulo.anyadirTarea(tarea1);
         capitulo.anyadirTarea(tarea2);
 
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, TEST_SERIE)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1")).thenReturn(Optional.of(capitulo));
 
         // When & Then
         mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos/{c}/tareas", TEST_GROUP, TEST_SERIE, "Chapter 1"))
@@ -95,7 +105,7 @@ public class TareaRestControllerTest {
         capitulo = new Capitulo("Chapter 1");
         serie.addCapitulo(capitulo);
         // Given
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, TEST_SERIE)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1")).thenReturn(Optional.of(capitulo));
 
         // When & Then
         mockMvc.perform(get("/api/grupos/{g}/series/{s}/capitulos/{c}/tareas", TEST_GROUP, TEST_SERIE, "NonExistentChapter"))
@@ -109,11 +119,11 @@ public class TareaRestControllerTest {
         serie.addCapitulo(capitulo);
         // Given
         TareaCreateDTO tareaCreateDTO = new TareaCreateDTO("New Task");
-        Capitulo updatedCapitulo = new Capitulo("Chapter 1");
-        updatedCapitulo.anyadirTarea(new Tarea("New Task"));
+        Tarea nuevaTarea = new Tarea("New Task");
+        capitulo.anyadirTarea(nuevaTarea);
 
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, TEST_SERIE)).thenReturn(Optional.of(serie));
-                when(serieService.addTareaToCapitulo(TEST_GROUP, TEST_SERIE,"Chapter 1", "New Task")).thenReturn(updatedCapitulo);
+        when(serieService.getCapituloByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1")).thenReturn(Optional.of(capitulo));
+                when(serieService.addTareaToCapitulo(TEST_GROUP, TEST_SERIE,"Chapter 1", "New Task")).thenReturn(nuevaTarea);
 
         // When & Then
         mockMvc.perform(post("/api/grupos/{g}/series/{s}/capitulos/{c}/tareas", TEST_GROUP, TEST_SERIE, "Chapter 1")
@@ -134,7 +144,7 @@ public class TareaRestControllerTest {
         updatedTarea.setEstadoTarea(EstadosTareas.Completado);
         updatedTarea.setUsuarioAsignado("user2");
 
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, TEST_SERIE)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1")).thenReturn(Optional.of(capitulo));
                 when(serieService.updateTarea(TEST_GROUP, TEST_SERIE, "Chapter 1", "Task 1", EstadosTareas.Completado, "user2")).thenReturn(updatedTarea);
 
         // When & Then
@@ -157,7 +167,7 @@ public class TareaRestControllerTest {
         tarea.setEstadoTarea(EstadosTareas.NoAsignado);
         tarea.setUsuarioAsignado("NADIE");
 
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, TEST_SERIE)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1")).thenReturn(Optional.of(capitulo));
                 when(serieService.getTareaByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1", "Task 1")).thenReturn(Optional.of(tarea));
 
         // When & Then
@@ -165,7 +175,48 @@ public class TareaRestControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.nombre", is("Task 1")))
                 .andExpect(jsonPath("$.estadoTarea", is("NoAsignado")))
-                .andExpect(jsonPath("$.usuarioAsignado", is("NADIE")));
+                .andExpect(jsonPath("$.usuarioAsignado", is("NADIE")))
+                .andExpect(header().string("ETag", "\"0\""));
+    }
+
+    @Test
+    void updateTareaEstado_shouldPassIfMatchVersionAndReturnNewETag() throws Exception {
+        // Given
+        TareaEstadoUpdateDTO estadoUpdateDTO = new TareaEstadoUpdateDTO();
+        estadoUpdateDTO.setNuevoEstado(EstadosTareas.Asignado);
+        estadoUpdateDTO.setUsername("user1");
+        Tarea tarea = new Tarea("Task 1");
+        tarea.setEstadoTarea(EstadosTareas.Asignado);
+        tarea.setUsuarioAsignado("user1");
+        ReflectionTestUtils.setField(tarea, "version", 4L);
+
+        when(transicionTareaService.cambiarEstado(TEST_GROUP, TEST_SERIE, "Chapter 1", "Task 1", EstadosTareas.Asignado, "user1", 3L)).thenReturn(tarea);
+
+        // When & Then
+        mockMvc.perform(put("/api/grupos/{g}/series/{s}/capitulos/{c}/tareas/{t}/estado", TEST_GROUP, TEST_SERIE, "Chapter 1", "Task 1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(estadoUpdateDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usuarioAsignado", is("user1")))
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void updateTareaEstado_shouldReturnPreconditionFailed_whenVersionChanged() throws Exception {
+        // Given
+        TareaEstadoUpdateDTO estadoUpdateDTO = new TareaEstadoUpdateDTO();
+        estadoUpdateDTO.setNuevoEstado(EstadosTareas.Completado);
+        estadoUpdateDTO.setUsername("user1");
+        when(transicionTareaService.cambiarEstado(TEST_GROUP, TEST_SERIE, "Chapter 1", "Task 1", EstadosTareas.Completado, "user1", 3L))
+                .thenThrow(new VersionNoCoincideException("La tarea 'Task 1' ha cambiado"));
+
+        // When & Then
+        mockMvc.perform(put("/api/grupos/{g}/series/{s}/capitulos/{c}/tareas/{t}/estado", TEST_GROUP, TEST_SERIE, "Chapter 1", "Task 1")
+                .header("If-Match", "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(estadoUpdateDTO)))
+                .andExpect(status().isPreconditionFailed());
     }
 
     @Test
@@ -174,7 +225,7 @@ public class TareaRestControllerTest {
         capitulo = new Capitulo("Chapter 1");
         serie.addCapitulo(capitulo);
         // Given
-        when(serieService.getSerieByNombreAndGrupo(TEST_GROUP, TEST_SERIE)).thenReturn(Optional.of(serie));
+        when(serieService.getCapituloByNombre(TEST_GROUP, TEST_SERIE, "Chapter 1")).thenReturn(Optional.of(capitulo));
         // No specific setup needed for service method that returns void
 
         // When & Then
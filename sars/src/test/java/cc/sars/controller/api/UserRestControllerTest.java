@@ -5,6 +5,7 @@ import cc.sars.model.Role;
 import cc.sars.model.User;
 import cc.sars.service.UsuarioService;
 import cc.sars.service.GrupoService;
+import cc.sars.service.Pagina;
 import cc.sars.controller.api.dto.UserCreateDTO;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -76,7 +77,7 @@ public class UserRestControllerTest {
         when(user2.getUsuarioGrupos()).thenReturn(usuarioGrupos2);
         List<User> users = Arrays.asList(user1, user2);
 
-        when(usuarioService.getTodosLosUsuarios()).thenReturn(users);
+        when(usuarioService.getUsuariosPagina(null, null)).thenReturn(new Pagina<>(users, null));
 
         // When & Then
         mockMvc.perform(get("/api/usuarios"))
@@ -0,0 +1,143 @@
+package cc.sars.repository;
+
+import cc.sars.model.Grupo;
+import cc.sars.model.Role;
+import cc.sars.model.Serie;
+import cc.sars.model.User;
+import cc.sars.model.UsuarioGrupo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las búsquedas por id y por clave natural deben servirse de la caché de segundo nivel a partir de la segunda vez.
+ * La caché solo se llena con datos confirmados, así que cada paso usa su propia transacción (como una petición)
+ * y el test se ejecuta fuera de la de @DataJpaTest.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CacheSegundoNivelTest {
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private SerieRepository serieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void poblar() {
+        enTransaccion(() -> {
+            Grupo grupo = new Grupo("GrupoL2");
+            entityManager.persist(grupo);
+            Serie serie = new Serie("SerieL2", "desc");
+            grupo.agregarSerie(serie);
+            entityManager.persist(serie);
+            User usuario = new User("usuarioL2", "pass", Role.ROLE_USER);
+            entityManager.persist(usuario);
+            UsuarioGrupo usuarioGrupo = new UsuarioGrupo();
+            usuarioGrupo.setUsuario(usuario);
+            usuarioGrupo.setGrupo(grupo);
+            usuarioGrupo.setRol(Role.ROLE_LIDER);
+            entityManager.persist(usuarioGrupo);
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    void limpiar() {
+        enTransaccion(() -> {
+            userRepository.deleteAll();
+            grupoRepository.deleteAll();
+        });
+    }
+
+    @Test
+    void grupoPorNombre() {
+        assertThat(medir(() -> grupoRepository.findByNombre("GrupoL2").orElseThrow())).isEqualTo(1);
+        assertThat(medir(() -> grupoRepository.findByNombre("GrupoL2").orElseThrow())).isZero();
+    }
+
+    @Test
+    void seriePorGrupoYNombre() {
+        assertThat(medir(() -> serieRepository.findByGrupo_NombreAndNombre("GrupoL2", "SerieL2").orElseThrow()))
+                .isBetween(1L, 2L);
+        assertThat(medir(() -> {
+            Serie serie = serieRepository.findByGrupo_NombreAndNombre("GrupoL2", "SerieL2").orElseThrow();
+            assertThat(serie.getGrupo().getNombre()).isEqualTo("GrupoL2");
+        })).isZero();
+        enTransaccion(() -> assertThat(serieRepository.findByGrupo_NombreAndNombre("OtroGrupo", "SerieL2")).isEmpty());
+    }
+
+    @Test
+    void usuarioConSusMembresias() {
+        Runnable recorrer = () -> {
+            User usuario = userRepository.findByUsername("usuarioL2").orElseThrow();
+            usuario.getUsuarioGrupos().forEach(ug -> {
+                assertThat(ug.getRol()).isEqualTo(Role.ROLE_LIDER);
+                assertThat(ug.getGrupo().getNombre()).isEqualTo("GrupoL2");
+            });
+        };
+        assertThat(medir(recorrer)).isPositive();
+        // Al montar la membresía desde la caché se carga el grupo de su clave, que la primera lectura dejó como proxy
+        assertThat(medir(recorrer)).isLessThanOrEqualTo(1);
+        assertThat(medir(recorrer)).isZero();
+        assertThat(estadisticas().getSecondLevelCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void losCambiosConfirmadosSustituyenLoCacheado() {
+        medir(() -> userRepository.findByUsername("usuarioL2").orElseThrow().getUsuarioGrupos().size());
+        enTransaccion(() -> {
+            Grupo otro = new Grupo("OtroL2");
+            entityManager.persist(otro);
+            UsuarioGrupo usuarioGrupo = new UsuarioGrupo();
+            usuarioGrupo.setUsuario(userRepository.findByUsername("usuarioL2").orElseThrow());
+            usuarioGrupo.setGrupo(otro);
+            usuarioGrupo.setRol(Role.ROLE_USER);
+            usuarioGrupo.getUsuario().getUsuarioGrupos().add(usuarioGrupo);
+            entityManager.persist(usuarioGrupo);
+        });
+
+        enTransaccion(() -> assertThat(userRepository.findByUsername("usuarioL2").orElseThrow().getGrupos())
+                .extracting(Grupo::getNombre).containsExactlyInAnyOrder("GrupoL2", "OtroL2"));
+    }
+
+    private long medir(Runnable accion) {
+        Statistics statistics = estadisticas();
+        statistics.clear();
+        enTransaccion(accion);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void enTransaccion(Runnable accion) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> accion.run());
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
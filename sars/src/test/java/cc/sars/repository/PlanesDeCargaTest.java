@@ -0,0 +1,142 @@
+package cc.sars.repository;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.Grupo;
+import cc.sars.model.Role;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.model.User;
+import cc.sars.model.UsuarioGrupo;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cada plan de carga debe ejecutar el mismo número de sentencias con colecciones pequeñas y grandes.
+ * Los accesos a las asociaciones imitan lo que hacen los controladores con cada entidad.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class PlanesDeCargaTest {
+
+    @Autowired
+    private SerieRepository serieRepository;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void tablero_numeroDeSentenciasNoDependeDeLosCapitulos() {
+        poblar("P", 2);
+        poblar("G", 20);
+
+        long pequenyo = medir(() -> recorrerTablero("P"));
+        long grande = medir(() -> recorrerTablero("G"));
+
+        assertThat(grande).isEqualTo(pequenyo).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void detalleDeGrupo_numeroDeSentenciasNoDependeDeMiembrosNiSeries() {
+        poblar("P", 2);
+        poblar("G", 20);
+
+        long pequenyo = medir(() -> recorrerDetalleGrupo("P"));
+        long grande = medir(() -> recorrerDetalleGrupo("G"));
+
+        assertThat(grande).isEqualTo(pequenyo).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void listadoYPertenencia_numeroDeSentenciasNoDependeDeLosUsuarios() {
+        poblar("P", 2);
+        long pequenyo = medir(this::recorrerUsuarios);
+        poblar("G", 20);
+        long grande = medir(this::recorrerUsuarios);
+
+        assertThat(grande).isEqualTo(pequenyo).isEqualTo(1);
+        assertThat(medir(() -> {
+            User usuario = userRepository.findByUsernameWithGrupos("G-usuario-7").orElseThrow();
+            usuario.getUsuarioGrupos().forEach(ug -> ug.getGrupo().getNombre());
+        })).isEqualTo(1);
+    }
+
+    private void recorrerTablero(String prefijo) {
+        Serie serie = serieRepository.findTableroByGrupo_NombreAndNombre(prefijo + "-grupo", prefijo + "-serie-0").orElseThrow();
+        serie.getGrupo().getNombre();
+        for (Capitulo capitulo : serie.getCapitulos()) {
+            capitulo.getTareas().forEach(Tarea::getEstadoTarea);
+        }
+    }
+
+    private void recorrerDetalleGrupo(String prefijo) {
+        Grupo grupo = grupoRepository.findDetalleByNombre(prefijo + "-grupo").orElseThrow();
+        grupo.getUsuarioGrupos().forEach(ug -> {
+            ug.getUsuario().getRole();
+            ug.getRol();
+        });
+        grupo.getSeries().forEach(Serie::getNombre);
+    }
+
+    private void recorrerUsuarios() {
+        for (User usuario : userRepository.findAll()) {
+            usuario.getUsuarioGrupos().forEach(ug -> ug.getGrupo().getNombre());
+        }
+    }
+
+    private long medir(Runnable accion) {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        accion.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Crea un grupo con n series de n capítulos (3 tareas cada uno) y n usuarios, miembros del grupo y de uno propio.
+     */
+    private void poblar(String prefijo, int n) {
+        Grupo grupo = new Grupo(prefijo + "-grupo");
+        entityManager.persist(grupo);
+        for (int s = 0; s < n; s++) {
+            Serie serie = new Serie(prefijo + "-serie-" + s, "desc");
+            grupo.agregarSerie(serie);
+            entityManager.persist(serie);
+            for (int c = 0; c < n; c++) {
+                Capitulo capitulo = new Capitulo("Cap " + c);
+                capitulo.anyadirTarea(new Tarea("CC"));
+                capitulo.anyadirTarea(new Tarea("Traducción"));
+                capitulo.anyadirTarea(new Tarea("Edición"));
+                capitulo.setSerie(serie);
+                entityManager.persist(capitulo);
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            User usuario = new User(prefijo + "-usuario-" + u, "pass", Role.ROLE_USER);
+            entityManager.persist(usuario);
+            Grupo propio = new Grupo(prefijo + "-propio-" + u);
+            entityManager.persist(propio);
+            membresia(usuario, grupo, u == 0 ? Role.ROLE_LIDER : Role.ROLE_USER);
+            membresia(usuario, propio, Role.ROLE_LIDER);
+        }
+    }
+
+    private void membresia(User usuario, Grupo grupo, Role rol) {
+        UsuarioGrupo usuarioGrupo = new UsuarioGrupo();
+        usuarioGrupo.setUsuario(usuario);
+        usuarioGrupo.setGrupo(grupo);
+        usuarioGrupo.setRol(rol);
+        entityManager.persist(usuarioGrupo);
+    }
+}
@@ -0,0 +1,154 @@
+package cc.sars.repository;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class TareaRepositoryTest {
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Solo se liberan las tareas 'Asignado' del usuario; las completadas y las de otros no se tocan.
+     */
+    @Test
+    void desasignarTareasDeUsuario_soloLiberaTareasAsignadasDelUsuario() {
+        Serie serie = crearSerie("GrupoDesasignar", "SerieDesasignar");
+        Capitulo capitulo = new Capitulo("Cap 1");
+        capitulo.anyadirTarea(tarea("Traducción", EstadosTareas.Asignado, "ana"));
+        capitulo.anyadirTarea(tarea("Edición", EstadosTareas.Completado, "ana"));
+        capitulo.anyadirTarea(tarea("Typeo", EstadosTareas.Asignado, "luis"));
+        serie.addCapitulo(capitulo);
+        entityManager.persist(capitulo);
+        entityManager.flush();
+        entityManager.clear();
+
+        int liberadas = tareaRepository.desasignarTareasDeUsuario("ana");
+
+        assertThat(liberadas).isEqualTo(1);
+        Capitulo recargado = entityManager.find(Capitulo.class, capitulo.getId());
+        assertThat(recargado.getTareas())
+                .extracting(Tarea::getNombre, Tarea::getEstadoTarea, Tarea::getUsuarioAsignado)
+                .containsExactly(
+                        tuple("Traducción", EstadosTareas.NoAsignado, "NADIE"),
+                        tuple("Edición", EstadosTareas.Completado, "ana"),
+                        tuple("Typeo", EstadosTareas.Asignado, "luis"));
+    }
+
+    /**
+     * Benchmark: el coste de desasignar no depende del número total de capítulos.
+     * Se mide con las estadísticas de Hibernate (sentencias y entidades cargadas).
+     */
+    @Test
+    void desasignarTareasDeUsuario_costePlanoAlCrecerLosCapitulos() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Serie serie = crearSerie("GrupoBench", "SerieBench");
+        int[] tamanyos = {100, 1000, 4000};
+        int creados = 0;
+
+        for (int total : tamanyos) {
+            for (; creados < total; creados++) {
+                Capitulo capitulo = new Capitulo("Cap " + creados);
+                capitulo.anyadirTarea(tarea("CC", EstadosTareas.NoAsignado, "NADIE"));
+                capitulo.anyadirTarea(tarea("Traducción", EstadosTareas.Asignado, creados == 0 ? "ana" : "otro"));
+                capitulo.setSerie(entityManager.getReference(Serie.class, serie.getId()));
+                entityManager.persist(capitulo);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            statistics.clear();
+
+            tareaRepository.desasignarTareasDeUsuario("ana");
+
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+            assertThat(statistics.getCollectionLoadCount()).isZero();
+        }
+    }
+
+    /**
+     * Cambiar el estado de una tarea es una consulta por clave natural y un UPDATE de una sola fila,
+     * sin cargar ni reescribir el resto de tareas del capítulo.
+     */
+    @Test
+    void cambiarEstado_esUnUpdateDeUnaSolaFila() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Capitulo capitulo = crearCapituloConTareas("GrupoEstado", "SerieEstado", 10);
+        statistics.clear();
+
+        Tarea tarea = tareaRepository.findByNaturalKey("GrupoEstado", "SerieEstado", capitulo.getNombre(), "T3").orElseThrow();
+        tarea.setEstadoTarea(EstadosTareas.Completado);
+        tarea.setUsuarioAsignado("ana");
+        tareaRepository.save(tarea);
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    /**
+     * Borrar una tarea intermedia no desplaza a las demás (antes se reescribía cada índice posterior).
+     */
+    @Test
+    void borrarTarea_noReescribeLasDemas() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Capitulo capitulo = crearCapituloConTareas("GrupoBorrar", "SerieBorrar", 10);
+        statistics.clear();
+
+        Tarea tarea = tareaRepository.findByNaturalKey("GrupoBorrar", "SerieBorrar", capitulo.getNombre(), "T3").orElseThrow();
+        tareaRepository.delete(tarea);
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityDeleteCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        entityManager.clear();
+        assertThat(entityManager.find(Capitulo.class, capitulo.getId()).getTareas()).hasSize(9);
+    }
+
+    private Capitulo crearCapituloConTareas(String nombreGrupo, String nombreSerie, int numTareas) {
+        Serie serie = crearSerie(nombreGrupo, nombreSerie);
+        Capitulo capitulo = new Capitulo("Cap 1");
+        for (int i = 1; i <= numTareas; i++) {
+            capitulo.anyadirTarea(tarea("T" + i, EstadosTareas.NoAsignado, "NADIE"));
+        }
+        serie.addCapitulo(capitulo);
+        entityManager.persist(capitulo);
+        entityManager.flush();
+        entityManager.clear();
+        return capitulo;
+    }
+
+    private Serie crearSerie(String nombreGrupo, String nombreSerie) {
+        Grupo grupo = new Grupo(nombreGrupo);
+        entityManager.persist(grupo);
+        Serie serie = new Serie(nombreSerie, "desc");
+        grupo.agregarSerie(serie);
+        entityManager.persist(serie);
+        return serie;
+    }
+
+    private Tarea tarea(String nombre, EstadosTareas estado, String usuario) {
+        Tarea tarea = new Tarea(nombre);
+        tarea.setEstadoTarea(estado);
+        tarea.setUsuarioAsignado(usuario);
+        return tarea;
+    }
+}
@@ -0,0 +1,71 @@
+package cc.sars.service;
+
+import cc.sars.config.AdminUserInitializer;
+import cc.sars.model.Role;
+import cc.sars.model.User;
+import cc.sars.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({AdminService.class, AdminUserInitializer.class, MembresiasCache.class, UsuariosCache.class, UsuarioService.class,
+        GrupoService.class, SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, SimpleMeterRegistry.class})
+public class AdminServiceTest {
+
+    private static final String GRUPO = "GrupoReset";
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private GrupoService grupoService;
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /** AdminUserInitializer crea el admin al arrancar el contexto, así que el codificador no puede ser un mock. */
+    @TestConfiguration
+    static class Codificador {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Test
+    void resetDatabaseBorraTodoYRecreaElAdmin() {
+        grupoService.crearGrupo(GRUPO);
+        userRepository.save(new User("ana", "pass", Role.ROLE_USER));
+        grupoService.agregarUsuarioAGrupo("ana", GRUPO, Role.ROLE_LIDER);
+        serieService.createSerie("Serie", "desc", GRUPO);
+        serieService.addCapitulosToSerie(GRUPO, "Serie", "Cap 1\nCap 2", new String[]{"Traducción###NoAsignado###NADIE"});
+
+        AdminService.ResumenReset resumen = adminService.resetDatabase();
+
+        assertThat(resumen.filasBorradas()).containsEntry("tarea", 2).containsEntry("capitulo", 2)
+                .containsEntry("serie_progreso", 1).containsEntry("serie", 1).containsEntry("usuario_grupo", 1)
+                .containsEntry("grupo", 1).containsEntry("sec_user", 2);
+        assertThat(userRepository.findAll()).extracting(User::getUsername).containsExactly("admin");
+        assertThat(usuarioService.findByUsername("ana")).isEmpty();
+
+        // Nada de lo borrado sigue en las cachés: se puede volver a crear con los mismos nombres
+        grupoService.crearGrupo(GRUPO);
+        serieService.createSerie("Serie", "desc", GRUPO);
+        assertThat(serieService.getSerieByNombreAndGrupo(GRUPO, "Serie")).isPresent();
+    }
+}
@@ -0,0 +1,155 @@
+package cc.sars.service;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.Serie;
+import cc.sars.repository.CapituloRepository;
+import cc.sars.repository.GrupoRepository;
+import cc.sars.repository.TareaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tras cada cambio, los contadores guardados deben coincidir con los recalculados desde las tareas.
+ */
+@DataJpaTest
+@Import({SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class})
+public class ContadoresProgresoTest {
+
+    private static final String GRUPO = "GrupoProgreso";
+    private static final String SERIE = "SerieProgreso";
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private CapituloRepository capituloRepository;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void poblar() {
+        grupoRepository.save(new Grupo(GRUPO));
+        serieService.createSerie(SERIE, "desc", GRUPO);
+        serieService.addCapitulosToSerie(GRUPO, SERIE, "Cap 1\nCap 2",
+                new String[]{"Traducción###NoAsignado###NADIE", "Edición###Asignado###ana", "CC###NoAsignado###NADIE"});
+    }
+
+    @Test
+    void transicionesMantienenLosContadores() {
+        assertThat(progresoSerie().getProgreso()).isEqualTo(new ProgresoTareas(6, 0, 2, 0, 2, 0));
+
+        serieService.updateTarea(GRUPO, SERIE, "Cap 1", "Traducción", EstadosTareas.Completado, "ana");
+        serieService.updateTarea(GRUPO, SERIE, "Cap 1", "Edición", EstadosTareas.Completado, "ana");
+        assertThat(capitulo("Cap 1").isCcListo()).isTrue();
+        assertThat(progresoSerie().getCapitulosListosCc()).isEqualTo(1);
+        comprobarContadores();
+
+        // QC pide repetir: el capítulo deja de estar listo para C.C.
+        serieService.updateTarea(GRUPO, SERIE, "Cap 1", "Edición", EstadosTareas.Repetir, "NADIE");
+        assertThat(progresoSerie().isCcPendiente()).isFalse();
+        comprobarContadores();
+
+        serieService.updateTarea(GRUPO, SERIE, "Cap 1", "Edición", EstadosTareas.Completado, "ana");
+        serieService.updateTarea(GRUPO, SERIE, "Cap 1", "CC", EstadosTareas.Completado, "lider");
+        assertThat(capitulo("Cap 1")).isEqualTo(new ProgresoTareas(3, 3, 0, 0, 1, 1));
+        assertThat(progresoSerie().getCapitulosListosCc()).isZero();
+        comprobarContadores();
+    }
+
+    @Test
+    void altasYBajasMantienenLosContadores() {
+        serieService.updateTarea(GRUPO, SERIE, "Cap 2", "Traducción", EstadosTareas.Completado, "ana");
+        serieService.addTareaToCapitulo(GRUPO, SERIE, "Cap 2", "Karaoke");
+        comprobarContadores();
+
+        // Al borrar las dos pendientes, Cap 2 pasa a estar listo para C.C.
+        serieService.deleteTarea(GRUPO, SERIE, "Cap 2", "Karaoke");
+        serieService.deleteTarea(GRUPO, SERIE, "Cap 2", "Edición");
+        assertThat(progresoSerie().getCapitulosListosCc()).isEqualTo(1);
+        comprobarContadores();
+
+        // Un capítulo nuevo solo tiene la tarea 'CC': también está listo
+        serieService.addCapituloToSerie(GRUPO, SERIE, "Cap 3");
+        assertThat(progresoSerie().getCapitulosListosCc()).isEqualTo(2);
+        comprobarContadores();
+
+        serieService.deleteCapitulo(GRUPO, SERIE, "Cap 2");
+        serieService.deleteCapitulo(GRUPO, SERIE, "Cap 3");
+        assertThat(progresoSerie().getCapitulosListosCc()).isZero();
+        comprobarContadores();
+    }
+
+    @Test
+    void liberarTareasDeUnUsuarioDescuentaLasAsignadas() {
+        serieService.updateTarea(GRUPO, SERIE, "Cap 1", "Traducción", EstadosTareas.Asignado, "ana");
+        serieService.updateTarea(GRUPO, SERIE, "Cap 2", "Edición", EstadosTareas.Completado, "ana");
+
+        serieService.desasignarUsuarioDeTareas("ana");
+
+        assertThat(progresoSerie().getProgreso().getAsignadas()).isZero();
+        comprobarContadores();
+    }
+
+    /**
+     * Compara los contadores de la serie y de cada capítulo con los recalculados a partir de las tareas.
+     */
+    private void comprobarContadores() {
+        entityManager.flush();
+        entityManager.clear();
+        Map<Integer, ProgresoTareas> esperados = tareaRepository.findAll().stream()
+                .collect(Collectors.groupingBy(t -> t.getCapitulo().getId(),
+                        Collectors.reducing(new ProgresoTareas(), ProgresoTareas::de, ProgresoTareas::sumar)));
+        List<Capitulo> capitulos = capituloRepository.findAll();
+        ProgresoTareas sumaSerie = new ProgresoTareas();
+        int listos = 0;
+        for (Capitulo capitulo : capitulos) {
+            ProgresoTareas esperado = esperados.getOrDefault(capitulo.getId(), new ProgresoTareas());
+            assertThat(capitulo.getProgreso()).as(capitulo.getNombre()).isEqualTo(esperado);
+            sumaSerie = sumaSerie.sumar(esperado);
+            listos += esperado.isCcListo() ? 1 : 0;
+        }
+        ProgresoSerie progresoSerie = progresoSerie();
+        assertThat(progresoSerie.getProgreso()).isEqualTo(sumaSerie);
+        assertThat(progresoSerie.getCapitulosListosCc()).isEqualTo(listos);
+    }
+
+    private ProgresoSerie progresoSerie() {
+        entityManager.flush();
+        entityManager.clear();
+        Serie serie = serieService.getSerieByNombreAndGrupo(GRUPO, SERIE).orElseThrow();
+        ProgresoSerie progreso = serieService.getProgresoDeSeries(List.of(serie)).get(serie.getId());
+        // Como en una petición nueva: la serie cargada con sus capítulos no debe seguir en el contexto
+        entityManager.clear();
+        return progreso;
+    }
+
+    private ProgresoTareas capitulo(String nombre) {
+        Capitulo capitulo = serieService.getCapituloByNombre(GRUPO, SERIE, nombre).orElseThrow();
+        return capituloRepository.findProgreso(capitulo.getId());
+    }
+}
@@ -0,0 +1,180 @@
+package cc.sars.service;
+
+import cc.sars.exception.CopiaSeguridadInvalidaException;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.Role;
+import cc.sars.model.Serie;
+import cc.sars.model.User;
+import cc.sars.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * La restauración confirma cada lote por separado (ver {@link LimpiezaBaseDatos}).
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CopiaSeguridadService.class, MembresiasCache.class, UsuariosCache.class, UsuarioService.class, GrupoService.class,
+        SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, SimpleMeterRegistry.class})
+public class CopiaSeguridadServiceTest {
+
+    private static final String GRUPO = "GrupoCopia";
+
+    @Autowired
+    private CopiaSeguridadService copiaSeguridadService;
+
+    @Autowired
+    private GrupoService grupoService;
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void poblar() {
+        grupoService.crearGrupo(GRUPO);
+        userRepository.save(new User("lider", "{bcrypt}hash", Role.ROLE_USER));
+        userRepository.save(new User("ana", "{bcrypt}otro", Role.ROLE_USER));
+        grupoService.agregarUsuarioAGrupo("lider", GRUPO, Role.ROLE_LIDER);
+        grupoService.agregarUsuarioAGrupo("ana", GRUPO, Role.ROLE_USER);
+        serieService.createSerie("Serie principal", "C:\\ruta\tcon tabulador\nsegunda línea", GRUPO);
+        serieService.createSerie("Serie sin descripción", null, GRUPO);
+        serieService.addCapitulosToSerie(GRUPO, "Serie principal", "Cap 1\nCap 2",
+                new String[]{"Traducción###Completado###ana", "Edición###Asignado###ana", "CC###NoAsignado###NADIE"});
+        serieService.addCapituloToSerie(GRUPO, "Serie sin descripción", "Cap único");
+    }
+
+    @AfterEach
+    void limpiar() {
+        LimpiezaBaseDatos.vaciar(jdbcTemplate, entityManagerFactory);
+    }
+
+    @Test
+    void restaurarUnaCopiaReproduceElGrupo() throws IOException {
+        byte[] copia = exportar(GRUPO);
+        String original = texto(copia);
+        assertThat(original).startsWith(CopiaSeguridadService.CABECERA + "\nU\tana\t{bcrypt}otro\tROLE_USER\n")
+                .contains("S\tSerie principal\tC:\\\\ruta\\tcon tabulador\\nsegunda línea\n")
+                .contains("S\tSerie sin descripción\t\\N\n");
+
+        borrarGrupo(GRUPO);
+        CopiaSeguridadService.ResumenRestauracion resumen = copiaSeguridadService.restaurar(new ByteArrayInputStream(copia));
+
+        assertThat(resumen).isEqualTo(new CopiaSeguridadService.ResumenRestauracion(0, 1, List.of(), 2, 3, 7));
+        assertThat(texto(exportar(GRUPO))).isEqualTo(original);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuario_grupo WHERE grupo_nombre = ?", Integer.class, GRUPO)).isEqualTo(2);
+        Serie serie = serieService.getSerieByNombreAndGrupo(GRUPO, "Serie principal").orElseThrow();
+        ProgresoSerie progreso = serieService.getProgresoDeSeries(List.of(serie)).get(serie.getId());
+        assertThat(progreso.getProgreso()).isEqualTo(new ProgresoTareas(6, 2, 2, 0, 2, 0));
+
+        // Los ids restaurados no chocan con los que asigna Hibernate después
+        serieService.addCapituloToSerie(GRUPO, "Serie principal", "Cap 3");
+        serieService.createSerie("Serie nueva", "desc", GRUPO);
+
+        // Un grupo que ya existe se omite entero
+        resumen = copiaSeguridadService.restaurar(new ByteArrayInputStream(copia));
+        assertThat(resumen.gruposOmitidos()).containsExactly(GRUPO);
+        assertThat(resumen.tareas()).isZero();
+    }
+
+    @Test
+    void restaurarMuchasTareasEnLotes() throws IOException {
+        int series = 20;
+        int capitulosPorSerie = 250;
+        int tareasPorCapitulo = 10;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer escritor = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            escritor.write(CopiaSeguridadService.CABECERA + "\nG\tGrupoGrande\nM\tana\tROLE_USER\n");
+            for (int s = 0; s < series; s++) {
+                escritor.write("S\tSerie " + s + "\t\\N\n");
+                for (int c = 0; c < capitulosPorSerie; c++) {
+                    escritor.write("C\tCap " + c + "\n");
+                    for (int t = 0; t < tareasPorCapitulo; t++) {
+                        EstadosTareas estado = EstadosTareas.values()[t % EstadosTareas.values().length];
+                        escritor.write("T\tTarea " + t + "\t" + estado + "\t" + (estado == EstadosTareas.NoAsignado ? "NADIE" : "ana") + "\n");
+                    }
+                }
+            }
+        }
+
+        CopiaSeguridadService.ResumenRestauracion resumen = copiaSeguridadService.restaurar(new ByteArrayInputStream(bytes.toByteArray()));
+
+        int tareas = series * capitulosPorSerie * tareasPorCapitulo;
+        assertThat(resumen.tareas()).isEqualTo(tareas);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tarea", Integer.class)).isEqualTo(tareas + 7);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(tareas_total) FROM serie_progreso", Integer.class)).isEqualTo(tareas + 7);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT capitulo_id) FROM tarea", Integer.class))
+                .isEqualTo(series * capitulosPorSerie + 3);
+    }
+
+    @Test
+    void unaCopiaDanadaIndicaLaLinea() {
+        byte[] copia = (CopiaSeguridadService.CABECERA + "\nG\tOtroGrupo\nS\tSerie\t\\N\nT\tTarea\tCompletado\tana\n")
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> copiaSeguridadService.restaurar(new ByteArrayInputStream(copia)))
+                .isInstanceOf(CopiaSeguridadInvalidaException.class)
+                .hasMessageContaining("Línea 4");
+    }
+
+    private byte[] exportar(String grupo) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        copiaSeguridadService.exportar(grupo, salida);
+        return salida.toByteArray();
+    }
+
+    private static String texto(byte[] copia) throws IOException {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(copia))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void borrarGrupo(String grupo) {
+        jdbcTemplate.update("DELETE FROM tarea WHERE capitulo_id IN "
+                + "(SELECT c.id FROM capitulo c JOIN serie s ON c.serie_id = s.id WHERE s.grupo_nombre = ?)", grupo);
+        jdbcTemplate.update("DELETE FROM capitulo WHERE serie_id IN (SELECT id FROM serie WHERE grupo_nombre = ?)", grupo);
+        jdbcTemplate.update("DELETE FROM serie_progreso WHERE serie_id IN (SELECT id FROM serie WHERE grupo_nombre = ?)", grupo);
+        jdbcTemplate.update("DELETE FROM serie WHERE grupo_nombre = ?", grupo);
+        jdbcTemplate.update("DELETE FROM usuario_grupo WHERE grupo_nombre = ?", grupo);
+        jdbcTemplate.update("DELETE FROM grupo WHERE nombre = ?", grupo);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+}
@@ -0,0 +1,24 @@
+package cc.sars.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Limpieza de los tests que se ejecutan fuera de la transacción de @DataJpaTest
+ * (@Transactional(propagation = Propagation.NOT_SUPPORTED)), porque lo que prueban confirma sus propias transacciones.
+ * Borra las mismas tablas que {@link AdminService#resetDatabase()}, en su orden, y vacía la caché de segundo nivel:
+ * el borrado por JDBC no pasa por Hibernate, y evictAll() de JPA no vaciaría la caché de ids naturales de Serie.
+ */
+final class LimpiezaBaseDatos {
+
+    private LimpiezaBaseDatos() {
+    }
+
+    static void vaciar(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        for (String tabla : AdminService.TABLAS) {
+            jdbcTemplate.update("DELETE FROM " + tabla);
+        }
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+}
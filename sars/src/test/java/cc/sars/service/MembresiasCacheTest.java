@@ -0,0 +1,134 @@
+package cc.sars.service;
+
+import cc.sars.model.Role;
+import cc.sars.model.User;
+import cc.sars.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La caché solo se invalida al confirmar, así que cada operación usa su propia transacción
+ * (ver {@link LimpiezaBaseDatos}).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({MembresiasCache.class, UsuariosCache.class, UsuarioService.class, GrupoService.class, SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, SimpleMeterRegistry.class})
+public class MembresiasCacheTest {
+
+    private static final String GRUPO = "GrupoCache";
+
+    @Autowired
+    private MembresiasCache membresiasCache;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private GrupoService grupoService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void poblar() {
+        grupoService.crearGrupo(GRUPO);
+        userRepository.save(new User("lider", "pass", Role.ROLE_USER));
+        userRepository.save(new User("ana", "pass", Role.ROLE_USER));
+        grupoService.agregarUsuarioAGrupo("lider", GRUPO, Role.ROLE_LIDER);
+        grupoService.agregarUsuarioAGrupo("ana", GRUPO, Role.ROLE_USER);
+        membresiasCache.invalidarTodo();
+    }
+
+    @AfterEach
+    void limpiar() {
+        LimpiezaBaseDatos.vaciar(jdbcTemplate, entityManagerFactory);
+        // Tampoco pasa por las cachés de la aplicación
+        membresiasCache.invalidarTodo();
+    }
+
+    @Test
+    void segundaConsultaNoTocaLaBaseDeDatos() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        double aciertos = contador("hit");
+        double fallos = contador("miss");
+
+        statistics.clear();
+        assertThat(usuarioService.esLiderEnGrupo("lider", GRUPO)).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        assertThat(usuarioService.perteneceAGrupo("lider", GRUPO)).isTrue();
+        assertThat(usuarioService.esQcEnGrupo("lider", GRUPO)).isFalse();
+        assertThat(usuarioService.getNombresDeGrupos("lider")).containsExactly(GRUPO);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        assertThat(contador("miss") - fallos).isEqualTo(1);
+        assertThat(contador("hit") - aciertos).isEqualTo(3);
+    }
+
+    @Test
+    void cambiosDeMembresiaSeVenTrasConfirmar() {
+        assertThat(usuarioService.getRolEnGrupo("ana", GRUPO)).contains(Role.ROLE_USER);
+
+        usuarioService.cambiarRolEnGrupo("ana", Role.ROLE_QC, GRUPO);
+        assertThat(usuarioService.getRolEnGrupo("ana", GRUPO)).contains(Role.ROLE_QC);
+
+        grupoService.eliminarUsuarioDeGrupo(GRUPO, "ana");
+        assertThat(usuarioService.perteneceAGrupo("ana", GRUPO)).isFalse();
+
+        assertThat(usuarioService.esLiderEnGrupo("lider", GRUPO)).isTrue();
+        grupoService.deleteGrupo(GRUPO);
+        assertThat(usuarioService.getNombresDeGrupos("lider")).isEmpty();
+    }
+
+    @Test
+    void noGuardaCambiosSinConfirmar() {
+        assertThat(usuarioService.esLiderEnGrupo("ana", GRUPO)).isFalse();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            usuarioService.cambiarRolEnGrupo("ana", Role.ROLE_LIDER, GRUPO);
+            // La propia transacción ve su cambio, pero no debe quedarse en la caché
+            assertThat(usuarioService.esLiderEnGrupo("ana", GRUPO)).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(usuarioService.esLiderEnGrupo("ana", GRUPO)).isFalse();
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get("cache.gets").tag("cache", "membresias").tag("result", resultado).counter().count();
+    }
+}
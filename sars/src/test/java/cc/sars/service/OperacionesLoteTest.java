@@ -0,0 +1,178 @@
+package cc.sars.service;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.ProgresoSerie;
+import cc.sars.model.ProgresoTareas;
+import cc.sars.model.Role;
+import cc.sars.model.Tarea;
+import cc.sars.model.User;
+import cc.sars.repository.GrupoRepository;
+import cc.sars.repository.ProgresoSerieRepository;
+import cc.sars.repository.TareaRepository;
+import cc.sars.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+import static cc.sars.service.ResultadoOperacion.Estado.ANULADA;
+import static cc.sars.service.ResultadoOperacion.Estado.APLICADA;
+import static cc.sars.service.ResultadoOperacion.Estado.NO_INTENTADA;
+import static cc.sars.service.ResultadoOperacion.Estado.RECHAZADA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lotes de operaciones contra H2. El todo o nada deshace la transacción del servicio (ver {@link LimpiezaBaseDatos}).
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SerieService.class, TransicionTareaService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class})
+public class OperacionesLoteTest {
+
+    private static final String GRUPO = "GrupoLote";
+    private static final String SERIE = "SerieLote";
+
+    @Autowired
+    private TransicionTareaService transicionTareaService;
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private ProgresoSerieRepository progresoSerieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void poblar() {
+        grupoRepository.save(new Grupo(GRUPO));
+        serieService.createSerie(SERIE, "desc", GRUPO);
+        serieService.addCapitulosToSerie(GRUPO, SERIE, "Cap 1\nCap 2",
+                new String[]{"CC###NoAsignado###NADIE", "Traducción###NoAsignado###NADIE"});
+        for (String username : new String[]{"ana", "lider"}) {
+            User usuario = userRepository.save(new User(username, "x", Role.ROLE_USER));
+            when(usuarioService.findByUsername(username)).thenReturn(Optional.of(usuario));
+        }
+        when(usuarioService.esLiderEnGrupo(argThat(u -> u != null && u.getUsername().equals("lider")), any(Grupo.class))).thenReturn(true);
+        when(usuarioService.perteneceAGrupo(any(User.class), any(Grupo.class))).thenReturn(true);
+        jdbcTemplate.update("DELETE FROM evento_outbox");
+    }
+
+    @AfterEach
+    void limpiar() {
+        LimpiezaBaseDatos.vaciar(jdbcTemplate, entityManagerFactory);
+    }
+
+    /**
+     * Operaciones de un usuario sin rol de líder: cada una ve las anteriores (la 'CC' completada en la tercera
+     * bloquea la cuarta) y las rechazadas no impiden aplicar las demás.
+     */
+    private static List<OperacionTarea> loteDeAna() {
+        return List.of(
+                OperacionTarea.estado("Cap 1", "Traducción", EstadosTareas.Asignado),
+                OperacionTarea.estado("Cap 1", "CC", EstadosTareas.Repetir),
+                OperacionTarea.estado("Cap 2", "CC", EstadosTareas.Completado),
+                OperacionTarea.estado("Cap 2", "Traducción", EstadosTareas.Asignado),
+                OperacionTarea.estado("Cap 3", "Traducción", EstadosTareas.Asignado));
+    }
+
+    @Test
+    void sinTodoONada_aplicaLasValidasConUnaSolaEscrituraDeContadoresPorCapitulo() {
+        List<ResultadoOperacion> resultados = transicionTareaService.aplicarOperaciones(GRUPO, SERIE, "ana", loteDeAna(), false);
+
+        assertThat(resultados).extracting(ResultadoOperacion::estado)
+                .containsExactly(APLICADA, RECHAZADA, APLICADA, RECHAZADA, RECHAZADA);
+        assertThat(resultados.get(1).error()).isEqualTo("Solo puedes asignarte esta tarea.");
+        assertThat(resultados.get(3).error()).contains("la tarea 'CC' está completada");
+        assertThat(resultados.get(4).error()).contains("Cap 3");
+
+        assertThat(tareaRepository.findAll())
+                .extracting(Tarea::getNombre, Tarea::getEstadoTarea, Tarea::getUsuarioAsignado)
+                .containsExactlyInAnyOrder(
+                        tuple("CC", EstadosTareas.NoAsignado, "NADIE"),
+                        tuple("Traducción", EstadosTareas.Asignado, "ana"),
+                        tuple("CC", EstadosTareas.Completado, "ana"),
+                        tuple("Traducción", EstadosTareas.NoAsignado, "NADIE"));
+        ProgresoTareas recalculado = tareaRepository.findAll().stream()
+                .map(ProgresoTareas::de).reduce(new ProgresoTareas(), ProgresoTareas::sumar);
+        assertThat(progreso().getProgreso()).isEqualTo(recalculado);
+        assertThat(eventos()).isEqualTo(2);
+    }
+
+    @Test
+    void todoONada_laPrimeraRechazadaDeshaceElLote() {
+        ProgresoTareas antes = progreso().getProgreso();
+
+        List<ResultadoOperacion> resultados = transicionTareaService.aplicarOperaciones(GRUPO, SERIE, "ana", loteDeAna(), true);
+
+        assertThat(resultados).extracting(ResultadoOperacion::estado)
+                .containsExactly(ANULADA, RECHAZADA, NO_INTENTADA, NO_INTENTADA, NO_INTENTADA);
+        assertThat(tareaRepository.findAll()).allSatisfy(tarea -> {
+            assertThat(tarea.getEstadoTarea()).isEqualTo(EstadosTareas.NoAsignado);
+            assertThat(tarea.getUsuarioAsignado()).isEqualTo("NADIE");
+        });
+        assertThat(progreso().getProgreso()).isEqualTo(antes);
+        assertThat(eventos()).isZero();
+    }
+
+    @Test
+    void asignacionesYVersiones_conLasReglasDeLasOperacionesSueltas() {
+        long version = serieService.getTareaByNombre(GRUPO, SERIE, "Cap 1", "CC").orElseThrow().getVersion();
+        List<OperacionTarea> lote = List.of(
+                OperacionTarea.asignacion("Cap 1", "Traducción", "ana"),
+                OperacionTarea.asignacion("Cap 1", "CC", "nadie"),
+                new OperacionTarea(OperacionTarea.Tipo.ESTADO, "Cap 1", "CC", EstadosTareas.Asignado, null, version + 1),
+                new OperacionTarea(OperacionTarea.Tipo.ESTADO, "Cap 1", "CC", EstadosTareas.Asignado, null, version));
+
+        List<ResultadoOperacion> resultados = transicionTareaService.aplicarOperaciones(GRUPO, SERIE, "lider", lote, false);
+
+        assertThat(resultados).extracting(ResultadoOperacion::estado).containsExactly(APLICADA, RECHAZADA, RECHAZADA, APLICADA);
+        // La tarea devuelta ya lleva la versión escrita al confirmar
+        assertThat(resultados.get(3).tarea().getVersion()).isEqualTo(version + 1);
+        assertThat(serieService.getTareaByNombre(GRUPO, SERIE, "Cap 1", "Traducción").orElseThrow().getUsuarioAsignado()).isEqualTo("ana");
+
+        // Sin rol de líder no se asigna
+        List<ResultadoOperacion> deAna = transicionTareaService.aplicarOperaciones(GRUPO, SERIE, "ana",
+                List.of(OperacionTarea.asignacion("Cap 2", "Traducción", "ana")), false);
+        assertThat(deAna).extracting(ResultadoOperacion::estado).containsExactly(RECHAZADA);
+    }
+
+    private ProgresoSerie progreso() {
+        return progresoSerieRepository.findAll().get(0);
+    }
+
+    private Integer eventos() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM evento_outbox", Integer.class);
+    }
+}
@@ -0,0 +1,160 @@
+package cc.sars.service;
+
+import cc.sars.exception.CursorInvalidoException;
+import cc.sars.exception.SerieNotFoundException;
+import cc.sars.model.Capitulo;
+import cc.sars.model.Grupo;
+import cc.sars.model.Role;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.model.User;
+import cc.sars.model.UsuarioGrupo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Paginación por clave contra H2: se recorre cada listado completo y cada página debe costar
+ * las mismas sentencias y traer como mucho 'limite + 1' filas, esté al principio o al final.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, GrupoService.class, UsuarioService.class, MembresiasCache.class, UsuariosCache.class, SimpleMeterRegistry.class})
+public class PaginacionTest {
+
+    private static final int N = 110;
+    private static final int LIMITE = 25;
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private GrupoService grupoService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void poblar() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Grupo grupo = new Grupo("GrupoPaginado");
+        entityManager.persist(grupo);
+        for (int s = 0; s < N; s++) {
+            Serie serie = new Serie(String.format("Serie %03d", s), "desc");
+            grupo.agregarSerie(serie);
+            entityManager.persist(serie);
+        }
+        Serie larga = grupo.getSeries().get(0);
+        for (int c = 0; c < N; c++) {
+            Capitulo capitulo = new Capitulo("Cap " + c);
+            capitulo.anyadirTarea(new Tarea("CC"));
+            capitulo.anyadirTarea(new Tarea("Traducción"));
+            capitulo.setSerie(larga);
+            entityManager.persist(capitulo);
+        }
+        for (int u = 0; u < N; u++) {
+            User usuario = new User(String.format("usuario-%03d", u), "pass", Role.ROLE_USER);
+            entityManager.persist(usuario);
+            Grupo propio = new Grupo(String.format("propio-%03d", u));
+            entityManager.persist(propio);
+            membresia(usuario, grupo, Role.ROLE_USER);
+            membresia(usuario, propio, Role.ROLE_LIDER);
+        }
+    }
+
+    @Test
+    void series_recorridoCompletoConCosteConstantePorPagina() {
+        List<Serie> todas = recorrer((cursor, limite) -> serieService.getSeriesPagina("GrupoPaginado", cursor, limite), serie -> { }, 1);
+        assertThat(todas).extracting(Serie::getNombre)
+                .hasSize(N).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void capitulos_recorridoCompletoConSusTareasYCosteConstantePorPagina() {
+        List<Capitulo> todos = recorrer((cursor, limite) -> serieService.getCapitulosPagina("GrupoPaginado", "Serie 000", cursor, limite),
+                capitulo -> assertThat(capitulo.getTareas()).hasSize(2), 2);
+        assertThat(todos).extracting(Capitulo::getId)
+                .hasSize(N).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void usuarios_recorridoCompletoConSusMembresiasYCosteConstantePorPagina() {
+        List<User> todos = recorrer(usuarioService::getUsuariosPagina,
+                usuario -> usuario.getUsuarioGrupos().forEach(ug -> ug.getGrupo().getNombre()), 2);
+        assertThat(todos).extracting(User::getUsername)
+                .hasSize(N).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void grupos_recorridoCompletoConCosteConstantePorPagina() {
+        List<Grupo> todos = recorrer(grupoService::getGruposPagina, grupo -> { }, 1);
+        assertThat(todos).extracting(Grupo::getNombre)
+                .hasSize(N + 1).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void grupoOSerieInexistentes_yCursorInvalido() {
+        assertThatThrownBy(() -> serieService.getSeriesPagina("NoExiste", null, null)).isInstanceOf(SerieNotFoundException.class);
+        assertThatThrownBy(() -> serieService.getCapitulosPagina("GrupoPaginado", "NoExiste", null, null)).isInstanceOf(SerieNotFoundException.class);
+        assertThatThrownBy(() -> serieService.getSeriesPagina("GrupoPaginado", "no es base64!", null)).isInstanceOf(CursorInvalidoException.class);
+        assertThatThrownBy(() -> serieService.getSeriesPagina("GrupoPaginado", "YWJj", null)).isInstanceOf(CursorInvalidoException.class);
+        assertThat(serieService.getCapitulosPagina("GrupoPaginado", "Serie 001", null, null).elementos()).isEmpty();
+    }
+
+    /**
+     * Sigue los cursores hasta el final comprobando, página a página, las sentencias y las filas leídas.
+     */
+    private <T> List<T> recorrer(BiFunction<String, Integer, Pagina<T>> pedir, Consumer<T> usar, long sentenciasPorPagina) {
+        List<T> todos = new ArrayList<>();
+        Set<Long> filasPorPagina = new HashSet<>();
+        String cursor = null;
+        do {
+            entityManager.flush();
+            entityManager.clear();
+            statistics.clear();
+            Pagina<T> pagina = pedir.apply(cursor, LIMITE);
+            pagina.elementos().forEach(usar);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(sentenciasPorPagina);
+            assertThat(pagina.elementos()).hasSizeBetween(1, LIMITE);
+            filasPorPagina.add(statistics.getEntityLoadCount());
+            todos.addAll(pagina.elementos());
+            cursor = pagina.siguienteCursor();
+        } while (cursor != null);
+        assertThat(filasPorPagina).allSatisfy(filas -> assertThat(filas).isLessThanOrEqualTo(4L * (LIMITE + 1)));
+        return todos;
+    }
+
+    private void membresia(User usuario, Grupo grupo, Role rol) {
+        UsuarioGrupo usuarioGrupo = new UsuarioGrupo();
+        usuarioGrupo.setUsuario(usuario);
+        usuarioGrupo.setGrupo(grupo);
+        usuarioGrupo.setRol(rol);
+        entityManager.persist(usuarioGrupo);
+    }
+}
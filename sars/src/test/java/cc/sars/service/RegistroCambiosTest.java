@@ -0,0 +1,120 @@
+package cc.sars.service;
+
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.Lapida;
+import cc.sars.model.Tarea;
+import cc.sars.repository.GrupoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Sincronización por cambios contra H2. Cada llamada al servicio es su propia transacción, y por tanto su
+ * propia versión (ver {@link LimpiezaBaseDatos}).
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, CompactacionCambios.class})
+public class RegistroCambiosTest {
+
+    private static final String GRUPO = "GrupoCambios";
+    private static final String SERIE = "SerieCambios";
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private CompactacionCambios compactacionCambios;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @BeforeEach
+    void poblar() {
+        grupoRepository.save(new Grupo(GRUPO));
+        serieService.createSerie(SERIE, "desc", GRUPO);
+        serieService.addCapitulosToSerie(GRUPO, SERIE, "Cap 1\nCap 2",
+                new String[]{"CC###NoAsignado###NADIE", "Traducción###NoAsignado###NADIE"});
+    }
+
+    @AfterEach
+    void limpiar() {
+        LimpiezaBaseDatos.vaciar(jdbcTemplate, entityManagerFactory);
+    }
+
+    @Test
+    void sinVersion_devuelveElTableroCompleto() {
+        CambiosTablero cambios = serieService.getCambiosDesde(GRUPO, SERIE, null);
+
+        assertThat(cambios.completo()).isTrue();
+        assertThat(cambios.version()).isPositive();
+        assertThat(cambios.capitulos()).containsOnlyKeys("Cap 1", "Cap 2");
+        assertThat(cambios.capitulos().get("Cap 1")).extracting(Tarea::getNombre).containsExactly("CC", "Traducción");
+        assertThat(cambios.borrados()).isEmpty();
+    }
+
+    @Test
+    void conVersion_devuelveSoloLoCambiadoDespues() {
+        long inicial = serieService.getCambiosDesde(GRUPO, SERIE, null).version();
+
+        CambiosTablero sinCambios = serieService.getCambiosDesde(GRUPO, SERIE, inicial);
+        assertThat(sinCambios.completo()).isFalse();
+        assertThat(sinCambios.version()).isEqualTo(inicial);
+        assertThat(sinCambios.capitulos()).isEmpty();
+
+        serieService.updateTarea(GRUPO, SERIE, "Cap 2", "CC", EstadosTareas.Asignado, "ana");
+        CambiosTablero cambios = serieService.getCambiosDesde(GRUPO, SERIE, inicial);
+
+        assertThat(cambios.completo()).isFalse();
+        assertThat(cambios.version()).isGreaterThan(inicial);
+        assertThat(cambios.capitulos()).containsOnlyKeys("Cap 2");
+        assertThat(cambios.capitulos().get("Cap 2"))
+                .extracting(Tarea::getNombre, Tarea::getEstadoTarea, Tarea::getUsuarioAsignado)
+                .containsExactly(tuple("CC", EstadosTareas.Asignado, "ana"));
+    }
+
+    @Test
+    void losBorradosDejanLapidaHastaQueSeCompactan() {
+        long inicial = serieService.getCambiosDesde(GRUPO, SERIE, null).version();
+        serieService.deleteTarea(GRUPO, SERIE, "Cap 1", "Traducción");
+        serieService.deleteCapitulo(GRUPO, SERIE, "Cap 2");
+
+        CambiosTablero cambios = serieService.getCambiosDesde(GRUPO, SERIE, inicial);
+        assertThat(cambios.completo()).isFalse();
+        assertThat(cambios.version()).isEqualTo(inicial + 2);
+        assertThat(cambios.capitulos()).isEmpty();
+        assertThat(cambios.borrados()).extracting(Lapida::getCapitulo, Lapida::getTarea)
+                .containsExactly(tuple("Cap 1", "Traducción"), tuple("Cap 2", null));
+
+        assertThat(compactacionCambios.compactar(Instant.now().plusSeconds(1))).isEqualTo(2);
+
+        // Las lápidas ya no están: quien venía de antes recibe el tablero entero
+        CambiosTablero trasCompactar = serieService.getCambiosDesde(GRUPO, SERIE, inicial);
+        assertThat(trasCompactar.completo()).isTrue();
+        assertThat(trasCompactar.capitulos()).containsOnlyKeys("Cap 1");
+        assertThat(serieService.getCambiosDesde(GRUPO, SERIE, cambios.version()).completo()).isFalse();
+    }
+}
@@ -0,0 +1,191 @@
+package cc.sars.service;
+
+import cc.sars.evento.CapituloCreado;
+import cc.sars.evento.EventoDominio;
+import cc.sars.evento.SerieCreada;
+import cc.sars.evento.TareaEstadoCambiado;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.EventoOutbox;
+import cc.sars.model.Grupo;
+import cc.sars.repository.EventoOutboxRepository;
+import cc.sars.repository.GrupoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El relay corre en su propio hilo programado (cada 50 ms aquí, aparcando a los 3 intentos) y solo ve lo confirmado
+ * (ver {@link LimpiezaBaseDatos}); los tests esperan a que los eventos lleguen.
+ */
+@DataJpaTest(properties = {"sars.outbox.intervalo=50ms", "sars.outbox.max-intentos=3"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, RelayOutbox.class, SimpleMeterRegistry.class,
+        RelayOutboxTest.Oyente.class})
+public class RelayOutboxTest {
+
+    private static final String GRUPO = "GrupoEventos";
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private GrupoRepository grupoRepository;
+
+    @Autowired
+    private Oyente oyente;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    @TestConfiguration
+    static class Oyente {
+        final List<EventoDominio> recibidos = new CopyOnWriteArrayList<>();
+        volatile boolean fallarUnaVez;
+        volatile EventoDominio fallarSiempre;
+
+        @EventListener
+        void alRecibir(EventoDominio evento) {
+            recibidos.add(evento);
+            if (evento.equals(fallarSiempre)) {
+                throw new IllegalStateException("Fallo permanente del oyente");
+            }
+            if (fallarUnaVez) {
+                fallarUnaVez = false;
+                throw new IllegalStateException("Fallo simulado del oyente");
+            }
+        }
+    }
+
+    @BeforeEach
+    void poblar() {
+        grupoRepository.save(new Grupo(GRUPO));
+    }
+
+    @AfterEach
+    void limpiar() {
+        LimpiezaBaseDatos.vaciar(jdbcTemplate, entityManagerFactory);
+        oyente.recibidos.clear();
+        oyente.fallarSiempre = null;
+    }
+
+    @Test
+    void losEventosSeEntreganEnOrdenTrasConfirmar() throws InterruptedException {
+        serieService.createSerie("Serie", "desc", GRUPO);
+        serieService.addCapitulosToSerie(GRUPO, "Serie", "Cap 1\nCap 2", new String[]{"CC###NoAsignado###NADIE"});
+        serieService.updateTarea(GRUPO, "Serie", "Cap 2", "CC", EstadosTareas.Asignado, "ana");
+
+        esperarEventos(4);
+        assertThat(oyente.recibidos).containsExactly(
+                new SerieCreada(GRUPO, "Serie"),
+                new CapituloCreado(GRUPO, "Serie", "Cap 1", List.of("CC")),
+                new CapituloCreado(GRUPO, "Serie", "Cap 2", List.of("CC")),
+                new TareaEstadoCambiado(GRUPO, "Serie", "Cap 2", "CC", EstadosTareas.NoAsignado, EstadosTareas.Asignado, "ana"));
+        assertThat(pendientes()).isZero();
+        assertThat(meterRegistry.get("outbox.entregados").counter().count()).isGreaterThanOrEqualTo(4);
+        assertThat(meterRegistry.get("outbox.retraso").timer().count()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void unaTransaccionDeshechaNoPublicaNada() throws InterruptedException {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            serieService.createSerie("Deshecha", "desc", GRUPO);
+            status.setRollbackOnly();
+        });
+        serieService.createSerie("Confirmada", "desc", GRUPO);
+
+        esperarEventos(1);
+        assertThat(oyente.recibidos).containsExactly(new SerieCreada(GRUPO, "Confirmada"));
+    }
+
+    @Test
+    void siUnOyenteFallaElLoteSeVuelveAEntregar() throws InterruptedException {
+        oyente.fallarUnaVez = true;
+        serieService.createSerie("Serie", "desc", GRUPO);
+
+        esperarEventos(2);
+        assertThat(oyente.recibidos).containsExactly(new SerieCreada(GRUPO, "Serie"), new SerieCreada(GRUPO, "Serie"));
+        assertThat(pendientes()).isZero();
+        assertThat(meterRegistry.get("outbox.errores").counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void unEventoIndecodificableSeAparcaSinFrenarLosSiguientes() throws InterruptedException {
+        eventoOutboxRepository.save(new EventoOutbox("EventoRenombrado", GRUPO, "{}", Instant.now()));
+        serieService.createSerie("Primera", "desc", GRUPO);
+        serieService.createSerie("Segunda", "desc", GRUPO);
+
+        esperarEventos(2);
+        assertThat(oyente.recibidos).containsExactly(new SerieCreada(GRUPO, "Primera"), new SerieCreada(GRUPO, "Segunda"));
+        assertThat(pendientes()).isZero();
+        assertThat(jdbcTemplate.queryForMap("SELECT tipo, intentos, ultimo_error FROM evento_outbox WHERE aparcado IS NOT NULL"))
+                .containsEntry("TIPO", "EventoRenombrado")
+                .containsEntry("INTENTOS", 1)
+                .hasEntrySatisfying("ULTIMO_ERROR", error -> assertThat((String) error).isNotBlank());
+        assertThat(meterRegistry.get("outbox.aparcados").counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void unEventoQueSiempreFallaSeAparcaTrasMaxIntentosYLosSiguientesLlegan() throws InterruptedException {
+        SerieCreada venenosa = new SerieCreada(GRUPO, "Venenosa");
+        oyente.fallarSiempre = venenosa;
+        serieService.createSerie("Venenosa", "desc", GRUPO);
+        serieService.createSerie("Sana", "desc", GRUPO);
+
+        esperarEventos(4);
+        // Mientras no se aparca, la siguiente no se adelanta
+        assertThat(oyente.recibidos).filteredOn(venenosa::equals).hasSizeGreaterThanOrEqualTo(3);
+        assertThat(oyente.recibidos).filteredOn(evento -> !evento.equals(venenosa)).containsExactly(new SerieCreada(GRUPO, "Sana"));
+        assertThat(oyente.recibidos).endsWith(new SerieCreada(GRUPO, "Sana"));
+        assertThat(pendientes()).isZero();
+        assertThat(jdbcTemplate.queryForMap("SELECT intentos, ultimo_error FROM evento_outbox WHERE aparcado IS NOT NULL"))
+                .containsEntry("INTENTOS", 3)
+                .hasEntrySatisfying("ULTIMO_ERROR", error -> assertThat((String) error).contains("Fallo permanente del oyente"));
+    }
+
+    private void esperarEventos(int cuantos) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while ((oyente.recibidos.size() < cuantos || pendientes() > 0) && System.nanoTime() < limite) {
+            Thread.sleep(20);
+        }
+    }
+
+    private int pendientes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM evento_outbox WHERE aparcado IS NULL", Integer.class);
+    }
+}
@@ -0,0 +1,118 @@
+package cc.sars.service;
+
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Alta de capítulos en masa contra la base de datos real (H2), midiendo las sentencias con las estadísticas de Hibernate.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class})
+public class SerieServiceBulkTest {
+
+    @Autowired
+    private SerieService serieService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private UsuarioService usuarioService;
+
+    private static final String[] PLANTILLA = IntStream.rangeClosed(1, 8)
+            .mapToObj(i -> "Tarea " + i + "###NoAsignado###NADIE")
+            .toArray(String[]::new);
+
+    @Test
+    void addCapitulosToSerie_omiteExistentesYRepetidos() {
+        crearSerie("GrupoBulk", "SerieBulk");
+        serieService.addCapitulosToSerie("GrupoBulk", "SerieBulk", "Cap 1\nCap 2", PLANTILLA);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Capitulo> creados = serieService.addCapitulosToSerie("GrupoBulk", "SerieBulk",
+                "Cap 2\r\n  Cap 3 \n\nCap 3\nCap 4\n", new String[]{"CC###Completado###ana", "mal formada"});
+
+        assertThat(creados).extracting(Capitulo::getNombre).containsExactly("Cap 3", "Cap 4");
+        assertThat(creados.get(0).getTareas())
+                .extracting(Tarea::getNombre, Tarea::getEstadoTarea, Tarea::getUsuarioAsignado)
+                .containsExactly(tuple("CC", EstadosTareas.Completado, "ana"));
+        entityManager.flush();
+        entityManager.clear();
+        Serie serie = serieService.getSerieByNombreAndGrupo("GrupoBulk", "SerieBulk").orElseThrow();
+        assertThat(serie.getCapitulos()).extracting(Capitulo::getNombre).containsExactly("Cap 1", "Cap 2", "Cap 3", "Cap 4");
+    }
+
+    /**
+     * Benchmark: una temporada de 300 capítulos con 8 tareas cada uno.
+     * Sin lotes serían 2700 INSERT individuales más una consulta de duplicados por capítulo.
+     */
+    @Test
+    void addCapitulosToSerie_insertaEnLotes() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        crearSerie("GrupoTemporada", "SerieTemporada");
+        entityManager.flush();
+        entityManager.clear();
+        String nombres = IntStream.rangeClosed(1, 300).mapToObj(i -> "Episodio " + i).collect(Collectors.joining("\n"));
+        statistics.clear();
+
+        List<Capitulo> creados = serieService.addCapitulosToSerie("GrupoTemporada", "SerieTemporada", nombres, PLANTILLA);
+        entityManager.flush();
+
+        assertThat(creados).hasSize(300);
+        // Capítulos, tareas y un evento CapituloCreado por capítulo en el outbox
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(300 + 300 * 8 + 300);
+        // 2 consultas (serie y duplicados) + llamadas a secuencia y lotes de 50 filas para capítulos, tareas y eventos
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2 + 2 * (300 / 50 + 2400 / 50 + 300 / 50) + 6);
+    }
+
+    /**
+     * Un capítulo suelto en una serie con 300 capítulos: no se carga el tablero, solo la serie.
+     */
+    @Test
+    void addCapituloToSerie_noCargaElTablero() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        crearSerie("GrupoLargo", "SerieLarga");
+        String nombres = IntStream.rangeClosed(1, 300).mapToObj(i -> "Episodio " + i).collect(Collectors.joining("\n"));
+        serieService.addCapitulosToSerie("GrupoLargo", "SerieLarga", nombres, PLANTILLA);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        Capitulo creado = serieService.addCapituloToSerie("GrupoLargo", "SerieLarga", "Especial");
+        entityManager.flush();
+
+        assertThat(creado.getTareas()).extracting(Tarea::getNombre).containsExactly("CC");
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isLessThanOrEqualTo(2);
+        entityManager.clear();
+        Serie serie = serieService.getSerieByNombreAndGrupo("GrupoLargo", "SerieLarga").orElseThrow();
+        assertThat(serie.getCapitulos()).hasSize(301).extracting(Capitulo::getNombre).endsWith("Especial");
+    }
+
+    private void crearSerie(String nombreGrupo, String nombreSerie) {
+        Grupo grupo = new Grupo(nombreGrupo);
+        entityManager.persist(grupo);
+        Serie serie = new Serie(nombreSerie, "desc");
+        grupo.agregarSerie(serie);
+        entityManager.persist(serie);
+    }
+}
@@ -10,6 +10,7 @@ import cc.sars.model.User; // Importar User
 import cc.sars.repository.CapituloRepository;
 import cc.sars.repository.GrupoRepository;
 import cc.sars.repository.SerieRepository;
+import cc.sars.repository.TareaRepository;
 import cc.sars.repository.UserRepository; // Added import
 import org.junit.jupiter.api.BeforeEach; // Importar
 import org.junit.jupiter.api.Test;
@@ -34,11 +35,21 @@ public class SerieServiceTest {
     @Mock
     private CapituloRepository capituloRepository;
     @Mock
+    private TareaRepository tareaRepository;
+    @Mock
     private GrupoRepository grupoRepository;
     @Mock
     private UserRepository userRepository;
     @Mock
     private UsuarioService usuarioService;
+    @Mock
+    private ContadoresProgreso contadoresProgreso;
+    @Mock
+    private OutboxEventos outboxEventos;
+    @Mock
+    private RegistroCambios registroCambios;
+    @Mock
+    private ValidadoresHttp validadoresHttp;
     @InjectMocks
     private SerieService serieService;
     @InjectMocks
@@ -106,17 +117,20 @@ public class SerieServiceTest {
         Grupo grupo = new Grupo(grupoNombre);
         grupo.agregarSerie(serie);
 
-        when(grupoRepository.findByNombre(grupoNombre)).thenReturn(Optional.of(grupo));
+        when(serieRepository.findByGrupo_NombreAndNombre(grupoNombre, serieNombre)).thenReturn(Optional.of(serie));
         when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.empty());
-        when(serieRepository.save(any(Serie.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(capituloRepository.save(any(Capitulo.class))).thenAnswer(i -> i.getArguments()[0]);
 
         // ACT
-        Serie result = serieService.addCapituloToSerie(grupoNombre, serieNombre, capituloNombre);
+        Capitulo result = serieService.addCapituloToSerie(grupoNombre, serieNombre, capituloNombre);
 
         // ASSERT
-        assertThat(result.getCapitulos()).hasSize(1);
-        assertThat(result.getCapitulos().iterator().next().getNombre()).isEqualTo(capituloNombre);
-        verify(serieRepository).save(any(Serie.class));
+        assertThat(result.getNombre()).isEqualTo(capituloNombre);
+        assertThat(result.getSerie()).isSameAs(serie);
+        assertThat(result.getTareas()).extracting(Tarea::getNombre).containsExactly("CC");
+        verify(capituloRepository).save(result);
+        verify(serieRepository, never()).findTableroByGrupo_NombreAndNombre(any(), any());
+        verify(serieRepository, never()).save(any(Serie.class));
     }
 
     /**
@@ -131,13 +145,18 @@ public class SerieServiceTest {
         String tareaNombre = "NuevaTarea";
         Capitulo capituloMock = mock(Capitulo.class);
         when(capituloRepository.findByNaturalKey(grupo, serie, capituloNombre)).thenReturn(Optional.of(capituloMock));
+        when(tareaRepository.findByCapituloAndNombre(capituloMock, tareaNombre)).thenReturn(Optional.empty());
+        when(tareaRepository.save(any(Tarea.class))).thenAnswer(i -> i.getArguments()[0]);
         
         // ACT
-        serieService.addTareaToCapitulo(grupo, serie, capituloNombre, tareaNombre);
+        Tarea result = serieService.addTareaToCapitulo(grupo, serie, capituloNombre, tareaNombre);
         
         // ASSERT
-        verify(capituloMock).anyadirTarea(any(Tarea.class));
-        verify(capituloRepository).save(capituloMock);
+        assertThat(result.getNombre()).isEqualTo(tareaNombre);
+        assertThat(result.getCapitulo()).isSameAs(capituloMock);
+        // La tarea se inserta por sí sola: no se toca la colección del capítulo
+        verify(capituloMock, never()).anyadirTarea(any(Tarea.class));
+        verify(tareaRepository).save(result);
     }
 
     // --- TESTS DE LÓGICA DE TAREAS ---
@@ -164,7 +183,7 @@ public class SerieServiceTest {
         mockSerie.setGrupo(mockGrupo);
         capituloReal.anyadirTarea(tareaReal);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNombre)).thenReturn(Optional.of(tareaReal));
         when(usuarioService.findByUsername(usuarioSimuladoUser.getUsername())).thenReturn(Optional.of(usuarioSimuladoUser));
         when(usuarioService.esLiderEnGrupo(usuarioSimuladoUser, mockGrupo)).thenReturn(false);
 
@@ -173,7 +192,7 @@ public class SerieServiceTest {
         
         // ASSERT
         assertThat(tareaReal.getEstadoTarea()).isEqualTo(EstadosTareas.Completado);
-        verify(capituloRepository).save(capituloReal);
+        verify(tareaRepository).save(tareaReal);
     }
 
     /**
@@ -199,7 +218,7 @@ public class SerieServiceTest {
         mockSerie.setGrupo(mockGrupo);
         capituloReal.anyadirTarea(tareaReal);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNombre)).thenReturn(Optional.of(tareaReal));
         when(usuarioService.findByUsername(usuarioSimuladoUser.getUsername())).thenReturn(Optional.of(usuarioSimuladoUser));
         when(usuarioService.esLiderEnGrupo(usuarioSimuladoUser, mockGrupo)).thenReturn(false);
 
@@ -211,7 +230,7 @@ public class SerieServiceTest {
         assertThat(tareaReal.getEstadoTarea()).isEqualTo(EstadosTareas.Asignado);
         // Y el usuario asignado es el usuario que hizo el cambio
         assertThat(tareaReal.getUsuarioAsignado()).isEqualTo(usuarioSimuladoUser.getUsername());
-        verify(capituloRepository).save(capituloReal);
+        verify(tareaRepository).save(tareaReal);
     }
 
     /**
@@ -238,7 +257,7 @@ public class SerieServiceTest {
         mockSerie.setGrupo(mockGrupo);
         capituloReal.anyadirTarea(tareaBloqueada);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNombre)).thenReturn(Optional.of(tareaBloqueada));
         when(usuarioService.findByUsername(usuarioSimuladoUser.getUsername())).thenReturn(Optional.of(usuarioSimuladoUser));
         when(usuarioService.esLiderEnGrupo(usuarioSimuladoUser, mockGrupo)).thenReturn(false);
 
@@ -252,7 +271,7 @@ public class SerieServiceTest {
         .hasMessage("No puedes cambiar el estado de una tarea asignada a OtroUsuario.");
 
         // Verificamos que NUNCA se guardó
-        verify(capituloRepository, never()).save(capituloReal);
+        verify(tareaRepository, never()).save(any(Tarea.class));
     }
 
     /**
@@ -280,8 +299,8 @@ public class SerieServiceTest {
         capituloReal.setSerie(mockSerie);
         capituloReal.anyadirTarea(tareaReal);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
-        when(capituloRepository.save(any(Capitulo.class))).thenReturn(capituloReal);
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNombre)).thenReturn(Optional.of(tareaReal));
+        when(tareaRepository.save(any(Tarea.class))).thenReturn(tareaReal);
         when(usuarioService.findByUsername(usuarioSimuladoQC.getUsername())).thenReturn(Optional.of(usuarioSimuladoQC));
         when(usuarioService.esLiderEnGrupo(usuarioSimuladoQC, mockGrupo)).thenReturn(false);
         when(usuarioService.esQcEnGrupo(usuarioSimuladoQC, mockGrupo)).thenReturn(true);
@@ -292,7 +311,7 @@ public class SerieServiceTest {
         // ASSERT
         assertThat(tareaReal.getEstadoTarea()).isEqualTo(EstadosTareas.Repetir);
         assertThat(tareaReal.getUsuarioAsignado()).isEqualTo("NADIE"); // Should be unassigned
-        verify(capituloRepository).save(capituloReal);
+        verify(tareaRepository).save(tareaReal);
     }
 
     /**
@@ -322,7 +341,7 @@ public class SerieServiceTest {
         capituloReal.setSerie(mockSerie);
         capituloReal.anyadirTarea(tareaReal);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNombre)).thenReturn(Optional.of(tareaReal));
         when(usuarioService.findByUsername(usuarioSimuladoQC.getUsername())).thenReturn(Optional.of(usuarioSimuladoQC));
         when(usuarioService.esLiderEnGrupo(usuarioSimuladoQC, mockGrupo)).thenReturn(false);
         when(usuarioService.esQcEnGrupo(usuarioSimuladoQC, mockGrupo)).thenReturn(true);
@@ -342,7 +361,7 @@ public class SerieServiceTest {
         .isInstanceOf(RuntimeException.class)
         .hasMessageContaining("No puedes cambiar el estado de una tarea asignada a " + otroUsuario);
 
-        verify(capituloRepository, never()).save(any(Capitulo.class)); // No save should happen
+        verify(tareaRepository, never()).save(any(Tarea.class)); // No save should happen
     }
 
     /**
@@ -376,7 +395,8 @@ public class SerieServiceTest {
         capituloReal.anyadirTarea(ccTarea);
         capituloReal.anyadirTarea(tareaNormal);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNormalNombre)).thenReturn(Optional.of(tareaNormal));
+        when(tareaRepository.findByCapituloAndNombre(capituloReal, ccTareaNombre)).thenReturn(Optional.of(ccTarea));
         when(usuarioService.findByUsername(usuarioSimuladoQC.getUsername())).thenReturn(Optional.of(usuarioSimuladoQC));
         assertThatThrownBy(() -> {
             serieService.updateTareaEstado(grupoNombre, serieNombre, capituloNombre, tareaNormalNombre, EstadosTareas.Asignado, usuarioSimuladoQC.getUsername());
@@ -384,7 +404,7 @@ public class SerieServiceTest {
         .isInstanceOf(RuntimeException.class)
         .hasMessageContaining("No puedes cambiar el estado de las tareas en este capítulo porque la tarea 'CC' está completada.");
 
-        verify(capituloRepository, never()).save(any(Capitulo.class)); // No save should happen
+        verify(tareaRepository, never()).save(any(Tarea.class)); // No save should happen
     }
 
     /**
@@ -418,7 +438,8 @@ public class SerieServiceTest {
         capituloReal.anyadirTarea(ccTarea);
         capituloReal.anyadirTarea(tareaNormal);
 
-        when(capituloRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre)).thenReturn(Optional.of(capituloReal));
+        when(tareaRepository.findByNaturalKey(grupoNombre, serieNombre, capituloNombre, tareaNormalNombre)).thenReturn(Optional.of(tareaNormal));
+        when(tareaRepository.findByCapituloAndNombre(capituloReal, ccTareaNombre)).thenReturn(Optional.of(ccTarea));
         when(usuarioService.findByUsername(usuarioSimuladoUser.getUsername())).thenReturn(Optional.of(usuarioSimuladoUser));
 
 
@@ -429,7 +450,7 @@ public class SerieServiceTest {
         .isInstanceOf(RuntimeException.class)
         .hasMessageContaining("No puedes cambiar el estado de las tareas en este capítulo porque la tarea 'CC' está completada.");
 
-        verify(capituloRepository, never()).save(any(Capitulo.class)); // No save should happen
+        verify(tareaRepository, never()).save(any(Tarea.class)); // No save should happen
     }
 
     // @Test
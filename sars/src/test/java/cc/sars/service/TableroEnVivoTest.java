@@ -0,0 +1,121 @@
+package cc.sars.service;
+
+import cc.sars.evento.CapituloCreado;
+import cc.sars.evento.TareaAsignada;
+import cc.sars.evento.TareaEstadoCambiado;
+import cc.sars.model.EstadosTareas;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TableroEnVivoTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TableroEnVivo tablero = new TableroEnVivo(meterRegistry, 4, 2, Duration.ofMinutes(1));
+
+    /** Emisor sin petición HTTP detrás: guarda lo enviado y, si se le pide, se queda bloqueado como un cliente que no lee. */
+    static class EmisorDePrueba extends SseEmitter {
+        final List<String> recibidos = new CopyOnWriteArrayList<>();
+        final CountDownLatch bloqueo;
+        volatile boolean completado;
+
+        EmisorDePrueba(boolean lento) {
+            this.bloqueo = new CountDownLatch(lento ? 1 : 0);
+        }
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            try {
+                bloqueo.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recibidos.add(items.stream().map(d -> d.getData().toString()).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completado = true;
+        }
+    }
+
+    @AfterEach
+    void cerrar() {
+        tablero.cerrar();
+    }
+
+    @Test
+    void losCambiosLleganSoloAlTableroDeLaSerie() throws InterruptedException {
+        EmisorDePrueba viendoSerie = new EmisorDePrueba(false);
+        EmisorDePrueba viendoOtra = new EmisorDePrueba(false);
+        tablero.suscribir("Grupo", "Serie", viendoSerie);
+        tablero.suscribir("Grupo", "Otra", viendoOtra);
+
+        tablero.alCambiar(new TareaEstadoCambiado("Grupo", "Serie", "Cap 1", "CC", EstadosTareas.Asignado, EstadosTareas.Completado, "ana"));
+        tablero.alCambiar(new TareaAsignada("Grupo", "Serie", "Cap 1", "CC", "luis"));
+
+        esperar(() -> viendoSerie.recibidos.size() == 2);
+        assertThat(viendoSerie.recibidos.get(0)).isEqualTo("event:tarea\ndata:"
+                + "{\"capitulo\":\"Cap 1\",\"tarea\":\"CC\",\"estadoAnterior\":\"Asignado\",\"estado\":\"Completado\",\"usuario\":\"ana\"}\n\n");
+        assertThat(viendoSerie.recibidos.get(1)).contains("{\"capitulo\":\"Cap 1\",\"tarea\":\"CC\",\"usuario\":\"luis\"}");
+        assertThat(viendoOtra.recibidos).isEmpty();
+        assertThat(tablero.conexiones()).isEqualTo(2);
+    }
+
+    @Test
+    void unClienteLentoSeDesalojaSinFrenarALosDemas() throws InterruptedException {
+        EmisorDePrueba lento = new EmisorDePrueba(true);
+        EmisorDePrueba rapido = new EmisorDePrueba(false);
+        tablero.suscribir("Grupo", "Serie", lento);
+        tablero.suscribir("Grupo", "Serie", rapido);
+
+        // Al lento, el primero se le queda en el envío bloqueado y los 4 siguientes llenan la cola; el sexto no cabe
+        for (int i = 0; i < 6; i++) {
+            tablero.alCambiar(new TareaAsignada("Grupo", "Serie", "Cap " + i, "CC", "ana"));
+            int enviados = i + 1;
+            esperar(() -> rapido.recibidos.size() == enviados);
+        }
+
+        assertThat(rapido.recibidos).hasSize(6);
+        assertThat(lento.completado).isTrue();
+        assertThat(tablero.conexiones()).isEqualTo(1);
+        assertThat(meterRegistry.get("tablero.desalojos").counter().count()).isEqualTo(1);
+        lento.bloqueo.countDown();
+    }
+
+    @Test
+    void losAvisosDeEstructuraNoLlenanLaCola() throws InterruptedException {
+        EmisorDePrueba ocupado = new EmisorDePrueba(true);
+        tablero.suscribir("Grupo", "Serie", ocupado);
+
+        // Con la cola de 4 y el cliente sin leer, cien capítulos nuevos dejan como mucho un aviso en cola
+        for (int i = 0; i < 100; i++) {
+            tablero.alCambiar(new CapituloCreado("Grupo", "Serie", "Cap " + i, List.of("CC")));
+        }
+        ocupado.bloqueo.countDown();
+
+        esperar(() -> !ocupado.recibidos.isEmpty());
+        assertThat(ocupado.completado).isFalse();
+        assertThat(tablero.conexiones()).isEqualTo(1);
+        assertThat(ocupado.recibidos).hasSizeLessThanOrEqualTo(2).containsOnly("event:estructura\ndata:{}\n\n");
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (!condicion.getAsBoolean() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+    }
+}
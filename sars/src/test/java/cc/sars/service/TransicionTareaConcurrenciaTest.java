@@ -0,0 +1,152 @@
+package cc.sars.service;
+
+import cc.sars.exception.ConflictoConcurrenteException;
+import cc.sars.exception.VersionNoCoincideException;
+import cc.sars.model.Capitulo;
+import cc.sars.model.EstadosTareas;
+import cc.sars.model.Grupo;
+import cc.sars.model.Role;
+import cc.sars.model.Serie;
+import cc.sars.model.Tarea;
+import cc.sars.model.User;
+import cc.sars.model.UsuarioGrupo;
+import cc.sars.repository.TareaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Reclamaciones simultáneas de la misma tarea contra H2. Cada llamada usa su propia transacción
+ * (ver {@link LimpiezaBaseDatos}).
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SerieService.class, ContadoresProgreso.class, OutboxEventos.class, RegistroCambios.class, ValidadoresHttp.class, UsuarioService.class, GrupoService.class, TransicionTareaService.class,
+        MembresiasCache.class, UsuariosCache.class, SimpleMeterRegistry.class})
+public class TransicionTareaConcurrenciaTest {
+
+    private static final int RECLAMACIONES = 300;
+    private static final String GRUPO = "GrupoConcurrente";
+    private static final String SERIE = "SerieConcurrente";
+    private static final String CAPITULO = "Cap 1";
+    private static final String TAREA = "Traducción";
+
+    @Autowired
+    private TransicionTareaService transicionTareaService;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private jakarta.persistence.EntityManager entityManager;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void poblar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Grupo grupo = new Grupo(GRUPO);
+            entityManager.persist(grupo);
+            Serie serie = new Serie(SERIE, "desc");
+            grupo.agregarSerie(serie);
+            entityManager.persist(serie);
+            Capitulo capitulo = new Capitulo(CAPITULO);
+            capitulo.anyadirTarea(new Tarea(TAREA));
+            capitulo.setSerie(serie);
+            entityManager.persist(capitulo);
+            for (int u = 0; u < RECLAMACIONES; u++) {
+                User usuario = new User("usuario-" + u, "pass", Role.ROLE_USER);
+                entityManager.persist(usuario);
+                UsuarioGrupo usuarioGrupo = new UsuarioGrupo();
+                usuarioGrupo.setUsuario(usuario);
+                usuarioGrupo.setGrupo(grupo);
+                usuarioGrupo.setRol(Role.ROLE_USER);
+                entityManager.persist(usuarioGrupo);
+            }
+        });
+    }
+
+    @AfterEach
+    void limpiar() {
+        LimpiezaBaseDatos.vaciar(jdbcTemplate, entityManager.getEntityManagerFactory());
+    }
+
+    @Test
+    void reclamacionesSimultaneas_soloUnaGanaYNadieSobrescribe() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(32);
+        CountDownLatch salida = new CountDownLatch(1);
+        ConcurrentLinkedQueue<String> ganadores = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Throwable> inesperados = new ConcurrentLinkedQueue<>();
+        List<Future<?>> reclamaciones = new ArrayList<>();
+        for (int u = 0; u < RECLAMACIONES; u++) {
+            String usuario = "usuario-" + u;
+            reclamaciones.add(hilos.submit(() -> {
+                salida.await();
+                try {
+                    transicionTareaService.cambiarEstado(GRUPO, SERIE, CAPITULO, TAREA, EstadosTareas.Asignado, usuario, null);
+                    ganadores.add(usuario);
+                } catch (ConflictoConcurrenteException e) {
+                    // Reintentos agotados: la reclamación se rechaza sin escribir nada
+                } catch (RuntimeException e) {
+                    if (!e.getMessage().startsWith("No puedes cambiar el estado de una tarea asignada a")) {
+                        inesperados.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> reclamacion : reclamaciones) {
+            reclamacion.get(60, TimeUnit.SECONDS);
+        }
+        hilos.shutdown();
+
+        assertThat(inesperados).isEmpty();
+        assertThat(ganadores).hasSize(1);
+        Tarea tarea = tareaRepository.findByNaturalKey(GRUPO, SERIE, CAPITULO, TAREA).orElseThrow();
+        assertThat(tarea.getEstadoTarea()).isEqualTo(EstadosTareas.Asignado);
+        assertThat(tarea.getUsuarioAsignado()).isEqualTo(ganadores.peek());
+        // Una sola escritura confirmada
+        assertThat(tarea.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void versionEsperadaAntigua_rechazaElCambio() {
+        transicionTareaService.cambiarEstado(GRUPO, SERIE, CAPITULO, TAREA, EstadosTareas.Asignado, "usuario-1", 0L);
+
+        assertThatThrownBy(() -> transicionTareaService.cambiarEstado(GRUPO, SERIE, CAPITULO, TAREA, EstadosTareas.Completado, "usuario-1", 0L))
+                .isInstanceOf(VersionNoCoincideException.class);
+        Tarea completada = transicionTareaService.cambiarEstado(GRUPO, SERIE, CAPITULO, TAREA, EstadosTareas.Completado, "usuario-1", 1L);
+        assertThat(completada.getVersion()).isEqualTo(2L);
+    }
+}
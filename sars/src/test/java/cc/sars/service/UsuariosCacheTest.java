@@ -0,0 +1,159 @@
+package cc.sars.service;
+
+import cc.sars.model.Role;
+import cc.sars.model.User;
+import cc.sars.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Login a través del DaoAuthenticationProvider con la caché, contando las lecturas de 'sec_user'.
+ */
+public class UsuariosCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong reloj = new AtomicLong();
+    private UsuariosCache usuariosCache;
+    private DaoAuthenticationProvider provider;
+
+    @SuppressWarnings("deprecation")
+    @BeforeEach
+    void configurar() {
+        usuariosCache = new UsuariosCache(meterRegistry, 2, TTL, reloj::get);
+        provider = new DaoAuthenticationProvider(new JpaUserDetailsService(userRepository));
+        provider.setPasswordEncoder(NoOpPasswordEncoder.getInstance());
+        provider.setUserCache(usuariosCache);
+        when(userRepository.findByUsername("ana")).thenAnswer(i -> Optional.of(new User("ana", "secreta", Role.ROLE_USER)));
+        when(userRepository.findByUsername("luis")).thenAnswer(i -> Optional.of(new User("luis", "otra", Role.ROLE_USER)));
+        when(userRepository.findByUsername("eva")).thenAnswer(i -> Optional.of(new User("eva", "clave", Role.ROLE_ADMIN)));
+    }
+
+    @Test
+    void loginsRepetidosLeenElUsuarioUnaVez() {
+        Authentication primero = login("ana", "secreta");
+        Authentication segundo = login("ana", "secreta");
+
+        verify(userRepository, times(1)).findByUsername("ana");
+        assertThat(segundo.getPrincipal()).isInstanceOf(User.class).isNotSameAs(primero.getPrincipal());
+        assertThat(segundo.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(gets("hit")).isEqualTo(1);
+        assertThat(gets("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void contrasenyaIncorrectaNoSeAceptaDesdeLaCache() {
+        login("ana", "secreta");
+
+        assertThatThrownBy(() -> login("ana", "mala")).isInstanceOf(BadCredentialsException.class);
+        // El proveedor descarta la entrada cacheada y vuelve a leer antes de rechazar
+        verify(userRepository, times(2)).findByUsername("ana");
+    }
+
+    @Test
+    void caducaPorTiempoYPorTamanyo() {
+        login("ana", "secreta");
+        reloj.addAndGet(TTL.toNanos());
+        login("ana", "secreta");
+        verify(userRepository, times(2)).findByUsername("ana");
+
+        login("luis", "otra");
+        // Con capacidad 2, 'eva' desaloja a 'ana' (la menos reciente) y 'ana' a 'luis'
+        login("eva", "clave");
+        login("ana", "secreta");
+        verify(userRepository, times(3)).findByUsername("ana");
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "usuarios").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "usuarios").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidarObligaARecargar() {
+        login("ana", "secreta");
+        usuariosCache.removeUserFromCache("ana");
+        login("ana", "secreta");
+
+        login("luis", "otra");
+        usuariosCache.invalidarTodo();
+        login("luis", "otra");
+
+        verify(userRepository, times(2)).findByUsername("ana");
+        verify(userRepository, times(2)).findByUsername("luis");
+    }
+
+    /**
+     * La baja se confirma mientras un login lee 'sec_user': lo leído es anterior a la baja y no debe quedar en caché.
+     */
+    @Test
+    void unaCargaAnteriorALaInvalidacionNoSeGuarda() {
+        when(userRepository.findByUsername("ana")).thenAnswer(i -> {
+            User leido = new User("ana", "secreta", Role.ROLE_USER);
+            usuariosCache.removeUserFromCache("ana");
+            return Optional.of(leido);
+        });
+        login("ana", "secreta");
+
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> login("ana", "secreta")).isInstanceOf(BadCredentialsException.class);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "usuarios").gauge().value()).isZero();
+    }
+
+    /**
+     * Un login entre la invalidación inmediata y la del final de la transacción guarda datos aún sin confirmar:
+     * se descartan al terminar.
+     */
+    @Test
+    void unaCargaDuranteLaTransaccionSeDescartaAlTerminar() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            usuariosCache.removeUserFromCache("ana");
+            login("ana", "secreta");
+            assertThat(meterRegistry.get("cache.size").tag("cache", "usuarios").gauge().value()).isEqualTo(1);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(meterRegistry.get("cache.size").tag("cache", "usuarios").gauge().value()).isZero();
+        login("ana", "secreta");
+        verify(userRepository, times(2)).findByUsername("ana");
+    }
+
+    @Test
+    void soloSeGuardaLoConsultadoEnElMismoHilo() {
+        usuariosCache.putUserInCache(new User("ana", "secreta", Role.ROLE_USER));
+        usuariosCache.getUserFromCache("luis");
+        usuariosCache.putUserInCache(new User("ana", "secreta", Role.ROLE_USER));
+
+        assertThat(meterRegistry.get("cache.size").tag("cache", "usuarios").gauge().value()).isZero();
+    }
+
+    private Authentication login(String username, String password) {
+        return provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(username, password));
+    }
+
+    private double gets(String resultado) {
+        return meterRegistry.get("cache.gets").tag("cache", "usuarios").tag("result", resultado).counter().count();
+    }
+}